@@ -0,0 +1,300 @@
+package com.chatapp.chat_service.common.cache;
+
+import com.chatapp.chat_service.redis.publisher.RedisCacheEvictPublisher;
+import com.chatapp.chat_service.redis.subscriber.RedisCacheEvictSubscriber;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Cache 2 tầng có version:
+ * - L1: LocalLruCache trên từng node
+ * - L2: Redis hash {name}:{key} = {v: version, d: JSON}, dùng chung giữa các node
+ * Mỗi lần invalidate sẽ INCR {name}_version:{key}, xóa L2 và gửi version mới qua cacheEvictTopic để các node bỏ L1.
+ * Giá trị load từ DB chỉ được ghi vào L2/L1 nếu version không đổi trong lúc load, nên không bị ghi đè bằng dữ liệu cũ.
+ * Version key có TTL = L1 TTL + L2 TTL, gia hạn mỗi lần invalidate/ghi L2, nên sống lâu hơn mọi entry mang version đó.
+ * Redis lỗi khi invalidate: không biết version mới, các node chỉ bỏ entry L1 (không ghi nhận version).
+ * Metrics: chat.cache.requests{cache, tier=l1|l2, result=hit|miss} và chat.cache.size{cache, tier=l1}.
+ */
+@Slf4j
+public class TwoLevelCache<K, V> {
+
+    // KEYS: value hash, version counter; ARGV: version đã đọc trước khi load, JSON, ttl, ttl của version
+    private static final byte[] WRITE_IF_CURRENT = (
+            "local current = redis.call('GET', KEYS[2]) or '0' " +
+            "if current ~= ARGV[1] then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'v', ARGV[1], 'd', ARGV[2]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3]) " +
+            "if current ~= '0' then redis.call('EXPIRE', KEYS[2], ARGV[4]) end " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: value hash, version counter; ARGV: ttl của version
+    private static final DefaultRedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "local version = redis.call('INCR', KEYS[2]) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[1]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return version", Long.class);
+
+    // Version không xác định (Redis lỗi khi invalidate)
+    private static final long UNKNOWN_VERSION = 0L;
+
+    private final String name;
+    private final Class<V> valueType;
+    private final Function<K, String> keyEncoder;
+    private final Function<String, K> keyDecoder;
+    private final Duration l2Ttl;
+    private final Duration versionTtl;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RedisCacheEvictPublisher evictPublisher;
+    private final LocalLruCache<K, Versioned<V>> l1;
+    // Version mới nhất đã thấy qua invalidate; entry cũ hơn không được đưa lại vào L1
+    private final LocalLruCache<K, Long> invalidatedVersions;
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+
+    public TwoLevelCache(String name, Class<V> valueType,
+                         Function<K, String> keyEncoder, Function<String, K> keyDecoder,
+                         int l1MaxSize, Duration l1Ttl, Duration l2Ttl,
+                         RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper,
+                         RedisCacheEvictPublisher evictPublisher, RedisCacheEvictSubscriber evictSubscriber,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.valueType = valueType;
+        this.keyEncoder = keyEncoder;
+        this.keyDecoder = keyDecoder;
+        this.l2Ttl = l2Ttl;
+        this.versionTtl = l1Ttl.plus(l2Ttl);
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper.copy()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.evictPublisher = evictPublisher;
+        this.l1 = new LocalLruCache<>(l1MaxSize, l1Ttl);
+        this.invalidatedVersions = new LocalLruCache<>(l1MaxSize, l1Ttl);
+
+        this.l1Hits = requests(meterRegistry, "l1", "hit");
+        this.l1Misses = requests(meterRegistry, "l1", "miss");
+        this.l2Hits = requests(meterRegistry, "l2", "hit");
+        this.l2Misses = requests(meterRegistry, "l2", "miss");
+        Gauge.builder("chat.cache.size", l1, LocalLruCache::size)
+                .tag("cache", name)
+                .tag("tier", "l1")
+                .register(meterRegistry);
+
+        evictSubscriber.register(name, (key, version) -> invalidateLocal(keyDecoder.apply(key), version));
+    }
+
+    public Optional<V> get(K key, Function<List<K>, Map<K, V>> loader) {
+        return Optional.ofNullable(getAll(List.of(key), loader).get(key));
+    }
+
+    /**
+     * L1 -> L2 (1 pipeline) -> loader cho phần còn thiếu
+     * @param loader load theo lô, key không tồn tại thì không có trong map (không cache giá trị rỗng)
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        List<K> l1MissKeys = new ArrayList<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            Optional<Versioned<V>> cached = l1.get(key);
+            if (cached.isPresent()) {
+                result.put(key, cached.get().value());
+            } else {
+                l1MissKeys.add(key);
+            }
+        }
+        l1Hits.increment(result.size());
+        l1Misses.increment(l1MissKeys.size());
+        if (l1MissKeys.isEmpty()) {
+            return result;
+        }
+
+        List<K> l2MissKeys = new ArrayList<>();
+        List<Object> stored = readL2(l1MissKeys);
+        for (int i = 0; i < l1MissKeys.size(); i++) {
+            K key = l1MissKeys.get(i);
+            Versioned<V> entry = stored != null ? parse(stored.get(i)) : null;
+            if (entry == null) {
+                l2MissKeys.add(key);
+            } else {
+                putL1(key, entry);
+                result.put(key, entry.value());
+            }
+        }
+        l2Hits.increment(l1MissKeys.size() - l2MissKeys.size());
+        l2Misses.increment(l2MissKeys.size());
+
+        if (!l2MissKeys.isEmpty()) {
+            result.putAll(load(l2MissKeys, loader));
+        }
+        return result;
+    }
+
+    /**
+     * Bỏ qua L1/L2, load lại từ nguồn và ghi vào cache
+     */
+    public Map<K, V> refreshAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        return load(new ArrayList<>(new LinkedHashSet<>(keys)), loader);
+    }
+
+    /**
+     * Gọi sau khi dữ liệu nguồn đã thay đổi; có hiệu lực trên mọi node
+     */
+    public void invalidate(K key) {
+        String encoded = keyEncoder.apply(key);
+        long version = UNKNOWN_VERSION;
+        try {
+            Long next = redisTemplate.execute(INVALIDATE, List.of(valueKey(encoded), versionKey(encoded)),
+                    String.valueOf(versionTtl.toSeconds()));
+            version = next != null ? next : version;
+        } catch (Exception e) {
+            log.warn("Failed to invalidate {} entry {} in Redis: {}", name, encoded, e.getMessage());
+        }
+        invalidateLocal(key, version);
+        try {
+            evictPublisher.publish(name, encoded, version);
+        } catch (Exception e) {
+            log.warn("Failed to publish {} invalidation for {}: {}", name, encoded, e.getMessage());
+        }
+    }
+
+    private void invalidateLocal(K key, long version) {
+        if (version == UNKNOWN_VERSION) {
+            l1.invalidate(key);
+            return;
+        }
+        invalidatedVersions.put(key, Math.max(version, invalidatedVersions.get(key).orElse(0L)));
+        l1.get(key).filter(entry -> entry.version() < version).ifPresent(entry -> l1.invalidate(key));
+    }
+
+    private Map<K, V> load(List<K> keys, Function<List<K>, Map<K, V>> loader) {
+        // Đọc version trước khi load: nếu có invalidate trong lúc load thì kết quả không được cache
+        Map<K, Long> versions = readVersions(keys);
+        Map<K, V> loaded = loader.apply(keys);
+        if (versions.isEmpty() || loaded.isEmpty()) {
+            return loaded;
+        }
+
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                loaded.forEach((key, value) -> {
+                    String encoded = keyEncoder.apply(key);
+                    connection.scriptingCommands().eval(WRITE_IF_CURRENT, ReturnType.INTEGER, 2,
+                            bytes(valueKey(encoded)),
+                            bytes(versionKey(encoded)),
+                            bytes(String.valueOf(versions.get(key))),
+                            bytes(serialize(value)),
+                            bytes(String.valueOf(l2Ttl.toSeconds())),
+                            bytes(String.valueOf(versionTtl.toSeconds())));
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to write {} entries to Redis: {}", name, e.getMessage());
+        }
+        loaded.forEach((key, value) -> putL1(key, new Versioned<>(versions.get(key), value)));
+        return loaded;
+    }
+
+    private void putL1(K key, Versioned<V> entry) {
+        if (entry.version() >= invalidatedVersions.get(key).orElse(0L)) {
+            l1.put(key, entry);
+        }
+    }
+
+    private Map<K, Long> readVersions(List<K> keys) {
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(keys.stream()
+                    .map(key -> versionKey(keyEncoder.apply(key)))
+                    .toList());
+            Map<K, Long> versions = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values != null ? values.get(i) : null;
+                versions.put(keys.get(i), value != null ? Long.parseLong(value) : 0L);
+            }
+            return versions;
+        } catch (Exception e) {
+            log.warn("Failed to read {} versions, loading without caching: {}", name, e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private List<Object> readL2(List<K> keys) {
+        try {
+            return redisTemplate.executePipelined((RedisConnection connection) -> {
+                keys.forEach(key -> connection.hashCommands().hMGet(
+                        bytes(valueKey(keyEncoder.apply(key))), bytes("v"), bytes("d")));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to read {} entries from Redis: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return null nếu không có trong L2 hoặc dữ liệu không đọc được (coi như miss)
+     */
+    private Versioned<V> parse(Object value) {
+        if (!(value instanceof List<?> fields) || fields.size() != 2
+                || !(fields.get(0) instanceof String version) || !(fields.get(1) instanceof String json)) {
+            return null;
+        }
+        try {
+            return new Versioned<>(Long.parseLong(version), objectMapper.readValue(json, valueType));
+        } catch (Exception e) {
+            log.warn("Discarding unreadable {} cache entry: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private String serialize(V value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot serialize " + name + " cache entry", e);
+        }
+    }
+
+    private String valueKey(String encodedKey) {
+        return name + ":" + encodedKey;
+    }
+
+    private String versionKey(String encodedKey) {
+        return name + "_version:" + encodedKey;
+    }
+
+    private Counter requests(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("chat.cache.requests")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Versioned<V>(long version, V value) {
+    }
+}
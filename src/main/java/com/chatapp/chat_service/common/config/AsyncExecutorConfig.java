@@ -0,0 +1,55 @@
+package com.chatapp.chat_service.common.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Các thread pool có giới hạn dùng cho xử lý song song/bất đồng bộ.
+ * Khi queue đầy, task chạy trên thread gọi (CallerRunsPolicy) để tạo backpressure thay vì drop.
+ */
+@Configuration
+public class AsyncExecutorConfig {
+
+    @Bean(name = "messageHydrationExecutor")
+    public ThreadPoolTaskExecutor messageHydrationExecutor(
+            @Value("${chat.hydration.pool-size:8}") int poolSize,
+            @Value("${chat.hydration.queue-capacity:200}") int queueCapacity) {
+        return boundedExecutor("msg-hydrate-", poolSize, queueCapacity);
+    }
+
+    @Bean(name = "inboxFanoutExecutor")
+    public ThreadPoolTaskExecutor inboxFanoutExecutor(
+            @Value("${chat.inbox.fanout.pool-size:4}") int poolSize,
+            @Value("${chat.inbox.fanout.queue-capacity:1000}") int queueCapacity) {
+        return boundedExecutor("inbox-fanout-", poolSize, queueCapacity);
+    }
+
+    @Bean(name = "conversationAssemblyExecutor")
+    public ThreadPoolTaskExecutor conversationAssemblyExecutor(
+            @Value("${chat.conversation.assembly.pool-size:8}") int poolSize,
+            @Value("${chat.conversation.assembly.queue-capacity:200}") int queueCapacity) {
+        return boundedExecutor("conv-assemble-", poolSize, queueCapacity);
+    }
+
+    @Bean(name = "notificationFanoutExecutor")
+    public ThreadPoolTaskExecutor notificationFanoutExecutor(
+            @Value("${chat.notification.fanout.pool-size:4}") int poolSize,
+            @Value("${chat.notification.fanout.queue-capacity:500}") int queueCapacity) {
+        return boundedExecutor("notif-fanout-", poolSize, queueCapacity);
+    }
+
+    static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -3,9 +3,11 @@ package com.chatapp.chat_service.conversation.controller;
 import com.chatapp.chat_service.conversation.dto.ConversationRequest;
 import com.chatapp.chat_service.conversation.dto.ConversationResponseDto;
 import com.chatapp.chat_service.conversation.dto.ConversationSearchDto;
+import com.chatapp.chat_service.conversation.dto.ConversationSyncResponse;
 import com.chatapp.chat_service.conversation.dto.UpdateConversationRequest;
 import com.chatapp.chat_service.conversation.entity.Conversation;
 import com.chatapp.chat_service.conversation.service.ConversationService;
+import com.chatapp.chat_service.conversation.service.ConversationSyncService;
 import com.chatapp.chat_service.security.core.CustomUserDetails;
 
 import lombok.RequiredArgsConstructor;
@@ -25,6 +27,7 @@ import java.util.UUID;
 public class ConversationController {
 
     private final ConversationService conversationService;
+    private final ConversationSyncService conversationSyncService;
 
     @GetMapping("/my")
     public ResponseEntity<List<ConversationResponseDto>> getMyConversations(Authentication authentication) {
@@ -33,6 +36,18 @@ public class ConversationController {
         List<ConversationResponseDto> conversations = conversationService.getUserConversationsWithDetails(userId);
         return ResponseEntity.ok(conversations);
     }
+    /**
+     * Delta sync danh sách conversation: chỉ trả conversation thay đổi sau version since, kèm tombstone
+     * URL: GET /api/conversations/my/sync?since={version} (bỏ since hoặc version quá cũ -> full snapshot)
+     */
+    @GetMapping("/my/sync")
+    public ResponseEntity<ConversationSyncResponse> syncMyConversations(
+            @RequestParam(required = false) Long since,
+            Authentication authentication
+    ) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(conversationSyncService.sync(userDetails.getUserId(), since));
+    }
     @PostMapping("/create")
     public ResponseEntity<Conversation> createConversation(@RequestBody ConversationRequest conversationRequest, Authentication authentication) {
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
@@ -0,0 +1,66 @@
+package com.chatapp.chat_service.conversation.controller;
+
+import com.chatapp.chat_service.conversation.dto.InboxPage;
+import com.chatapp.chat_service.conversation.dto.UnreadBadges;
+import com.chatapp.chat_service.conversation.service.InboxService;
+import com.chatapp.chat_service.conversation.service.UnreadCounterService;
+import com.chatapp.chat_service.security.core.CustomUserDetails;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/conversations/inbox")
+@RequiredArgsConstructor
+public class InboxController {
+
+    private final InboxService inboxService;
+    private final UnreadCounterService unreadCounterService;
+
+    /**
+     * Inbox của user hiện tại, conversation có activity mới nhất trước
+     * URL: GET /api/conversations/inbox?cursor={lastActivityId}&limit=30
+     */
+    @GetMapping
+    public ResponseEntity<InboxPage> getInbox(
+            @RequestParam(required = false) UUID cursor,
+            @RequestParam(defaultValue = "30") int limit,
+            Authentication authentication
+    ) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return ResponseEntity.ok(inboxService.getInbox(userDetails.getUserId(), cursor, limit));
+    }
+
+    /**
+     * Badge: toàn bộ conversation có unread > 0 của user hiện tại trong 1 lần gọi
+     * URL: GET /api/conversations/inbox/unread
+     */
+    @GetMapping("/unread")
+    public ResponseEntity<UnreadBadges> getUnreadBadges(Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        Map<UUID, Integer> counts = unreadCounterService.getNonZeroCounts(userDetails.getUserId());
+        return ResponseEntity.ok(UnreadBadges.builder()
+                .counts(counts)
+                .total(counts.values().stream().mapToLong(Integer::longValue).sum())
+                .build());
+    }
+
+    /**
+     * Đặt unread của conversation trong inbox về 0
+     * URL: POST /api/conversations/inbox/{conversationId}/read
+     */
+    @PostMapping("/{conversationId}/read")
+    public ResponseEntity<Void> markConversationRead(
+            @PathVariable UUID conversationId,
+            Authentication authentication
+    ) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        inboxService.markConversationRead(userDetails.getUserId(), conversationId);
+        return ResponseEntity.ok().build();
+    }
+}
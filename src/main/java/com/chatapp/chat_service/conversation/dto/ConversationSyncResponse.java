@@ -0,0 +1,20 @@
+package com.chatapp.chat_service.conversation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSyncResponse {
+    private long version; // truyền lại qua ?since= ở lần sync sau
+    private boolean fullSnapshot; // true: conversations là toàn bộ danh sách, client thay thế dữ liệu cũ
+    private List<ConversationResponseDto> conversations;
+    private List<UUID> removedConversationIds; // tombstone: đã xóa hoặc user không còn là member
+}
@@ -0,0 +1,26 @@
+package com.chatapp.chat_service.conversation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxEntryDto {
+    private UUID conversationId;
+    private String type;
+    private String name;
+    private UUID peerUserId;       // user còn lại trong DM
+    private UUID lastMessageId;
+    private UUID lastSenderId;
+    private String lastMessagePreview;
+    private int unreadCount;
+    private UUID lastActivityId;
+    private Instant lastActivityAt;
+}
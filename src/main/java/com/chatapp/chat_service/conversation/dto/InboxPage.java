@@ -0,0 +1,19 @@
+package com.chatapp.chat_service.conversation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxPage {
+    private List<InboxEntryDto> items;
+    private UUID nextCursor; // last_activity_id của item cuối, truyền lại qua ?cursor=
+    private boolean hasMore;
+}
@@ -0,0 +1,18 @@
+package com.chatapp.chat_service.conversation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadBadges {
+    private Map<UUID, Integer> counts; // chỉ gồm conversation có unread > 0
+    private long total;
+}
@@ -16,6 +16,9 @@ import java.util.UUID  ;
 @Builder
 @Table("conversations")
 public class Conversation {
+    public static final String DELIVERY_MODE_WRITE = "write";
+    public static final String DELIVERY_MODE_READ = "read";
+
     @PrimaryKey("conversation_id")
     private UUID conversationId;
     private String type; // 'group' or 'dm'
@@ -27,4 +30,9 @@ public class Conversation {
     private String background_url;
     private Instant created_at;
     private Instant updated_at;
+    private String delivery_mode; // null/'write': fan-out-on-write, 'read': fan-out-on-read (conversation rất đông member)
+
+    public boolean usesFanOutOnRead() {
+        return DELIVERY_MODE_READ.equals(delivery_mode);
+    }
 }
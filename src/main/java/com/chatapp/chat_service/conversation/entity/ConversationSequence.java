@@ -0,0 +1,41 @@
+package com.chatapp.chat_service.conversation.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Bản lưu bền của sequence cấp conversation trên Redis (conv_seq:{id}), được ghi định kỳ
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("conversation_sequences")
+public class ConversationSequence {
+
+    @PrimaryKey("conversation_id")
+    private UUID conversationId;
+
+    @Column("seq")
+    private long seq;
+
+    @Column("last_message_id")
+    private UUID lastMessageId;
+
+    @Column("last_sender_id")
+    private UUID lastSenderId;
+
+    @Column("last_message_preview")
+    private String lastMessagePreview;
+
+    @Column("updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,55 @@
+package com.chatapp.chat_service.conversation.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("dm_by_pair")
+public class DmPair {
+
+    @PrimaryKey
+    private DmPairKey key;
+
+    @Column("conversation_id")
+    private UUID conversationId;
+
+    @Column("created_at")
+    private Instant createdAt;
+
+    @PrimaryKeyClass
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DmPairKey implements Serializable {
+
+        @PrimaryKeyColumn(name = "user_low", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+        private UUID userLow;
+
+        @PrimaryKeyColumn(name = "user_high", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+        private UUID userHigh;
+
+        /**
+         * Key chuẩn hóa: user nhỏ hơn (theo thứ tự UUID) luôn là user_low
+         */
+        public static DmPairKey of(UUID userId1, UUID userId2) {
+            return userId1.compareTo(userId2) <= 0
+                    ? new DmPairKey(userId1, userId2)
+                    : new DmPairKey(userId2, userId1);
+        }
+    }
+}
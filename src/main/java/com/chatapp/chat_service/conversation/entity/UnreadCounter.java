@@ -0,0 +1,43 @@
+package com.chatapp.chat_service.conversation.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Bản lưu bền của unread counter trên Redis, được ghi định kỳ
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("unread_counters")
+public class UnreadCounter {
+
+    @PrimaryKeyColumn(name = "user_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private UUID userId;
+
+    @PrimaryKeyColumn(name = "conversation_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+    private UUID conversationId;
+
+    @Column("unread_count")
+    private int unreadCount;
+
+    @Column("last_read_message_id")
+    private UUID lastReadMessageId;
+
+    // Sequence của conversation lúc user đọc lần cuối; chỉ có ở conversation fan-out-on-read
+    @Column("read_seq")
+    private Long readSeq;
+
+    @Column("updated_at")
+    private Instant updatedAt;
+}
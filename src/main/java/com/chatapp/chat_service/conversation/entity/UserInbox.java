@@ -0,0 +1,64 @@
+package com.chatapp.chat_service.conversation.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.*;
+
+import java.util.UUID;
+
+/**
+ * Inbox của user: mỗi conversation là 1 row, sắp theo last_activity_id DESC trong bucket tháng
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("user_inbox")
+public class UserInbox {
+
+    @PrimaryKey
+    private UserInboxKey key;
+
+    @Column("conversation_type")
+    private String conversationType;
+
+    @Column("conversation_name")
+    private String conversationName;
+
+    @Column("peer_user_id")
+    private UUID peerUserId; // user còn lại trong DM
+
+    @Column("last_message_id")
+    private UUID lastMessageId;
+
+    @Column("last_sender_id")
+    private UUID lastSenderId;
+
+    @Column("last_message_preview")
+    private String lastMessagePreview;
+
+    @Column("unread_count")
+    private int unreadCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @PrimaryKeyClass
+    public static class UserInboxKey {
+        @PrimaryKeyColumn(name = "user_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+        private UUID userId;
+
+        @PrimaryKeyColumn(name = "bucket", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+        private String bucket; // yyyy-MM
+
+        @PrimaryKeyColumn(name = "last_activity_id", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+        private UUID lastActivityId;
+
+        @PrimaryKeyColumn(name = "conversation_id", ordinal = 3, type = PrimaryKeyType.CLUSTERED)
+        private UUID conversationId;
+    }
+}
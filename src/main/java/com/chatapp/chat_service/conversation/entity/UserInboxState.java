@@ -0,0 +1,37 @@
+package com.chatapp.chat_service.conversation.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Vị trí hiện tại của conversation trong inbox của từng member (để xóa row cũ khi có activity mới)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("user_inbox_state")
+public class UserInboxState {
+
+    @PrimaryKeyColumn(name = "conversation_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private UUID conversationId;
+
+    @PrimaryKeyColumn(name = "user_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+    private UUID userId;
+
+    private String bucket;
+
+    @Column("last_activity_id")
+    private UUID lastActivityId;
+
+    @Column("unread_count")
+    private int unreadCount;
+}
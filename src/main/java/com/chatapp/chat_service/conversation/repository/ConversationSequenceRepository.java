@@ -0,0 +1,12 @@
+package com.chatapp.chat_service.conversation.repository;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.conversation.entity.ConversationSequence;
+
+import java.util.UUID;
+
+@Repository
+public interface ConversationSequenceRepository extends CassandraRepository<ConversationSequence, UUID> {
+}
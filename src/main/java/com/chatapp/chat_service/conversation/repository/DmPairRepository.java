@@ -0,0 +1,10 @@
+package com.chatapp.chat_service.conversation.repository;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.conversation.entity.DmPair;
+
+@Repository
+public interface DmPairRepository extends CassandraRepository<DmPair, DmPair.DmPairKey> {
+}
@@ -0,0 +1,21 @@
+package com.chatapp.chat_service.conversation.repository;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.conversation.entity.UnreadCounter;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UnreadCounterRepository extends CassandraRepository<UnreadCounter, MapId> {
+
+    @Query("SELECT * FROM unread_counters WHERE user_id = ?0")
+    List<UnreadCounter> findByUserId(UUID userId);
+
+    @Query("DELETE FROM unread_counters WHERE user_id = ?0 AND conversation_id = ?1")
+    void deleteByUserIdAndConversationId(UUID userId, UUID conversationId);
+}
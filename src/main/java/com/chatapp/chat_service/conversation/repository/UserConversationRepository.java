@@ -1,4 +0,0 @@
-package com.chatapp.chat_service.conversation.repository;
-
-public class UserConversationRepository {
-}
@@ -0,0 +1,18 @@
+package com.chatapp.chat_service.conversation.repository;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.conversation.entity.UserInboxBucket;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserInboxBucketRepository extends CassandraRepository<UserInboxBucket, MapId> {
+
+    @Query("SELECT * FROM user_inbox_buckets WHERE user_id = ?0 AND bucket <= ?1 LIMIT ?2")
+    List<UserInboxBucket> findBucketsUpTo(UUID userId, String bucket, int limit);
+}
@@ -0,0 +1,20 @@
+package com.chatapp.chat_service.conversation.repository;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.conversation.entity.UserInbox;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserInboxRepository extends CassandraRepository<UserInbox, UserInbox.UserInboxKey> {
+
+    @Query("SELECT * FROM user_inbox WHERE user_id = ?0 AND bucket = ?1 LIMIT ?2")
+    List<UserInbox> findLatestInBucket(UUID userId, String bucket, int limit);
+
+    @Query("SELECT * FROM user_inbox WHERE user_id = ?0 AND bucket = ?1 AND last_activity_id < ?2 LIMIT ?3")
+    List<UserInbox> findInBucketBefore(UUID userId, String bucket, UUID beforeActivityId, int limit);
+}
@@ -0,0 +1,22 @@
+package com.chatapp.chat_service.conversation.repository;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.conversation.entity.UserInboxState;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UserInboxStateRepository extends CassandraRepository<UserInboxState, MapId> {
+
+    @Query("SELECT * FROM user_inbox_state WHERE conversation_id = ?0")
+    List<UserInboxState> findByConversationId(UUID conversationId);
+
+    @Query("SELECT * FROM user_inbox_state WHERE conversation_id = ?0 AND user_id = ?1")
+    Optional<UserInboxState> findByConversationIdAndUserId(UUID conversationId, UUID userId);
+}
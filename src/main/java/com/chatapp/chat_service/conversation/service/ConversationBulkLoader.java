@@ -0,0 +1,181 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.common.cache.TwoLevelCache;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.redis.publisher.RedisCacheEvictPublisher;
+import com.chatapp.chat_service.redis.subscriber.RedisCacheEvictSubscriber;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Load nhiều conversation cùng lúc: lookup cache 2 tầng (L1 cục bộ -> L2 Redis conv_cache:{id}) trước, phần miss được đọc bằng các
+ * single-partition SELECT bất đồng bộ qua prepared statement (driver route token-aware tới replica),
+ * giới hạn số request đang chạy bằng Semaphore. Thời gian load ~ vài round trip thay vì N round trip tuần tự.
+ */
+@Slf4j
+@Component
+public class ConversationBulkLoader {
+
+    private static final String SELECT_BY_ID = "SELECT * FROM conversations WHERE conversation_id = ?";
+    private static final String SELECT_MEMBER_IDS = "SELECT user_id FROM conversation_members WHERE conversation_id = ?";
+
+    private final CqlSession session;
+    private final CassandraOperations cassandraOperations;
+    private final Semaphore inFlight;
+    private final long timeoutMillis;
+    private final TwoLevelCache<UUID, Conversation> cache;
+    private final Map<String, PreparedStatement> preparedStatements = new ConcurrentHashMap<>();
+
+    public ConversationBulkLoader(CqlSession session,
+                                  CassandraOperations cassandraOperations,
+                                  @Value("${chat.conversation.bulk-load.max-in-flight:32}") int maxInFlight,
+                                  @Value("${chat.conversation.bulk-load.timeout-ms:3000}") long timeoutMillis,
+                                  @Value("${chat.conversation.local-cache.max-size:10000}") int cacheMaxSize,
+                                  @Value("${chat.conversation.local-cache.ttl-seconds:30}") long cacheTtlSeconds,
+                                  @Value("${chat.conversation.redis-cache.ttl-seconds:3600}") long redisCacheTtlSeconds,
+                                  RedisTemplate<String, String> redisTemplate,
+                                  ObjectMapper objectMapper,
+                                  RedisCacheEvictPublisher evictPublisher,
+                                  RedisCacheEvictSubscriber evictSubscriber,
+                                  MeterRegistry meterRegistry) {
+        this.session = session;
+        this.cassandraOperations = cassandraOperations;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.timeoutMillis = timeoutMillis;
+        this.cache = new TwoLevelCache<>("conv_cache", Conversation.class, UUID::toString, UUID::fromString,
+                cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds), Duration.ofSeconds(redisCacheTtlSeconds),
+                redisTemplate, objectMapper, evictPublisher, evictSubscriber, meterRegistry);
+    }
+
+    /**
+     * @return map conversationId -> conversation (id không tồn tại sẽ không có trong map), thứ tự theo đầu vào
+     */
+    public Map<UUID, Conversation> loadAll(Collection<UUID> conversationIds) {
+        Map<UUID, Conversation> result = new LinkedHashMap<>();
+        List<UUID> ids = distinct(conversationIds);
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        Map<UUID, Conversation> loaded = cache.getAll(ids, this::fetchAsync);
+        for (UUID conversationId : ids) {
+            Conversation conversation = loaded.get(conversationId);
+            if (conversation != null) {
+                result.put(conversationId, conversation);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Đọc thẳng từ Cassandra (bỏ qua cả 2 tầng cache) rồi cập nhật cache; dùng khi biết chắc dữ liệu vừa đổi
+     */
+    public Map<UUID, Conversation> refreshAll(Collection<UUID> conversationIds) {
+        return cache.refreshAll(distinct(conversationIds), this::fetchAsync);
+    }
+
+    public Optional<Conversation> load(UUID conversationId) {
+        return Optional.ofNullable(loadAll(List.of(conversationId)).get(conversationId));
+    }
+
+    /**
+     * Gọi sau mọi thay đổi conversation; xóa L2 và L1 trên mọi node
+     */
+    public void invalidate(UUID conversationId) {
+        cache.invalidate(conversationId);
+    }
+
+    /**
+     * User id của member theo từng conversation (không cache, membership thay đổi thường xuyên)
+     */
+    public Map<UUID, List<UUID>> loadMemberIds(Collection<UUID> conversationIds) {
+        return fetchAsync(SELECT_MEMBER_IDS, distinct(conversationIds),
+                resultSet -> collectUserIds(resultSet, new ArrayList<>()));
+    }
+
+    private Map<UUID, Conversation> fetchAsync(List<UUID> conversationIds) {
+        return fetchAsync(SELECT_BY_ID, conversationIds, resultSet -> {
+            Row row = resultSet.one();
+            return CompletableFuture.completedFuture(row != null
+                    ? cassandraOperations.getConverter().read(Conversation.class, row)
+                    : null);
+        });
+    }
+
+    /**
+     * Chạy 1 query single-partition cho mỗi id, song song và bị giới hạn bởi Semaphore
+     * @return map id -> kết quả (id có kết quả null bị bỏ qua)
+     */
+    private <T> Map<UUID, T> fetchAsync(String cql, List<UUID> conversationIds,
+                                        Function<AsyncResultSet, CompletionStage<T>> reader) {
+        Map<UUID, T> loaded = new ConcurrentHashMap<>();
+        if (conversationIds.isEmpty()) {
+            return loaded;
+        }
+        PreparedStatement statement = prepared(cql);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(conversationIds.size());
+
+        try {
+            for (UUID conversationId : conversationIds) {
+                if (!inFlight.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Timed out waiting for a conversation load slot");
+                }
+                CompletableFuture<Void> future = session.executeAsync(statement.bind(conversationId))
+                        .thenCompose(reader)
+                        .toCompletableFuture()
+                        .thenAccept(value -> {
+                            if (value != null) {
+                                loaded.put(conversationId, value);
+                            }
+                        })
+                        .whenComplete((ignored, error) -> inFlight.release());
+                futures.add(future);
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading conversations", e);
+        } catch (Exception e) {
+            log.error("Failed to bulk load {} conversations: {}", conversationIds.size(), e.getMessage());
+            throw new IllegalStateException("Failed to load conversations", e);
+        }
+
+        log.debug("Bulk loaded {} of {} rows for [{}]", loaded.size(), conversationIds.size(), cql);
+        return loaded;
+    }
+
+    private CompletionStage<List<UUID>> collectUserIds(AsyncResultSet resultSet, List<UUID> userIds) {
+        resultSet.currentPage().forEach(row -> userIds.add(row.getUuid("user_id")));
+        return resultSet.hasMorePages()
+                ? resultSet.fetchNextPage().thenCompose(next -> collectUserIds(next, userIds))
+                : CompletableFuture.completedFuture(userIds);
+    }
+
+    private PreparedStatement prepared(String cql) {
+        return preparedStatements.computeIfAbsent(cql, session::prepare);
+    }
+
+    private static List<UUID> distinct(Collection<UUID> ids) {
+        return ids == null ? List.of() : ids.stream().filter(Objects::nonNull).distinct().toList();
+    }
+}
@@ -0,0 +1,139 @@
+package com.chatapp.chat_service.conversation.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Change feed danh sách conversation của từng user, lưu trên Redis:
+ * - conv_sync:seq:{userId}      version tăng sau mỗi thay đổi liên quan tới user
+ * - conv_sync:changes:{userId}  ZSET conversationId -> version của lần thay đổi gần nhất (mỗi conversation 1 entry)
+ * - conv_sync:floor:{userId}    version lớn nhất đã bị cắt khỏi ZSET; client có since < floor phải lấy full snapshot
+ */
+@Slf4j
+@Component
+public class ConversationChangeFeed {
+
+    private static final String SEQ_KEY_PREFIX = "conv_sync:seq:";
+    private static final String CHANGES_KEY_PREFIX = "conv_sync:changes:";
+    private static final String FLOOR_KEY_PREFIX = "conv_sync:floor:";
+    private static final Duration FEED_TTL = Duration.ofDays(30);
+
+    // KEYS: seq, changes, floor; ARGV: conversationId, số entry tối đa, ttl
+    private static final byte[] RECORD_CHANGE_SCRIPT = (
+            "local seq = redis.call('INCR', KEYS[1]) " +
+            "redis.call('ZADD', KEYS[2], seq, ARGV[1]) " +
+            "local overflow = redis.call('ZCARD', KEYS[2]) - tonumber(ARGV[2]) " +
+            "if overflow > 0 then " +
+            "  local trimmed = redis.call('ZRANGE', KEYS[2], overflow - 1, overflow - 1, 'WITHSCORES') " +
+            "  redis.call('ZREMRANGEBYRANK', KEYS[2], 0, overflow - 1) " +
+            "  redis.call('SET', KEYS[3], trimmed[2]) " +
+            "end " +
+            "for i = 1, 3 do redis.call('EXPIRE', KEYS[i], ARGV[3]) end " +
+            "return seq").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ConversationMemberSetCache memberSetCache;
+    private final int maxEntries;
+
+    public ConversationChangeFeed(RedisTemplate<String, String> redisTemplate,
+                                  ConversationMemberSetCache memberSetCache,
+                                  @Value("${chat.conversation.sync.max-changes-per-user:500}") int maxEntries) {
+        this.redisTemplate = redisTemplate;
+        this.memberSetCache = memberSetCache;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Các thay đổi của user sau version since
+     * @param version version hiện tại của feed (client dùng làm since lần sau)
+     * @param complete false nếu since quá cũ (đã bị cắt) hoặc không khớp feed hiện tại -> cần full snapshot
+     */
+    public record ChangeWindow(long version, boolean complete, List<UUID> conversationIds) {
+    }
+
+    /**
+     * Ghi nhận thay đổi của conversation cho toàn bộ member hiện tại và các user bổ sung
+     * (ví dụ member vừa bị xóa, cần nhận tombstone)
+     */
+    public void recordChange(UUID conversationId, Collection<UUID> additionalUserIds) {
+        try {
+            Set<UUID> userIds = new HashSet<>(memberSetCache.get(conversationId).memberIds());
+            userIds.addAll(additionalUserIds);
+            recordChangeFor(conversationId, userIds);
+        } catch (Exception e) {
+            log.warn("Failed to record conversation change {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    public void recordChange(UUID conversationId) {
+        recordChange(conversationId, List.of());
+    }
+
+    /**
+     * Ghi nhận thay đổi cho đúng các user được chỉ định, tất cả trong 1 pipeline
+     */
+    public void recordChangeFor(UUID conversationId, Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        byte[] member = conversationId.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] limit = String.valueOf(maxEntries).getBytes(StandardCharsets.UTF_8);
+        byte[] ttl = String.valueOf(FEED_TTL.toSeconds()).getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (UUID userId : userIds) {
+                    connection.scriptingCommands().eval(RECORD_CHANGE_SCRIPT, ReturnType.INTEGER, 3,
+                            bytes(SEQ_KEY_PREFIX + userId),
+                            bytes(CHANGES_KEY_PREFIX + userId),
+                            bytes(FLOOR_KEY_PREFIX + userId),
+                            member, limit, ttl);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to record change of conversation {} for {} users: {}",
+                    conversationId, userIds.size(), e.getMessage());
+        }
+    }
+
+    public ChangeWindow changesSince(UUID userId, Long since) {
+        List<String> state = redisTemplate.opsForValue().multiGet(List.of(SEQ_KEY_PREFIX + userId, FLOOR_KEY_PREFIX + userId));
+        long version = parse(state != null ? state.get(0) : null);
+        long floor = parse(state != null ? state.get(1) : null);
+
+        // since > version: feed đã hết hạn và được đánh số lại
+        if (since == null || since < floor || since > version) {
+            return new ChangeWindow(version, false, List.of());
+        }
+
+        Set<ZSetOperations.TypedTuple<String>> changes = redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(CHANGES_KEY_PREFIX + userId, since + 1, Double.POSITIVE_INFINITY);
+        List<UUID> conversationIds = new ArrayList<>();
+        if (changes != null) {
+            for (ZSetOperations.TypedTuple<String> change : changes) {
+                conversationIds.add(UUID.fromString(change.getValue()));
+                if (change.getScore() != null) {
+                    version = Math.max(version, change.getScore().longValue());
+                }
+            }
+        }
+        return new ChangeWindow(version, true, conversationIds);
+    }
+
+    private static long parse(String value) {
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.entity.Conversation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Chọn chế độ phân phối message của group theo số member:
+ * - fan-out-on-write (mặc định): mỗi message ghi inbox/notification/unread cho từng member
+ * - fan-out-on-read (>= member-threshold member): chỉ tăng sequence của conversation,
+ *   member tính unread/preview khi đọc (UnreadCounterService, InboxService)
+ * Về lại fan-out-on-write khi số member < write-threshold; 2 ngưỡng khác nhau để không đổi qua lại liên tục.
+ * Việc đổi chế độ dùng LWT nên khi nhiều node cùng phát hiện thì chỉ 1 node chuyển trạng thái unread.
+ */
+@Slf4j
+@Service
+public class ConversationDeliveryModeService {
+
+    private static final String UPDATE_MODE =
+            "UPDATE conversations SET delivery_mode = ?, updated_at = ? WHERE conversation_id = ? IF delivery_mode = ?";
+
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationSequenceService sequenceService;
+    private final UnreadCounterService unreadCounterService;
+    private final CassandraOperations cassandraOperations;
+    private final boolean enabled;
+    private final int readThreshold;
+    private final int writeThreshold;
+
+    public ConversationDeliveryModeService(ConversationBulkLoader conversationBulkLoader,
+                                           ConversationMemberSetCache memberSetCache,
+                                           ConversationSequenceService sequenceService,
+                                           UnreadCounterService unreadCounterService,
+                                           CassandraOperations cassandraOperations,
+                                           @Value("${chat.conversation.fanout-on-read.enabled:true}") boolean enabled,
+                                           @Value("${chat.conversation.fanout-on-read.member-threshold:1000}") int readThreshold,
+                                           @Value("${chat.conversation.fanout-on-read.write-threshold:800}") int writeThreshold) {
+        this.conversationBulkLoader = conversationBulkLoader;
+        this.memberSetCache = memberSetCache;
+        this.sequenceService = sequenceService;
+        this.unreadCounterService = unreadCounterService;
+        this.cassandraOperations = cassandraOperations;
+        this.enabled = enabled;
+        this.readThreshold = readThreshold;
+        this.writeThreshold = Math.min(writeThreshold, readThreshold);
+    }
+
+    /**
+     * Gọi sau mọi thay đổi membership (đã cập nhật ConversationMemberSetCache)
+     * @param addedMemberIds member mới; với conversation fan-out-on-read cần bắt đầu tính unread từ sequence hiện tại
+     */
+    public void onMembersChanged(UUID conversationId, Collection<UUID> addedMemberIds) {
+        try {
+            Optional<Conversation> conversation = conversationBulkLoader.load(conversationId);
+            if (conversation.isEmpty() || conversation.get().is_deleted() || "dm".equals(conversation.get().getType())) {
+                return;
+            }
+
+            boolean fanOutOnRead = conversation.get().usesFanOutOnRead();
+            int memberCount = memberSetCache.get(conversationId).count();
+            if (!fanOutOnRead && enabled && memberCount >= readThreshold) {
+                switchMode(conversation.get(), Conversation.DELIVERY_MODE_READ, memberCount);
+            } else if (fanOutOnRead && (!enabled || memberCount < writeThreshold)) {
+                switchMode(conversation.get(), Conversation.DELIVERY_MODE_WRITE, memberCount);
+            } else if (fanOutOnRead && !addedMemberIds.isEmpty()) {
+                unreadCounterService.startFanOutOnRead(conversationId, addedMemberIds,
+                        sequenceService.current(conversationId));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to update delivery mode of conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Message gửi trong lúc chuyển có thể làm unread lệch vài đơn vị; lần markRead sau sẽ tính lại từ watermark
+     */
+    private void switchMode(Conversation conversation, String mode, int memberCount) {
+        UUID conversationId = conversation.getConversationId();
+        long seq = sequenceService.current(conversationId);
+        boolean applied = cassandraOperations.getCqlOperations().execute(UPDATE_MODE,
+                mode, Instant.now(), conversationId, conversation.getDelivery_mode());
+        conversationBulkLoader.invalidate(conversationId);
+        if (!applied) {
+            return;
+        }
+
+        List<UUID> memberIds = memberSetCache.get(conversationId).memberIds();
+        if (Conversation.DELIVERY_MODE_READ.equals(mode)) {
+            unreadCounterService.startFanOutOnRead(conversationId, memberIds, seq);
+        } else {
+            unreadCounterService.stopFanOutOnRead(conversationId, memberIds, seq);
+        }
+        log.info("Conversation {} switched to fan-out-on-{} ({} members)", conversationId, mode, memberCount);
+    }
+}
@@ -0,0 +1,161 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.auth.entity.User;
+import com.chatapp.chat_service.auth.repository.UserRepository;
+import com.chatapp.chat_service.conversation.dto.ConversationResponseDto;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.presence.dto.UserPresenceResponse;
+import com.chatapp.chat_service.presence.service.PresenceService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Dựng danh sách ConversationResponseDto cho cả trang trong 1 lượt:
+ * 1. member-set snapshot của mọi conversation trong trang (near cache -> Redis -> dựng lại theo lô), cho ra
+ *    user còn lại của DM và số member của group
+ * 2. profile của các user còn lại trong DM (IN theo lô) và presence (1 pipeline) chạy song song
+ * 3. build DTO từ các map đã có, không còn query theo từng conversation
+ */
+@Slf4j
+@Component
+public class ConversationListAssembler {
+
+    private static final int PROFILE_BATCH_SIZE = 100;
+
+    private final ConversationMemberSetCache memberSetCache;
+    private final UserRepository userRepository;
+    private final PresenceService presenceService;
+    private final Executor executor;
+
+    public ConversationListAssembler(ConversationMemberSetCache memberSetCache,
+                                     UserRepository userRepository,
+                                     PresenceService presenceService,
+                                     @Qualifier("conversationAssemblyExecutor") Executor executor) {
+        this.memberSetCache = memberSetCache;
+        this.userRepository = userRepository;
+        this.presenceService = presenceService;
+        this.executor = executor;
+    }
+
+    public List<ConversationResponseDto> assemble(List<Conversation> conversations, UUID currentUserId) {
+        if (conversations == null || conversations.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, MemberSetSnapshot> memberSets = loadMemberSets(conversations.stream()
+                .map(Conversation::getConversationId)
+                .collect(Collectors.toList()));
+
+        Map<UUID, UUID> peerIds = new HashMap<>();
+        Map<UUID, Integer> memberCounts = new HashMap<>();
+        for (Conversation conversation : conversations) {
+            MemberSetSnapshot memberSet = memberSets.get(conversation.getConversationId());
+            if (memberSet == null) {
+                continue;
+            }
+            memberCounts.put(conversation.getConversationId(), memberSet.count());
+            if (isDm(conversation)) {
+                memberSet.memberIds().stream()
+                        .filter(id -> !id.equals(currentUserId))
+                        .findFirst()
+                        .ifPresent(peerId -> peerIds.put(conversation.getConversationId(), peerId));
+            }
+        }
+
+        List<UUID> distinctPeers = peerIds.values().stream().distinct().collect(Collectors.toList());
+        List<CompletableFuture<Map<UUID, User>>> profileFutures = new ArrayList<>();
+        for (int from = 0; from < distinctPeers.size(); from += PROFILE_BATCH_SIZE) {
+            List<UUID> batch = distinctPeers.subList(from, Math.min(from + PROFILE_BATCH_SIZE, distinctPeers.size()));
+            profileFutures.add(load("user profiles", () -> userRepository.findUsersByIds(batch).stream()
+                    .collect(Collectors.toMap(User::getUser_id, user -> user, (a, b) -> a))));
+        }
+        CompletableFuture<Map<UUID, UserPresenceResponse>> presenceFuture = distinctPeers.isEmpty()
+                ? CompletableFuture.completedFuture(Collections.emptyMap())
+                : load("presence", () -> presenceService.getBatchPresence(distinctPeers));
+
+        Map<UUID, User> profiles = new HashMap<>();
+        profileFutures.forEach(future -> profiles.putAll(future.join()));
+        Map<UUID, UserPresenceResponse> presence = presenceFuture.join();
+
+        return conversations.stream()
+                .map(conversation -> toDto(conversation, peerIds, profiles, presence, memberCounts))
+                .collect(Collectors.toList());
+    }
+
+    private ConversationResponseDto toDto(Conversation conversation, Map<UUID, UUID> peerIds, Map<UUID, User> profiles,
+                                          Map<UUID, UserPresenceResponse> presence, Map<UUID, Integer> memberCounts) {
+        ConversationResponseDto.ConversationResponseDtoBuilder builder = ConversationResponseDto.builder()
+                .conversationId(conversation.getConversationId())
+                .type(conversation.getType())
+                .description(conversation.getDescription())
+                .createdBy(conversation.getCreated_by())
+                .backgroundUrl(conversation.getBackground_url())
+                .createdAt(conversation.getCreated_at())
+                .updatedAt(conversation.getUpdated_at())
+                .isDeleted(conversation.is_deleted());
+
+        if (isDm(conversation)) {
+            ConversationResponseDto.UserProfileDto otherParticipant =
+                    toProfile(peerIds.get(conversation.getConversationId()), profiles, presence);
+            String displayName = otherParticipant.getDisplayName() != null
+                    ? otherParticipant.getDisplayName() : otherParticipant.getUsername();
+            builder.name(displayName)
+                   .otherParticipant(otherParticipant)
+                   .memberCount(2);
+        } else {
+            builder.name(conversation.getName())
+                   .memberCount(memberCounts.getOrDefault(conversation.getConversationId(), 0));
+        }
+        return builder.build();
+    }
+
+    private ConversationResponseDto.UserProfileDto toProfile(UUID peerId, Map<UUID, User> profiles,
+                                                             Map<UUID, UserPresenceResponse> presence) {
+        User user = peerId != null ? profiles.get(peerId) : null;
+        if (user == null) {
+            return ConversationResponseDto.UserProfileDto.builder()
+                    .userId(peerId != null ? peerId : UUID.randomUUID())
+                    .username("Unknown User")
+                    .displayName("Unknown User")
+                    .isOnline(false)
+                    .build();
+        }
+        UserPresenceResponse userPresence = presence.get(peerId);
+        return ConversationResponseDto.UserProfileDto.builder()
+                .userId(user.getUser_id())
+                .username(user.getUsername())
+                .displayName(user.getDisplay_name())
+                .avatarUrl(user.getAvatar_url())
+                .isOnline(userPresence != null && userPresence.isOnline())
+                .build();
+    }
+
+    private Map<UUID, MemberSetSnapshot> loadMemberSets(List<UUID> conversationIds) {
+        try {
+            return memberSetCache.getAll(conversationIds);
+        } catch (Exception e) {
+            log.warn("Failed to load member sets for conversation list: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private static boolean isDm(Conversation conversation) {
+        return "dm".equals(conversation.getType());
+    }
+
+    private <T> CompletableFuture<Map<UUID, T>> load(String name, Supplier<Map<UUID, T>> loader) {
+        return CompletableFuture.supplyAsync(loader, executor)
+                .exceptionally(e -> {
+                    log.warn("Failed to load {} for conversation list: {}", name, e.getMessage());
+                    return Collections.emptyMap();
+                });
+    }
+}
@@ -30,6 +30,11 @@ public class ConversationMemberService {
     private final ConversationMemberRepository memberRepository;
     private final ConversationRepository conversationRepository;
     private final UserRepository userRepository;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationChangeFeed changeFeed;
+    private final UnreadCounterService unreadCounterService;
+    private final ConversationDeliveryModeService deliveryModeService;
     
     /**
      * Lấy danh sách members của conversation với thông tin chi tiết
@@ -66,6 +71,10 @@ public class ConversationMemberService {
                 .collect(Collectors.toList());
         
         memberRepository.saveAll(newMembers);
+        List<UUID> addedIds = newMembers.stream().map(ConversationMembers::getUserId).collect(Collectors.toList());
+        memberSetCache.onMembersChanged(conversationId, addedIds, List.of());
+        deliveryModeService.onMembersChanged(conversationId, addedIds);
+        changeFeed.recordChange(conversationId);
         
         logger.info("Added {} members to conversation {} by user {}", 
                 newMembers.size(), conversationId, requesterId);
@@ -100,6 +109,10 @@ public class ConversationMemberService {
         
         // Xóa member
         memberRepository.delete(memberToRemove);
+        memberSetCache.onMembersChanged(conversationId, List.of(), List.of(memberIdToRemove));
+        deliveryModeService.onMembersChanged(conversationId, List.of());
+        changeFeed.recordChange(conversationId, List.of(memberIdToRemove));
+        unreadCounterService.clear(memberIdToRemove, conversationId);
         
         logger.info("Removed member {} from conversation {} by user {}", 
                 memberIdToRemove, conversationId, requesterId);
@@ -132,6 +145,8 @@ public class ConversationMemberService {
         conversation.setCreated_by(newOwnerId);
         conversation.setUpdated_at(Instant.now());
         conversationRepository.save(conversation);
+        conversationBulkLoader.invalidate(conversationId);
+        changeFeed.recordChange(conversationId);
         
         logger.info("Transferred ownership of conversation {} from {} to {}", 
                 conversationId, currentOwnerId, newOwnerId);
@@ -211,6 +226,10 @@ public class ConversationMemberService {
         
         // Xóa member
         memberRepository.delete(member);
+        memberSetCache.onMembersChanged(conversationId, List.of(), List.of(userId));
+        deliveryModeService.onMembersChanged(conversationId, List.of());
+        changeFeed.recordChange(conversationId, List.of(userId));
+        unreadCounterService.clear(userId, conversationId);
         
         logger.info("User {} left conversation {}", userId, conversationId);
     }
@@ -0,0 +1,230 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.common.cache.LocalLruCache;
+import com.chatapp.chat_service.redis.publisher.RedisCacheEvictPublisher;
+import com.chatapp.chat_service.redis.subscriber.RedisCacheEvictSubscriber;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Member-set snapshot của conversation (count + mảng UUID sắp xếp + version), 2 tầng:
+ * - near cache trên từng node (LocalLruCache), bị xóa qua cacheEvictTopic (cache "member_set") khi membership
+ *   thay đổi ở bất kỳ node nào; entry có version >= version trong thông báo được giữ lại
+ * - Redis hash member_set:{id} {v, m} dùng chung, cập nhật tăng dần theo từng thay đổi
+ * Mỗi thay đổi INCR member_set_version:{id}; chỉ ghi snapshot khi version counter chưa bị thay đổi khác vượt qua,
+ * nếu không thì xóa snapshot (trừ khi nó đã đúng version mới nhất) để lần đọc sau dựng lại từ conversation_members.
+ */
+@Slf4j
+@Component
+public class ConversationMemberSetCache {
+
+    private static final String CACHE_NAME = "member_set";
+    private static final String SNAPSHOT_KEY_PREFIX = "member_set:";
+    private static final String VERSION_KEY_PREFIX = "member_set_version:";
+    private static final Duration SNAPSHOT_TTL = Duration.ofHours(12);
+
+    // KEYS[1] = snapshot, KEYS[2] = version counter
+    // ARGV[1] = version snapshot đang dựa vào ('' = dựng mới), ARGV[2] = version mới, ARGV[3] = members, ARGV[4] = ttl
+    private static final DefaultRedisScript<Long> WRITE_SNAPSHOT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[2]) " +
+            "if current ~= ARGV[2] then " +
+            "  if redis.call('HGET', KEYS[1], 'v') ~= current then redis.call('DEL', KEYS[1]) end " +
+            "  return 0 " +
+            "end " +
+            "if ARGV[1] ~= '' and redis.call('HGET', KEYS[1], 'v') ~= ARGV[1] then redis.call('DEL', KEYS[1]) return 0 end " +
+            "redis.call('HSET', KEYS[1], 'v', ARGV[2], 'm', ARGV[3]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[4]) " +
+            "return 1",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisCacheEvictPublisher evictPublisher;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final LocalLruCache<UUID, MemberSetSnapshot> nearCache;
+
+    public ConversationMemberSetCache(RedisTemplate<String, String> redisTemplate,
+                                      RedisCacheEvictPublisher evictPublisher,
+                                      RedisCacheEvictSubscriber evictSubscriber,
+                                      ConversationBulkLoader conversationBulkLoader,
+                                      @Value("${chat.conversation.member-set.near-cache.max-size:10000}") int nearCacheMaxSize,
+                                      @Value("${chat.conversation.member-set.near-cache.ttl-seconds:60}") long nearCacheTtlSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.evictPublisher = evictPublisher;
+        this.conversationBulkLoader = conversationBulkLoader;
+        this.nearCache = new LocalLruCache<>(nearCacheMaxSize, Duration.ofSeconds(nearCacheTtlSeconds));
+        evictSubscriber.register(CACHE_NAME, (key, version) -> invalidateNearCache(UUID.fromString(key), version));
+    }
+
+    public MemberSetSnapshot get(UUID conversationId) {
+        return getAll(List.of(conversationId)).get(conversationId);
+    }
+
+    /**
+     * @return map conversationId -> snapshot, có đủ key cho mọi id (conversation không có member -> snapshot rỗng)
+     */
+    public Map<UUID, MemberSetSnapshot> getAll(Collection<UUID> conversationIds) {
+        Map<UUID, MemberSetSnapshot> result = new HashMap<>();
+        List<UUID> misses = new ArrayList<>();
+        for (UUID conversationId : new LinkedHashSet<>(conversationIds)) {
+            Optional<MemberSetSnapshot> cached = nearCache.get(conversationId);
+            if (cached.isPresent()) {
+                result.put(conversationId, cached.get());
+            } else {
+                misses.add(conversationId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        List<UUID> rebuild = new ArrayList<>();
+        List<Object> stored = readSnapshots(misses);
+        for (int i = 0; i < misses.size(); i++) {
+            MemberSetSnapshot snapshot = stored != null ? parse(stored.get(i)) : null;
+            if (snapshot == null) {
+                rebuild.add(misses.get(i));
+            } else {
+                nearCache.put(misses.get(i), snapshot);
+                result.put(misses.get(i), snapshot);
+            }
+        }
+        if (!rebuild.isEmpty()) {
+            result.putAll(rebuild(rebuild));
+        }
+        return result;
+    }
+
+    /**
+     * Gọi sau khi đã ghi thay đổi membership vào conversation_members
+     */
+    public void onMembersChanged(UUID conversationId, Collection<UUID> added, Collection<UUID> removed) {
+        long newVersion = Long.MAX_VALUE;
+        try {
+            newVersion = nextVersion(conversationId);
+            List<Object> stored = readSnapshots(List.of(conversationId));
+            MemberSetSnapshot current = stored != null ? parse(stored.get(0)) : null;
+            if (current != null) {
+                MemberSetSnapshot updated = current.apply(newVersion, added, removed);
+                write(conversationId, String.valueOf(current.getVersion()), updated);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to update member set of conversation {}: {}", conversationId, e.getMessage());
+            evict(conversationId);
+        } finally {
+            invalidateNearCaches(conversationId, newVersion);
+        }
+    }
+
+    /**
+     * Bỏ snapshot (ví dụ khi xóa hẳn conversation); lần đọc sau sẽ dựng lại
+     */
+    public void evict(UUID conversationId) {
+        long newVersion = Long.MAX_VALUE;
+        try {
+            newVersion = nextVersion(conversationId);
+            redisTemplate.delete(SNAPSHOT_KEY_PREFIX + conversationId);
+        } catch (Exception e) {
+            log.warn("Failed to evict member set of conversation {}: {}", conversationId, e.getMessage());
+        } finally {
+            invalidateNearCaches(conversationId, newVersion);
+        }
+    }
+
+    private Map<UUID, MemberSetSnapshot> rebuild(List<UUID> conversationIds) {
+        // Lấy version trước khi đọc Cassandra: thay đổi xảy ra trong lúc đọc sẽ làm lần ghi này thất bại
+        Map<UUID, Long> versions = new HashMap<>();
+        try {
+            conversationIds.forEach(conversationId -> versions.put(conversationId, nextVersion(conversationId)));
+        } catch (Exception e) {
+            log.warn("Redis unavailable, member sets are read without caching: {}", e.getMessage());
+            versions.clear();
+        }
+        Map<UUID, List<UUID>> memberIds = conversationBulkLoader.loadMemberIds(conversationIds);
+
+        Map<UUID, MemberSetSnapshot> rebuilt = new HashMap<>();
+        for (UUID conversationId : conversationIds) {
+            MemberSetSnapshot snapshot = MemberSetSnapshot.of(versions.getOrDefault(conversationId, 0L),
+                    memberIds.getOrDefault(conversationId, List.of()));
+            if (versions.containsKey(conversationId) && write(conversationId, "", snapshot)) {
+                nearCache.put(conversationId, snapshot);
+            }
+            rebuilt.put(conversationId, snapshot);
+        }
+        log.debug("Rebuilt {} member set snapshots", conversationIds.size());
+        return rebuilt;
+    }
+
+    private boolean write(UUID conversationId, String expectedVersion, MemberSetSnapshot snapshot) {
+        try {
+            Long written = redisTemplate.execute(WRITE_SNAPSHOT,
+                    List.of(SNAPSHOT_KEY_PREFIX + conversationId, VERSION_KEY_PREFIX + conversationId),
+                    expectedVersion,
+                    String.valueOf(snapshot.getVersion()),
+                    Base64.getEncoder().encodeToString(snapshot.toBytes()),
+                    String.valueOf(SNAPSHOT_TTL.toSeconds()));
+            return written != null && written == 1L;
+        } catch (Exception e) {
+            log.warn("Failed to write member set snapshot of conversation {}: {}", conversationId, e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Object> readSnapshots(List<UUID> conversationIds) {
+        try {
+            return redisTemplate.executePipelined((RedisConnection connection) -> {
+                conversationIds.forEach(conversationId -> connection.hashCommands().hMGet(
+                        (SNAPSHOT_KEY_PREFIX + conversationId).getBytes(StandardCharsets.UTF_8),
+                        "v".getBytes(StandardCharsets.UTF_8),
+                        "m".getBytes(StandardCharsets.UTF_8)));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to read member set snapshots: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return null nếu chưa có snapshot hoặc dữ liệu không đọc được (coi như miss)
+     */
+    private MemberSetSnapshot parse(Object value) {
+        if (!(value instanceof List<?> fields) || fields.size() != 2
+                || !(fields.get(0) instanceof String version) || !(fields.get(1) instanceof String members)) {
+            return null;
+        }
+        try {
+            return MemberSetSnapshot.fromBytes(Long.parseLong(version), Base64.getDecoder().decode(members));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private long nextVersion(UUID conversationId) {
+        Long version = redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + conversationId);
+        return version != null ? version : 0L;
+    }
+
+    private void invalidateNearCache(UUID conversationId, long version) {
+        nearCache.get(conversationId)
+                .filter(snapshot -> snapshot.getVersion() < version)
+                .ifPresent(snapshot -> nearCache.invalidate(conversationId));
+    }
+
+    private void invalidateNearCaches(UUID conversationId, long version) {
+        invalidateNearCache(conversationId, version);
+        try {
+            evictPublisher.publish(CACHE_NAME, conversationId.toString(), version);
+        } catch (Exception e) {
+            log.warn("Failed to publish member set invalidation for {}: {}", conversationId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.entity.ConversationSequence;
+import com.chatapp.chat_service.conversation.repository.ConversationSequenceRepository;
+import com.chatapp.chat_service.message.dto.MessageSummary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Sequence cấp conversation, tăng 1 sau mỗi message (1 thao tác Redis, không phụ thuộc số member):
+ * - conv_seq:{conversationId}  hash {seq -> số message, mid/sid/p -> id, người gửi, preview của message mới nhất}
+ * - conv_seq:dirty             set conversation có sequence thay đổi, được ghi định kỳ xuống bảng conversation_sequences
+ * Conversation fan-out-on-read tính unread của member bằng seq - read_seq và lấy preview từ đây khi đọc.
+ * Hash bị mất được nạp lại từ Cassandra; seq có thể lùi tối đa 1 chu kỳ ghi nên unread tính từ nó luôn chặn dưới bởi 0.
+ */
+@Slf4j
+@Service
+public class ConversationSequenceService {
+
+    private static final String KEY_PREFIX = "conv_seq:";
+    private static final String DIRTY_KEY = "conv_seq:dirty";
+    private static final int PREVIEW_MAX_LENGTH = 100;
+    private static final byte[][] HEAD_FIELDS = {bytes("seq"), bytes("mid"), bytes("sid"), bytes("p")};
+
+    // KEYS[1] = hash, KEYS[2] = dirty set; ARGV = conversationId, messageId, senderId, preview
+    // Trả về -1 nếu hash chưa có (cần nạp từ Cassandra trước)
+    private static final DefaultRedisScript<Long> NEXT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local seq = redis.call('HINCRBY', KEYS[1], 'seq', 1) " +
+            "redis.call('HSET', KEYS[1], 'mid', ARGV[2], 'sid', ARGV[3], 'p', ARGV[4]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return seq",
+            Long.class);
+
+    // KEYS[1] = hash; ARGV = seq, messageId, senderId, preview (chuỗi rỗng = không có)
+    private static final DefaultRedisScript<Long> RESTORE = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'seq', ARGV[1], 'mid', ARGV[2], 'sid', ARGV[3], 'p', ARGV[4]) " +
+            "return 1",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ConversationSequenceRepository sequenceRepository;
+    private final int persistBatchSize;
+
+    public ConversationSequenceService(RedisTemplate<String, String> redisTemplate,
+                                       ConversationSequenceRepository sequenceRepository,
+                                       @Value("${chat.conversation.sequence.persist-batch-size:500}") int persistBatchSize) {
+        this.redisTemplate = redisTemplate;
+        this.sequenceRepository = sequenceRepository;
+        this.persistBatchSize = persistBatchSize;
+    }
+
+    /**
+     * Trạng thái mới nhất của conversation dùng khi đọc (seq = 0: chưa có message)
+     */
+    public record Head(long seq, UUID lastMessageId, UUID lastSenderId, String preview) {
+        static final Head EMPTY = new Head(0, null, null, null);
+    }
+
+    /**
+     * Gọi sau khi lưu message
+     * @return sequence của message, -1 nếu Redis lỗi
+     */
+    public long onMessageSaved(UUID conversationId, MessageSummary summary) {
+        List<String> keys = List.of(KEY_PREFIX + conversationId, DIRTY_KEY);
+        Object[] args = {
+                conversationId.toString(),
+                summary.getMessageId().toString(),
+                summary.getSenderId() != null ? summary.getSenderId().toString() : "",
+                preview(summary.getContent())
+        };
+        try {
+            Long seq = redisTemplate.execute(NEXT, keys, args);
+            if (seq != null && seq < 0) {
+                restore(conversationId);
+                seq = redisTemplate.execute(NEXT, keys, args);
+            }
+            return seq != null ? seq : -1;
+        } catch (Exception e) {
+            log.warn("Failed to advance sequence of conversation {}: {}", conversationId, e.getMessage());
+            return -1;
+        }
+    }
+
+    public long current(UUID conversationId) {
+        return getHeads(List.of(conversationId)).get(conversationId).seq();
+    }
+
+    /**
+     * Head của nhiều conversation trong 1 pipeline; conversation thiếu trên Redis được nạp từ Cassandra
+     */
+    public Map<UUID, Head> getHeads(Collection<UUID> conversationIds) {
+        Map<UUID, Head> heads = new HashMap<>();
+        List<UUID> ids = new ArrayList<>(new LinkedHashSet<>(conversationIds));
+        if (ids.isEmpty()) {
+            return heads;
+        }
+
+        List<Object> values = redisTemplate.executePipelined((RedisConnection connection) -> {
+            ids.forEach(id -> connection.hashCommands().hMGet(bytes(KEY_PREFIX + id), HEAD_FIELDS));
+            return null;
+        });
+        for (int i = 0; i < ids.size(); i++) {
+            Head head = parse(values.get(i));
+            heads.put(ids.get(i), head != null ? head : restore(ids.get(i)));
+        }
+        return heads;
+    }
+
+    /**
+     * Ghi sequence của các conversation đã thay đổi xuống Cassandra. SPOP giúp mỗi conversation chỉ do 1 node xử lý.
+     */
+    @Scheduled(fixedDelayString = "${chat.conversation.sequence.persist-interval-ms:30000}")
+    public void persistDirtySequences() {
+        List<String> conversationIds;
+        try {
+            conversationIds = redisTemplate.opsForSet().pop(DIRTY_KEY, persistBatchSize);
+        } catch (Exception e) {
+            log.warn("Failed to read dirty conversation sequences: {}", e.getMessage());
+            return;
+        }
+        if (conversationIds == null || conversationIds.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        for (String conversationId : conversationIds) {
+            try {
+                List<Object> values = redisTemplate.<Object, Object>opsForHash()
+                        .multiGet(KEY_PREFIX + conversationId, List.of("seq", "mid", "sid", "p"));
+                Head head = parse(values);
+                if (head == null) {
+                    continue;
+                }
+                sequenceRepository.save(ConversationSequence.builder()
+                        .conversationId(UUID.fromString(conversationId))
+                        .seq(head.seq())
+                        .lastMessageId(head.lastMessageId())
+                        .lastSenderId(head.lastSenderId())
+                        .lastMessagePreview(head.preview())
+                        .updatedAt(now)
+                        .build());
+            } catch (Exception e) {
+                log.warn("Failed to persist sequence of conversation {}: {}", conversationId, e.getMessage());
+                redisTemplate.opsForSet().add(DIRTY_KEY, conversationId);
+            }
+        }
+    }
+
+    private Head restore(UUID conversationId) {
+        Head head = sequenceRepository.findById(conversationId)
+                .map(stored -> new Head(stored.getSeq(), stored.getLastMessageId(), stored.getLastSenderId(),
+                        stored.getLastMessagePreview()))
+                .orElse(Head.EMPTY);
+        redisTemplate.execute(RESTORE, List.of(KEY_PREFIX + conversationId),
+                String.valueOf(head.seq()),
+                head.lastMessageId() != null ? head.lastMessageId().toString() : "",
+                head.lastSenderId() != null ? head.lastSenderId().toString() : "",
+                head.preview() != null ? head.preview() : "");
+        return head;
+    }
+
+    /**
+     * @return null nếu hash không tồn tại
+     */
+    private static Head parse(Object value) {
+        if (!(value instanceof List<?> fields) || fields.size() != 4 || fields.get(0) == null) {
+            return null;
+        }
+        return new Head(Long.parseLong(fields.get(0).toString()),
+                uuid(fields.get(1)), uuid(fields.get(2)), text(fields.get(3)));
+    }
+
+    private static UUID uuid(Object value) {
+        String text = text(value);
+        return text != null ? UUID.fromString(text) : null;
+    }
+
+    private static String text(Object value) {
+        return value != null && !value.toString().isEmpty() ? value.toString() : null;
+    }
+
+    private static String preview(String content) {
+        if (content == null || content.isBlank()) {
+            return "";
+        }
+        return content.length() > PREVIEW_MAX_LENGTH ? content.substring(0, PREVIEW_MAX_LENGTH) + "…" : content;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,8 +1,6 @@
 package com.chatapp.chat_service.conversation.service;
 
-import com.chatapp.chat_service.redis.publisher.RedisCacheEvictPublisher;
 import com.chatapp.chat_service.elasticsearch.service.ConversationElasticsearchService;
-import com.chatapp.chat_service.auth.service.UserService;
 import com.chatapp.chat_service.common.exception.BadRequestException;
 import com.chatapp.chat_service.conversation.dto.ConversationRequest;
 import com.chatapp.chat_service.conversation.dto.ConversationResponseDto;
@@ -15,6 +13,8 @@ import com.chatapp.chat_service.conversation.repository.ConversationRepository;
 import com.chatapp.chat_service.elasticsearch.document.ConversationDocument;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.core.CassandraBatchOperations;
+import org.springframework.data.cassandra.core.CassandraOperations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -35,19 +35,30 @@ public class ConversationService {
     private final RedisTemplate<String, Object> redisTemplate;
     private final ConversationRepository conversationRepository;
     private final ConversationMemberRepository memberRepository;
-    private final RedisCacheEvictPublisher cacheEvictPublisher;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final InboxFanoutService inboxFanoutService;
+    private final ConversationListAssembler conversationListAssembler;
+    private final ConversationMemberSetCache memberSetCache;
+    private final DmPairService dmPairService;
+    private final CassandraOperations cassandraOperations;
+    private final ConversationChangeFeed changeFeed;
+    private final ConversationDeliveryModeService deliveryModeService;
     
     @Autowired(required = false)
     private ConversationElasticsearchService conversationElasticsearchService; // Optional Elasticsearch service
 
-    @Autowired
-    private UserService userService;
-
-    public ConversationService(RedisTemplate<String, Object> redisTemplate, ConversationRepository conversationRepository, ConversationMemberRepository memberRepository, RedisCacheEvictPublisher cacheEvictPublisher) {
+    public ConversationService(RedisTemplate<String, Object> redisTemplate, ConversationRepository conversationRepository, ConversationMemberRepository memberRepository, ConversationBulkLoader conversationBulkLoader, InboxFanoutService inboxFanoutService, ConversationListAssembler conversationListAssembler, ConversationMemberSetCache memberSetCache, DmPairService dmPairService, CassandraOperations cassandraOperations, ConversationChangeFeed changeFeed, ConversationDeliveryModeService deliveryModeService) {
         this.redisTemplate = redisTemplate;
         this.conversationRepository = conversationRepository;
         this.memberRepository = memberRepository;
-        this.cacheEvictPublisher = cacheEvictPublisher;
+        this.conversationBulkLoader = conversationBulkLoader;
+        this.inboxFanoutService = inboxFanoutService;
+        this.conversationListAssembler = conversationListAssembler;
+        this.memberSetCache = memberSetCache;
+        this.dmPairService = dmPairService;
+        this.cassandraOperations = cassandraOperations;
+        this.changeFeed = changeFeed;
+        this.deliveryModeService = deliveryModeService;
     }
     public List<Conversation> getUserConversations(UUID userId) {
         // Lấy tất cả dòng từ bảng conversation_members mà user là thành viên
@@ -61,16 +72,10 @@ public class ConversationService {
                 .distinct() // tránh trùng
                 .toList();
 
-        // Query each conversation individually and filter out deleted ones
-        List<Conversation> conversations = new ArrayList<>();
-        for (UUID conversationId : conversationIds) {
-            Optional<Conversation> conversation = conversationRepository.findByConversationId(conversationId);
-            if (conversation.isPresent() && !conversation.get().is_deleted()) {
-                conversations.add(conversation.get());
-            }
-        }
-        
-        return conversations;
+        // Load song song theo lô (có cache cục bộ) rồi bỏ các conversation đã xóa
+        return conversationBulkLoader.loadAll(conversationIds).values().stream()
+                .filter(conversation -> !conversation.is_deleted())
+                .toList();
     }
 
 
@@ -109,8 +114,6 @@ public class ConversationService {
                 .updated_at(now)
                 .build();
 
-        conversationRepository.save(conversation);
-
         // Thêm creator + thành viên
         Set<UUID> allMembers = new HashSet<>(req.getMemberIds());
         allMembers.add(createdId);
@@ -122,62 +125,80 @@ public class ConversationService {
                         .build())
                 .toList();
 
-        memberRepository.saveAll(members);
+        if ("dm".equals(req.getType()) && allMembers.size() == 2) {
+            // DM: giữ cặp user bằng LWT trước, rồi mới ghi conversation + 2 member trong 1 logged batch
+            List<UUID> pair = new ArrayList<>(allMembers);
+            DmPairService.Claim claim = dmPairService.claim(pair.get(0), pair.get(1), conversationId);
+            if (!claim.applied()) {
+                Optional<Conversation> existing = claim.conversationId() != null
+                        ? getConversationById(claim.conversationId())
+                        : Optional.empty();
+                if (existing.isPresent()) {
+                    // Request đồng thời đã tạo DM của cặp này
+                    return existing.get();
+                }
+                if (!dmPairService.takeOverIfStale(pair.get(0), pair.get(1), claim, conversationId)) {
+                    throw new ConversationAlreadyExistsException("Phòng chat riêng giữa hai người này đang được tạo. Vui lòng thử lại.");
+                }
+            }
+            try {
+                CassandraBatchOperations batch = cassandraOperations.batchOps();
+                batch.insert(conversation);
+                batch.insert(members);
+                batch.execute();
+            } catch (RuntimeException e) {
+                dmPairService.clear(conversationId, pair);
+                throw e;
+            }
+        } else {
+            conversationRepository.save(conversation);
+            memberRepository.saveAll(members);
+        }
+        memberSetCache.onMembersChanged(conversationId, allMembers, List.of());
+        // Group tạo sẵn với rất nhiều member chuyển ngay sang fan-out-on-read
+        deliveryModeService.onMembersChanged(conversationId, allMembers);
+
+        // Hiện conversation mới trong inbox của các member (bất đồng bộ)
+        inboxFanoutService.onConversationCreated(conversation);
         
         // Index to Elasticsearch
         indexConversationToElasticsearch(conversation);
-        
-        if ("dm".equals(req.getType()) && allMembers.size() == 2) {
-            cachePrivateConversation(allMembers, conversation);
-        }
 
         logger.info("Created {} conversation {} by user {}", req.getType(), conversationId, createdId);
         return conversation;
     }
-    private void cachePrivateConversation(Set<UUID> memberIds, Conversation conversation) {
-        // Chuyển Set thành List để lấy 2 user
-        List<UUID> sortedUserIds = new ArrayList<>(memberIds);
-        Collections.sort(sortedUserIds); // Đảm bảo thứ tự user1 < user2
-
-        UUID user1 = sortedUserIds.get(0);
-        UUID user2 = sortedUserIds.get(1);
-        String cacheKey = String.format(
-                "dmChat:%s:%s",
-                sortedUserIds.get(0),
-                sortedUserIds.get(1)
-        );
-
-        // Lưu vào cache
-        redisTemplate.opsForValue().set(
-                cacheKey,
-                conversation,
-                Duration.ofHours(1) // TTL 1 giờ
-        );
-        cacheEvictPublisher.publish(cacheKey); // Nếu muốn thông báo thay vì xóa
-    }
     public Optional<Conversation> getConversationById(UUID conversationId) {
-        Optional<Conversation> conversation = conversationRepository.findByConversationId(conversationId);
-        if (conversation.isPresent() && !conversation.get().is_deleted()) {
-            return conversation;
-        }
-        return Optional.empty();
+        return conversationBulkLoader.load(conversationId)
+                .filter(conversation -> !conversation.is_deleted());
     }
 
     public Optional<Conversation> findPrivateConversation(UUID userId1, UUID userId2) {
+        Optional<UUID> conversationId = dmPairService.findConversationId(userId1, userId2);
+        if (conversationId.isPresent()) {
+            return conversationBulkLoader.load(conversationId.get())
+                    .filter(conversation -> !conversation.is_deleted() && "dm".equals(conversation.getType()));
+        }
+        if (dmPairService.isBackfillDone()) {
+            return Optional.empty();
+        }
+
+        // DM tạo trước khi có dm_by_pair và chưa được backfill: tìm theo cách cũ rồi ghi bù
+        Optional<Conversation> legacy = findPrivateConversationByMembership(userId1, userId2);
+        legacy.ifPresent(conversation -> dmPairService.insertIfAbsent(userId1, userId2, conversation.getConversationId()));
+        return legacy;
+    }
+
+    private Optional<Conversation> findPrivateConversationByMembership(UUID userId1, UUID userId2) {
         List<UUID> user1Conversations = memberRepository.findConversationIdsByUserId(userId1);
         List<UUID> user2Conversations = memberRepository.findConversationIdsByUserId(userId2);
 
         Set<UUID> commonConversations = new HashSet<>(user1Conversations);
         commonConversations.retainAll(user2Conversations);
 
-        for (UUID conversationId : commonConversations) {
-            // Tìm conversation với điều kiện is_deleted = false và type = "dm"
-            Optional<Conversation> conversation = conversationRepository.findByConversationId(conversationId);
-            if (conversation.isPresent() && !conversation.get().is_deleted() && "dm".equals(conversation.get().getType())) {
-                return conversation;
-            }
-        }
-        return Optional.empty();
+        // Tìm conversation với điều kiện is_deleted = false và type = "dm"
+        return conversationBulkLoader.loadAll(commonConversations).values().stream()
+                .filter(conversation -> !conversation.is_deleted() && "dm".equals(conversation.getType()))
+                .findFirst();
     }
 
 
@@ -204,6 +225,8 @@ public class ConversationService {
         conversation.setUpdated_at(Instant.now());
         
         conversationRepository.save(conversation);
+        conversationBulkLoader.invalidate(conversationId);
+        changeFeed.recordChange(conversationId);
         
         // Update Elasticsearch if available
         if (conversationElasticsearchService != null) {
@@ -214,9 +237,10 @@ public class ConversationService {
         String cacheKey = "conversation:" + conversationId;
         redisTemplate.delete(cacheKey);
         
-        // Nếu là DM conversation, xóa cache DM
+        // Nếu là DM conversation, bỏ dm_by_pair (kèm cache dm_pair)
         if ("dm".equals(conversation.getType())) {
-            clearDmCache(conversationId);
+            List<UUID> memberIds = memberSetCache.get(conversationId).memberIds();
+            dmPairService.clear(conversationId, memberIds);
         }
         
         return true;
@@ -244,77 +268,29 @@ public class ConversationService {
         conversation.setUpdated_at(Instant.now());
         
         conversationRepository.save(conversation);
+        conversationBulkLoader.invalidate(conversationId);
+        changeFeed.recordChange(conversationId);
         
         // Update Elasticsearch if available
         if (conversationElasticsearchService != null) {
             conversationElasticsearchService.restoreConversation(conversationId);
         }
-        
-        return true;
-    }
-    /**
-     * Tìm phòng chat private giữa 2 user với cache Redis
-     * Sử dụng cache để tối ưu performance
-     */
-    public Optional<Conversation> findPrivateConversationWithCache(UUID userId1, UUID userId2) {
-        // Đảm bảo thứ tự userId để cache key nhất quán
-        List<UUID> sortedUserIds = Arrays.asList(userId1, userId2);
-        Collections.sort(sortedUserIds);
-        
-        UUID user1 = sortedUserIds.get(0);
-        UUID user2 = sortedUserIds.get(1);
-        
-        // Kiểm tra cache trước
-        String cacheKey = String.format("dmChat:%s:%s", user1, user2);
-        try {
-            Object cachedConversation = redisTemplate.opsForValue().get(cacheKey);
-            if (cachedConversation instanceof Conversation) {
-                Conversation conversation = (Conversation) cachedConversation;
-                // Kiểm tra conversation từ cache có bị xóa không
-                if (!conversation.is_deleted()) {
-                    return Optional.of(conversation);
-                } else {
-                    // Xóa cache nếu conversation đã bị xóa
-                    redisTemplate.delete(cacheKey);
-                }
+
+        if ("dm".equals(conversation.getType())) {
+            List<UUID> memberIds = memberSetCache.get(conversationId).memberIds();
+            if (memberIds.size() == 2) {
+                dmPairService.insertIfAbsent(memberIds.get(0), memberIds.get(1), conversationId);
             }
-        } catch (Exception e) {
-            // Nếu có lỗi cache, tiếp tục query database
-            logger.warn("Error accessing cache for DM conversation: {}", e.getMessage());
-        }
-        
-        // Nếu không có trong cache hoặc cache đã hết hạn, query database
-        Optional<Conversation> conversation = findPrivateConversation(userId1, userId2);
-        
-        // Cache lại kết quả nếu tìm thấy
-        if (conversation.isPresent()) {
-            redisTemplate.opsForValue().set(cacheKey, conversation.get(), Duration.ofHours(1));
         }
         
-        return conversation;
+        return true;
     }
     /**
-     * Xóa cache DM cho conversation bị xóa
+     * Tìm phòng chat private giữa 2 user qua cache 2 tầng:
+     * dm_pair ({low}:{high} -> conversationId) rồi conv_cache (conversationId -> conversation)
      */
-    private void clearDmCache(UUID conversationId) {
-        try {
-            // Lấy danh sách members của conversation này
-            List<ConversationMembers> members = memberRepository.findByKeyConversationId(conversationId);
-            
-            if (members.size() == 2) {
-                List<UUID> userIds = members.stream()
-                        .map(m -> m.getKey().getUserId())
-                        .sorted()
-                        .toList();
-                
-                String dmCacheKey = String.format("dmChat:%s:%s", userIds.get(0), userIds.get(1));
-                redisTemplate.delete(dmCacheKey);
-                
-                logger.info("Cleared DM cache for conversation: {}", conversationId);
-            }
-        } catch (Exception e) {
-            logger.warn("Error clearing DM cache for conversation {}: {}", conversationId, e.getMessage());
-        }
+    public Optional<Conversation> findPrivateConversationWithCache(UUID userId1, UUID userId2) {
+        return findPrivateConversation(userId1, userId2);
     }
 
     public Page<ConversationSearchDto> searchConversations(UUID userId, String name, String type, Pageable pageable) {
@@ -356,78 +332,8 @@ public class ConversationService {
      * Lấy danh sách conversation với đầy đủ thông tin, bao gồm tên người còn lại cho DM
      */
     public List<ConversationResponseDto> getUserConversationsWithDetails(UUID userId) {
-        List<Conversation> conversations = getUserConversations(userId);
-        
-        return conversations.stream()
-                .map(conv -> buildConversationResponse(conv, userId))
-                .toList();
-    }
-    
-    /**
-     * Build conversation response với đầy đủ thông tin
-     */
-    private ConversationResponseDto buildConversationResponse(Conversation conversation, UUID currentUserId) {
-        ConversationResponseDto.ConversationResponseDtoBuilder builder = ConversationResponseDto.builder()
-                .conversationId(conversation.getConversationId())
-                .type(conversation.getType())
-                .description(conversation.getDescription())
-                .createdBy(conversation.getCreated_by())
-                .backgroundUrl(conversation.getBackground_url())
-                .createdAt(conversation.getCreated_at())
-                .updatedAt(conversation.getUpdated_at())
-                .isDeleted(conversation.is_deleted());
-        
-        if ("dm".equals(conversation.getType())) {
-            // For DM: Find the other participant and use their name
-            ConversationResponseDto.UserProfileDto otherParticipant = findOtherParticipant(conversation, currentUserId);
-            String displayName = otherParticipant.getDisplayName() != null ? 
-                    otherParticipant.getDisplayName() : otherParticipant.getUsername();
-            
-            builder.name(displayName)
-                   .otherParticipant(otherParticipant)
-                   .memberCount(2);
-        } else {
-            // For groups: Use conversation name
-            builder.name(conversation.getName())
-                   .memberCount(getMemberCount(conversation.getConversationId()));
-        }
-
-        return builder.build();
-    }
-    
-    /**
-     * Tìm participant còn lại trong DM conversation
-     */
-    private ConversationResponseDto.UserProfileDto findOtherParticipant(Conversation conversation, UUID currentUserId) {
-        List<ConversationMembers> members = memberRepository.findByKeyConversationId(conversation.getConversationId());
-        
-        UUID otherUserId = members.stream()
-                .map(member -> member.getKey().getUserId())
-                .filter(id -> !id.equals(currentUserId))
-                .findFirst()
-                .orElse(null);
-        
-        if (otherUserId != null) {
-            return userService.getUserProfile(otherUserId);
-        }
-        
-        // Return default if no other participant found
-        return ConversationResponseDto.UserProfileDto.builder()
-                .userId(UUID.randomUUID())
-                .username("Unknown User")
-                .displayName("Unknown User")
-                .email(null)
-                .avatarUrl(null)
-                .isOnline(false)
-                .build();
-    }
-    
-    /**
-     * Đếm số member trong conversation
-     */
-    private Integer getMemberCount(UUID conversationId) {
-        List<ConversationMembers> members = memberRepository.findByKeyConversationId(conversationId);
-        return members.size();
+        // Member, profile, presence và số member được lấy theo lô cho cả danh sách
+        return conversationListAssembler.assemble(getUserConversations(userId), userId);
     }
     
     /**
@@ -490,6 +396,8 @@ public class ConversationService {
         
         conversation.setUpdated_at(Instant.now());
         conversationRepository.save(conversation);
+        conversationBulkLoader.invalidate(conversationId);
+        changeFeed.recordChange(conversationId);
         
         // Update cache nếu cần
         String cacheKey = "conversation:" + conversationId;
@@ -534,9 +442,12 @@ public class ConversationService {
         // Xóa tất cả members
         List<ConversationMembers> members = memberRepository.findByKeyConversationId(conversationId);
         memberRepository.deleteAll(members);
+        memberSetCache.evict(conversationId);
         
         // Xóa conversation
         conversationRepository.delete(conversation);
+        conversationBulkLoader.invalidate(conversationId);
+        changeFeed.recordChangeFor(conversationId, members.stream().map(ConversationMembers::getUserId).toList());
         
         // Xóa cache
         String cacheKey = "conversation:" + conversationId;
@@ -0,0 +1,59 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.dto.ConversationSyncResponse;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Đồng bộ danh sách conversation theo delta: chỉ trả các conversation thay đổi sau version client đang có,
+ * kèm tombstone cho conversation đã xóa/đã rời. Version quá cũ thì trả full snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationSyncService {
+
+    private final ConversationChangeFeed changeFeed;
+    private final ConversationService conversationService;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationListAssembler conversationListAssembler;
+
+    public ConversationSyncResponse sync(UUID userId, Long since) {
+        ConversationChangeFeed.ChangeWindow window = changeFeed.changesSince(userId, since);
+        if (!window.complete()) {
+            return ConversationSyncResponse.builder()
+                    .version(window.version())
+                    .fullSnapshot(true)
+                    .conversations(conversationService.getUserConversationsWithDetails(userId))
+                    .removedConversationIds(List.of())
+                    .build();
+        }
+
+        // Conversation trong feed vừa thay đổi (có thể trên node khác) nên không đọc từ cache cục bộ
+        Map<UUID, Conversation> conversations = conversationBulkLoader.refreshAll(window.conversationIds());
+        Map<UUID, MemberSetSnapshot> memberSets = memberSetCache.getAll(window.conversationIds());
+
+        List<Conversation> changed = new ArrayList<>();
+        List<UUID> removed = new ArrayList<>();
+        for (UUID conversationId : window.conversationIds()) {
+            Conversation conversation = conversations.get(conversationId);
+            MemberSetSnapshot memberSet = memberSets.get(conversationId);
+            if (conversation == null || conversation.is_deleted() || memberSet == null || !memberSet.contains(userId)) {
+                removed.add(conversationId);
+            } else {
+                changed.add(conversation);
+            }
+        }
+
+        return ConversationSyncResponse.builder()
+                .version(window.version())
+                .fullSnapshot(false)
+                .conversations(conversationListAssembler.assemble(changed, userId))
+                .removedConversationIds(removed)
+                .build();
+    }
+}
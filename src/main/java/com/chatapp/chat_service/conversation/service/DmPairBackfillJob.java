@@ -0,0 +1,78 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.conversation.repository.ConversationRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Backfill dm_by_pair cho các DM tạo trước khi có bảng này.
+ * Quét bảng conversations theo trang, ghi row bằng IF NOT EXISTS nên chạy lại nhiều lần vẫn an toàn.
+ * Bật bằng chat.conversation.dm-pair.backfill-on-startup=true; khi xong sẽ đặt cờ để tắt đường tìm kiếm cũ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.conversation.dm-pair.backfill-on-startup", havingValue = "true")
+public class DmPairBackfillJob implements CommandLineRunner {
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMemberSetCache memberSetCache;
+    private final DmPairService dmPairService;
+
+    @Value("${chat.conversation.dm-pair.backfill-page-size:500}")
+    private int pageSize;
+
+    @Override
+    public void run(String... args) {
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.error("dm_by_pair backfill failed, legacy DM lookup stays enabled", e);
+        }
+    }
+
+    public void backfill() {
+        log.info("Starting dm_by_pair backfill...");
+        int scanned = 0;
+        int inserted = 0;
+
+        Slice<Conversation> slice = conversationRepository.findAll(CassandraPageRequest.first(pageSize));
+        while (true) {
+            List<Conversation> dms = slice.getContent().stream()
+                    .filter(conversation -> "dm".equals(conversation.getType()) && !conversation.is_deleted())
+                    .toList();
+            Map<UUID, MemberSetSnapshot> memberSets = memberSetCache.getAll(dms.stream()
+                    .map(Conversation::getConversationId)
+                    .toList());
+
+            for (Conversation dm : dms) {
+                List<UUID> memberIds = memberSets.get(dm.getConversationId()).memberIds();
+                if (memberIds.size() == 2
+                        && dmPairService.insertIfAbsent(memberIds.get(0), memberIds.get(1), dm.getConversationId())) {
+                    inserted++;
+                }
+            }
+            scanned += slice.getNumberOfElements();
+
+            if (!slice.hasNext()) {
+                break;
+            }
+            slice = conversationRepository.findAll(slice.nextPageable());
+        }
+
+        dmPairService.markBackfillDone();
+        log.info("dm_by_pair backfill completed: scanned {} conversations, inserted {} pairs", scanned, inserted);
+    }
+}
@@ -0,0 +1,194 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.common.cache.TwoLevelCache;
+import com.chatapp.chat_service.conversation.entity.DmPair;
+import com.chatapp.chat_service.conversation.repository.DmPairRepository;
+import com.chatapp.chat_service.redis.publisher.RedisCacheEvictPublisher;
+import com.chatapp.chat_service.redis.subscriber.RedisCacheEvictSubscriber;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bảng dm_by_pair: (user_low, user_high) -> conversation DM đang hoạt động.
+ * Tìm DM giữa 2 user chỉ còn 1 lần đọc trên 1 partition thay vì giao 2 danh sách membership.
+ * Kết quả tìm được cache 2 tầng "dm_pair" ({low}:{high} -> conversationId); cặp chưa có DM không được cache.
+ */
+@Slf4j
+@Service
+public class DmPairService {
+
+    private static final String BACKFILL_DONE_KEY = "dm_by_pair:backfill_done";
+    private static final String DELETE_IF_MATCHES =
+            "DELETE FROM dm_by_pair WHERE user_low = ? AND user_high = ? IF conversation_id = ?";
+    private static final String CLAIM =
+            "INSERT INTO dm_by_pair (user_low, user_high, conversation_id, created_at) VALUES (?, ?, ?, ?) IF NOT EXISTS";
+    private static final String TAKE_OVER =
+            "UPDATE dm_by_pair SET conversation_id = ?, created_at = ? WHERE user_low = ? AND user_high = ? IF conversation_id = ?";
+
+    private final DmPairRepository dmPairRepository;
+    private final CassandraOperations cassandraOperations;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final TwoLevelCache<DmPair.DmPairKey, UUID> cache;
+    private final Duration claimGrace;
+    private volatile boolean backfillDone;
+
+    /**
+     * Kết quả giữ cặp user cho DM mới
+     * @param conversationId conversation đang giữ cặp (của mình nếu applied)
+     */
+    public record Claim(boolean applied, UUID conversationId, Instant claimedAt) {
+    }
+
+    public DmPairService(DmPairRepository dmPairRepository,
+                         CassandraOperations cassandraOperations,
+                         RedisTemplate<String, String> redisTemplate,
+                         ObjectMapper objectMapper,
+                         RedisCacheEvictPublisher evictPublisher,
+                         RedisCacheEvictSubscriber evictSubscriber,
+                         MeterRegistry meterRegistry,
+                         @Value("${chat.conversation.dm-pair.local-cache.max-size:10000}") int cacheMaxSize,
+                         @Value("${chat.conversation.dm-pair.local-cache.ttl-seconds:300}") long cacheTtlSeconds,
+                         @Value("${chat.conversation.dm-pair.redis-cache.ttl-seconds:3600}") long redisCacheTtlSeconds,
+                         @Value("${chat.conversation.dm-pair.claim-grace-ms:30000}") long claimGraceMillis) {
+        this.dmPairRepository = dmPairRepository;
+        this.cassandraOperations = cassandraOperations;
+        this.redisTemplate = redisTemplate;
+        this.claimGrace = Duration.ofMillis(claimGraceMillis);
+        this.cache = new TwoLevelCache<>("dm_pair", UUID.class, DmPairService::encode, DmPairService::decode,
+                cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds), Duration.ofSeconds(redisCacheTtlSeconds),
+                redisTemplate, objectMapper, evictPublisher, evictSubscriber, meterRegistry);
+    }
+
+    public Optional<UUID> findConversationId(UUID userId1, UUID userId2) {
+        return cache.get(DmPair.DmPairKey.of(userId1, userId2), this::loadConversationIds);
+    }
+
+    /**
+     * Gọi sau khi row của cặp user được ghi hoặc xóa (kể cả ghi qua batch)
+     */
+    public void invalidate(UUID userId1, UUID userId2) {
+        cache.invalidate(DmPair.DmPairKey.of(userId1, userId2));
+    }
+
+    /**
+     * Giữ cặp user cho DM mới (IF NOT EXISTS) trước khi ghi conversation.
+     * Mọi lần ghi dm_by_pair đều là LWT: claim, insertIfAbsent, takeOverIfStale, clear.
+     * @return applied = false kèm conversation đang giữ cặp nếu cặp đã có DM (hoặc DM đang được tạo)
+     */
+    public Claim claim(UUID userId1, UUID userId2, UUID conversationId) {
+        DmPair.DmPairKey key = DmPair.DmPairKey.of(userId1, userId2);
+        Instant now = Instant.now();
+        ResultSet result = cassandraOperations.getCqlOperations().queryForResultSet(CLAIM,
+                key.getUserLow(), key.getUserHigh(), conversationId, now);
+        invalidate(userId1, userId2);
+        if (result.wasApplied()) {
+            return new Claim(true, conversationId, now);
+        }
+        Row existing = result.one();
+        return new Claim(false,
+                existing != null ? existing.getUuid("conversation_id") : null,
+                existing != null ? existing.getInstant("created_at") : null);
+    }
+
+    /**
+     * Cặp bị giữ bởi conversation không tồn tại (lần tạo trước lỗi sau khi claim) và đã quá claim-grace-ms:
+     * chuyển cặp sang conversation mới, chỉ khi row vẫn trỏ tới conversation cũ
+     * @return true nếu đã chuyển
+     */
+    public boolean takeOverIfStale(UUID userId1, UUID userId2, Claim stale, UUID conversationId) {
+        if (stale.claimedAt() != null && stale.claimedAt().isAfter(Instant.now().minus(claimGrace))) {
+            return false; // có thể đang được tạo
+        }
+        DmPair.DmPairKey key = DmPair.DmPairKey.of(userId1, userId2);
+        boolean applied = cassandraOperations.getCqlOperations().queryForResultSet(TAKE_OVER,
+                conversationId, Instant.now(), key.getUserLow(), key.getUserHigh(), stale.conversationId()).wasApplied();
+        invalidate(userId1, userId2);
+        return applied;
+    }
+
+    /**
+     * Ghi row nếu cặp user chưa có DM (dùng cho backfill, read-repair và khôi phục DM)
+     * @return true nếu đã ghi
+     */
+    public boolean insertIfAbsent(UUID userId1, UUID userId2, UUID conversationId) {
+        boolean applied = cassandraOperations.insert(toEntity(userId1, userId2, conversationId),
+                InsertOptions.builder().withIfNotExists().build()).wasApplied();
+        if (applied) {
+            invalidate(userId1, userId2);
+        }
+        return applied;
+    }
+
+    /**
+     * Xóa row khi DM bị soft delete; chỉ xóa nếu row vẫn trỏ tới đúng conversation này
+     */
+    public void clear(UUID conversationId, List<UUID> memberIds) {
+        if (memberIds.size() != 2) {
+            return;
+        }
+        DmPair.DmPairKey key = DmPair.DmPairKey.of(memberIds.get(0), memberIds.get(1));
+        cassandraOperations.getCqlOperations().execute(DELETE_IF_MATCHES,
+                key.getUserLow(), key.getUserHigh(), conversationId);
+        cache.invalidate(key);
+    }
+
+    /**
+     * Trước khi backfill chạy xong, DM cũ có thể chưa có row trong dm_by_pair
+     */
+    public boolean isBackfillDone() {
+        if (!backfillDone) {
+            try {
+                backfillDone = Boolean.TRUE.equals(redisTemplate.hasKey(BACKFILL_DONE_KEY));
+            } catch (Exception e) {
+                log.warn("Failed to read dm_by_pair backfill flag: {}", e.getMessage());
+            }
+        }
+        return backfillDone;
+    }
+
+    public void markBackfillDone() {
+        redisTemplate.opsForValue().set(BACKFILL_DONE_KEY, Instant.now().toString());
+        backfillDone = true;
+    }
+
+    private Map<DmPair.DmPairKey, UUID> loadConversationIds(List<DmPair.DmPairKey> keys) {
+        Map<DmPair.DmPairKey, UUID> conversationIds = new HashMap<>();
+        keys.forEach(key -> dmPairRepository.findById(key)
+                .ifPresent(pair -> conversationIds.put(key, pair.getConversationId())));
+        return conversationIds;
+    }
+
+    private static String encode(DmPair.DmPairKey key) {
+        return key.getUserLow() + ":" + key.getUserHigh();
+    }
+
+    private static DmPair.DmPairKey decode(String value) {
+        String[] parts = value.split(":", 2);
+        return new DmPair.DmPairKey(UUID.fromString(parts[0]), UUID.fromString(parts[1]));
+    }
+
+    private DmPair toEntity(UUID userId1, UUID userId2, UUID conversationId) {
+        return DmPair.builder()
+                .key(DmPair.DmPairKey.of(userId1, userId2))
+                .conversationId(conversationId)
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,263 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.conversation.entity.UserInboxState;
+import com.chatapp.chat_service.conversation.service.InboxService.InboxActivity;
+import com.chatapp.chat_service.message.dto.MessageResponseDto;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fan-out-on-write bất đồng bộ cho user_inbox, chạy sau khi message đã được lưu.
+ * - Danh sách member được chia chunk, mỗi chunk là 1 task trên executor có giới hạn.
+ * - Activity của cùng 1 conversation chạy tuần tự: activity sau chỉ đọc user_inbox_state khi mọi chunk của
+ *   activity trước đã ghi xong (nếu không 2 activity cùng xóa 1 row cũ, để lại row trùng và mất unread).
+ *   Activity tới trong lúc chờ được gộp lại thành 1.
+ * - Group lớn (>= large-group-threshold member) được gộp theo cửa sổ thời gian:
+ *   trong 1 cửa sổ chỉ ghi inbox 1 lần với message mới nhất, nên chi phí không tăng theo số message.
+ * - Conversation fan-out-on-read (ConversationDeliveryModeService) không ghi inbox theo member;
+ *   InboxService dựng entry của chúng khi đọc từ sequence của conversation. Chúng luôn được gộp theo cửa sổ
+ *   như group lớn và mỗi cửa sổ chỉ ghi change feed (/my/sync) cho member.
+ */
+@Slf4j
+@Service
+public class InboxFanoutService {
+
+    private static final int PREVIEW_MAX_LENGTH = 100;
+
+    private final InboxService inboxService;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationChangeFeed changeFeed;
+    private final Executor executor;
+    private final TaskScheduler taskScheduler;
+    private final int chunkSize;
+    private final int largeGroupThreshold;
+    private final Duration coalesceWindow;
+
+    // Conversation đã biết là group lớn và activity đang chờ ghi của chúng
+    private final Set<UUID> largeConversations = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<UUID, InboxActivity> pendingActivities = new ConcurrentHashMap<>();
+    // Conversation đang fan-out và activity (đã gộp) chờ chạy sau lượt hiện tại
+    private final ConcurrentHashMap<UUID, Lane> lanes = new ConcurrentHashMap<>();
+
+    private static final class Lane {
+        private InboxActivity next;
+    }
+
+    public InboxFanoutService(InboxService inboxService,
+                              ConversationBulkLoader conversationBulkLoader,
+                              ConversationMemberSetCache memberSetCache,
+                              ConversationChangeFeed changeFeed,
+                              @Qualifier("inboxFanoutExecutor") Executor executor,
+                              TaskScheduler taskScheduler,
+                              @Value("${chat.inbox.fanout.chunk-size:200}") int chunkSize,
+                              @Value("${chat.inbox.fanout.large-group-threshold:500}") int largeGroupThreshold,
+                              @Value("${chat.inbox.fanout.coalesce-window-ms:5000}") long coalesceWindowMillis) {
+        this.inboxService = inboxService;
+        this.conversationBulkLoader = conversationBulkLoader;
+        this.memberSetCache = memberSetCache;
+        this.changeFeed = changeFeed;
+        this.executor = executor;
+        this.taskScheduler = taskScheduler;
+        this.chunkSize = chunkSize;
+        this.largeGroupThreshold = largeGroupThreshold;
+        this.coalesceWindow = Duration.ofMillis(coalesceWindowMillis);
+    }
+
+    /**
+     * Gọi từ consumer sau khi message đã lưu và broadcast; không chặn consumer
+     */
+    public void onMessageSaved(MessageResponseDto message) {
+        UUID senderId = message.getSender() != null ? message.getSender().getUser_id() : null;
+        InboxActivity activity = new InboxActivity(
+                message.getConversationId(),
+                message.getMessageId(),
+                message.getMessageId(),
+                senderId,
+                buildPreview(message),
+                1,
+                senderId != null ? Map.of(senderId, 0) : Map.of());
+        submit(activity);
+    }
+
+    /**
+     * Conversation mới tạo xuất hiện ngay trong inbox của các member (chưa có unread)
+     */
+    public void onConversationCreated(Conversation conversation) {
+        UUID creatorId = conversation.getCreated_by();
+        submit(new InboxActivity(conversation.getConversationId(), Uuids.timeBased(), null,
+                creatorId, null, 0, creatorId != null ? Map.of(creatorId, 0) : Map.of()));
+    }
+
+    private void submit(InboxActivity activity) {
+        if (largeConversations.contains(activity.conversationId())) {
+            coalesce(activity);
+            return;
+        }
+        dispatch(activity);
+    }
+
+    /**
+     * Chạy ngay nếu conversation không có fan-out đang chạy, ngược lại gộp vào activity chờ của conversation
+     */
+    private void dispatch(InboxActivity activity) {
+        boolean[] idle = {false};
+        lanes.compute(activity.conversationId(), (conversationId, lane) -> {
+            if (lane == null) {
+                idle[0] = true;
+                return new Lane();
+            }
+            lane.next = lane.next == null ? activity : merge(lane.next, activity);
+            return lane;
+        });
+        if (idle[0]) {
+            run(activity);
+        }
+    }
+
+    private void run(InboxActivity activity) {
+        CompletableFuture<Void> done;
+        try {
+            done = CompletableFuture.supplyAsync(() -> fanOut(activity), executor).thenCompose(chunks -> chunks);
+        } catch (RejectedExecutionException e) {
+            log.warn("Failed to schedule inbox fan-out for conversation {}: {}", activity.conversationId(), e.getMessage());
+            done = CompletableFuture.completedFuture(null);
+        }
+        done.whenComplete((result, e) -> runNext(activity.conversationId()));
+    }
+
+    private void runNext(UUID conversationId) {
+        InboxActivity[] next = {null};
+        lanes.computeIfPresent(conversationId, (id, lane) -> {
+            if (lane.next == null) {
+                return null;
+            }
+            next[0] = lane.next;
+            lane.next = null;
+            return lane;
+        });
+        if (next[0] != null) {
+            run(next[0]);
+        }
+    }
+
+    /**
+     * Gộp activity của group lớn; activity đầu tiên trong cửa sổ sẽ lên lịch flush.
+     * Gộp hoặc thêm trong 1 lần compute để không mất activity khi flush vừa lấy entry ra.
+     */
+    private void coalesce(InboxActivity activity) {
+        boolean[] opened = {false};
+        pendingActivities.compute(activity.conversationId(), (conversationId, pending) -> {
+            if (pending == null) {
+                opened[0] = true;
+                return activity;
+            }
+            return merge(pending, activity);
+        });
+        if (opened[0]) {
+            taskScheduler.schedule(() -> flush(activity.conversationId()), Instant.now().plus(coalesceWindow));
+        }
+    }
+
+    /**
+     * Activity mới hơn thay nội dung, số message cộng dồn.
+     * Người gửi chỉ có trong activity cũ hơn: unread của họ cộng thêm số message của activity mới hơn.
+     */
+    private static InboxActivity merge(InboxActivity pending, InboxActivity activity) {
+        boolean activityNewer = Uuids.unixTimestamp(activity.activityId()) >= Uuids.unixTimestamp(pending.activityId());
+        InboxActivity newer = activityNewer ? activity : pending;
+        InboxActivity older = activityNewer ? pending : activity;
+        Map<UUID, Integer> unreadBySender = new HashMap<>(newer.unreadBySender());
+        older.unreadBySender().forEach((senderId, unread) ->
+                unreadBySender.putIfAbsent(senderId, unread + newer.messageCount()));
+        return new InboxActivity(pending.conversationId(), newer.activityId(), newer.messageId(), newer.senderId(),
+                newer.preview(), pending.messageCount() + activity.messageCount(), unreadBySender);
+    }
+
+    private void flush(UUID conversationId) {
+        InboxActivity activity = pendingActivities.remove(conversationId);
+        if (activity != null) {
+            dispatch(activity);
+        }
+    }
+
+    /**
+     * @return hoàn tất khi mọi chunk đã ghi xong
+     */
+    private CompletableFuture<Void> fanOut(InboxActivity activity) {
+        try {
+            Optional<Conversation> conversation = conversationBulkLoader.load(activity.conversationId());
+            if (conversation.isEmpty() || conversation.get().is_deleted()) {
+                largeConversations.remove(activity.conversationId());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            boolean fanOutOnRead = conversation.get().usesFanOutOnRead();
+            List<UUID> memberIds = memberSetCache.get(activity.conversationId()).memberIds();
+            if (fanOutOnRead || memberIds.size() >= largeGroupThreshold) {
+                largeConversations.add(activity.conversationId());
+            } else {
+                largeConversations.remove(activity.conversationId());
+            }
+
+            Map<UUID, UserInboxState> states = fanOutOnRead ? Map.of() : inboxService.loadStates(activity.conversationId());
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (int from = 0; from < memberIds.size(); from += chunkSize) {
+                List<UUID> chunk = memberIds.subList(from, Math.min(from + chunkSize, memberIds.size()));
+                Runnable write = fanOutOnRead
+                        ? () -> recordChunk(activity, chunk)
+                        : () -> writeChunk(conversation.get(), activity, chunk, memberIds, states);
+                try {
+                    chunks.add(CompletableFuture.runAsync(write, executor));
+                } catch (RejectedExecutionException e) {
+                    write.run(); // executor đầy: ghi trên thread hiện tại, không bỏ chunk
+                }
+            }
+            return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new));
+        } catch (Exception e) {
+            log.error("Inbox fan-out failed for conversation {}: {}", activity.conversationId(), e.getMessage(), e);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void writeChunk(Conversation conversation, InboxActivity activity, List<UUID> chunk,
+                            List<UUID> memberIds, Map<UUID, UserInboxState> states) {
+        try {
+            inboxService.applyActivity(conversation, activity, chunk, memberIds, states);
+            changeFeed.recordChangeFor(activity.conversationId(), chunk);
+        } catch (Exception e) {
+            log.error("Failed to write inbox chunk ({} members) for conversation {}: {}",
+                    chunk.size(), activity.conversationId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Conversation fan-out-on-read: không ghi inbox, chỉ báo thay đổi cho /my/sync của member
+     */
+    private void recordChunk(InboxActivity activity, List<UUID> chunk) {
+        changeFeed.recordChangeFor(activity.conversationId(), chunk);
+    }
+
+    private String buildPreview(MessageResponseDto message) {
+        String content = message.getContent();
+        if (content == null || content.isBlank()) {
+            boolean hasFiles = message.getFileAttachments() != null && !message.getFileAttachments().isEmpty();
+            return hasFiles ? "[" + (message.getMessageType() != null ? message.getMessageType() : "FILE") + "]" : null;
+        }
+        return content.length() > PREVIEW_MAX_LENGTH ? content.substring(0, PREVIEW_MAX_LENGTH) + "…" : content;
+    }
+}
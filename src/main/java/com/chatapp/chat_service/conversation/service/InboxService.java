@@ -0,0 +1,263 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.dto.InboxEntryDto;
+import com.chatapp.chat_service.conversation.dto.InboxPage;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.conversation.entity.UserInbox;
+import com.chatapp.chat_service.conversation.entity.UserInboxBucket;
+import com.chatapp.chat_service.conversation.entity.UserInboxState;
+import com.chatapp.chat_service.conversation.repository.UserInboxBucketRepository;
+import com.chatapp.chat_service.conversation.repository.UserInboxRepository;
+import com.chatapp.chat_service.conversation.repository.UserInboxStateRepository;
+import com.chatapp.chat_service.notification.service.NotificationService;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.cassandra.core.CassandraBatchOperations;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Đọc/ghi bảng user_inbox: danh sách conversation của user sắp theo activity gần nhất.
+ * Row của 1 conversation được "dời" lên đầu bằng cách xóa row cũ (vị trí lấy từ user_inbox_state) và ghi row mới.
+ * Conversation fan-out-on-read không có row cập nhật theo message: entry của chúng được dựng khi đọc
+ * từ sequence của conversation và chèn vào trang đầu.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InboxService {
+
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM").withZone(ZoneOffset.UTC);
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_BUCKETS_PER_PAGE = 12;
+
+    private final UserInboxRepository inboxRepository;
+    private final UserInboxBucketRepository bucketRepository;
+    private final UserInboxStateRepository stateRepository;
+    private final CassandraOperations cassandraOperations;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final UnreadCounterService unreadCounterService;
+    private final ConversationSequenceService sequenceService;
+    private final NotificationService notificationService;
+
+    /**
+     * Activity mới của conversation cần phản ánh vào inbox
+     * @param activityId TIMEUUID của activity (message_id hoặc thời điểm tạo conversation)
+     * @param messageCount số message được gộp vào activity này (0 = không tăng unread)
+     * @param unreadBySender với mỗi người gửi trong activity: số message sau message cuối của họ,
+     *                       là unread của họ sau activity (đã gửi thì coi như đã đọc phần trước đó)
+     */
+    public record InboxActivity(UUID conversationId, UUID activityId, UUID messageId, UUID senderId,
+                                String preview, int messageCount, Map<UUID, Integer> unreadBySender) {
+    }
+
+    /**
+     * Trạng thái inbox hiện tại của toàn bộ member (1 query trên partition của conversation)
+     */
+    public Map<UUID, UserInboxState> loadStates(UUID conversationId) {
+        return stateRepository.findByConversationId(conversationId).stream()
+                .collect(Collectors.toMap(UserInboxState::getUserId, state -> state, (a, b) -> a));
+    }
+
+    /**
+     * Dời conversation lên đầu inbox của các member được chỉ định.
+     * Mỗi member là 1 logged batch nhỏ (xóa row cũ, ghi row mới, cập nhật state và bucket).
+     */
+    public void applyActivity(Conversation conversation, InboxActivity activity, Collection<UUID> memberIds,
+                              List<UUID> allMemberIds, Map<UUID, UserInboxState> states) {
+        String bucket = bucketOf(activity.activityId());
+        long activityTime = Uuids.unixTimestamp(activity.activityId());
+
+        for (UUID memberId : memberIds) {
+            UserInboxState previous = states.get(memberId);
+            if (previous != null && previous.getLastActivityId() != null
+                    && Uuids.unixTimestamp(previous.getLastActivityId()) > activityTime) {
+                continue; // activity đến trễ, inbox đã mới hơn
+            }
+
+            Integer senderUnread = activity.unreadBySender().get(memberId);
+            int unread = senderUnread != null
+                    ? senderUnread
+                    : (previous != null ? previous.getUnreadCount() : 0) + activity.messageCount();
+
+            CassandraBatchOperations batch = cassandraOperations.batchOps();
+            if (previous != null && previous.getLastActivityId() != null
+                    && !previous.getLastActivityId().equals(activity.activityId())) {
+                batch.delete(UserInbox.builder()
+                        .key(new UserInbox.UserInboxKey(memberId, previous.getBucket(),
+                                previous.getLastActivityId(), conversation.getConversationId()))
+                        .build());
+            }
+            batch.insert(UserInbox.builder()
+                    .key(new UserInbox.UserInboxKey(memberId, bucket, activity.activityId(), conversation.getConversationId()))
+                    .conversationType(conversation.getType())
+                    .conversationName(conversation.getName())
+                    .peerUserId(findPeer(conversation, allMemberIds, memberId))
+                    .lastMessageId(activity.messageId())
+                    .lastSenderId(activity.senderId())
+                    .lastMessagePreview(activity.preview())
+                    .unreadCount(unread)
+                    .build());
+            batch.insert(UserInboxState.builder()
+                    .conversationId(conversation.getConversationId())
+                    .userId(memberId)
+                    .bucket(bucket)
+                    .lastActivityId(activity.activityId())
+                    .unreadCount(unread)
+                    .build());
+            batch.insert(new UserInboxBucket(memberId, bucket));
+            batch.execute();
+        }
+    }
+
+    /**
+     * Lấy 1 trang inbox, activity mới nhất trước.
+     * Trang đầu có thêm toàn bộ conversation fan-out-on-read của user nên có thể dài hơn limit.
+     * @param cursor last_activity_id của item cuối trang trước (null = trang đầu)
+     */
+    public InboxPage getInbox(UUID userId, UUID cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        String startBucket = cursor != null ? bucketOf(cursor) : BUCKET_FORMAT.format(Instant.now());
+        List<UserInboxBucket> buckets = bucketRepository.findBucketsUpTo(userId, startBucket, MAX_BUCKETS_PER_PAGE);
+
+        // Lấy dư 1 row để biết còn trang sau
+        List<UserInbox> rows = new ArrayList<>();
+        for (UserInboxBucket bucket : buckets) {
+            int remaining = pageSize + 1 - rows.size();
+            if (remaining <= 0) {
+                break;
+            }
+            boolean cursorBucket = cursor != null && bucket.getBucket().equals(startBucket);
+            rows.addAll(cursorBucket
+                    ? inboxRepository.findInBucketBefore(userId, bucket.getBucket(), cursor, remaining)
+                    : inboxRepository.findLatestInBucket(userId, bucket.getBucket(), remaining));
+        }
+
+        boolean hasMore = rows.size() > pageSize || buckets.size() == MAX_BUCKETS_PER_PAGE;
+        List<UserInbox> pageRows = rows.stream().limit(pageSize).collect(Collectors.toList());
+        UUID nextCursor = hasMore && !pageRows.isEmpty()
+                ? pageRows.get(pageRows.size() - 1).getKey().getLastActivityId()
+                : null;
+
+        // Metadata mới nhất (tên, trạng thái xóa) lấy qua bulk loader có cache
+        Map<UUID, Conversation> conversations = conversationBulkLoader.loadAll(pageRows.stream()
+                .map(row -> row.getKey().getConversationId())
+                .collect(Collectors.toList()));
+        // Unread lấy từ counter trên Redis (chính xác hơn giá trị ghi lúc fan-out)
+        Map<UUID, Integer> unreadCounts = unreadCounterService.getCounts(userId, conversations.keySet());
+        Set<UUID> seen = new HashSet<>();
+        List<InboxEntryDto> items = pageRows.stream()
+                .filter(row -> seen.add(row.getKey().getConversationId()))
+                .filter(row -> {
+                    Conversation conversation = conversations.get(row.getKey().getConversationId());
+                    // Row của conversation fan-out-on-read đã cũ, entry được dựng lại ở trang đầu
+                    return conversation != null && !conversation.is_deleted() && !conversation.usesFanOutOnRead();
+                })
+                .map(row -> toDto(row, conversations.get(row.getKey().getConversationId()),
+                        unreadCounts.getOrDefault(row.getKey().getConversationId(), 0)))
+                .collect(Collectors.toList());
+        if (cursor == null) {
+            items.addAll(fanOutOnReadEntries(userId));
+            items.sort(Comparator.comparing(InboxEntryDto::getLastActivityAt,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+        }
+
+        return InboxPage.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Đặt unread của conversation trong inbox của user về 0 (kèm read watermark = message mới nhất)
+     */
+    public void markConversationRead(UUID userId, UUID conversationId) {
+        unreadCounterService.markRead(userId, conversationId, null);
+        notificationService.onConversationRead(userId, conversationId);
+        stateRepository.findByConversationIdAndUserId(conversationId, userId)
+                .filter(state -> state.getUnreadCount() > 0)
+                .ifPresent(state -> {
+                    UserInbox row = cassandraOperations.selectOneById(
+                            new UserInbox.UserInboxKey(userId, state.getBucket(), state.getLastActivityId(), conversationId),
+                            UserInbox.class);
+                    state.setUnreadCount(0);
+                    CassandraBatchOperations batch = cassandraOperations.batchOps();
+                    batch.insert(state);
+                    if (row != null) {
+                        row.setUnreadCount(0);
+                        batch.update(row);
+                    }
+                    batch.execute();
+                });
+    }
+
+    public static String bucketOf(UUID timeUuid) {
+        return BUCKET_FORMAT.format(Instant.ofEpochMilli(Uuids.unixTimestamp(timeUuid)));
+    }
+
+    /**
+     * Entry của các conversation fan-out-on-read: preview và unread lấy từ sequence của conversation
+     */
+    private List<InboxEntryDto> fanOutOnReadEntries(UUID userId) {
+        Set<UUID> conversationIds = unreadCounterService.getFanOutOnReadConversationIds(userId);
+        if (conversationIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<UUID, Conversation> conversations = conversationBulkLoader.loadAll(conversationIds);
+        conversations.values().removeIf(conversation -> conversation.is_deleted() || !conversation.usesFanOutOnRead());
+        Map<UUID, ConversationSequenceService.Head> heads = sequenceService.getHeads(conversations.keySet());
+        Map<UUID, Integer> unreadCounts = unreadCounterService.getCounts(userId, conversations.keySet());
+
+        List<InboxEntryDto> entries = new ArrayList<>();
+        conversations.forEach((conversationId, conversation) -> {
+            ConversationSequenceService.Head head = heads.get(conversationId);
+            UUID activityId = head != null ? head.lastMessageId() : null;
+            entries.add(InboxEntryDto.builder()
+                    .conversationId(conversationId)
+                    .type(conversation.getType())
+                    .name(conversation.getName())
+                    .lastMessageId(activityId)
+                    .lastSenderId(head != null ? head.lastSenderId() : null)
+                    .lastMessagePreview(head != null ? head.preview() : null)
+                    .unreadCount(unreadCounts.getOrDefault(conversationId, 0))
+                    .lastActivityId(activityId)
+                    .lastActivityAt(activityId != null
+                            ? Instant.ofEpochMilli(Uuids.unixTimestamp(activityId))
+                            : conversation.getCreated_at())
+                    .build());
+        });
+        return entries;
+    }
+
+    private UUID findPeer(Conversation conversation, List<UUID> allMemberIds, UUID memberId) {
+        if (!"dm".equals(conversation.getType())) {
+            return null;
+        }
+        return allMemberIds.stream().filter(id -> !id.equals(memberId)).findFirst().orElse(null);
+    }
+
+    private InboxEntryDto toDto(UserInbox row, Conversation conversation, int unreadCount) {
+        UUID activityId = row.getKey().getLastActivityId();
+        return InboxEntryDto.builder()
+                .conversationId(row.getKey().getConversationId())
+                .type(conversation.getType())
+                .name(conversation.getName())
+                .peerUserId(row.getPeerUserId())
+                .lastMessageId(row.getLastMessageId())
+                .lastSenderId(row.getLastSenderId())
+                .lastMessagePreview(row.getLastMessagePreview())
+                .unreadCount(unreadCount)
+                .lastActivityId(activityId)
+                .lastActivityAt(Instant.ofEpochMilli(Uuids.unixTimestamp(activityId)))
+                .build();
+    }
+}
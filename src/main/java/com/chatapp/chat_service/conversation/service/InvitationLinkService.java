@@ -30,6 +30,8 @@ public class InvitationLinkService {
     
     private final InvitationLinkRepository invitationLinkRepository;
     private final ConversationMemberRepository memberRepository;
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationChangeFeed changeFeed;
     private final ConversationMemberService conversationMemberService;
     private final UserRepository userRepository;
     
@@ -162,6 +164,8 @@ public class InvitationLinkService {
                 .build();
         
         memberRepository.save(newMember);
+        memberSetCache.onMembersChanged(link.getConversationId(), List.of(userId), List.of());
+        changeFeed.recordChange(link.getConversationId());
         
         // Tăng số lần sử dụng
         link.setUsedCount(link.getUsedCount() + 1);
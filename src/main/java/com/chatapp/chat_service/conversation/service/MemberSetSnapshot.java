@@ -0,0 +1,99 @@
+package com.chatapp.chat_service.conversation.service;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Snapshot bất biến của tập member 1 conversation: mảng UUID đã sắp xếp lưu dưới dạng long[]
+ * (16 byte/member), kèm version tăng dần sau mỗi thay đổi membership.
+ * contains() là binary search, không cần đọc lại conversation_members.
+ */
+public final class MemberSetSnapshot {
+
+    private final long version;
+    // [msb0, lsb0, msb1, lsb1, ...] theo thứ tự UUID.compareTo
+    private final long[] bits;
+
+    private MemberSetSnapshot(long version, long[] bits) {
+        this.version = version;
+        this.bits = bits;
+    }
+
+    public static MemberSetSnapshot of(long version, Collection<UUID> memberIds) {
+        UUID[] sorted = memberIds.stream().filter(Objects::nonNull).distinct().sorted().toArray(UUID[]::new);
+        long[] bits = new long[sorted.length * 2];
+        for (int i = 0; i < sorted.length; i++) {
+            bits[2 * i] = sorted[i].getMostSignificantBits();
+            bits[2 * i + 1] = sorted[i].getLeastSignificantBits();
+        }
+        return new MemberSetSnapshot(version, bits);
+    }
+
+    public static MemberSetSnapshot fromBytes(long version, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] bits = new long[bytes.length / Long.BYTES];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = buffer.getLong();
+        }
+        return new MemberSetSnapshot(version, bits);
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(bits.length * Long.BYTES);
+        for (long value : bits) {
+            buffer.putLong(value);
+        }
+        return buffer.array();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int count() {
+        return bits.length / 2;
+    }
+
+    public boolean contains(UUID userId) {
+        return userId != null && indexOf(userId) >= 0;
+    }
+
+    public List<UUID> memberIds() {
+        List<UUID> memberIds = new ArrayList<>(count());
+        for (int i = 0; i < count(); i++) {
+            memberIds.add(memberAt(i));
+        }
+        return memberIds;
+    }
+
+    /**
+     * Snapshot mới với version mới sau khi thêm/bớt member
+     */
+    public MemberSetSnapshot apply(long newVersion, Collection<UUID> added, Collection<UUID> removed) {
+        Set<UUID> memberIds = new HashSet<>(memberIds());
+        memberIds.addAll(added);
+        memberIds.removeAll(removed);
+        return of(newVersion, memberIds);
+    }
+
+    private UUID memberAt(int index) {
+        return new UUID(bits[2 * index], bits[2 * index + 1]);
+    }
+
+    private int indexOf(UUID userId) {
+        int low = 0;
+        int high = count() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = memberAt(mid).compareTo(userId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
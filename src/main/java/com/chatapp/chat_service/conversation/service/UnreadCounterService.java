@@ -0,0 +1,474 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.conversation.entity.UnreadCounter;
+import com.chatapp.chat_service.conversation.repository.UnreadCounterRepository;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraBatchOperations;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Unread counter theo (user, conversation), Redis là nguồn chính:
+ * - unread:{userId}  hash {conversationId -> số message chưa đọc, w:{conversationId} -> read watermark,
+ *                    s:{conversationId} -> sequence lúc đọc (chỉ conversation fan-out-on-read), ~ -> đã nạp}
+ * - unread:dirty     set user có counter thay đổi, được ghi định kỳ xuống bảng unread_counters
+ * Conversation fan-out-on-read không tăng counter của từng member khi có message:
+ * unread = counter + (sequence hiện tại của conversation - s), tính khi đọc.
+ * Hash chưa có field ~ (Redis mất dữ liệu, user chưa từng nạp) sẽ được cộng dồn với bản trên Cassandra ở lần đọc đầu tiên.
+ */
+@Slf4j
+@Service
+public class UnreadCounterService {
+
+    private static final String KEY_PREFIX = "unread:";
+    private static final String DIRTY_KEY = "unread:dirty";
+    private static final String WATERMARK_PREFIX = "w:";
+    private static final String SEQ_PREFIX = "s:";
+    private static final String HYDRATED_FIELD = "~";
+    private static final String SELECT_SENDERS_AFTER =
+            "SELECT sender_id FROM messages_by_conversation WHERE conversation_id = ? AND message_id > ? LIMIT ?";
+    private static final String SELECT_LATEST_MESSAGE_ID =
+            "SELECT message_id FROM messages_by_conversation WHERE conversation_id = ? ORDER BY message_id DESC LIMIT 1";
+
+    // KEYS[1] = unread hash; ARGV = bộ bốn (conversationId, count, watermark, read seq) từ Cassandra
+    private static final DefaultRedisScript<Long> HYDRATE = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], '~') == 1 then return 0 end " +
+            "for i = 1, #ARGV, 4 do " +
+            "  redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "  if ARGV[i + 2] ~= '' then redis.call('HSETNX', KEYS[1], 'w:' .. ARGV[i], ARGV[i + 2]) end " +
+            "  if ARGV[i + 3] ~= '' then redis.call('HSETNX', KEYS[1], 's:' .. ARGV[i], ARGV[i + 3]) end " +
+            "end " +
+            "redis.call('HSET', KEYS[1], '~', '1') " +
+            "return 1",
+            Long.class);
+
+    // Người gửi đã đọc tới message của chính mình; chỉ áp dụng khi hash đã nạp để không che mất bản trên Cassandra
+    // KEYS[1] = unread hash; ARGV[1] = conversationId, ARGV[2] = messageId
+    private static final byte[] RESET_SENDER = (
+            "if redis.call('HEXISTS', KEYS[1], '~') == 0 then return 0 end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], 0, 'w:' .. ARGV[1], ARGV[2]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    // Như RESET_SENDER nhưng cho conversation fan-out-on-read; ARGV[3] = sequence của message
+    private static final byte[] RESET_SENDER_SEQ = (
+            "if redis.call('HEXISTS', KEYS[1], '~') == 0 then return 0 end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], 0, 'w:' .. ARGV[1], ARGV[2], 's:' .. ARGV[1], ARGV[3]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    // Chuyển về fan-out-on-write: cộng phần unread đang tính theo sequence vào counter rồi bỏ s
+    // KEYS[1] = unread hash; ARGV[1] = conversationId, ARGV[2] = sequence hiện tại
+    private static final byte[] MATERIALIZE = (
+            "local readSeq = redis.call('HGET', KEYS[1], 's:' .. ARGV[1]) " +
+            "if not readSeq then return 0 end " +
+            "local pending = tonumber(ARGV[2]) - tonumber(readSeq) " +
+            "if pending > 0 then redis.call('HINCRBY', KEYS[1], ARGV[1], pending) end " +
+            "redis.call('HDEL', KEYS[1], 's:' .. ARGV[1]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    // Ghi kết quả markRead nếu counter và watermark chưa đổi kể từ lúc đọc (message mới, markRead khác)
+    // KEYS[1] = unread hash; ARGV = conversationId, counter đã đọc, watermark đã đọc, unread, watermark mới, read seq,
+    // adjust ('1' = counter đã đổi thì cộng phần chênh vào unread thay vì từ chối)
+    // Trả về unread đã ghi, -1 nếu từ chối
+    private static final DefaultRedisScript<Long> MARK_READ = new DefaultRedisScript<>(
+            "local count = redis.call('HGET', KEYS[1], ARGV[1]) or '' " +
+            "local w = redis.call('HGET', KEYS[1], 'w:' .. ARGV[1]) or '' " +
+            "if w ~= ARGV[3] then return -1 end " +
+            "local unread = tonumber(ARGV[4]) " +
+            "if count ~= ARGV[2] then " +
+            "  if ARGV[7] ~= '1' then return -1 end " +
+            "  unread = math.max(0, unread + (tonumber(count) or 0) - (tonumber(ARGV[2]) or 0)) " +
+            "end " +
+            "redis.call('HSET', KEYS[1], ARGV[1], unread) " +
+            "if ARGV[5] ~= '' then redis.call('HSET', KEYS[1], 'w:' .. ARGV[1], ARGV[5]) end " +
+            "if ARGV[6] ~= '' then redis.call('HSET', KEYS[1], 's:' .. ARGV[1], ARGV[6]) end " +
+            "return unread",
+            Long.class);
+    private static final int MARK_READ_ATTEMPTS = 3;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final UnreadCounterRepository unreadCounterRepository;
+    private final CassandraOperations cassandraOperations;
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final ConversationSequenceService sequenceService;
+    private final int recomputeLimit;
+    private final int persistBatchSize;
+
+    public UnreadCounterService(RedisTemplate<String, String> redisTemplate,
+                                UnreadCounterRepository unreadCounterRepository,
+                                CassandraOperations cassandraOperations,
+                                ConversationMemberSetCache memberSetCache,
+                                ConversationBulkLoader conversationBulkLoader,
+                                ConversationSequenceService sequenceService,
+                                @Value("${chat.unread.recompute-limit:1000}") int recomputeLimit,
+                                @Value("${chat.unread.persist-batch-size:500}") int persistBatchSize) {
+        this.redisTemplate = redisTemplate;
+        this.unreadCounterRepository = unreadCounterRepository;
+        this.cassandraOperations = cassandraOperations;
+        this.memberSetCache = memberSetCache;
+        this.conversationBulkLoader = conversationBulkLoader;
+        this.sequenceService = sequenceService;
+        this.recomputeLimit = recomputeLimit;
+        this.persistBatchSize = persistBatchSize;
+    }
+
+    /**
+     * Gọi sau khi lưu message: +1 cho mọi member trừ người gửi, 1 pipeline cho cả conversation.
+     * Conversation fan-out-on-read chỉ cập nhật người gửi, member khác tính từ sequence khi đọc.
+     * @param seq sequence của message (ConversationSequenceService), -1 nếu không có
+     */
+    public void onMessageSaved(UUID conversationId, UUID messageId, UUID senderId, long seq) {
+        try {
+            if (isFanOutOnRead(conversationId)) {
+                if (senderId != null && seq > 0) {
+                    redisTemplate.executePipelined((RedisConnection connection) -> {
+                        connection.scriptingCommands().eval(RESET_SENDER_SEQ, ReturnType.INTEGER, 1,
+                                bytes(KEY_PREFIX + senderId), bytes(conversationId.toString()),
+                                bytes(messageId.toString()), bytes(String.valueOf(seq)));
+                        connection.setCommands().sAdd(bytes(DIRTY_KEY), bytes(senderId.toString()));
+                        return null;
+                    });
+                }
+                return;
+            }
+
+            List<UUID> memberIds = memberSetCache.get(conversationId).memberIds();
+            byte[] field = bytes(conversationId.toString());
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (UUID memberId : memberIds) {
+                    if (memberId.equals(senderId)) {
+                        connection.scriptingCommands().eval(RESET_SENDER, ReturnType.INTEGER, 1,
+                                bytes(KEY_PREFIX + memberId), field, bytes(messageId.toString()));
+                    } else {
+                        connection.hashCommands().hIncrBy(bytes(KEY_PREFIX + memberId), field, 1);
+                    }
+                    connection.setCommands().sAdd(bytes(DIRTY_KEY), bytes(memberId.toString()));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to increment unread counters of conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Dời read watermark của user (chỉ tiến, không lùi) và tính lại unread từ watermark:
+     * đếm message sau watermark không do user gửi, tối đa chat.unread.recompute-limit
+     * Kết quả được ghi bằng MARK_READ: counter/watermark đổi trong lúc đếm thì đọc và đếm lại
+     * @param lastReadMessageId message đọc tới; null = đã đọc hết
+     * @return unread sau khi tính lại
+     */
+    public int markRead(UUID userId, UUID conversationId, UUID lastReadMessageId) {
+        hydrate(userId);
+        String key = KEY_PREFIX + userId;
+        List<String> fields = List.of(conversationId.toString(), WATERMARK_PREFIX + conversationId);
+
+        for (int attempt = 1; ; attempt++) {
+            // Đọc sequence trước khi đếm: message đến giữa 2 bước bị tính dư thay vì bị bỏ sót
+            long seq = isFanOutOnRead(conversationId) ? sequenceService.current(conversationId) : -1;
+            List<String> values = redisTemplate.<String, String>opsForHash().multiGet(key, fields);
+            String count = values.get(0);
+            String stored = values.get(1);
+
+            UUID watermark = lastReadMessageId != null ? lastReadMessageId : latestMessageId(conversationId);
+            UUID current = stored != null ? UUID.fromString(stored) : null;
+            if (current != null && (watermark == null || Uuids.unixTimestamp(current) > Uuids.unixTimestamp(watermark))) {
+                watermark = current;
+            }
+            int unread = watermark != null ? countUnreadAfter(conversationId, watermark, userId) : 0;
+
+            // Lần cuối: counter đổi (HINCRBY của message mới) thì cộng phần chênh thay vì ghi đè
+            boolean lastAttempt = attempt >= MARK_READ_ATTEMPTS;
+            Long written = redisTemplate.execute(MARK_READ, List.of(key),
+                    conversationId.toString(),
+                    count != null ? count : "",
+                    stored != null ? stored : "",
+                    String.valueOf(unread),
+                    watermark != null ? watermark.toString() : "",
+                    seq >= 0 ? String.valueOf(seq) : "",
+                    lastAttempt ? "1" : "0");
+            if (written != null && written >= 0) {
+                redisTemplate.opsForSet().add(DIRTY_KEY, userId.toString());
+                return written.intValue();
+            }
+            if (lastAttempt) {
+                // markRead khác đã dời watermark trong lúc đếm, kết quả của nó mới hơn
+                String latest = redisTemplate.<String, String>opsForHash().get(key, conversationId.toString());
+                return latest != null ? Math.max(0, Integer.parseInt(latest)) : 0;
+            }
+        }
+    }
+
+    /**
+     * Bỏ counter khi user không còn là member của conversation
+     */
+    public void clear(UUID userId, UUID conversationId) {
+        try {
+            redisTemplate.opsForHash().delete(KEY_PREFIX + userId,
+                    conversationId.toString(), WATERMARK_PREFIX + conversationId, SEQ_PREFIX + conversationId);
+            unreadCounterRepository.deleteByUserIdAndConversationId(userId, conversationId);
+        } catch (Exception e) {
+            log.warn("Failed to clear unread counter of user {} in conversation {}: {}",
+                    userId, conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Toàn bộ unread > 0 của user trong 1 lần đọc hash; bỏ conversation đã xóa hoặc không còn tồn tại
+     */
+    public Map<UUID, Integer> getNonZeroCounts(UUID userId) {
+        hydrate(userId);
+        Map<String, String> entries = redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + userId);
+        Map<UUID, Long> readSeqs = readSeqs(entries);
+        Map<UUID, ConversationSequenceService.Head> heads = sequenceService.getHeads(readSeqs.keySet());
+
+        Map<UUID, Integer> counts = new LinkedHashMap<>();
+        entries.forEach((field, value) -> {
+            if (isMetaField(field)) {
+                return;
+            }
+            UUID conversationId = UUID.fromString(field);
+            int count = unread(Integer.parseInt(value), readSeqs.get(conversationId), heads.get(conversationId));
+            if (count > 0) {
+                counts.put(conversationId, count);
+            }
+        });
+        if (counts.isEmpty()) {
+            return counts;
+        }
+
+        Map<UUID, Conversation> conversations = conversationBulkLoader.loadAll(counts.keySet());
+        counts.keySet().removeIf(conversationId -> {
+            Conversation conversation = conversations.get(conversationId);
+            return conversation == null || conversation.is_deleted();
+        });
+        return counts;
+    }
+
+    /**
+     * Unread của user cho các conversation chỉ định (thiếu = 0)
+     */
+    public Map<UUID, Integer> getCounts(UUID userId, Collection<UUID> conversationIds) {
+        Map<UUID, Integer> counts = new HashMap<>();
+        if (conversationIds.isEmpty()) {
+            return counts;
+        }
+        hydrate(userId);
+        List<UUID> ids = new ArrayList<>(conversationIds);
+        List<String> fields = new ArrayList<>(ids.size() * 2);
+        ids.forEach(id -> {
+            fields.add(id.toString());
+            fields.add(SEQ_PREFIX + id);
+        });
+        List<String> values = redisTemplate.<String, String>opsForHash().multiGet(KEY_PREFIX + userId, fields);
+
+        Map<UUID, Long> readSeqs = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            String readSeq = values.get(2 * i + 1);
+            if (readSeq != null) {
+                readSeqs.put(ids.get(i), Long.parseLong(readSeq));
+            }
+        }
+        Map<UUID, ConversationSequenceService.Head> heads = sequenceService.getHeads(readSeqs.keySet());
+        for (int i = 0; i < ids.size(); i++) {
+            String value = values.get(2 * i);
+            counts.put(ids.get(i), unread(value != null ? Integer.parseInt(value) : 0,
+                    readSeqs.get(ids.get(i)), heads.get(ids.get(i))));
+        }
+        return counts;
+    }
+
+    /**
+     * Conversation fan-out-on-read mà user đang theo dõi (có field s:{conversationId})
+     */
+    public Set<UUID> getFanOutOnReadConversationIds(UUID userId) {
+        hydrate(userId);
+        return readSeqs(redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + userId)).keySet();
+    }
+
+    /**
+     * Bắt đầu tính unread theo sequence cho các member (conversation vừa chuyển sang fan-out-on-read
+     * hoặc member mới vào). Member đã có s giữ nguyên.
+     * @param seq sequence hiện tại của conversation
+     */
+    public void startFanOutOnRead(UUID conversationId, Collection<UUID> memberIds, long seq) {
+        byte[] countField = bytes(conversationId.toString());
+        byte[] seqField = bytes(SEQ_PREFIX + conversationId);
+        byte[] value = bytes(String.valueOf(seq));
+        forEachMember(conversationId, memberIds, (connection, memberId) -> {
+            // Field counter cũng được tạo để row được ghi xuống Cassandra cùng read_seq
+            connection.hashCommands().hSetNX(bytes(KEY_PREFIX + memberId), countField, bytes("0"));
+            connection.hashCommands().hSetNX(bytes(KEY_PREFIX + memberId), seqField, value);
+        });
+    }
+
+    /**
+     * Conversation chuyển về fan-out-on-write: phần unread đang tính theo sequence được cộng vào counter
+     */
+    public void stopFanOutOnRead(UUID conversationId, Collection<UUID> memberIds, long seq) {
+        byte[] field = bytes(conversationId.toString());
+        byte[] value = bytes(String.valueOf(seq));
+        forEachMember(conversationId, memberIds, (connection, memberId) ->
+                connection.scriptingCommands().eval(MATERIALIZE, ReturnType.INTEGER, 1,
+                        bytes(KEY_PREFIX + memberId), field, value));
+    }
+
+    private void forEachMember(UUID conversationId, Collection<UUID> memberIds,
+                               BiConsumer<RedisConnection, UUID> command) {
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (UUID memberId : memberIds) {
+                    command.accept(connection, memberId);
+                    connection.setCommands().sAdd(bytes(DIRTY_KEY), bytes(memberId.toString()));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to update unread tracking of {} members in conversation {}: {}",
+                    memberIds.size(), conversationId, e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi counter của các user đã thay đổi xuống Cassandra. SPOP giúp mỗi user chỉ do 1 node xử lý.
+     */
+    @Scheduled(fixedDelayString = "${chat.unread.persist-interval-ms:30000}")
+    public void persistDirtyCounters() {
+        List<String> userIds;
+        try {
+            userIds = redisTemplate.opsForSet().pop(DIRTY_KEY, persistBatchSize);
+        } catch (Exception e) {
+            log.warn("Failed to read dirty unread counters: {}", e.getMessage());
+            return;
+        }
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+
+        int persisted = 0;
+        for (String userId : userIds) {
+            try {
+                if (persist(UUID.fromString(userId))) {
+                    persisted++;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to persist unread counters of user {}: {}", userId, e.getMessage());
+                redisTemplate.opsForSet().add(DIRTY_KEY, userId);
+            }
+        }
+        log.debug("Persisted unread counters of {} of {} users", persisted, userIds.size());
+    }
+
+    /**
+     * @return false nếu hash chưa nạp từ Cassandra (ghi lúc này sẽ đè mất bản cũ)
+     */
+    private boolean persist(UUID userId) {
+        Map<String, String> entries = redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + userId);
+        if (!entries.containsKey(HYDRATED_FIELD)) {
+            return false;
+        }
+
+        Instant now = Instant.now();
+        List<UnreadCounter> rows = new ArrayList<>();
+        entries.forEach((field, value) -> {
+            if (isMetaField(field)) {
+                return;
+            }
+            String watermark = entries.get(WATERMARK_PREFIX + field);
+            String readSeq = entries.get(SEQ_PREFIX + field);
+            rows.add(UnreadCounter.builder()
+                    .userId(userId)
+                    .conversationId(UUID.fromString(field))
+                    .unreadCount(Math.max(0, Integer.parseInt(value)))
+                    .lastReadMessageId(watermark != null ? UUID.fromString(watermark) : null)
+                    .readSeq(readSeq != null ? Long.parseLong(readSeq) : null)
+                    .updatedAt(now)
+                    .build());
+        });
+        if (rows.isEmpty()) {
+            return true;
+        }
+
+        // Cùng 1 partition nên batch không phải phối hợp nhiều node
+        CassandraBatchOperations batch = cassandraOperations.batchOps();
+        batch.insert(rows);
+        batch.execute();
+        return true;
+    }
+
+    private void hydrate(UUID userId) {
+        String key = KEY_PREFIX + userId;
+        if (Boolean.TRUE.equals(redisTemplate.opsForHash().hasKey(key, HYDRATED_FIELD))) {
+            return;
+        }
+
+        List<UnreadCounter> counters = unreadCounterRepository.findByUserId(userId);
+        // read_seq chỉ còn ý nghĩa nếu conversation vẫn đang ở chế độ fan-out-on-read
+        Map<UUID, Conversation> fanOutOnRead = conversationBulkLoader.loadAll(counters.stream()
+                .filter(counter -> counter.getReadSeq() != null)
+                .map(UnreadCounter::getConversationId)
+                .toList());
+        List<String> args = new ArrayList<>();
+        for (UnreadCounter counter : counters) {
+            Conversation conversation = fanOutOnRead.get(counter.getConversationId());
+            args.add(counter.getConversationId().toString());
+            args.add(String.valueOf(counter.getUnreadCount()));
+            args.add(counter.getLastReadMessageId() != null ? counter.getLastReadMessageId().toString() : "");
+            args.add(conversation != null && conversation.usesFanOutOnRead() ? String.valueOf(counter.getReadSeq()) : "");
+        }
+        redisTemplate.execute(HYDRATE, List.of(key), args.toArray());
+    }
+
+    private boolean isFanOutOnRead(UUID conversationId) {
+        return conversationBulkLoader.load(conversationId).map(Conversation::usesFanOutOnRead).orElse(false);
+    }
+
+    private static int unread(int count, Long readSeq, ConversationSequenceService.Head head) {
+        long pending = readSeq != null && head != null ? Math.max(0, head.seq() - readSeq) : 0;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, count) + pending);
+    }
+
+    private static Map<UUID, Long> readSeqs(Map<String, String> entries) {
+        Map<UUID, Long> readSeqs = new HashMap<>();
+        entries.forEach((field, value) -> {
+            if (field.startsWith(SEQ_PREFIX)) {
+                readSeqs.put(UUID.fromString(field.substring(SEQ_PREFIX.length())), Long.parseLong(value));
+            }
+        });
+        return readSeqs;
+    }
+
+    private static boolean isMetaField(String field) {
+        return field.startsWith(WATERMARK_PREFIX) || field.startsWith(SEQ_PREFIX) || field.equals(HYDRATED_FIELD);
+    }
+
+    private int countUnreadAfter(UUID conversationId, UUID watermark, UUID userId) {
+        List<UUID> senders = cassandraOperations.getCqlOperations()
+                .queryForList(SELECT_SENDERS_AFTER, UUID.class, conversationId, watermark, recomputeLimit);
+        return (int) senders.stream().filter(senderId -> !userId.equals(senderId)).count();
+    }
+
+    private UUID latestMessageId(UUID conversationId) {
+        List<UUID> latest = cassandraOperations.getCqlOperations()
+                .queryForList(SELECT_LATEST_MESSAGE_ID, UUID.class, conversationId);
+        return latest.isEmpty() ? null : latest.get(0);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
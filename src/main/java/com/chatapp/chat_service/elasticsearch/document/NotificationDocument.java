@@ -0,0 +1,39 @@
+package com.chatapp.chat_service.elasticsearch.document;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(indexName = "notifications")
+public class NotificationDocument {
+
+    @Id
+    private String id; // notificationId
+
+    @Field(type = FieldType.Keyword)
+    private UUID userId;
+
+    @Field(type = FieldType.Keyword)
+    private String type;
+
+    @Field(type = FieldType.Date)
+    private Instant createdAt;
+
+    // Token đã chuẩn hóa của title/body (NotificationTokenizer), tìm theo tiền tố
+    @Field(type = FieldType.Keyword)
+    private List<String> terms;
+}
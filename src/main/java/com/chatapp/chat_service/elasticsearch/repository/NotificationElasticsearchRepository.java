@@ -0,0 +1,13 @@
+package com.chatapp.chat_service.elasticsearch.repository;
+
+import com.chatapp.chat_service.elasticsearch.document.NotificationDocument;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface NotificationElasticsearchRepository extends ElasticsearchRepository<NotificationDocument, String> {
+
+    void deleteByUserId(UUID userId);
+}
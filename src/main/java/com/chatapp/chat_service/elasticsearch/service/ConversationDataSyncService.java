@@ -1,7 +1,7 @@
 package com.chatapp.chat_service.elasticsearch.service;
 
 import com.chatapp.chat_service.conversation.entity.Conversation;
-import com.chatapp.chat_service.conversation.repository.ConversationMemberRepository;
+import com.chatapp.chat_service.conversation.service.ConversationMemberSetCache;
 import com.chatapp.chat_service.conversation.repository.ConversationRepository;
 import com.chatapp.chat_service.elasticsearch.document.ConversationDocument;
 import com.chatapp.chat_service.elasticsearch.repository.ConversationElasticsearchRepository;
@@ -14,7 +14,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,7 +22,7 @@ import java.util.stream.Collectors;
 public class ConversationDataSyncService implements CommandLineRunner {
 
     private final ConversationRepository conversationRepository;
-    private final ConversationMemberRepository conversationMemberRepository;
+    private final ConversationMemberSetCache memberSetCache;
     private final ConversationElasticsearchRepository elasticsearchRepository;
 
     @Override
@@ -63,11 +62,8 @@ public class ConversationDataSyncService implements CommandLineRunner {
     }
 
     private void syncSingleConversation(Conversation conversation) {
-        // Get member IDs for this conversation
-        List<UUID> memberIds = conversationMemberRepository.findByKeyConversationId(conversation.getConversationId())
-                .stream()
-                .map(member -> member.getKey().getUserId())
-                .collect(Collectors.toList());
+        // Member IDs lấy từ member-set snapshot, không đọc lại cả partition conversation_members
+        List<UUID> memberIds = memberSetCache.get(conversation.getConversationId()).memberIds();
 
         ConversationDocument document = ConversationDocument.builder()
                 .id(conversation.getConversationId().toString())
@@ -2,7 +2,7 @@ package com.chatapp.chat_service.elasticsearch.service;
 
 import com.chatapp.chat_service.conversation.entity.Conversation;
 import com.chatapp.chat_service.conversation.entity.ConversationMembers;
-import com.chatapp.chat_service.conversation.repository.ConversationMemberRepository;
+import com.chatapp.chat_service.conversation.service.ConversationMemberSetCache;
 import com.chatapp.chat_service.elasticsearch.document.ConversationDocument;
 import com.chatapp.chat_service.elasticsearch.repository.ConversationElasticsearchRepository;
 import com.chatapp.chat_service.message.dto.MessageSummary;
@@ -16,7 +16,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,7 +24,7 @@ import java.util.stream.Collectors;
 public class ConversationElasticsearchService {
 
     private final ConversationElasticsearchRepository elasticsearchRepository;
-    private final ConversationMemberRepository conversationMemberRepository;
+    private final ConversationMemberSetCache memberSetCache;
 
     public Page<ConversationDocument> searchConversations(UUID userId, String name, String type, Pageable pageable) {
         if (name != null && !name.trim().isEmpty() && type != null && !type.trim().isEmpty()) {
@@ -45,11 +44,8 @@ public class ConversationElasticsearchService {
 
     public void indexConversation(Conversation conversation) {
         try {
-            // Get member IDs for this conversation
-            List<UUID> memberIds = conversationMemberRepository.findByKeyConversationId(conversation.getConversationId())
-                    .stream()
-                    .map(member -> member.getKey().getUserId())
-                    .collect(Collectors.toList());
+            // Member IDs lấy từ member-set snapshot, không đọc lại cả partition conversation_members
+            List<UUID> memberIds = memberSetCache.get(conversation.getConversationId()).memberIds();
 
             ConversationDocument document = ConversationDocument.builder()
                     .id(conversation.getConversationId().toString())
@@ -0,0 +1,86 @@
+package com.chatapp.chat_service.elasticsearch.service;
+
+import com.chatapp.chat_service.elasticsearch.document.NotificationDocument;
+import com.chatapp.chat_service.elasticsearch.repository.NotificationElasticsearchRepository;
+import com.chatapp.chat_service.notification.entity.Notification;
+import com.chatapp.chat_service.notification.service.NotificationSearchIndex;
+import com.chatapp.chat_service.notification.service.NotificationTokenizer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Search index notification trên Elasticsearch: tiền tố khớp trên field terms (token đã chuẩn hóa)
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "elasticsearch.enabled", havingValue = "true")
+public class NotificationElasticsearchIndex implements NotificationSearchIndex {
+
+    private final NotificationElasticsearchRepository elasticsearchRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public void index(Collection<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        elasticsearchRepository.saveAll(notifications.stream()
+                .map(notification -> NotificationDocument.builder()
+                        .id(notification.getNotificationId().toString())
+                        .userId(notification.getUserId())
+                        .type(notification.getType())
+                        .createdAt(notification.getCreatedAt())
+                        .terms(new ArrayList<>(NotificationTokenizer.tokens(notification)))
+                        .build())
+                .toList());
+    }
+
+    @Override
+    public void remove(UUID userId, Collection<Notification> notifications) {
+        elasticsearchRepository.deleteAllById(notifications.stream()
+                .map(notification -> notification.getNotificationId().toString())
+                .toList());
+    }
+
+    @Override
+    public void removeAll(UUID userId) {
+        elasticsearchRepository.deleteByUserId(userId);
+    }
+
+    @Override
+    public List<UUID> search(Query query) {
+        Criteria criteria = Criteria.where("userId").is(query.userId().toString());
+        for (String term : query.terms()) {
+            criteria = criteria.and(Criteria.where("terms").startsWith(term));
+        }
+        if (query.type() != null) {
+            criteria = criteria.and(Criteria.where("type").is(query.type()));
+        }
+        if (query.from() != null) {
+            criteria = criteria.and(Criteria.where("createdAt").greaterThanEqual(query.from()));
+        }
+        if (query.to() != null) {
+            criteria = criteria.and(Criteria.where("createdAt").lessThanEqual(query.to()));
+        }
+
+        CriteriaQuery searchQuery = new CriteriaQuery(criteria);
+        searchQuery.setPageable(PageRequest.of(0, query.limit(), Sort.by(Sort.Direction.DESC, "createdAt")));
+        return elasticsearchOperations.search(searchQuery, NotificationDocument.class).getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .map(document -> UUID.fromString(document.getId()))
+                .toList();
+    }
+}
@@ -62,14 +62,4 @@ public class MaterializedViewService {
 
         cassandraTemplate.getCqlOperations().execute(query, blockerId, blockedId);
     }
-
-    public void updateLastMessagePreview(UUID conversationId, UUID messageId, String preview) {
-        // Update user_conversations materialized view
-        String query = "UPDATE chat_app.user_conversations " +
-                "SET last_message_preview = ?, last_message_time = toTimestamp(now()) " +
-                "WHERE user_id IN (SELECT user_id FROM chat_app.conversation_members WHERE conversation_id = ?) " +
-                "AND conversation_id = ?";
-
-        cassandraTemplate.getCqlOperations().execute(query, preview, conversationId, conversationId);
-    }
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package com.chatapp.chat_service.kafka;
 
+import com.chatapp.chat_service.conversation.service.InboxFanoutService;
 import com.chatapp.chat_service.friendship.event.FriendshipStatusEvent;
 import com.chatapp.chat_service.friendship.service.MaterializedViewService;
 import com.chatapp.chat_service.message.dto.MessageResponseDto;
 import com.chatapp.chat_service.message.event.MessageEvent;
 import com.chatapp.chat_service.message.service.MessageService;
+import com.chatapp.chat_service.notification.service.MessageNotificationFanout;
 import com.chatapp.chat_service.notification.service.NotificationService;
 import com.chatapp.chat_service.presence.event.OnlineStatusEvent;
 import com.chatapp.chat_service.presence.service.PresenceService;
+import com.chatapp.chat_service.websocket.publisher.ConversationEventPublisher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -30,6 +33,9 @@ public class KafkaEventConsumer {
     private final PresenceService presenceService;
     private final MaterializedViewService materializedViewService;
     private final NotificationService notificationService;
+    private final InboxFanoutService inboxFanoutService;
+    private final MessageNotificationFanout messageNotificationFanout;
+    private final ConversationEventPublisher conversationEventPublisher;
 
     // == Message Listener (ĐÃ SỬA BUG MẤT TIN NHẮN) ==
 
@@ -50,11 +56,24 @@ public class KafkaEventConsumer {
                 MessageResponseDto savedMessageDto = messageService.sendMessage(event.getMessageRequest());
                 log.info("Message saved to database. ID: {}", savedMessageDto.getMessageId());
 
-                messagingTemplate.convertAndSend(
-                        "/topic/conversation/" + event.getConversationId(),
+                conversationEventPublisher.publish(
+                        event.getConversationId(),
+                        ConversationEventPublisher.MESSAGE,
                         savedMessageDto
                 );
                 log.info("Message broadcasted to WebSocket clients");
+
+                // Cập nhật user_inbox bất đồng bộ; lỗi ở đây không được làm retry message
+                try {
+                    inboxFanoutService.onMessageSaved(savedMessageDto);
+                } catch (Exception e) {
+                    log.warn("Failed to schedule inbox update for message {}: {}", savedMessageDto.getMessageId(), e.getMessage());
+                }
+                try {
+                    messageNotificationFanout.onMessageSaved(savedMessageDto);
+                } catch (Exception e) {
+                    log.warn("Failed to schedule notifications for message {}: {}", savedMessageDto.getMessageId(), e.getMessage());
+                }
             } else {
                 log.warn("MessageEvent without MessageRequest, broadcasting raw event");
                 messagingTemplate.convertAndSend(
@@ -3,13 +3,16 @@ package com.chatapp.chat_service.kafka;
 import com.chatapp.chat_service.friendship.event.FriendRequestEvent;
 import com.chatapp.chat_service.friendship.event.FriendshipStatusEvent;
 import com.chatapp.chat_service.message.event.MessageReactionEvent;
+import com.chatapp.chat_service.notification.event.NotificationIntent;
 import com.chatapp.chat_service.presence.event.OnlineStatusEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -28,6 +31,7 @@ public class KafkaEventProducer {
     private static final String T_MESSAGE_PIN = "message-pin-topic";
     private static final String T_MESSAGE_ATTACHMENT = "message-attachment-topic";
     private static final String T_NOTIFICATION = "notification-topic";
+    private static final String T_NOTIFICATION_RETRY = "notification-topic-retry";
 
     // == Friendship Events ==
     
@@ -61,8 +65,12 @@ public class KafkaEventProducer {
 
     // == Message Events ==
 
-    public void sendMessageEvent(Object event) {
-        kafkaTemplate.send(T_MESSAGE, event);
+    /**
+     * Key = conversationId: message của cùng conversation vào cùng partition, được xử lý tuần tự trên 1 node
+     * (thứ tự lưu message và fan-out inbox)
+     */
+    public void sendMessageEvent(UUID conversationId, Object event) {
+        kafkaTemplate.send(T_MESSAGE, conversationId != null ? conversationId.toString() : null, event);
     }
 
     public void sendReactionEvent(MessageReactionEvent event) {
@@ -82,8 +90,19 @@ public class KafkaEventProducer {
     }
 
     // == Notification Events ==
-    
-    public void sendNotificationEvent(Object event) {
-        kafkaTemplate.send(T_NOTIFICATION, event);
+
+    /**
+     * Key = recipient đầu tiên để intent của cùng 1 user vào cùng partition
+     */
+    public CompletableFuture<SendResult<String, Object>> sendNotificationIntent(NotificationIntent intent) {
+        return kafkaTemplate.send(T_NOTIFICATION, intentKey(intent), intent);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> sendNotificationRetry(NotificationIntent intent) {
+        return kafkaTemplate.send(T_NOTIFICATION_RETRY, intentKey(intent), intent);
+    }
+
+    private static String intentKey(NotificationIntent intent) {
+        return intent.getRecipientIds().isEmpty() ? intent.getIntentId().toString() : intent.getRecipientIds().get(0).toString();
     }
 }
\ No newline at end of file
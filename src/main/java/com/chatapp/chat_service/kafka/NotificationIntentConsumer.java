@@ -0,0 +1,133 @@
+package com.chatapp.chat_service.kafka;
+
+import com.chatapp.chat_service.notification.dto.NotificationRequest;
+import com.chatapp.chat_service.notification.event.NotificationIntent;
+import com.chatapp.chat_service.notification.service.NotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Materialize intent từ notification-topic: gom các intent trong 1 lần poll thành vài lệnh
+ * NotificationService.createNotifications (ghi theo partition, 1 frame realtime cho mỗi recipient).
+ * Lô lỗi thì ghi lại từng intent; intent vẫn lỗi được chuyển sang notification-topic-retry,
+ * retry topic thử lại với backoff rồi đưa vào notification-topic.DLT.
+ * Xử lý lại intent (giao lại, thử lại sau lô ghi dở) an toàn: notification_id suy ra từ intent và
+ * NotificationService chỉ chạy counter/realtime 1 lần cho mỗi id (NotificationDeliveryGuard).
+ */
+@Slf4j
+@Service
+public class NotificationIntentConsumer {
+
+    private static final long RETRY_PUBLISH_TIMEOUT_SECONDS = 10;
+
+    private final NotificationService notificationService;
+    private final KafkaEventProducer kafkaEventProducer;
+    private final int maxRowsPerWrite;
+    private final Counter materialized;
+    private final Counter retried;
+
+    public NotificationIntentConsumer(NotificationService notificationService,
+                                      KafkaEventProducer kafkaEventProducer,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${chat.notification.pipeline.max-rows-per-write:1000}") int maxRowsPerWrite) {
+        this.notificationService = notificationService;
+        this.kafkaEventProducer = kafkaEventProducer;
+        this.maxRowsPerWrite = maxRowsPerWrite;
+        this.materialized = Counter.builder("chat.notification.pipeline.materialized").register(meterRegistry);
+        this.retried = Counter.builder("chat.notification.pipeline.retried").register(meterRegistry);
+    }
+
+    private record PendingIntent(int index, NotificationIntent intent) {
+    }
+
+    @KafkaListener(topics = "notification-topic", containerFactory = "notificationIntentListenerFactory")
+    public void handleNotificationIntents(List<ConsumerRecord<String, Object>> records, Acknowledgment acknowledgment) {
+        List<PendingIntent> pending = new ArrayList<>();
+        int pendingRows = 0;
+        for (int i = 0; i < records.size(); i++) {
+            Object value = records.get(i).value();
+            if (!(value instanceof NotificationIntent intent) || !isValid(intent)) {
+                log.warn("Dropping invalid notification intent at offset {}: {}", records.get(i).offset(), value);
+                continue;
+            }
+            pending.add(new PendingIntent(i, intent));
+            pendingRows += intent.getRecipientIds().size();
+            if (pendingRows >= maxRowsPerWrite) {
+                materialize(pending);
+                pending.clear();
+                pendingRows = 0;
+            }
+        }
+        materialize(pending);
+        acknowledgment.acknowledge();
+    }
+
+    @KafkaListener(topics = "notification-topic-retry", containerFactory = "notificationRetryListenerFactory")
+    public void handleNotificationRetry(Object eventObject, Acknowledgment acknowledgment) {
+        if (!(eventObject instanceof NotificationIntent intent) || !isValid(intent)) {
+            log.warn("Dropping invalid notification intent from retry topic: {}", eventObject);
+            acknowledgment.acknowledge();
+            return;
+        }
+        // Lỗi được error handler thử lại với backoff, hết lượt thì vào DLT
+        notificationService.createNotifications(intent.toRequests());
+        materialized.increment(intent.getRecipientIds().size());
+        acknowledgment.acknowledge();
+    }
+
+    private void materialize(List<PendingIntent> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<NotificationRequest> requests = new ArrayList<>();
+        pending.forEach(p -> requests.addAll(p.intent().toRequests()));
+        try {
+            notificationService.createNotifications(requests);
+            materialized.increment(requests.size());
+            return;
+        } catch (Exception e) {
+            log.warn("Failed to materialize {} notification intents as a batch, retrying one by one: {}",
+                    pending.size(), e.getMessage());
+        }
+
+        for (PendingIntent p : pending) {
+            try {
+                notificationService.createNotifications(p.intent().toRequests());
+                materialized.increment(p.intent().getRecipientIds().size());
+            } catch (Exception e) {
+                sendToRetry(p, e);
+            }
+        }
+    }
+
+    private void sendToRetry(PendingIntent p, Exception cause) {
+        log.warn("Notification intent {} failed, sending to retry topic: {}", p.intent().getIntentId(), cause.getMessage());
+        try {
+            kafkaEventProducer.sendNotificationRetry(p.intent()).get(RETRY_PUBLISH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            retried.increment();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // Các intent trước đã ghi xong được commit, lô được đọc lại từ intent này
+            throw new BatchListenerFailedException("Failed to forward notification intent to retry topic", e, p.index());
+        }
+    }
+
+    private static boolean isValid(NotificationIntent intent) {
+        return intent.getIntentId() != null && intent.getCreatedAt() != null
+                && intent.getRecipientIds() != null && !intent.getRecipientIds().isEmpty()
+                && intent.getType() != null;
+    }
+}
@@ -2,6 +2,7 @@ package com.chatapp.chat_service.kafka.config;
 
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,9 +12,12 @@ import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.BackOff;
 import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
@@ -22,6 +26,8 @@ import java.util.Map;
 @Configuration
 public class KafkaConfig {
 
+    private static final String NOTIFICATION_DLT = "notification-topic.DLT";
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -193,4 +199,70 @@ public class KafkaConfig {
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE); // Bật Manual Ack
         return factory;
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // == Listener Factory 5: NotificationIntent (batch) + retry topic
+    // =========================================================================
+    @Bean
+    public ConsumerFactory<String, Object> notificationIntentConsumerFactory(
+            @Value("${chat.notification.pipeline.batch-size:200}") int batchSize) {
+        Map<String, Object> props = consumerProps("chat-service-notifications");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        // Chờ gom lô một chút thay vì poll từng intent
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 16384);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 100);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    /**
+     * Mỗi lần poll là 1 lô intent, ack sau khi cả lô đã ghi hoặc đã chuyển sang notification-topic-retry.
+     * Không chuyển được sang retry topic thì thử lại từ intent lỗi, hết lượt thì đưa vào notification-topic.DLT.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> notificationIntentListenerFactory(
+            ConsumerFactory<String, Object> notificationIntentConsumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate) {
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(notificationIntentConsumerFactory);
+        factory.setBatchListener(true);
+        factory.setCommonErrorHandler(notificationErrorHandler(kafkaTemplate, new FixedBackOff(1000L, 3L)));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    /**
+     * Intent lỗi được thử lại từng cái với backoff tăng dần (1s -> 30s, 5 lần) rồi vào notification-topic.DLT.
+     * Chỉ retry topic bị chặn khi chờ, luồng chính vẫn chạy.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> notificationRetryListenerFactory(
+            ConsumerFactory<String, Object> notificationIntentConsumerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate) {
+
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(5);
+        backOff.setInitialInterval(1000L);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(30000L);
+
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(notificationIntentConsumerFactory);
+        factory.setCommonErrorHandler(notificationErrorHandler(kafkaTemplate, backOff));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        return factory;
+    }
+
+    private DefaultErrorHandler notificationErrorHandler(KafkaTemplate<String, Object> kafkaTemplate, BackOff backOff) {
+        // partition < 0: để producer tự chọn partition của DLT
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, ex) -> new TopicPartition(NOTIFICATION_DLT, -1));
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, backOff);
+        errorHandler.setLogLevel(KafkaException.Level.ERROR);
+        errorHandler.addNotRetryableExceptions(
+                org.springframework.kafka.support.serializer.DeserializationException.class,
+                org.apache.kafka.common.errors.RecordDeserializationException.class,
+                IllegalArgumentException.class
+        );
+        return errorHandler;
+    }
+}
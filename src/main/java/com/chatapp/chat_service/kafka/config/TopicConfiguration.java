@@ -91,8 +91,25 @@ public class TopicConfiguration {
     @Bean
     public NewTopic notificationTopic() {
         return TopicBuilder.name("notification-topic")
+                .partitions(3) // key = recipient
+                .replicas(REPLICAS)
+                .build();
+    }
+
+    @Bean
+    public NewTopic notificationRetryTopic() {
+        return TopicBuilder.name("notification-topic-retry")
+                .partitions(1)
+                .replicas(REPLICAS)
+                .build();
+    }
+
+    @Bean
+    public NewTopic notificationDeadLetterTopic() {
+        return TopicBuilder.name("notification-topic.DLT")
                 .partitions(1)
                 .replicas(REPLICAS)
+                .config("retention.ms", "1209600000") // 14 ngày
                 .build();
     }
 }
\ No newline at end of file
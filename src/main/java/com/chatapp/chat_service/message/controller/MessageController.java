@@ -1,11 +1,13 @@
 package com.chatapp.chat_service.message.controller;
 
 import com.chatapp.chat_service.common.dto.ApiResponse;
+import com.chatapp.chat_service.message.dto.MediaGalleryPage;
 import com.chatapp.chat_service.message.dto.MessageAttachmentDto;
 import com.chatapp.chat_service.message.dto.MessageReactionDto;
 import com.chatapp.chat_service.message.dto.MessageResponseDto;
 import com.chatapp.chat_service.message.entity.MessageReadReceipt;
 import com.chatapp.chat_service.message.entity.PinnedMessage;
+import com.chatapp.chat_service.message.service.MediaGalleryService;
 import com.chatapp.chat_service.message.service.MessageEnhancementService;
 import com.chatapp.chat_service.message.service.MessageService;
 import lombok.RequiredArgsConstructor;
@@ -28,6 +30,7 @@ public class MessageController {
 
     private final MessageService messageService;
     private final MessageEnhancementService enhancementService;
+    private final MediaGalleryService mediaGalleryService;
 
     /**
      * Lấy tin nhắn mới nhất của conversation
@@ -65,6 +68,23 @@ public class MessageController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Media gallery của conversation (mới nhất trước, phân trang bằng cursor)
+     * GET /api/messages/conversations/{conversationId}/media?type=image&cursor={mediaId}&limit=30
+     */
+    @GetMapping("/conversations/{conversationId}/media")
+    public ResponseEntity<ApiResponse<MediaGalleryPage>> getMediaGallery(
+            @PathVariable UUID conversationId,
+            @RequestParam(defaultValue = "all") String type,
+            @RequestParam(required = false) UUID cursor,
+            @RequestParam(defaultValue = "30") int limit,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        MediaGalleryPage page = mediaGalleryService.getGallery(conversationId, userId, type, cursor, limit);
+        return ResponseEntity.ok(ApiResponse.success("Get media gallery successfully", page));
+    }
+
     /**
      * Lấy tin nhắn cũ hơn một message nhất định (pagination thủ công)
      * GET /api/messages/conversations/{conversationId}/older?beforeMessageId={messageId}
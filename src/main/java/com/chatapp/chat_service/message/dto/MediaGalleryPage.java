@@ -0,0 +1,19 @@
+package com.chatapp.chat_service.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaGalleryPage {
+    private List<MediaItemDto> items;
+    private UUID nextCursor; // media_id của item cuối, truyền lại qua ?cursor=
+    private boolean hasMore;
+}
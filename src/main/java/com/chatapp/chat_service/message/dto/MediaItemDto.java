@@ -0,0 +1,27 @@
+package com.chatapp.chat_service.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaItemDto {
+    private UUID mediaId;
+    private UUID messageId;
+    private UUID senderId;
+    private String resourceType; // image | video | raw
+    private String url;
+    private String thumbnailUrl;
+    private String mediumUrl;
+    private String fileName;
+    private String contentType;
+    private Long fileSize;
+    private Instant createdAt;
+}
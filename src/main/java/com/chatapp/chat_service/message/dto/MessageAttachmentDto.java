@@ -18,4 +18,8 @@ public class MessageAttachmentDto {
     private String url;
     private Long fileSize;
     private String mimeType;
+    private String resourceType;
+    private String publicId;
+    private String thumbnailUrl;
+    private String mediumUrl;
 }
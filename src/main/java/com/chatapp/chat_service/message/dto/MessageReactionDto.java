@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 import com.chatapp.chat_service.auth.dto.UserDTO;
@@ -19,4 +20,7 @@ public class MessageReactionDto {
     private String emoji; // đổi từ "type" thành "emoji"
     private LocalDateTime createdAt;
     private UserDTO user;
+    private Integer count;
+    private List<UUID> userIds;
+    private Boolean reactedByCurrentUser;
 }
@@ -22,6 +22,7 @@ public class MessageResponseDto {
     private UserDTO sender;
     private String content;
     private List<String> mentionedUsers;
+    private List<UserDTO> mentionedUserProfiles;
     private String messageType; // TEXT | IMAGE | VIDEO | AUDIO | FILE | JOIN | LEAVE
     private List<MessageAttachmentDto> attachments;
     private List<ImageDto> images;
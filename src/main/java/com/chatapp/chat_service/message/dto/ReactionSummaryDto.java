@@ -0,0 +1,24 @@
+package com.chatapp.chat_service.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tổng hợp reaction theo emoji của một message (giá trị cache trong hash message_reactions:{c}:{m})
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionSummaryDto {
+    private String emoji;
+    private int count;
+    private List<UUID> userIds;
+    private Instant lastReactedAt;
+}
@@ -0,0 +1,74 @@
+package com.chatapp.chat_service.message.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.*;
+
+import java.util.UUID;
+
+/**
+ * Media gallery index: attachment theo (conversation, resource_type, bucket tháng), media_id TIMEUUID DESC
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@Table("conversation_media")
+public class ConversationMedia {
+
+    public static final String TYPE_ALL = "all";
+
+    @PrimaryKey
+    private ConversationMediaKey key;
+
+    @Column("message_id")
+    private UUID messageId;
+
+    @Column("sender_id")
+    private UUID senderId;
+
+    @Column("media_type")
+    private String mediaType; // loại thực tế (image | video | raw), cần khi đọc partition 'all'
+
+    private String url;
+
+    @Column("thumbnail_url")
+    private String thumbnailUrl;
+
+    @Column("medium_url")
+    private String mediumUrl;
+
+    @Column("file_name")
+    private String fileName;
+
+    @Column("content_type")
+    private String contentType;
+
+    @Column("file_size")
+    private Long fileSize;
+
+    @Column("public_id")
+    private String publicId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @PrimaryKeyClass
+    public static class ConversationMediaKey {
+        @PrimaryKeyColumn(name = "conversation_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+        private UUID conversationId;
+
+        @PrimaryKeyColumn(name = "resource_type", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+        private String resourceType; // all | image | video | raw
+
+        @PrimaryKeyColumn(name = "bucket", ordinal = 2, type = PrimaryKeyType.PARTITIONED)
+        private String bucket; // yyyy-MM
+
+        @PrimaryKeyColumn(name = "media_id", ordinal = 3, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+        private UUID mediaId;
+    }
+}
@@ -0,0 +1,30 @@
+package com.chatapp.chat_service.message.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Danh sách bucket có media của (conversation, resource_type), mới nhất trước
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("conversation_media_buckets")
+public class ConversationMediaBucket {
+
+    @PrimaryKeyColumn(name = "conversation_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private UUID conversationId;
+
+    @PrimaryKeyColumn(name = "resource_type", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+    private String resourceType;
+
+    @PrimaryKeyColumn(name = "bucket", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+    private String bucket;
+}
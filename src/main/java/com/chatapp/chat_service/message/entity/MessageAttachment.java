@@ -4,8 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
 import org.springframework.data.cassandra.core.mapping.Column;
 import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
 import org.springframework.data.cassandra.core.mapping.Table;
 
 @Table("message_attachments")
@@ -33,17 +36,30 @@ public class MessageAttachment {
     @Column("mime_type")
     private String mimeType;
 
+    @Column("resource_type")
+    private String resourceType; // Cloudinary: image, video, raw
+
+    @Column("public_id")
+    private String publicId;
+
+    @Column("thumbnail_url")
+    private String thumbnailUrl;
+
+    @Column("medium_url")
+    private String mediumUrl;
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
+    @PrimaryKeyClass
     public static class MessageAttachmentKey {
-        @Column("conversation_id")
+        @PrimaryKeyColumn(name = "conversation_id", type = PrimaryKeyType.PARTITIONED)
         private java.util.UUID conversationId;
 
-        @Column("message_id")
+        @PrimaryKeyColumn(name = "message_id", ordinal = 0, type = PrimaryKeyType.CLUSTERED)
         private java.util.UUID messageId;
 
-        @Column("attachment_id")
+        @PrimaryKeyColumn(name = "attachment_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
         private java.util.UUID attachmentId;
     }
 }
@@ -1,11 +1,16 @@
 package com.chatapp.chat_service.message.mapper;
 
 import com.chatapp.chat_service.auth.dto.UserDTO;
+import com.chatapp.chat_service.auth.entity.User;
 import com.chatapp.chat_service.auth.service.UserService;
+import com.chatapp.chat_service.message.dto.MessageAttachmentDto;
+import com.chatapp.chat_service.message.dto.MessageRequest;
 import com.chatapp.chat_service.message.dto.MessageResponse;
 import com.chatapp.chat_service.message.dto.MessageResponseDto;
 import com.chatapp.chat_service.message.dto.MessageSummary;
+import com.chatapp.chat_service.message.dto.ReplyToDto;
 import com.chatapp.chat_service.message.entity.Message;
+import com.chatapp.chat_service.message.entity.MessageAttachment;
 
 import org.springframework.stereotype.Component;
 
@@ -48,6 +53,13 @@ public class MessageMapper {
     }
 
     public MessageResponseDto toResponseDto(Message message) {
+        return toResponseDto(message, createSenderDto(message.getSenderId()));
+    }
+
+    /**
+     * Map message với sender đã được resolve sẵn (dùng khi hydrate cả trang)
+     */
+    public MessageResponseDto toResponseDto(Message message, UserDTO sender) {
         return MessageResponseDto.builder()
                 .messageId(message.getKey().getMessageId())
                 .conversationId(message.getKey().getConversationId())
@@ -66,25 +78,103 @@ public class MessageMapper {
                 .createdAt(LocalDateTime.ofInstant(message.getCreatedAt(), ZoneId.systemDefault()))
                 .updatedAt(message.getEditedAt() != null ?
                     LocalDateTime.ofInstant(message.getEditedAt(), ZoneId.systemDefault()) : null)
-                .sender(createSenderDto(message.getSenderId())) 
+                .sender(sender) 
+                .build();
+    }
+
+    /**
+     * Reply preview từ summary của message được reply (summary null -> message không còn tồn tại)
+     */
+    public ReplyToDto toReplyToDto(UUID replyToId, MessageSummary replied) {
+        return ReplyToDto.builder()
+                .messageId(replyToId)
+                .content(replied != null ? replied.getContent() : null)
+                .sender(replied != null ? createSenderDto(replied.getSenderId()) : null)
+                .build();
+    }
+
+    public MessageAttachmentDto toAttachmentDto(MessageAttachment attachment) {
+        return MessageAttachmentDto.builder()
+                .attachmentId(attachment.getKey().getAttachmentId())
+                .attachmentType(attachment.getAttachmentType())
+                .fileName(attachment.getFileName())
+                .url(attachment.getUrl())
+                .fileSize(attachment.getFileSize())
+                .mimeType(attachment.getMimeType())
+                .resourceType(attachment.getResourceType())
+                .publicId(attachment.getPublicId())
+                .thumbnailUrl(attachment.getThumbnailUrl())
+                .mediumUrl(attachment.getMediumUrl())
+                .build();
+    }
+
+    public MessageResponseDto.FileAttachmentDto toFileAttachmentDto(MessageAttachmentDto attachment) {
+        return MessageResponseDto.FileAttachmentDto.builder()
+                .url(attachment.getUrl())
+                .fileName(attachment.getFileName())
+                .contentType(attachment.getMimeType())
+                .fileSize(attachment.getFileSize())
+                .resourceType(attachment.getResourceType())
+                .publicId(attachment.getPublicId())
+                .thumbnailUrl(attachment.getThumbnailUrl())
+                .mediumUrl(attachment.getMediumUrl())
+                .build();
+    }
+
+    /**
+     * Attachment từ MessageRequest (file đã upload lên Cloudinary) -> entity để lưu cùng message
+     */
+    public MessageAttachment toAttachmentEntity(UUID conversationId, UUID messageId, MessageRequest.FileAttachment file) {
+        return MessageAttachment.builder()
+                .key(new MessageAttachment.MessageAttachmentKey(conversationId, messageId, UUID.randomUUID()))
+                .attachmentType(resolveAttachmentType(file.getResourceType(), file.getContentType()))
+                .fileName(file.getFileName())
+                .url(file.getUrl())
+                .fileSize(file.getFileSize())
+                .mimeType(file.getContentType())
+                .resourceType(file.getResourceType())
+                .publicId(file.getPublicId())
+                .thumbnailUrl(file.getThumbnailUrl())
+                .mediumUrl(file.getMediumUrl())
+                .build();
+    }
+
+    private String resolveAttachmentType(String resourceType, String contentType) {
+        if (contentType != null && contentType.startsWith("audio/")) {
+            return "AUDIO";
+        }
+        if ("image".equals(resourceType)) {
+            return "IMAGE";
+        }
+        if ("video".equals(resourceType)) {
+            return "VIDEO";
+        }
+        return "FILE";
+    }
+
+    public UserDTO toUserDto(User user) {
+        return UserDTO.builder()
+                .user_id(user.getUser_id())
+                .username(user.getUsername())
+                .display_name(user.getDisplay_name())
+                .nickname(user.getNickname())
+                .avatar_url(user.getAvatar_url())
+                .created_at(user.getCreated_at() != null ? user.getCreated_at().toString() : null)
+                .build();
+    }
+
+    public UserDTO unknownUser(UUID userId) {
+        return UserDTO.builder()
+                .user_id(userId)
+                .display_name("Unknown User")
+                .username("unknown_" + userId.toString().substring(0, 8))
+                .avatar_url(null)
                 .build();
     }
 
     private UserDTO createSenderDto(UUID senderId) {
         return userService.findById(senderId)
-                .map(user -> UserDTO.builder()
-                        .user_id(user.getUser_id())
-                        .username(user.getUsername())
-                        .display_name(user.getDisplay_name())
-                        .nickname(user.getNickname())
-                        .avatar_url(user.getAvatar_url())
-                        .created_at(user.getCreated_at() != null ? user.getCreated_at().toString() : null)
-                        .build())
-                .orElse(UserDTO.builder()
-                        .user_id(senderId)
-                        .display_name("Unknown User")
-                        .username("unknown_" + senderId.toString().substring(0, 8))
-                        .avatar_url(null)
-                        .build());
+                .map(this::toUserDto)
+                .orElse(unknownUser(senderId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.chatapp.chat_service.message.repository;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.message.entity.ConversationMediaBucket;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ConversationMediaBucketRepository extends CassandraRepository<ConversationMediaBucket, MapId> {
+
+    @Query("SELECT * FROM conversation_media_buckets WHERE conversation_id = ?0 AND resource_type = ?1 AND bucket <= ?2 LIMIT ?3")
+    List<ConversationMediaBucket> findBucketsUpTo(UUID conversationId, String resourceType, String bucket, int limit);
+}
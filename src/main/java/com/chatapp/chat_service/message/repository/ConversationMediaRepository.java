@@ -0,0 +1,20 @@
+package com.chatapp.chat_service.message.repository;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.message.entity.ConversationMedia;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ConversationMediaRepository extends CassandraRepository<ConversationMedia, ConversationMedia.ConversationMediaKey> {
+
+    @Query("SELECT * FROM conversation_media WHERE conversation_id = ?0 AND resource_type = ?1 AND bucket = ?2 LIMIT ?3")
+    List<ConversationMedia> findLatestInBucket(UUID conversationId, String resourceType, String bucket, int limit);
+
+    @Query("SELECT * FROM conversation_media WHERE conversation_id = ?0 AND resource_type = ?1 AND bucket = ?2 AND media_id < ?3 LIMIT ?4")
+    List<ConversationMedia> findInBucketBefore(UUID conversationId, String resourceType, String bucket, UUID beforeMediaId, int limit);
+}
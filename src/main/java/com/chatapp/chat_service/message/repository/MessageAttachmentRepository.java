@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import com.chatapp.chat_service.message.entity.MessageAttachment;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,6 +16,9 @@ public interface MessageAttachmentRepository extends CassandraRepository<Message
     @Query("SELECT * FROM message_attachments WHERE conversation_id = ?0 AND message_id = ?1")
     List<MessageAttachment> findByConversationIdAndMessageId(UUID conversationId, UUID messageId);
 
+    @Query("SELECT * FROM message_attachments WHERE conversation_id = ?0 AND message_id IN ?1")
+    List<MessageAttachment> findByConversationIdAndMessageIdIn(UUID conversationId, Collection<UUID> messageIds);
+
     @Query("SELECT * FROM message_attachments WHERE conversation_id = ?0")
     List<MessageAttachment> findByConversationId(UUID conversationId);
 
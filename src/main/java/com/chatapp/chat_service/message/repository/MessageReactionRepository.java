@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import com.chatapp.chat_service.message.entity.MessageReaction;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,6 +16,9 @@ public interface MessageReactionRepository extends CassandraRepository<MessageRe
     @Query("SELECT * FROM message_reactions WHERE conversation_id = ?0 AND message_id = ?1")
     List<MessageReaction> findByConversationIdAndMessageId(UUID conversationId, UUID messageId);
 
+    @Query("SELECT * FROM message_reactions WHERE conversation_id = ?0 AND message_id IN ?1")
+    List<MessageReaction> findByConversationIdAndMessageIdIn(UUID conversationId, Collection<UUID> messageIds);
+
     @Query("SELECT * FROM message_reactions WHERE conversation_id = ?0 AND message_id = ?1 AND user_id = ?2")
     List<MessageReaction> findByConversationIdAndMessageIdAndUserId(UUID conversationId, UUID messageId, UUID userId);
 
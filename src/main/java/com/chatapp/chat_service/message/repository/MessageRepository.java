@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 import com.chatapp.chat_service.message.entity.Message;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -29,6 +30,9 @@ public interface MessageRepository extends CassandraRepository<Message, Message.
     @Query("SELECT * FROM messages_by_conversation WHERE conversation_id = ?0 AND message_id = ?1")
     Optional<Message> findByConversationIdAndMessageId(UUID conversationId, UUID messageId);
 
+    @Query("SELECT * FROM messages_by_conversation WHERE conversation_id = ?0 AND message_id IN ?1")
+    List<Message> findByConversationIdAndMessageIdIn(UUID conversationId, Collection<UUID> messageIds);
+
     @Query("SELECT * FROM messages_by_conversation WHERE conversation_id = ?0 AND created_at < ?1 ALLOW FILTERING")
     List<Message> findByConversationIdAndTimestampBefore(UUID conversationId, Instant before, Pageable pageable);
 
@@ -0,0 +1,153 @@
+package com.chatapp.chat_service.message.service;
+
+import com.chatapp.chat_service.message.dto.MessageAttachmentDto;
+import com.chatapp.chat_service.message.mapper.MessageMapper;
+import com.chatapp.chat_service.message.repository.MessageAttachmentRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cache metadata attachment: mỗi message là 1 JSON blob gọn (không có type info, bỏ field null).
+ * Message không có attachment được cache bằng "[]" để trang history luôn hit bằng 1 MGET.
+ */
+@Slf4j
+@Component
+public class AttachmentMetadataCache {
+
+    private static final String CACHE_KEY_PREFIX = "msg_attachments:";
+    private static final Duration CACHE_TTL = Duration.ofHours(6);
+    private static final TypeReference<List<MessageAttachmentDto>> LIST_TYPE = new TypeReference<>() {};
+
+    private final MessageAttachmentRepository attachmentRepository;
+    private final MessageMapper messageMapper;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    public AttachmentMetadataCache(MessageAttachmentRepository attachmentRepository,
+                                   MessageMapper messageMapper,
+                                   RedisTemplate<String, String> redisTemplate,
+                                   ObjectMapper objectMapper) {
+        this.attachmentRepository = attachmentRepository;
+        this.messageMapper = messageMapper;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public static String cacheKey(UUID conversationId, UUID messageId) {
+        return CACHE_KEY_PREFIX + conversationId + ":" + messageId;
+    }
+
+    /**
+     * Ghi toàn bộ attachments của message trong 1 lệnh SET
+     */
+    public void put(UUID conversationId, UUID messageId, List<MessageAttachmentDto> attachments) {
+        try {
+            redisTemplate.opsForValue().set(cacheKey(conversationId, messageId), serialize(attachments), CACHE_TTL);
+        } catch (Exception e) {
+            log.warn("Failed to cache attachments of message {}: {}", messageId, e.getMessage());
+        }
+    }
+
+    public List<MessageAttachmentDto> get(UUID conversationId, UUID messageId) {
+        return getAll(conversationId, List.of(messageId)).getOrDefault(messageId, new ArrayList<>());
+    }
+
+    /**
+     * Lấy attachments cho cả trang: 1 MGET, phần miss lấy bằng 1 query IN và ghi lại trong 1 pipeline
+     * @return map messageId -> attachments, có đủ key cho mọi messageId
+     */
+    public Map<UUID, List<MessageAttachmentDto>> getAll(UUID conversationId, Collection<UUID> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<UUID> ids = messageIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<UUID, List<MessageAttachmentDto>> result = new HashMap<>();
+        List<UUID> misses = new ArrayList<>();
+
+        List<String> cached = null;
+        try {
+            cached = redisTemplate.opsForValue().multiGet(ids.stream()
+                    .map(messageId -> cacheKey(conversationId, messageId))
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.warn("Failed to read attachment cache for conversation {}: {}", conversationId, e.getMessage());
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            List<MessageAttachmentDto> attachments = cached != null ? deserialize(cached.get(i)) : null;
+            if (attachments == null) {
+                misses.add(ids.get(i));
+            } else {
+                result.put(ids.get(i), attachments);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<UUID, List<MessageAttachmentDto>> loaded = new HashMap<>();
+            misses.forEach(messageId -> loaded.put(messageId, new ArrayList<>()));
+            attachmentRepository.findByConversationIdAndMessageIdIn(conversationId, misses)
+                    .forEach(attachment -> loaded.get(attachment.getKey().getMessageId())
+                            .add(messageMapper.toAttachmentDto(attachment)));
+            putAll(conversationId, loaded);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    public void evict(UUID conversationId, UUID messageId) {
+        redisTemplate.delete(cacheKey(conversationId, messageId));
+    }
+
+    private void putAll(UUID conversationId, Map<UUID, List<MessageAttachmentDto>> entries) {
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                entries.forEach((messageId, attachments) -> connection.stringCommands().setEx(
+                        cacheKey(conversationId, messageId).getBytes(StandardCharsets.UTF_8),
+                        CACHE_TTL.toSeconds(),
+                        serialize(attachments).getBytes(StandardCharsets.UTF_8)));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to cache attachments for conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private String serialize(List<MessageAttachmentDto> attachments) {
+        try {
+            return objectMapper.writeValueAsString(attachments != null ? attachments : Collections.emptyList());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize attachments", e);
+        }
+    }
+
+    /**
+     * @return null nếu không có trong cache hoặc blob hỏng (coi như miss)
+     */
+    private List<MessageAttachmentDto> deserialize(String blob) {
+        if (blob == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(blob, LIST_TYPE);
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable attachment cache entry: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.chatapp.chat_service.message.service;
+
+import com.chatapp.chat_service.common.exception.BadRequestException;
+import com.chatapp.chat_service.message.dto.MediaGalleryPage;
+import com.chatapp.chat_service.message.dto.MediaItemDto;
+import com.chatapp.chat_service.message.entity.ConversationMedia;
+import com.chatapp.chat_service.message.entity.ConversationMediaBucket;
+import com.chatapp.chat_service.message.entity.Message;
+import com.chatapp.chat_service.message.entity.MessageAttachment;
+import com.chatapp.chat_service.message.repository.ConversationMediaBucketRepository;
+import com.chatapp.chat_service.message.repository.ConversationMediaRepository;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.cassandra.core.CassandraBatchOperations;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Media gallery của conversation: index attachment theo bucket tháng, đọc mới nhất trước bằng cursor (media_id).
+ * Mỗi lần đọc chỉ là các query có LIMIT trên từng bucket, không đọc cả partition.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaGalleryService {
+
+    private static final Set<String> RESOURCE_TYPES = Set.of("image", "video", "raw");
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM").withZone(ZoneOffset.UTC);
+    private static final int MAX_LIMIT = 100;
+    // Số bucket tối đa đi qua trong 1 request
+    private static final int MAX_BUCKETS_PER_PAGE = 12;
+
+    private final ConversationMediaRepository mediaRepository;
+    private final ConversationMediaBucketRepository bucketRepository;
+    private final CassandraOperations cassandraOperations;
+    private final MessageValidationService messageValidationService;
+
+    /**
+     * Ghi attachments của message vào gallery index (dưới 'all' và dưới resource type riêng) trong 1 batch
+     */
+    public void indexAttachments(Message message, List<MessageAttachment> attachments) {
+        if (attachments == null || attachments.isEmpty()) {
+            return;
+        }
+
+        UUID conversationId = message.getKey().getConversationId();
+        CassandraBatchOperations batch = cassandraOperations.batchOps();
+        Set<String> bucketTypes = new HashSet<>();
+
+        for (MessageAttachment attachment : attachments) {
+            UUID mediaId = Uuids.timeBased();
+            String bucket = bucketOf(mediaId);
+            String resourceType = normalizeResourceType(attachment.getResourceType());
+
+            ConversationMedia media = ConversationMedia.builder()
+                    .key(new ConversationMedia.ConversationMediaKey(conversationId, ConversationMedia.TYPE_ALL, bucket, mediaId))
+                    .messageId(message.getKey().getMessageId())
+                    .senderId(message.getSenderId())
+                    .mediaType(resourceType)
+                    .url(attachment.getUrl())
+                    .thumbnailUrl(attachment.getThumbnailUrl())
+                    .mediumUrl(attachment.getMediumUrl())
+                    .fileName(attachment.getFileName())
+                    .contentType(attachment.getMimeType())
+                    .fileSize(attachment.getFileSize())
+                    .publicId(attachment.getPublicId())
+                    .build();
+            batch.insert(media);
+            batch.insert(media.toBuilder()
+                    .key(new ConversationMedia.ConversationMediaKey(conversationId, resourceType, bucket, mediaId))
+                    .build());
+
+            if (bucketTypes.add(ConversationMedia.TYPE_ALL + ":" + bucket)) {
+                batch.insert(new ConversationMediaBucket(conversationId, ConversationMedia.TYPE_ALL, bucket));
+            }
+            if (bucketTypes.add(resourceType + ":" + bucket)) {
+                batch.insert(new ConversationMediaBucket(conversationId, resourceType, bucket));
+            }
+        }
+
+        batch.execute();
+        log.debug("Indexed {} media items of message {} in conversation {}",
+                attachments.size(), message.getKey().getMessageId(), conversationId);
+    }
+
+    /**
+     * Lấy 1 trang gallery, mới nhất trước
+     * @param type all | image | video | raw
+     * @param cursor media_id của item cuối trang trước (null = trang đầu)
+     */
+    public MediaGalleryPage getGallery(UUID conversationId, UUID userId, String type, UUID cursor, int limit) {
+        messageValidationService.validateConversationMembership(conversationId, userId);
+
+        String resourceType = type == null || type.isBlank() ? ConversationMedia.TYPE_ALL : type.toLowerCase();
+        if (!ConversationMedia.TYPE_ALL.equals(resourceType) && !RESOURCE_TYPES.contains(resourceType)) {
+            throw new BadRequestException("Unsupported media type: " + type);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        String startBucket = cursor != null ? bucketOf(cursor) : BUCKET_FORMAT.format(Instant.now());
+        List<ConversationMediaBucket> buckets = bucketRepository.findBucketsUpTo(
+                conversationId, resourceType, startBucket, MAX_BUCKETS_PER_PAGE);
+
+        // Lấy dư 1 item để biết còn trang sau
+        List<ConversationMedia> collected = new ArrayList<>();
+        for (ConversationMediaBucket bucket : buckets) {
+            int remaining = pageSize + 1 - collected.size();
+            if (remaining <= 0) {
+                break;
+            }
+            boolean cursorBucket = cursor != null && bucket.getBucket().equals(startBucket);
+            collected.addAll(cursorBucket
+                    ? mediaRepository.findInBucketBefore(conversationId, resourceType, bucket.getBucket(), cursor, remaining)
+                    : mediaRepository.findLatestInBucket(conversationId, resourceType, bucket.getBucket(), remaining));
+        }
+
+        // Đã đi hết số bucket cho phép trong 1 request thì vẫn có thể còn bucket cũ hơn
+        boolean hasMore = collected.size() > pageSize || buckets.size() == MAX_BUCKETS_PER_PAGE;
+        List<MediaItemDto> items = collected.stream()
+                .limit(pageSize)
+                .map(this::toDto)
+                .collect(Collectors.toList());
+
+        return MediaGalleryPage.builder()
+                .items(items)
+                .nextCursor(hasMore && !items.isEmpty() ? items.get(items.size() - 1).getMediaId() : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private MediaItemDto toDto(ConversationMedia media) {
+        UUID mediaId = media.getKey().getMediaId();
+        return MediaItemDto.builder()
+                .mediaId(mediaId)
+                .messageId(media.getMessageId())
+                .senderId(media.getSenderId())
+                .resourceType(media.getMediaType())
+                .url(media.getUrl())
+                .thumbnailUrl(media.getThumbnailUrl() == null && "image".equals(media.getMediaType())
+                        ? media.getUrl() : media.getThumbnailUrl())
+                .mediumUrl(media.getMediumUrl())
+                .fileName(media.getFileName())
+                .contentType(media.getContentType())
+                .fileSize(media.getFileSize())
+                .createdAt(Instant.ofEpochMilli(Uuids.unixTimestamp(mediaId)))
+                .build();
+    }
+
+    private static String bucketOf(UUID timeUuid) {
+        return BUCKET_FORMAT.format(Instant.ofEpochMilli(Uuids.unixTimestamp(timeUuid)));
+    }
+
+    private static String normalizeResourceType(String resourceType) {
+        return resourceType != null && RESOURCE_TYPES.contains(resourceType) ? resourceType : "raw";
+    }
+}
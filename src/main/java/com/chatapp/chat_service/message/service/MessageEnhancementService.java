@@ -1,32 +1,33 @@
 package com.chatapp.chat_service.message.service;
 
 import com.chatapp.chat_service.auth.dto.UserDTO;
+import com.chatapp.chat_service.conversation.service.UnreadCounterService;
 import com.chatapp.chat_service.kafka.KafkaEventProducer;
 import com.chatapp.chat_service.message.dto.MessageAttachmentDto;
 import com.chatapp.chat_service.message.dto.MessageReactionDto;
-import com.chatapp.chat_service.message.entity.Message;
+import com.chatapp.chat_service.message.dto.MessageSummary;
+import com.chatapp.chat_service.message.dto.ReactionSummaryDto;
 import com.chatapp.chat_service.message.entity.MessageAttachment;
 import com.chatapp.chat_service.message.entity.MessageReaction;
 import com.chatapp.chat_service.message.entity.MessageReadReceipt;
 import com.chatapp.chat_service.message.entity.PinnedMessage;
 import com.chatapp.chat_service.message.event.MessageReactionEvent;
 import com.chatapp.chat_service.message.event.MessageReadEvent;
+import com.chatapp.chat_service.message.mapper.MessageMapper;
 import com.chatapp.chat_service.message.repository.MessageAttachmentRepository;
 import com.chatapp.chat_service.message.repository.MessageReactionRepository;
 import com.chatapp.chat_service.message.repository.MessageReadReceiptRepository;
-import com.chatapp.chat_service.message.repository.MessageRepository;
 import com.chatapp.chat_service.message.repository.PinnedMessageRepository;
 import com.chatapp.chat_service.notification.service.NotificationService;
+import com.chatapp.chat_service.websocket.publisher.ConversationEventPublisher;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -39,11 +40,16 @@ public class MessageEnhancementService {
     private final MessageReactionRepository reactionRepository;
     private final MessageReadReceiptRepository readReceiptRepository;
     private final PinnedMessageRepository pinnedMessageRepository;
-    private final MessageRepository messageRepository;
     private final NotificationService notificationService;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ConversationEventPublisher conversationEventPublisher;
     private final KafkaEventProducer kafkaEventProducer;
+    private final ReactionSummaryLoader reactionSummaryLoader;
+    private final MessagePageHydrator messagePageHydrator;
+    private final MessageMapper messageMapper;
+    private final MessageSummaryCache messageSummaryCache;
+    private final AttachmentMetadataCache attachmentMetadataCache;
+    private final UnreadCounterService unreadCounterService;
 
     // ==================== ATTACHMENT METHODS ====================
 
@@ -64,10 +70,8 @@ public class MessageEnhancementService {
 
         attachmentRepository.save(attachment);
 
-        // Cache attachment
-        String cacheKey = "message_attachments:" + conversationId + ":" + messageId;
-        redisTemplate.opsForList().rightPush(cacheKey, attachment);
-        redisTemplate.expire(cacheKey, Duration.ofHours(1));
+        // Blob của message sẽ được nạp lại đầy đủ ở lần đọc tiếp theo
+        attachmentMetadataCache.evict(conversationId, messageId);
 
         log.info("Added attachment {} to message {} in conversation {}", attachmentId, messageId, conversationId);
 
@@ -85,30 +89,7 @@ public class MessageEnhancementService {
      * Lấy attachments của message
      */
     public List<MessageAttachmentDto> getMessageAttachments(UUID conversationId, UUID messageId) {
-        String cacheKey = "message_attachments:" + conversationId + ":" + messageId;
-        
-        // Try cache first
-        List<Object> cachedAttachments = redisTemplate.opsForList().range(cacheKey, 0, -1);
-        if (cachedAttachments != null && !cachedAttachments.isEmpty()) {
-            return cachedAttachments.stream()
-                    .map(obj -> (MessageAttachment) obj)
-                    .map(this::mapToAttachmentDto)
-                    .collect(Collectors.toList());
-        }
-
-        // Fallback to database
-        List<MessageAttachment> attachments = attachmentRepository.findByConversationIdAndMessageId(conversationId, messageId);
-        
-        // Cache result
-        if (!attachments.isEmpty()) {
-            attachments.forEach(attachment -> 
-                redisTemplate.opsForList().rightPush(cacheKey, attachment));
-            redisTemplate.expire(cacheKey, Duration.ofHours(1));
-        }
-
-        return attachments.stream()
-                .map(this::mapToAttachmentDto)
-                .collect(Collectors.toList());
+        return attachmentMetadataCache.get(conversationId, messageId);
     }
 
     // ==================== REACTION METHODS ====================
@@ -149,15 +130,15 @@ public class MessageEnhancementService {
                 .timestamp(Instant.now())
                 .build();
 
-        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId + "/reactions", event);
+        conversationEventPublisher.publish(conversationId, ConversationEventPublisher.REACTION, event);
 
         // Send to Kafka for further processing
         kafkaEventProducer.sendReactionEvent(event);
 
         // Create notification for message owner if it's not their own reaction and it's an ADD action
-        if (!isRemoving && !userId.equals(getMessageOwnerId(conversationId, messageId))) {
+        UUID messageOwnerId = isRemoving ? null : getMessageOwnerId(conversationId, messageId);
+        if (messageOwnerId != null && !userId.equals(messageOwnerId)) {
             try {
-                UUID messageOwnerId = getMessageOwnerId(conversationId, messageId);
                 String userName = getUserName(userId); // You might need to implement this
                 notificationService.createReactionNotification(messageOwnerId, userId, userName, emoji, conversationId, messageId);
             } catch (Exception e) {
@@ -170,9 +151,9 @@ public class MessageEnhancementService {
      * Get message owner ID
      */
     private UUID getMessageOwnerId(UUID conversationId, UUID messageId) {
-        Message.MessageKey key = new Message.MessageKey(conversationId, messageId);
-        Optional<Message> message = messageRepository.findById(key);
-        return message.map(Message::getSenderId).orElse(null);
+        return messageSummaryCache.get(conversationId, messageId)
+                .map(MessageSummary::getSenderId)
+                .orElse(null);
     }
 
     /**
@@ -188,52 +169,11 @@ public class MessageEnhancementService {
      * Lấy reactions của message
      */
     public List<MessageReactionDto> getMessageReactions(UUID conversationId, UUID messageId, UUID currentUserId) {
-        String cacheKey = "message_reactions:" + conversationId + ":" + messageId;
-        
-        // Try cache first
-        Map<Object, Object> cachedReactions = redisTemplate.opsForHash().entries(cacheKey);
-        if (!cachedReactions.isEmpty()) {
-            return buildReactionDtos(cachedReactions, currentUserId);
-        }
-
-        // Fallback to database
-        List<MessageReaction> reactions = reactionRepository.findByConversationIdAndMessageId(conversationId, messageId);
-        
-        // Group by emoji
-        Map<String, List<MessageReaction>> groupedReactions = reactions.stream()
-                .collect(Collectors.groupingBy(r -> r.getKey().getEmoji()));
-
-        // Cache grouped reactions
-        groupedReactions.forEach((emoji, reactionList) -> {
-            Map<String, Object> emojiData = new HashMap<>();
-            emojiData.put("userIds", reactionList.stream().map(r -> r.getKey().getUserId()).collect(Collectors.toList()));
-            emojiData.put("count", reactionList.size());
-            emojiData.put("lastReactedAt", reactionList.stream().map(MessageReaction::getReactedAt).max(Instant::compareTo).orElse(Instant.now()));
-            
-            redisTemplate.opsForHash().put(cacheKey, emoji, emojiData);
-        });
-        redisTemplate.expire(cacheKey, Duration.ofMinutes(30));
-
-        return groupedReactions.entrySet().stream()
-                .map(entry -> {
-                    String emoji = entry.getKey();
-                    List<MessageReaction> reactionList = entry.getValue();
-                    List<UUID> userIds = reactionList.stream().map(r -> r.getKey().getUserId()).collect(Collectors.toList());
-                    
-                    return MessageReactionDto.builder()
-                            .messageId(messageId)
-                            .emoji(emoji)
-                            .createdAt(reactionList.stream().map(MessageReaction::getReactedAt)
-                                .max(Instant::compareTo).orElse(Instant.now())
-                                .atZone(ZoneId.systemDefault()).toLocalDateTime())
-                            .user(UserDTO.builder()
-                                .user_id(reactionList.get(0).getKey().getUserId())
-                                .username("user_" + reactionList.get(0).getKey().getUserId().toString().substring(0, 8))
-                                .display_name("User " + reactionList.get(0).getKey().getUserId().toString().substring(0, 8))
-                                .build())
-                            .build();
-                })
-                .collect(Collectors.toList());
+        List<ReactionSummaryDto> summaries = reactionSummaryLoader.loadSummaries(conversationId, messageId);
+        Map<UUID, UserDTO> users = messagePageHydrator.loadUsers(
+                ReactionSummaryLoader.representativeUserIds(List.of(summaries)));
+        return reactionSummaryLoader.toReactionDtos(messageId, summaries, currentUserId,
+                userId -> users.getOrDefault(userId, messageMapper.unknownUser(userId)));
     }
 
     // ==================== READ RECEIPT METHODS ====================
@@ -257,6 +197,10 @@ public class MessageEnhancementService {
 
         readReceiptRepository.save(receipt);
 
+        // Dời read watermark tới message này và tính lại unread
+        unreadCounterService.markRead(readerId, conversationId, messageId);
+        notificationService.onConversationRead(readerId, conversationId);
+
         // Clear cache
         String cacheKey = "message_read_receipts:" + conversationId + ":" + messageId;
         redisTemplate.delete(cacheKey);
@@ -269,7 +213,7 @@ public class MessageEnhancementService {
                 .readAt(Instant.now())
                 .build();
 
-        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId + "/read", event);
+        conversationEventPublisher.publish(conversationId, ConversationEventPublisher.READ, event);
 
         log.info("User {} marked message {} as read in conversation {}", readerId, messageId, conversationId);
     }
@@ -331,7 +275,7 @@ public class MessageEnhancementService {
         redisTemplate.delete(cacheKey);
 
         // Send real-time update
-        messagingTemplate.convertAndSend("/topic/conversation/" + conversationId + "/pins", 
+        conversationEventPublisher.publish(conversationId, ConversationEventPublisher.PIN,
             Map.of("messageId", messageId, "action", existing.isPresent() ? "UNPIN" : "PIN", "pinnedBy", pinnedBy));
     }
 
@@ -364,41 +308,7 @@ public class MessageEnhancementService {
 
     // ==================== HELPER METHODS ====================
 
-    private MessageAttachmentDto mapToAttachmentDto(MessageAttachment attachment) {
-        return MessageAttachmentDto.builder()
-                .attachmentId(attachment.getKey().getAttachmentId())
-                .attachmentType(attachment.getAttachmentType())
-                .fileName(attachment.getFileName())
-                .url(attachment.getUrl())
-                .fileSize(attachment.getFileSize())
-                .mimeType(attachment.getMimeType())
-                .build();
-    }
-
-    private List<MessageReactionDto> buildReactionDtos(Map<Object, Object> cachedReactions, UUID currentUserId) {
-        return cachedReactions.entrySet().stream()
-                .map(entry -> {
-                    String emoji = (String) entry.getKey();
-                    Map<String, Object> data = (Map<String, Object>) entry.getValue();
-                    List<UUID> userIds = (List<UUID>) data.get("userIds");
-                    
-                    return MessageReactionDto.builder()
-                            .messageId(UUID.randomUUID()) // TODO: Get actual message ID
-                            .emoji(emoji)
-                            .createdAt(((Instant) data.get("lastReactedAt"))
-                                .atZone(ZoneId.systemDefault()).toLocalDateTime())
-                            .user(UserDTO.builder()
-                                .user_id(userIds.get(0))
-                                .username("user_" + userIds.get(0).toString().substring(0, 8))
-                                .display_name("User " + userIds.get(0).toString().substring(0, 8))
-                                .build())
-                            .build();
-                })
-                .collect(Collectors.toList());
-    }
-
     private void clearReactionCache(UUID conversationId, UUID messageId) {
-        String cacheKey = "message_reactions:" + conversationId + ":" + messageId;
-        redisTemplate.delete(cacheKey);
+        reactionSummaryLoader.evict(conversationId, messageId);
     }
 }
@@ -0,0 +1,185 @@
+package com.chatapp.chat_service.message.service;
+
+import com.chatapp.chat_service.auth.dto.UserDTO;
+import com.chatapp.chat_service.auth.repository.UserRepository;
+import com.chatapp.chat_service.message.dto.MessageAttachmentDto;
+import com.chatapp.chat_service.message.dto.MessageResponseDto;
+import com.chatapp.chat_service.message.dto.MessageSummary;
+import com.chatapp.chat_service.message.dto.ReactionSummaryDto;
+import com.chatapp.chat_service.message.dto.ReplyToDto;
+import com.chatapp.chat_service.message.entity.Message;
+import com.chatapp.chat_service.message.mapper.MessageMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Hydrate cả một trang message theo kiểu DataLoader:
+ * gom toàn bộ user ID (sender, mention), reply-to ID, attachment key và reaction key của trang,
+ * resolve mỗi loại bằng 1 bulk call (chạy song song) rồi mới ghép thành MessageResponseDto.
+ * Reply preview lấy từ MessageSummaryCache.
+ * User chỉ biết sau khi có dữ liệu (sender của reply ngoài trang, người react) được bổ sung bằng 1 bulk call.
+ * Trang 20 message: ~80 lookup -> ~4 query.
+ */
+@Slf4j
+@Component
+public class MessagePageHydrator {
+
+    private final UserRepository userRepository;
+    private final MessageSummaryCache messageSummaryCache;
+    private final AttachmentMetadataCache attachmentMetadataCache;
+    private final ReactionSummaryLoader reactionSummaryLoader;
+    private final MessageMapper messageMapper;
+    private final Executor executor;
+
+    public MessagePageHydrator(UserRepository userRepository,
+                               MessageSummaryCache messageSummaryCache,
+                               AttachmentMetadataCache attachmentMetadataCache,
+                               ReactionSummaryLoader reactionSummaryLoader,
+                               MessageMapper messageMapper,
+                               @Qualifier("messageHydrationExecutor") Executor executor) {
+        this.userRepository = userRepository;
+        this.messageSummaryCache = messageSummaryCache;
+        this.attachmentMetadataCache = attachmentMetadataCache;
+        this.reactionSummaryLoader = reactionSummaryLoader;
+        this.messageMapper = messageMapper;
+        this.executor = executor;
+    }
+
+    /**
+     * @param messages các message cùng conversation, giữ nguyên thứ tự đầu vào
+     */
+    public List<MessageResponseDto> hydrate(UUID conversationId, List<Message> messages, UUID currentUserId) {
+        if (messages == null || messages.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 1. Gom key
+        Map<UUID, Message> pageMessages = new HashMap<>();
+        Set<UUID> userIds = new HashSet<>();
+        Set<UUID> replyIds = new HashSet<>();
+        for (Message message : messages) {
+            pageMessages.put(message.getKey().getMessageId(), message);
+            userIds.add(message.getSenderId());
+            if (message.getMentionedUserIds() != null) {
+                userIds.addAll(message.getMentionedUserIds());
+            }
+            if (message.getReplyTo() != null) {
+                replyIds.add(message.getReplyTo());
+            }
+        }
+        // Message được reply đã nằm trong trang thì không cần query lại
+        replyIds.removeAll(pageMessages.keySet());
+        List<UUID> messageIds = new ArrayList<>(pageMessages.keySet());
+
+        // 2. Resolve song song, mỗi loại 1 bulk call
+        CompletableFuture<Map<UUID, UserDTO>> usersFuture =
+                load("users", () -> loadUsers(userIds));
+        CompletableFuture<Map<UUID, MessageSummary>> repliesFuture =
+                load("reply-to messages", () -> messageSummaryCache.getAll(conversationId, replyIds));
+        CompletableFuture<Map<UUID, List<MessageAttachmentDto>>> attachmentsFuture =
+                load("attachments", () -> attachmentMetadataCache.getAll(conversationId, messageIds));
+        CompletableFuture<Map<UUID, List<ReactionSummaryDto>>> reactionsFuture =
+                load("reactions", () -> reactionSummaryLoader.loadSummaries(conversationId, messageIds));
+
+        CompletableFuture.allOf(usersFuture, repliesFuture, attachmentsFuture, reactionsFuture).join();
+
+        Map<UUID, UserDTO> users = new HashMap<>(usersFuture.join());
+        Map<UUID, MessageSummary> replies = new HashMap<>(repliesFuture.join());
+        pageMessages.forEach((messageId, message) -> replies.put(messageId, MessageSummaryCache.toSummary(message)));
+        Map<UUID, List<MessageAttachmentDto>> attachments = attachmentsFuture.join();
+        Map<UUID, List<ReactionSummaryDto>> reactions = reactionsFuture.join();
+
+        // Sender của message được reply nằm ngoài trang và người react chưa có trong trang -> bổ sung 1 bulk call
+        Set<UUID> missingUsers = messages.stream()
+                .map(Message::getReplyTo)
+                .filter(Objects::nonNull)
+                .map(replies::get)
+                .filter(Objects::nonNull)
+                .map(MessageSummary::getSenderId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(HashSet::new));
+        missingUsers.addAll(ReactionSummaryLoader.representativeUserIds(reactions.values()));
+        missingUsers.removeAll(users.keySet());
+        if (!missingUsers.isEmpty()) {
+            try {
+                users.putAll(loadUsers(missingUsers));
+            } catch (Exception e) {
+                log.warn("Failed to load {} additional users for message page: {}", missingUsers.size(), e.getMessage());
+            }
+        }
+
+        // 3. Ghép DTO
+        return messages.stream()
+                .map(message -> assemble(message, currentUserId, users, replies, attachments, reactions))
+                .collect(Collectors.toList());
+    }
+
+    private MessageResponseDto assemble(Message message,
+                                        UUID currentUserId,
+                                        Map<UUID, UserDTO> users,
+                                        Map<UUID, MessageSummary> replies,
+                                        Map<UUID, List<MessageAttachmentDto>> attachments,
+                                        Map<UUID, List<ReactionSummaryDto>> reactions) {
+        UUID messageId = message.getKey().getMessageId();
+        MessageResponseDto dto = messageMapper.toResponseDto(message, resolveUser(users, message.getSenderId()));
+
+        List<MessageAttachmentDto> messageAttachments = attachments.getOrDefault(messageId, Collections.emptyList());
+        dto.setAttachments(new ArrayList<>(messageAttachments));
+        dto.setFileAttachments(messageAttachments.stream()
+                .map(messageMapper::toFileAttachmentDto)
+                .collect(Collectors.toList()));
+        dto.setReactions(reactionSummaryLoader.toReactionDtos(messageId, reactions.get(messageId), currentUserId,
+                userId -> resolveUser(users, userId)));
+
+        if (message.getMentionedUserIds() != null) {
+            dto.setMentionedUserProfiles(message.getMentionedUserIds().stream()
+                    .map(userId -> resolveUser(users, userId))
+                    .collect(Collectors.toList()));
+        }
+
+        if (message.getReplyTo() != null) {
+            MessageSummary replied = replies.get(message.getReplyTo());
+            dto.setReplyTo(ReplyToDto.builder()
+                    .messageId(message.getReplyTo())
+                    .content(replied != null ? replied.getContent() : null)
+                    .sender(replied != null ? resolveUser(users, replied.getSenderId()) : null)
+                    .build());
+        }
+        return dto;
+    }
+
+    private UserDTO resolveUser(Map<UUID, UserDTO> users, UUID userId) {
+        UserDTO user = users.get(userId);
+        return user != null ? user : messageMapper.unknownUser(userId);
+    }
+
+    /**
+     * Bulk lookup user theo ID
+     */
+    public Map<UUID, UserDTO> loadUsers(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return userRepository.findUsersByIds(new ArrayList<>(userIds)).stream()
+                .collect(Collectors.toMap(user -> user.getUser_id(), messageMapper::toUserDto, (a, b) -> a));
+    }
+
+    /**
+     * Chạy loader trên executor riêng; lỗi của một loại dữ liệu chỉ làm trống phần đó, không làm hỏng cả trang
+     */
+    private <T> CompletableFuture<Map<UUID, T>> load(String name, Supplier<Map<UUID, T>> loader) {
+        return CompletableFuture.supplyAsync(loader, executor)
+                .exceptionally(e -> {
+                    log.warn("Failed to load {} for message page: {}", name, e.getMessage());
+                    return Collections.emptyMap();
+                });
+    }
+}
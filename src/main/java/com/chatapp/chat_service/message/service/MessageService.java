@@ -1,14 +1,20 @@
 package com.chatapp.chat_service.message.service;
 
+import com.chatapp.chat_service.conversation.service.ConversationSequenceService;
+import com.chatapp.chat_service.conversation.service.UnreadCounterService;
 import com.chatapp.chat_service.elasticsearch.service.ConversationElasticsearchService;
+import com.chatapp.chat_service.message.dto.MessageAttachmentDto;
 import com.chatapp.chat_service.message.dto.MessageRequest;
 import com.chatapp.chat_service.message.dto.MessageResponseDto;
 import com.chatapp.chat_service.message.dto.MessageSummary;
 import com.chatapp.chat_service.message.entity.Message;
+import com.chatapp.chat_service.message.entity.MessageAttachment;
 import com.chatapp.chat_service.message.mapper.MessageMapper;
+import com.chatapp.chat_service.message.repository.MessageAttachmentRepository;
 import com.chatapp.chat_service.message.repository.MessageRepository;
 import com.chatapp.chat_service.security.core.SecurityContextHelper;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -19,11 +25,13 @@ import com.datastax.oss.driver.api.core.uuid.Uuids;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class MessageService {
 
@@ -32,16 +40,37 @@ public class MessageService {
     private final ConversationElasticsearchService conversationElasticsearchService;
     private final MessageMapper messageMapper;
     private final MessageValidationService messageValidationService;
+    private final MessagePageHydrator messagePageHydrator;
+    private final MessageSummaryCache messageSummaryCache;
+    private final MessageAttachmentRepository attachmentRepository;
+    private final AttachmentMetadataCache attachmentMetadataCache;
+    private final MediaGalleryService mediaGalleryService;
+    private final UnreadCounterService unreadCounterService;
+    private final ConversationSequenceService conversationSequenceService;
 
     public MessageService(MessageRepository messageRepository,
                          SecurityContextHelper securityContextHelper,
                          MessageMapper messageMapper,
                          MessageValidationService messageValidationService,
+                         MessagePageHydrator messagePageHydrator,
+                         MessageSummaryCache messageSummaryCache,
+                         MessageAttachmentRepository attachmentRepository,
+                         AttachmentMetadataCache attachmentMetadataCache,
+                         MediaGalleryService mediaGalleryService,
+                         UnreadCounterService unreadCounterService,
+                         ConversationSequenceService conversationSequenceService,
                          @Autowired(required = false) ConversationElasticsearchService conversationElasticsearchService) {
         this.messageRepository = messageRepository;
         this.securityContextHelper = securityContextHelper;
         this.messageMapper = messageMapper;
         this.messageValidationService = messageValidationService;
+        this.messagePageHydrator = messagePageHydrator;
+        this.messageSummaryCache = messageSummaryCache;
+        this.attachmentRepository = attachmentRepository;
+        this.attachmentMetadataCache = attachmentMetadataCache;
+        this.mediaGalleryService = mediaGalleryService;
+        this.unreadCounterService = unreadCounterService;
+        this.conversationSequenceService = conversationSequenceService;
         this.conversationElasticsearchService = conversationElasticsearchService;
     }
 
@@ -72,20 +101,56 @@ public class MessageService {
                 .build();
 
         Message savedMessage = messageRepository.save(message);
-
+        List<MessageAttachmentDto> attachments = saveAttachments(savedMessage, request.getAttachments());
+        MessageSummary messageSummary = MessageSummaryCache.toSummary(savedMessage);
+        messageSummaryCache.put(request.getConversationId(), messageSummary);
+        long seq = conversationSequenceService.onMessageSaved(request.getConversationId(), messageSummary);
+        unreadCounterService.onMessageSaved(request.getConversationId(), key.getMessageId(), senderId, seq);
 
         // Update last message in Elasticsearch if available
         if (conversationElasticsearchService != null) {
-            MessageSummary messageSummary = MessageSummary.builder()
-                    .messageId(savedMessage.getKey().getMessageId())
-                    .senderId(savedMessage.getSenderId())
-                    .content(savedMessage.getContent())
-                    .createdAt(savedMessage.getCreatedAt())
-                    .build();
             conversationElasticsearchService.updateLastMessage(request.getConversationId(), messageSummary);
         }
 
-        return messageMapper.toResponseDto(savedMessage);
+        MessageResponseDto response = messageMapper.toResponseDto(savedMessage);
+        response.setAttachments(attachments);
+        response.setFileAttachments(attachments.stream()
+                .map(messageMapper::toFileAttachmentDto)
+                .collect(Collectors.toList()));
+        if (savedMessage.getReplyTo() != null) {
+            response.setReplyTo(messageMapper.toReplyToDto(savedMessage.getReplyTo(),
+                    messageSummaryCache.get(request.getConversationId(), savedMessage.getReplyTo()).orElse(null)));
+        }
+        return response;
+    }
+
+    /**
+     * Lưu fileAttachments của MessageRequest cùng message và ghi blob metadata vào cache (1 lệnh SET),
+     * để trang history không cần lookup thêm cho file message
+     */
+    private List<MessageAttachmentDto> saveAttachments(Message message, List<MessageRequest.FileAttachment> files) {
+        UUID conversationId = message.getKey().getConversationId();
+        UUID messageId = message.getKey().getMessageId();
+        if (files == null || files.isEmpty()) {
+            attachmentMetadataCache.put(conversationId, messageId, Collections.emptyList());
+            return new ArrayList<>();
+        }
+
+        List<MessageAttachment> entities = files.stream()
+                .map(file -> messageMapper.toAttachmentEntity(conversationId, messageId, file))
+                .collect(Collectors.toList());
+        attachmentRepository.saveAll(entities);
+        try {
+            mediaGalleryService.indexAttachments(message, entities);
+        } catch (Exception e) {
+            log.warn("Failed to index media of message {}: {}", messageId, e.getMessage());
+        }
+
+        List<MessageAttachmentDto> attachments = entities.stream()
+                .map(messageMapper::toAttachmentDto)
+                .collect(Collectors.toList());
+        attachmentMetadataCache.put(conversationId, messageId, attachments);
+        return attachments;
     }
 
     /**
@@ -117,9 +182,7 @@ public class MessageService {
         }
         
         // 🔄 Đảo ngược danh sách messages (từ DESC sang ASC - cũ nhất trước)
-        List<MessageResponseDto> responseList = messages.stream()
-                .map(messageMapper::toResponseDto)
-                .collect(Collectors.toList());
+        List<MessageResponseDto> responseList = messagePageHydrator.hydrate(conversationId, messages, userId);
         
         // Reverse the list để có thứ tự cũ nhất trước (ASC order)
         Collections.reverse(responseList);
@@ -156,9 +219,7 @@ public class MessageService {
         System.out.println("Found " + olderMessages.size() + " older messages");
 
         // 🔄 Đảo ngược danh sách older messages (từ DESC sang ASC - cũ nhất trước)
-        List<MessageResponseDto> responseList = olderMessages.stream()
-                .map(messageMapper::toResponseDto)
-                .collect(Collectors.toList());
+        List<MessageResponseDto> responseList = messagePageHydrator.hydrate(conversationId, olderMessages, userId);
         
         // Reverse the list để có thứ tự cũ nhất trước (ASC order)
         Collections.reverse(responseList);
@@ -209,9 +270,7 @@ public class MessageService {
             return getLatestMessages(conversationId, pageable);
         }
 
-        List<MessageResponseDto> responseList = messages.stream()
-                .map(messageMapper::toResponseDto)
-                .collect(Collectors.toList());
+        List<MessageResponseDto> responseList = messagePageHydrator.hydrate(conversationId, messages, userId);
         
         // 🔄 Đảo ngược danh sách để có thứ tự cũ nhất trước (ASC order)
         Collections.reverse(responseList);
@@ -242,9 +301,7 @@ public class MessageService {
         System.out.println("Found " + messages.size() + " latest messages (alternative method)");
         
         // 🔄 Đảo ngược danh sách messages (từ DESC sang ASC - cũ nhất trước)
-        List<MessageResponseDto> responseList = messages.stream()
-                .map(messageMapper::toResponseDto)
-                .collect(Collectors.toList());
+        List<MessageResponseDto> responseList = messagePageHydrator.hydrate(conversationId, messages, userId);
         
         // Reverse the list để có thứ tự cũ nhất trước (ASC order)
         Collections.reverse(responseList);
@@ -253,4 +310,4 @@ public class MessageService {
         return responseList;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package com.chatapp.chat_service.message.service;
+
+import com.chatapp.chat_service.message.dto.MessageSummary;
+import com.chatapp.chat_service.message.entity.Message;
+import com.chatapp.chat_service.message.repository.MessageRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cache MessageSummary (sender, content, createdAt) theo (conversation, message).
+ * Được ghi ngay khi lưu message ở consumer, dùng cho reply preview và tra owner của message
+ * mà không phải đọc lại cả message. Miss được resolve bằng 1 query IN trong cùng partition.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageSummaryCache {
+
+    private static final String CACHE_KEY_PREFIX = "message_summary:";
+    private static final Duration CACHE_TTL = Duration.ofDays(1);
+
+    private final MessageRepository messageRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public static String cacheKey(UUID conversationId, UUID messageId) {
+        return CACHE_KEY_PREFIX + conversationId + ":" + messageId;
+    }
+
+    /**
+     * Ghi summary của message vừa lưu (write-through); message được sửa/xóa cũng ghi đè qua đây
+     * với toSummary của bản mới, không xóa key (tránh miss đồng loạt trên message đang được reply)
+     */
+    public void put(UUID conversationId, MessageSummary summary) {
+        try {
+            redisTemplate.opsForValue().set(cacheKey(conversationId, summary.getMessageId()), summary, CACHE_TTL);
+        } catch (Exception e) {
+            log.warn("Failed to cache summary of message {}: {}", summary.getMessageId(), e.getMessage());
+        }
+    }
+
+    public Optional<MessageSummary> get(UUID conversationId, UUID messageId) {
+        return Optional.ofNullable(getAll(conversationId, List.of(messageId)).get(messageId));
+    }
+
+    /**
+     * Multi-get summaries trong 1 conversation: 1 MGET, phần miss lấy bằng 1 query IN rồi ghi lại cache
+     * @return map messageId -> summary (message không tồn tại sẽ không có trong map)
+     */
+    public Map<UUID, MessageSummary> getAll(UUID conversationId, Collection<UUID> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<UUID> ids = messageIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<UUID, MessageSummary> result = new HashMap<>();
+        List<UUID> misses = new ArrayList<>();
+
+        List<Object> cached = null;
+        try {
+            cached = redisTemplate.opsForValue().multiGet(ids.stream()
+                    .map(messageId -> cacheKey(conversationId, messageId))
+                    .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.warn("Failed to read message summary cache for conversation {}: {}", conversationId, e.getMessage());
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            Object value = cached != null ? cached.get(i) : null;
+            if (value instanceof MessageSummary summary) {
+                result.put(ids.get(i), summary);
+            } else {
+                misses.add(ids.get(i));
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<UUID, MessageSummary> loaded = messageRepository.findByConversationIdAndMessageIdIn(conversationId, misses)
+                    .stream()
+                    .collect(Collectors.toMap(message -> message.getKey().getMessageId(), MessageSummaryCache::toSummary, (a, b) -> a));
+            putAll(conversationId, loaded.values());
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    /**
+     * Message đã xóa chỉ giữ sender/createdAt, không giữ content
+     */
+    public static MessageSummary toSummary(Message message) {
+        return MessageSummary.builder()
+                .messageId(message.getKey().getMessageId())
+                .senderId(message.getSenderId())
+                .content(message.isDeleted() ? null : message.getContent())
+                .createdAt(message.getCreatedAt())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putAll(UUID conversationId, Collection<MessageSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (MessageSummary summary : summaries) {
+                    connection.stringCommands().setEx(
+                            cacheKey(conversationId, summary.getMessageId()).getBytes(StandardCharsets.UTF_8),
+                            CACHE_TTL.toSeconds(),
+                            valueSerializer.serialize(summary));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to cache message summaries for conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.chatapp.chat_service.message.service;
+
+import com.chatapp.chat_service.auth.dto.UserDTO;
+import com.chatapp.chat_service.message.dto.MessageReactionDto;
+import com.chatapp.chat_service.message.dto.ReactionSummaryDto;
+import com.chatapp.chat_service.message.entity.MessageReaction;
+import com.chatapp.chat_service.message.repository.MessageReactionRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Load reaction summaries cho cả một trang message:
+ * 1 lần pipeline HGETALL trên Redis, phần miss được lấy bằng 1 query Cassandra (message_id IN ...)
+ * rồi ghi ngược lại cache trong 1 pipeline.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReactionSummaryLoader {
+
+    private static final String CACHE_KEY_PREFIX = "message_reactions:";
+    // Field đánh dấu message không có reaction nào (negative cache)
+    private static final String EMPTY_MARKER = "__none__";
+    private static final Duration CACHE_TTL = Duration.ofMinutes(30);
+
+    private final MessageReactionRepository reactionRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    public static String cacheKey(UUID conversationId, UUID messageId) {
+        return CACHE_KEY_PREFIX + conversationId + ":" + messageId;
+    }
+
+    /**
+     * Lấy reaction summaries của nhiều message trong cùng conversation
+     * @return map messageId -> danh sách summary (sắp xếp theo count giảm dần), luôn có đủ key cho mọi messageId
+     */
+    public Map<UUID, List<ReactionSummaryDto>> loadSummaries(UUID conversationId, Collection<UUID> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<UUID> ids = messageIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        Map<UUID, List<ReactionSummaryDto>> result = new HashMap<>();
+        List<UUID> misses = new ArrayList<>();
+
+        List<Object> cached = readCached(conversationId, ids);
+        for (int i = 0; i < ids.size(); i++) {
+            List<ReactionSummaryDto> summaries = cached != null ? fromCacheEntry(cached.get(i)) : null;
+            if (summaries == null) {
+                misses.add(ids.get(i));
+            } else {
+                result.put(ids.get(i), summaries);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<UUID, List<ReactionSummaryDto>> loaded = loadFromDatabase(conversationId, misses);
+            writeCache(conversationId, loaded);
+            result.putAll(loaded);
+        }
+
+        log.debug("Loaded reaction summaries for {} messages in conversation {} ({} cache misses)",
+                ids.size(), conversationId, misses.size());
+        return result;
+    }
+
+    public List<ReactionSummaryDto> loadSummaries(UUID conversationId, UUID messageId) {
+        return loadSummaries(conversationId, List.of(messageId)).getOrDefault(messageId, Collections.emptyList());
+    }
+
+    /**
+     * Chuyển summary sang MessageReactionDto (mỗi emoji một phần tử)
+     * @param users resolve user đại diện của mỗi emoji (người react đầu tiên)
+     */
+    public List<MessageReactionDto> toReactionDtos(UUID messageId, List<ReactionSummaryDto> summaries, UUID currentUserId,
+                                                   Function<UUID, UserDTO> users) {
+        if (summaries == null || summaries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return summaries.stream()
+                .map(summary -> {
+                    List<UUID> userIds = summary.getUserIds() != null ? summary.getUserIds() : Collections.emptyList();
+                    UUID firstUserId = userIds.isEmpty() ? null : userIds.get(0);
+                    return MessageReactionDto.builder()
+                            .messageId(messageId)
+                            .emoji(summary.getEmoji())
+                            .count(summary.getCount())
+                            .userIds(userIds)
+                            .reactedByCurrentUser(currentUserId != null && userIds.contains(currentUserId))
+                            .createdAt(summary.getLastReactedAt() != null
+                                    ? summary.getLastReactedAt().atZone(ZoneId.systemDefault()).toLocalDateTime()
+                                    : null)
+                            .user(firstUserId == null ? null : users.apply(firstUserId))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * ID người react đầu tiên của mỗi emoji (user cần resolve cho toReactionDtos)
+     */
+    public static Set<UUID> representativeUserIds(Collection<List<ReactionSummaryDto>> summaries) {
+        Set<UUID> userIds = new HashSet<>();
+        for (List<ReactionSummaryDto> messageSummaries : summaries) {
+            for (ReactionSummaryDto summary : messageSummaries) {
+                if (summary.getUserIds() != null && !summary.getUserIds().isEmpty()) {
+                    userIds.add(summary.getUserIds().get(0));
+                }
+            }
+        }
+        return userIds;
+    }
+
+    public void evict(UUID conversationId, UUID messageId) {
+        redisTemplate.delete(cacheKey(conversationId, messageId));
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private List<Object> readCached(UUID conversationId, List<UUID> ids) {
+        try {
+            return redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (UUID messageId : ids) {
+                    connection.hashCommands().hGetAll(toBytes(cacheKey(conversationId, messageId)));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to read reaction cache for conversation {}: {}", conversationId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return null nếu cache miss, danh sách rỗng nếu message không có reaction
+     */
+    private List<ReactionSummaryDto> fromCacheEntry(Object entry) {
+        if (!(entry instanceof Map<?, ?> fields) || fields.isEmpty()) {
+            return null;
+        }
+        if (fields.containsKey(EMPTY_MARKER)) {
+            return new ArrayList<>();
+        }
+        List<ReactionSummaryDto> summaries = new ArrayList<>();
+        for (Object value : fields.values()) {
+            if (!(value instanceof ReactionSummaryDto summary)) {
+                // Entry theo format cũ -> coi như miss để load lại
+                return null;
+            }
+            summaries.add(summary);
+        }
+        summaries.sort(Comparator.comparingInt(ReactionSummaryDto::getCount).reversed());
+        return summaries;
+    }
+
+    private Map<UUID, List<ReactionSummaryDto>> loadFromDatabase(UUID conversationId, List<UUID> messageIds) {
+        List<MessageReaction> reactions = reactionRepository.findByConversationIdAndMessageIdIn(conversationId, messageIds);
+
+        Map<UUID, Map<String, List<MessageReaction>>> grouped = reactions.stream()
+                .collect(Collectors.groupingBy(r -> r.getKey().getMessageId(),
+                        Collectors.groupingBy(r -> r.getKey().getEmoji(), LinkedHashMap::new, Collectors.toList())));
+
+        Map<UUID, List<ReactionSummaryDto>> result = new HashMap<>();
+        for (UUID messageId : messageIds) {
+            List<ReactionSummaryDto> summaries = grouped.getOrDefault(messageId, Collections.emptyMap())
+                    .entrySet().stream()
+                    .map(entry -> ReactionSummaryDto.builder()
+                            .emoji(entry.getKey())
+                            .count(entry.getValue().size())
+                            .userIds(entry.getValue().stream()
+                                    .map(r -> r.getKey().getUserId())
+                                    .collect(Collectors.toList()))
+                            .lastReactedAt(entry.getValue().stream()
+                                    .map(MessageReaction::getReactedAt)
+                                    .filter(Objects::nonNull)
+                                    .max(Instant::compareTo)
+                                    .orElse(null))
+                            .build())
+                    .sorted(Comparator.comparingInt(ReactionSummaryDto::getCount).reversed())
+                    .collect(Collectors.toList());
+            result.put(messageId, summaries);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeCache(UUID conversationId, Map<UUID, List<ReactionSummaryDto>> loaded) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                loaded.forEach((messageId, summaries) -> {
+                    byte[] key = toBytes(cacheKey(conversationId, messageId));
+                    Map<byte[], byte[]> fields = new HashMap<>();
+                    if (summaries.isEmpty()) {
+                        fields.put(toBytes(EMPTY_MARKER), valueSerializer.serialize(Boolean.TRUE));
+                    } else {
+                        summaries.forEach(summary ->
+                                fields.put(toBytes(summary.getEmoji()), valueSerializer.serialize(summary)));
+                    }
+                    connection.hashCommands().hMSet(key, fields);
+                    connection.keyCommands().expire(key, CACHE_TTL.toSeconds());
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to cache reaction summaries for conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
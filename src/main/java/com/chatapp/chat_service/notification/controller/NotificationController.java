@@ -1,7 +1,10 @@
 package com.chatapp.chat_service.notification.controller;
 
+import com.chatapp.chat_service.notification.dto.ConversationNotificationSettingDto;
 import com.chatapp.chat_service.notification.dto.NotificationDto;
+import com.chatapp.chat_service.notification.dto.NotificationPreferencesDto;
 import com.chatapp.chat_service.notification.dto.NotificationStatsDto;
+import com.chatapp.chat_service.notification.service.NotificationPreferenceService;
 import com.chatapp.chat_service.notification.service.NotificationService;
 
 import lombok.RequiredArgsConstructor;
@@ -22,18 +25,23 @@ import java.util.UUID;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationPreferenceService preferenceService;
 
     /**
      * Lấy danh sách notifications với phân trang
+     * (before = notificationId cuối của trang trước: phân trang theo cursor, bỏ qua page)
      */
     @GetMapping
     public ResponseEntity<NotificationService.NotificationPage> getNotifications(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) UUID before,
             Authentication authentication
     ) {
         UUID userId = UUID.fromString(authentication.getName());
-        NotificationService.NotificationPage notifications = notificationService.getNotifications(userId, page, size);
+        NotificationService.NotificationPage notifications = before != null
+                ? notificationService.getNotificationsBefore(userId, before, size)
+                : notificationService.getNotifications(userId, page, size);
         return ResponseEntity.ok(notifications);
     }
 
@@ -166,11 +174,14 @@ public class NotificationController {
     @GetMapping("/search")
     public ResponseEntity<List<NotificationDto>> searchNotifications(
             @RequestParam String query,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
             @RequestParam(defaultValue = "50") int limit,
             Authentication authentication
     ) {
         UUID userId = UUID.fromString(authentication.getName());
-        List<NotificationDto> notifications = notificationService.searchNotifications(userId, query, limit);
+        List<NotificationDto> notifications = notificationService.searchNotifications(userId, query, type, from, to, limit);
         return ResponseEntity.ok(notifications);
     }
 
@@ -198,4 +209,54 @@ public class NotificationController {
                 .map(notification -> ResponseEntity.ok(notification))
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    /**
+     * Lấy cài đặt notification
+     */
+    @GetMapping("/preferences")
+    public ResponseEntity<NotificationPreferencesDto> getPreferences(Authentication authentication) {
+        UUID userId = UUID.fromString(authentication.getName());
+        return ResponseEntity.ok(preferenceService.getPreferences(userId));
+    }
+
+    /**
+     * Cập nhật cài đặt chung: type bị tắt, chỉ nhận mention
+     */
+    @PutMapping("/preferences")
+    public ResponseEntity<NotificationPreferencesDto> updatePreferences(
+            @RequestBody NotificationPreferencesDto request,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        preferenceService.updatePreferences(userId, request.getDisabledTypes(), Boolean.TRUE.equals(request.getMentionsOnly()));
+        return ResponseEntity.ok(preferenceService.getPreferences(userId));
+    }
+
+    /**
+     * Tắt tiếng conversation tới mutedUntil (null = bỏ tắt tiếng) và/hoặc chỉ nhận mention
+     */
+    @PutMapping("/preferences/conversations/{conversationId}")
+    public ResponseEntity<Void> updateConversationSetting(
+            @PathVariable UUID conversationId,
+            @RequestBody ConversationNotificationSettingDto request,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        preferenceService.updateConversationSetting(userId, conversationId, request.getMutedUntil(),
+                Boolean.TRUE.equals(request.getMentionsOnly()));
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Xóa cài đặt riêng của conversation
+     */
+    @DeleteMapping("/preferences/conversations/{conversationId}")
+    public ResponseEntity<Void> clearConversationSetting(
+            @PathVariable UUID conversationId,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        preferenceService.clearConversationSetting(userId, conversationId);
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,29 @@
+package com.chatapp.chat_service.notification.delivery;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Kênh đẩy tới thiết bị của user (WebSocket, mobile push...). OutboundDeliveryService gọi send
+ * tuần tự theo từng thiết bị nên transport không cần tự giữ thứ tự.
+ */
+public interface DeliveryTransport {
+
+    String name();
+
+    /**
+     * Id các thiết bị của user đang nhận được qua transport này
+     */
+    Collection<String> devices(UUID userId);
+
+    /**
+     * Ném exception khi gửi lỗi, message được thử lại với backoff
+     */
+    void send(UUID userId, String deviceId, OutboundMessage message) throws Exception;
+
+    /**
+     * Thiết bị không theo kịp (queue đầy hoặc đứng yên quá lâu); backlog đã bị bỏ
+     */
+    default void onSlowConsumer(UUID userId, String deviceId) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.chatapp.chat_service.notification.delivery;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thay cho mobile push (FCM/APNs) khi chạy local/test: thiết bị đăng ký bằng register,
+ * message gửi tới được giữ trong bộ nhớ (tối đa MAX_RECORDED mỗi thiết bị) để kiểm tra.
+ * Bật bằng chat.delivery.local-push.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.delivery.local-push.enabled", havingValue = "true")
+public class LocalPushTransport implements DeliveryTransport {
+
+    private static final int MAX_RECORDED = 1000;
+
+    private final Map<UUID, Set<String>> devices = new ConcurrentHashMap<>();
+    private final Map<String, Deque<OutboundMessage>> sent = new ConcurrentHashMap<>();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public String name() {
+        return "local-push";
+    }
+
+    public void register(UUID userId, String deviceId) {
+        devices.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(deviceId);
+    }
+
+    public void unregister(UUID userId, String deviceId) {
+        devices.computeIfPresent(userId, (id, set) -> {
+            set.remove(deviceId);
+            return set.isEmpty() ? null : set;
+        });
+        sent.remove(deviceId);
+    }
+
+    /**
+     * Giả lập thiết bị không nhận được (send ném exception) để kiểm tra retry
+     */
+    public void setFailing(String deviceId, boolean fail) {
+        if (fail) {
+            failing.add(deviceId);
+        } else {
+            failing.remove(deviceId);
+        }
+    }
+
+    public List<OutboundMessage> sentTo(String deviceId) {
+        Deque<OutboundMessage> messages = sent.get(deviceId);
+        if (messages == null) {
+            return List.of();
+        }
+        synchronized (messages) {
+            return List.copyOf(messages);
+        }
+    }
+
+    @Override
+    public Collection<String> devices(UUID userId) {
+        Set<String> userDevices = devices.get(userId);
+        return userDevices != null ? List.copyOf(userDevices) : List.of();
+    }
+
+    @Override
+    public void send(UUID userId, String deviceId, OutboundMessage message) {
+        if (failing.contains(deviceId)) {
+            throw new IllegalStateException("Device " + deviceId + " is unreachable");
+        }
+        Deque<OutboundMessage> messages = sent.computeIfAbsent(deviceId, id -> new ArrayDeque<>());
+        synchronized (messages) {
+            if (messages.size() >= MAX_RECORDED) {
+                messages.pollFirst();
+            }
+            messages.addLast(message);
+        }
+    }
+}
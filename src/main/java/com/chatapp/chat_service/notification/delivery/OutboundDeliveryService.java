@@ -0,0 +1,263 @@
+package com.chatapp.chat_service.notification.delivery;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Đẩy message tới mọi thiết bị của user qua các DeliveryTransport, không gửi trên thread gọi:
+ * - mỗi (transport, user, thiết bị) 1 queue có giới hạn queue-capacity, gửi tuần tự theo thứ tự vào queue
+ * - message có coalesceKey thay thế message cùng key còn chờ (chỉ gửi trạng thái mới nhất)
+ * - gửi lỗi thì thử lại với backoff lũy thừa có jitter, quá max-attempts thì bỏ message đó
+ * - queue đầy hoặc không gửi được gì trong slow-consumer-ms: coi là slow consumer, bỏ backlog
+ *   (giữ message gộp), gửi RESYNC để client tự tải lại và báo transport
+ */
+@Slf4j
+@Service
+public class OutboundDeliveryService {
+
+    // Số message tối đa gửi trong 1 lượt drain trước khi nhường thread cho queue khác
+    private static final int DRAIN_BATCH = 64;
+
+    private final List<DeliveryTransport> transports;
+    private final ConcurrentMap<DeviceKey, DeviceQueue> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final int queueCapacity;
+    private final long slowConsumerMs;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+
+    private final Counter delivered;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter slowConsumers;
+
+    private record DeviceKey(DeliveryTransport transport, UUID userId, String deviceId) {
+    }
+
+    /**
+     * Key của pending: coalesceKey hoặc số thứ tự; LinkedHashMap giữ thứ tự vào queue
+     */
+    private static final class DeviceQueue {
+        private final LinkedHashMap<Object, OutboundMessage> pending = new LinkedHashMap<>();
+        private long sequence;
+        private int attempts;
+        private boolean scheduled;
+        private boolean closed;
+        private long lastProgress = System.currentTimeMillis();
+    }
+
+    public OutboundDeliveryService(List<DeliveryTransport> transports,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${chat.delivery.pool-size:4}") int poolSize,
+                                   @Value("${chat.delivery.queue-capacity:256}") int queueCapacity,
+                                   @Value("${chat.delivery.slow-consumer-ms:30000}") long slowConsumerMs,
+                                   @Value("${chat.delivery.max-attempts:5}") int maxAttempts,
+                                   @Value("${chat.delivery.retry-base-ms:500}") long retryBaseMs,
+                                   @Value("${chat.delivery.retry-max-ms:30000}") long retryMaxMs) {
+        this.transports = transports;
+        this.scheduler = Executors.newScheduledThreadPool(poolSize, new CustomizableThreadFactory("delivery-"));
+        this.queueCapacity = queueCapacity;
+        this.slowConsumerMs = slowConsumerMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        this.delivered = Counter.builder("chat.delivery.delivered").register(meterRegistry);
+        this.coalesced = Counter.builder("chat.delivery.coalesced").register(meterRegistry);
+        this.dropped = Counter.builder("chat.delivery.dropped").register(meterRegistry);
+        this.failed = Counter.builder("chat.delivery.failed").register(meterRegistry);
+        this.slowConsumers = Counter.builder("chat.delivery.slow_consumers").register(meterRegistry);
+        Gauge.builder("chat.delivery.queues", queues, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    public void deliver(UUID userId, OutboundMessage message) {
+        for (DeliveryTransport transport : transports) {
+            Collection<String> devices;
+            try {
+                devices = transport.devices(userId);
+            } catch (Exception e) {
+                log.warn("Failed to list {} devices of user {}: {}", transport.name(), userId, e.getMessage());
+                continue;
+            }
+            for (String deviceId : devices) {
+                enqueue(new DeviceKey(transport, userId, deviceId), message);
+            }
+        }
+    }
+
+    public void deliver(Collection<UUID> userIds, OutboundMessage message) {
+        userIds.forEach(userId -> deliver(userId, message));
+    }
+
+    /**
+     * User có thiết bị nào đang kết nối trên ít nhất 1 transport không (để bỏ qua việc dựng message vô ích)
+     */
+    public boolean isReachable(UUID userId) {
+        for (DeliveryTransport transport : transports) {
+            try {
+                if (!transport.devices(userId).isEmpty()) {
+                    return true;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to list {} devices of user {}: {}", transport.name(), userId, e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void enqueue(DeviceKey key, OutboundMessage message) {
+        boolean slow = false;
+        while (true) {
+            DeviceQueue queue = queues.computeIfAbsent(key, k -> new DeviceQueue());
+            synchronized (queue) {
+                if (queue.closed) {
+                    continue; // queue vừa được drain xong và gỡ khỏi map
+                }
+                long now = System.currentTimeMillis();
+                String coalesceKey = message.coalesceKey();
+                if (coalesceKey != null && queue.pending.containsKey(coalesceKey)) {
+                    queue.pending.put(coalesceKey, message); // giữ vị trí cũ, thay nội dung
+                    coalesced.increment();
+                } else {
+                    if (queue.pending.size() >= queueCapacity
+                            || (!queue.pending.isEmpty() && now - queue.lastProgress > slowConsumerMs)) {
+                        shed(queue);
+                        slow = true;
+                    }
+                    if (queue.pending.isEmpty()) {
+                        queue.lastProgress = now;
+                    }
+                    queue.pending.put(coalesceKey != null ? coalesceKey : ++queue.sequence, message);
+                }
+                if (!queue.scheduled) {
+                    queue.scheduled = true;
+                    scheduler.execute(() -> drain(key, queue));
+                }
+            }
+            break;
+        }
+        if (slow) {
+            slowConsumers.increment();
+            log.warn("Slow consumer on {} device {} of user {}, backlog dropped", key.transport().name(),
+                    key.deviceId(), key.userId());
+            try {
+                key.transport().onSlowConsumer(key.userId(), key.deviceId());
+            } catch (Exception e) {
+                log.warn("Failed to handle slow consumer on {}: {}", key.transport().name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Bỏ backlog của queue, chỉ giữ message gộp (trạng thái mới nhất) và thêm RESYNC
+     */
+    private void shed(DeviceQueue queue) {
+        int before = queue.pending.size();
+        queue.pending.keySet().removeIf(k -> !(k instanceof String));
+        if (queue.pending.size() >= queueCapacity - 1) {
+            queue.pending.clear();
+        }
+        OutboundMessage resync = OutboundMessage.resync();
+        queue.pending.put(resync.coalesceKey(), resync);
+        dropped.increment(Math.max(0, before - queue.pending.size() + 1));
+        queue.attempts = 0;
+        queue.lastProgress = System.currentTimeMillis();
+    }
+
+    private void drain(DeviceKey key, DeviceQueue queue) {
+        for (int sent = 0; sent < DRAIN_BATCH; sent++) {
+            Object entryKey;
+            OutboundMessage message;
+            synchronized (queue) {
+                if (queue.pending.isEmpty()) {
+                    queue.scheduled = false;
+                    queue.closed = true;
+                    queues.remove(key, queue);
+                    return;
+                }
+                Map.Entry<Object, OutboundMessage> first = queue.pending.entrySet().iterator().next();
+                entryKey = first.getKey();
+                message = first.getValue();
+            }
+
+            try {
+                key.transport().send(key.userId(), key.deviceId(), message);
+            } catch (Exception e) {
+                if (retryLater(key, queue, entryKey, message, e)) {
+                    return;
+                }
+                continue;
+            }
+
+            synchronized (queue) {
+                // Message gộp có thể đã được thay bằng bản mới trong lúc gửi, bản mới vẫn phải gửi
+                if (queue.pending.get(entryKey) == message) {
+                    queue.pending.remove(entryKey);
+                }
+                queue.attempts = 0;
+                queue.lastProgress = System.currentTimeMillis();
+            }
+            delivered.increment();
+        }
+        scheduler.execute(() -> drain(key, queue));
+    }
+
+    /**
+     * @return true nếu đã hẹn lượt drain sau (backoff), false nếu message bị bỏ và drain tiếp
+     */
+    private boolean retryLater(DeviceKey key, DeviceQueue queue, Object entryKey, OutboundMessage message, Exception cause) {
+        boolean deviceGone;
+        try {
+            deviceGone = !key.transport().devices(key.userId()).contains(key.deviceId());
+        } catch (Exception e) {
+            deviceGone = false;
+        }
+        int attempt;
+        synchronized (queue) {
+            if (deviceGone) {
+                dropped.increment(queue.pending.size());
+                queue.pending.clear();
+                return false;
+            }
+            attempt = ++queue.attempts;
+            if (attempt >= maxAttempts) {
+                if (queue.pending.get(entryKey) == message) {
+                    queue.pending.remove(entryKey);
+                }
+                queue.attempts = 0;
+                failed.increment();
+                log.warn("Giving up {} message {} for device {} of user {} after {} attempts: {}", key.transport().name(),
+                        message.type(), key.deviceId(), key.userId(), attempt, cause.getMessage());
+                return false;
+            }
+        }
+        long delay = backoff(attempt);
+        log.debug("Failed to send {} message to device {} of user {}, retrying in {} ms: {}", key.transport().name(),
+                key.deviceId(), key.userId(), delay, cause.getMessage());
+        scheduler.schedule(() -> drain(key, queue), delay, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Backoff lũy thừa với jitter một nửa: [exp/2, exp)
+     */
+    private long backoff(int attempt) {
+        long exp = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt - 1, 20));
+        return exp / 2 + ThreadLocalRandom.current().nextLong(Math.max(1, exp / 2));
+    }
+}
@@ -0,0 +1,27 @@
+package com.chatapp.chat_service.notification.delivery;
+
+import java.time.Instant;
+
+/**
+ * 1 message cần đẩy tới user
+ * @param coalesceKey message cùng key thay thế message cũ còn chờ trong queue (vd. unread count), null = không gộp
+ */
+public record OutboundMessage(String type, Object payload, String coalesceKey, Instant createdAt) {
+
+    public static final String TYPE_RESYNC = "RESYNC";
+
+    public static OutboundMessage of(String type, Object payload) {
+        return new OutboundMessage(type, payload, null, Instant.now());
+    }
+
+    public static OutboundMessage coalescing(String type, String coalesceKey, Object payload) {
+        return new OutboundMessage(type, payload, coalesceKey, Instant.now());
+    }
+
+    /**
+     * Báo client tải lại trạng thái vì một phần message đã bị bỏ
+     */
+    public static OutboundMessage resync() {
+        return new OutboundMessage(TYPE_RESYNC, null, TYPE_RESYNC, Instant.now());
+    }
+}
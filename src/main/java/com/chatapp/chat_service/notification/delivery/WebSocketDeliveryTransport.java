@@ -0,0 +1,54 @@
+package com.chatapp.chat_service.notification.delivery;
+
+import com.chatapp.chat_service.websocket.handler.presence.WebSocketPresenceHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Đẩy qua WebSocket session thô (WebSocketPresenceHandler), mỗi session là 1 thiết bị.
+ * Frame JSON: {type, payload, createdAt}. Slow consumer bị đóng session để client kết nối lại và tải lại trạng thái.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WebSocketDeliveryTransport implements DeliveryTransport {
+
+    private final WebSocketPresenceHandler presenceHandler;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String name() {
+        return "websocket";
+    }
+
+    @Override
+    public Collection<String> devices(UUID userId) {
+        return presenceHandler.getSessionIds(userId);
+    }
+
+    @Override
+    public void send(UUID userId, String deviceId, OutboundMessage message) throws Exception {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", message.type());
+        frame.put("payload", message.payload());
+        frame.put("createdAt", message.createdAt());
+        presenceHandler.sendToSession(userId, deviceId, objectMapper.writeValueAsString(frame));
+    }
+
+    @Override
+    public void onSlowConsumer(UUID userId, String deviceId) {
+        try {
+            presenceHandler.closeSession(userId, deviceId, CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (Exception e) {
+            log.debug("Failed to close slow WebSocket session {} of user {}: {}", deviceId, userId, e.getMessage());
+        }
+    }
+}
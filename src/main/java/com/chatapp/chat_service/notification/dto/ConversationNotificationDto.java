@@ -18,6 +18,6 @@ public class ConversationNotificationDto {
     private String lastMessageContent;
     private String lastMessageSender;
     private java.time.Instant lastMessageTime;
-    private long unreadCount;
+    private Long unreadCount; // từ UnreadCounterService, null nếu không đọc được counter
     private String notificationType; // "NEW_MESSAGE", "MENTION", "REACTION"
 }
@@ -0,0 +1,19 @@
+package com.chatapp.chat_service.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationNotificationSettingDto {
+    private UUID conversationId;
+    private Instant mutedUntil; // null = không tắt tiếng
+    private Boolean mentionsOnly;
+}
@@ -0,0 +1,21 @@
+package com.chatapp.chat_service.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cài đặt notification của user: type bị tắt, chế độ chỉ nhận mention, cài đặt riêng từng conversation
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPreferencesDto {
+    private List<String> disabledTypes;
+    private Boolean mentionsOnly;
+    private List<ConversationNotificationSettingDto> conversations; // chỉ đọc, cập nhật qua từng conversation
+}
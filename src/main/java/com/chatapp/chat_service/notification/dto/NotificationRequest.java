@@ -0,0 +1,28 @@
+package com.chatapp.chat_service.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 1 notification cần tạo trong API tạo hàng loạt (NotificationService.createNotifications)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationRequest {
+    private UUID userId;
+    private String title;
+    private String body;
+    private String type;
+    private Map<String, Object> metadata;
+    // Id/thời điểm định sẵn (pipeline notification-topic), null = sinh mới khi ghi
+    private UUID notificationId;
+    private Instant createdAt;
+}
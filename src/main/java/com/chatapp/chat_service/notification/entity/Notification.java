@@ -13,17 +13,23 @@ import org.springframework.data.cassandra.core.mapping.Table;
 import java.time.Instant;
 import java.util.UUID;
 
-@Table("notifications")
+/**
+ * Notification của user, partition theo (user_id, bucket tháng của notification_id); row hết hạn theo TTL của type
+ */
+@Table("user_notifications")
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Notification {
 
-    @PrimaryKeyColumn(name = "user_id", type = PrimaryKeyType.PARTITIONED)
+    @PrimaryKeyColumn(name = "user_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
     private UUID userId;
 
-    @PrimaryKeyColumn(name = "notification_id", type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+    @PrimaryKeyColumn(name = "bucket", ordinal = 1, type = PrimaryKeyType.PARTITIONED)
+    private String bucket; // yyyy-MM (UTC), NotificationStore.bucketOf(notificationId)
+
+    @PrimaryKeyColumn(name = "notification_id", ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
     private UUID notificationId;
 
     @Column("title")
@@ -0,0 +1,45 @@
+package com.chatapp.chat_service.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * 1 dòng cài đặt notification của user: conversation_id = USER_WIDE là cài đặt chung,
+ * còn lại là cài đặt riêng của conversation
+ */
+@Table("user_notification_preferences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPreference {
+
+    public static final UUID USER_WIDE = new UUID(0L, 0L);
+
+    @PrimaryKeyColumn(name = "user_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private UUID userId;
+
+    @PrimaryKeyColumn(name = "conversation_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+    private UUID conversationId;
+
+    @Column("disabled_types")
+    private Integer disabledTypes; // bitmask theo NotificationPreferences.typeBit, chỉ dùng ở dòng chung
+
+    @Column("mentions_only")
+    private Boolean mentionsOnly;
+
+    @Column("muted_until")
+    private Instant mutedUntil; // null = không tắt tiếng
+
+    @Column("updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,31 @@
+package com.chatapp.chat_service.notification.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Watermark notification của user thay cho việc ghi/xóa cả dải row
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("user_notification_state")
+public class NotificationState {
+
+    @PrimaryKey("user_id")
+    private UUID userId;
+
+    @Column("cleared_before")
+    private UUID clearedBefore; // notification tới TIMEUUID này bị ẩn (xóa tất cả)
+
+    @Column("read_before")
+    private UUID readBefore; // notification tới TIMEUUID này được xem là đã đọc
+}
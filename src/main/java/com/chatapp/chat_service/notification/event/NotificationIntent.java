@@ -0,0 +1,57 @@
+package com.chatapp.chat_service.notification.event;
+
+import com.chatapp.chat_service.notification.dto.NotificationRequest;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Yêu cầu tạo notification gửi qua notification-topic: 1 nội dung cho nhiều recipient,
+ * NotificationIntentConsumer mới ghi row và gửi realtime.
+ * notification_id được suy ra từ intentId + recipient nên xử lý lại cùng intent ghi đè đúng row cũ.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationIntent {
+    private UUID intentId;
+    private List<UUID> recipientIds;
+    private String title;
+    private String body;
+    private String type;
+    private Map<String, Object> metadata;
+    private Instant createdAt;
+
+    public List<NotificationRequest> toRequests() {
+        return recipientIds.stream()
+                .map(recipientId -> NotificationRequest.builder()
+                        .userId(recipientId)
+                        .title(title)
+                        .body(body)
+                        .type(type)
+                        .metadata(metadata)
+                        .notificationId(notificationIdFor(recipientId))
+                        .createdAt(createdAt)
+                        .build())
+                .toList();
+    }
+
+    /**
+     * TIMEUUID theo createdAt, 64 bit thấp lấy từ hash(intentId, recipient)
+     */
+    public UUID notificationIdFor(UUID recipientId) {
+        long hash = UUID.nameUUIDFromBytes((intentId + ":" + recipientId).getBytes(StandardCharsets.UTF_8))
+                .getLeastSignificantBits();
+        return new UUID(Uuids.startOf(createdAt.toEpochMilli()).getMostSignificantBits(),
+                (hash & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+}
@@ -0,0 +1,21 @@
+package com.chatapp.chat_service.notification.repository;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.notification.entity.NotificationBucket;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NotificationBucketRepository extends CassandraRepository<NotificationBucket, MapId> {
+
+    /**
+     * Bucket trong khoảng [oldest, newest], mới nhất trước
+     */
+    @Query("SELECT * FROM user_notification_buckets WHERE user_id = ?0 AND bucket <= ?1 AND bucket >= ?2 LIMIT ?3")
+    List<NotificationBucket> findBucketsBetween(UUID userId, String newest, String oldest, int limit);
+}
@@ -0,0 +1,42 @@
+package com.chatapp.chat_service.notification.repository;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.notification.entity.NotificationPreference;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NotificationPreferenceRepository extends CassandraRepository<NotificationPreference, MapId> {
+
+    @Query("SELECT * FROM user_notification_preferences WHERE user_id = ?0")
+    List<NotificationPreference> findByUserId(UUID userId);
+
+    /**
+     * Cài đặt của nhiều user trong 1 query (fan-out), gọi theo từng lô nhỏ
+     */
+    @Query("SELECT * FROM user_notification_preferences WHERE user_id IN ?0")
+    List<NotificationPreference> findByUserIds(Collection<UUID> userIds);
+
+    @Query("UPDATE user_notification_preferences SET disabled_types = ?2, mentions_only = ?3, updated_at = ?4 " +
+           "WHERE user_id = ?0 AND conversation_id = ?1")
+    void updateUserWide(UUID userId, UUID conversationId, int disabledTypes, boolean mentionsOnly, Instant updatedAt);
+
+    /**
+     * TTL chỉ gắn vào cell muted_until (hết hạn cùng lúc với mute), ttl = 0 = không hết hạn
+     */
+    @Query("UPDATE user_notification_preferences USING TTL ?0 SET muted_until = ?3 WHERE user_id = ?1 AND conversation_id = ?2")
+    void updateMutedUntil(int ttl, UUID userId, UUID conversationId, Instant mutedUntil);
+
+    @Query("UPDATE user_notification_preferences SET mentions_only = ?2, updated_at = ?3 WHERE user_id = ?0 AND conversation_id = ?1")
+    void updateMentionsOnly(UUID userId, UUID conversationId, boolean mentionsOnly, Instant updatedAt);
+
+    @Query("DELETE FROM user_notification_preferences WHERE user_id = ?0 AND conversation_id = ?1")
+    void deleteByKey(UUID userId, UUID conversationId);
+}
@@ -1,110 +1,45 @@
 package com.chatapp.chat_service.notification.repository;
 
+import org.springframework.data.cassandra.core.mapping.MapId;
 import org.springframework.data.cassandra.repository.CassandraRepository;
 import org.springframework.data.cassandra.repository.Query;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Repository;
 
 import com.chatapp.chat_service.notification.entity.Notification;
 
-import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Truy vấn luôn nằm trong 1 partition (user_id, bucket); đi qua nhiều bucket do NotificationStore đảm nhiệm
+ */
 @Repository
-public interface NotificationRepository extends CassandraRepository<Notification, UUID> {
+public interface NotificationRepository extends CassandraRepository<Notification, MapId> {
 
     /**
-     * Lấy notifications của user theo thời gian (mới nhất đầu tiên)
+     * Notification mới nhất trong bucket
      */
-    @Query("SELECT * FROM notifications WHERE user_id = ?0")
-    Slice<Notification> findByUserId(UUID userId, Pageable pageable);
+    @Query("SELECT * FROM user_notifications WHERE user_id = ?0 AND bucket = ?1 LIMIT ?2")
+    List<Notification> findLatestInBucket(UUID userId, String bucket, int limit);
 
     /**
-     * Lấy notifications chưa đọc của user
+     * Notification cũ hơn cursor trong bucket
      */
-    @Query("SELECT * FROM notifications WHERE user_id = ?0 AND is_read = false ALLOW FILTERING")
-    List<Notification> findUnreadByUserId(UUID userId);
+    @Query("SELECT * FROM user_notifications WHERE user_id = ?0 AND bucket = ?1 AND notification_id < ?2 LIMIT ?3")
+    List<Notification> findInBucketBefore(UUID userId, String bucket, UUID before, int limit);
 
     /**
-     * Đếm notifications chưa đọc
+     * Lấy nhiều notification trong bucket theo id
      */
-    @Query("SELECT COUNT(*) FROM notifications WHERE user_id = ?0 AND is_read = false ALLOW FILTERING")
-    long countUnreadByUserId(UUID userId);
+    @Query("SELECT * FROM user_notifications WHERE user_id = ?0 AND bucket = ?1 AND notification_id IN ?2")
+    List<Notification> findInBucketByIds(UUID userId, String bucket, List<UUID> notificationIds);
 
     /**
-     * Lấy notifications theo loại
+     * Đánh dấu đã đọc; TTL phải bằng thời gian sống còn lại của row để cell is_read không sống lâu hơn row
      */
-    @Query("SELECT * FROM notifications WHERE user_id = ?0 AND type = ?1 ALLOW FILTERING")
-    Slice<Notification> findByUserIdAndType(UUID userId, String type, Pageable pageable);
+    @Query("UPDATE user_notifications USING TTL ?0 SET is_read = true WHERE user_id = ?1 AND bucket = ?2 AND notification_id = ?3")
+    void markAsRead(int ttlSeconds, UUID userId, String bucket, UUID notificationId);
 
-
-
-    /**
-     * Đánh dấu notification đã đọc
-     */
-    @Query("UPDATE notifications SET is_read = true WHERE user_id = ?0 AND notification_id = ?1")
-    void markAsRead(UUID userId, UUID notificationId);
-
-    /**
-     * Đánh dấu tất cả notifications đã đọc
-     */
-    @Query("UPDATE notifications SET is_read = true WHERE user_id = ?0")
-    void markAllAsRead(UUID userId);
-
-    /**
-     * Xóa notification theo user và notification ID
-     */
-    @Query("DELETE FROM notifications WHERE user_id = ?0 AND notification_id = ?1")
-    void deleteByUserIdAndNotificationId(UUID userId, UUID notificationId);
-
-    /**
-     * Xóa tất cả notifications của user
-     */
-    @Query("DELETE FROM notifications WHERE user_id = ?0")
-    void deleteByUserId(UUID userId);
-
-    /**
-     * Đếm tổng số notifications của user
-     */
-    @Query("SELECT COUNT(*) FROM notifications WHERE user_id = ?0")
-    long countByUserId(UUID userId);
-
-    /**
-     * Đếm notifications theo user và loại
-     */
-    @Query("SELECT COUNT(*) FROM notifications WHERE user_id = ?0 AND type = ?1")
-    long countByUserIdAndType(UUID userId, String type);
-
-    /**
-     * Đếm notifications của user được tạo ra sau một ngày nhất định
-     */
-    @Query("SELECT COUNT(*) FROM notifications WHERE user_id = ?0 AND created_at > ?1")
-    long countByUserIdAndCreatedAtAfter(UUID userId, Instant createdAt);
-
-    /**
-     * Tìm notifications theo user và khoảng thời gian
-     */
-    @Query("SELECT * FROM notifications WHERE user_id = ?0 AND created_at >= ?1 AND created_at <= ?2 ORDER BY created_at DESC")
-    List<Notification> findByUserIdAndCreatedAtBetween(UUID userId, Instant startDate, Instant endDate);
-
-    /**
-     * Tìm kiếm notifications theo nội dung
-     */
-    @Query("SELECT * FROM notifications WHERE user_id = ?0 AND (title LIKE ?1 OR body LIKE ?1) ORDER BY created_at DESC LIMIT ?2 ALLOW FILTERING")
-    List<Notification> searchByUserIdAndContent(UUID userId, String searchTerm, int limit);
-
-    /**
-     * Lấy notification mới nhất cho user
-     */
-    @Query("SELECT * FROM notifications WHERE user_id = ?0 ORDER BY created_at DESC LIMIT 1")
-    Optional<Notification> findLatestByUserId(UUID userId);
-
-    /**
-     * Đánh dấu nhiều notifications là đã đọc
-     */
-    @Query("UPDATE notifications SET is_read = true WHERE user_id = ?0 AND notification_id IN ?1")
-    void bulkMarkAsRead(UUID userId, List<UUID> notificationIds);
-}
\ No newline at end of file
+    @Query("DELETE FROM user_notifications WHERE user_id = ?0 AND bucket = ?1 AND notification_id = ?2")
+    void deleteByKey(UUID userId, String bucket, UUID notificationId);
+}
@@ -0,0 +1,19 @@
+package com.chatapp.chat_service.notification.repository;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.chatapp.chat_service.notification.entity.NotificationState;
+
+import java.util.UUID;
+
+@Repository
+public interface NotificationStateRepository extends CassandraRepository<NotificationState, UUID> {
+
+    @Query("UPDATE user_notification_state SET cleared_before = ?1 WHERE user_id = ?0")
+    void updateClearedBefore(UUID userId, UUID clearedBefore);
+
+    @Query("UPDATE user_notification_state SET read_before = ?1 WHERE user_id = ?0")
+    void updateReadBefore(UUID userId, UUID readBefore);
+}
@@ -0,0 +1,125 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.auth.dto.UserDTO;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.conversation.service.ConversationBulkLoader;
+import com.chatapp.chat_service.conversation.service.ConversationMemberSetCache;
+import com.chatapp.chat_service.conversation.service.MemberSetSnapshot;
+import com.chatapp.chat_service.message.dto.MessageResponseDto;
+import com.chatapp.chat_service.websocket.service.ConversationViewerService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Fan-out notification tin nhắn/mention tới member của conversation, chạy sau khi message đã lưu:
+ * - bỏ người gửi và member đang mở conversation (đã nhận message qua /topic/conversation/{id})
+ * - chia member thành chunk, mỗi chunk là 1 task ghi theo lô (NotificationService.createMessageNotifications)
+ * - task chạy trên notificationFanoutExecutor có giới hạn; khi queue đầy task chạy trên thread gọi (consumer)
+ *   nên tốc độ tiêu thụ tự giảm theo tốc độ ghi
+ * - conversation fan-out-on-read chỉ ghi notification cho member được mention, member còn lại xem unread khi mở app
+ */
+@Slf4j
+@Service
+public class MessageNotificationFanout {
+
+    private final ConversationMemberSetCache memberSetCache;
+    private final ConversationBulkLoader conversationBulkLoader;
+    private final ConversationViewerService viewerService;
+    private final NotificationService notificationService;
+    private final Executor executor;
+    private final int chunkSize;
+
+    public MessageNotificationFanout(ConversationMemberSetCache memberSetCache,
+                                     ConversationBulkLoader conversationBulkLoader,
+                                     ConversationViewerService viewerService,
+                                     NotificationService notificationService,
+                                     @Qualifier("notificationFanoutExecutor") Executor executor,
+                                     @Value("${chat.notification.fanout.chunk-size:500}") int chunkSize) {
+        this.memberSetCache = memberSetCache;
+        this.conversationBulkLoader = conversationBulkLoader;
+        this.viewerService = viewerService;
+        this.notificationService = notificationService;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    public void onMessageSaved(MessageResponseDto message) {
+        executor.execute(() -> fanOut(message));
+    }
+
+    private void fanOut(MessageResponseDto message) {
+        try {
+            UUID senderId = message.getSender() != null ? message.getSender().getUser_id() : null;
+            Set<UUID> mentioned = mentionedIds(message);
+            boolean fanOutOnRead = conversationBulkLoader.load(message.getConversationId())
+                    .map(Conversation::usesFanOutOnRead)
+                    .orElse(false);
+            if (fanOutOnRead && mentioned.isEmpty()) {
+                return;
+            }
+
+            Set<UUID> viewers = viewerService.getViewers(message.getConversationId());
+            MemberSetSnapshot members = memberSetCache.get(message.getConversationId());
+            List<UUID> recipients = (fanOutOnRead ? new ArrayList<>(mentioned) : members.memberIds()).stream()
+                    .filter(members::contains)
+                    .filter(memberId -> !memberId.equals(senderId) && !viewers.contains(memberId))
+                    .toList();
+            if (recipients.isEmpty()) {
+                return;
+            }
+
+            for (int from = 0; from < recipients.size(); from += chunkSize) {
+                List<UUID> chunk = recipients.subList(from, Math.min(from + chunkSize, recipients.size()));
+                executor.execute(() -> writeChunk(message, senderId, chunk, mentioned));
+            }
+            log.debug("Scheduled message notifications for {} members ({} viewing) of conversation {}",
+                    recipients.size(), viewers.size(), message.getConversationId());
+        } catch (Exception e) {
+            log.error("Notification fan-out failed for message {}: {}", message.getMessageId(), e.getMessage(), e);
+        }
+    }
+
+    private void writeChunk(MessageResponseDto message, UUID senderId, List<UUID> chunk, Set<UUID> mentioned) {
+        try {
+            notificationService.createMessageNotifications(chunk, mentioned, message.getConversationId(),
+                    message.getMessageId(), senderId, senderName(message.getSender()), preview(message));
+        } catch (Exception e) {
+            log.error("Failed to write notification chunk ({} members) for message {}: {}",
+                    chunk.size(), message.getMessageId(), e.getMessage());
+        }
+    }
+
+    private static Set<UUID> mentionedIds(MessageResponseDto message) {
+        Set<UUID> mentioned = new HashSet<>();
+        if (message.getMentionedUsers() != null) {
+            for (String userId : message.getMentionedUsers()) {
+                try {
+                    mentioned.add(UUID.fromString(userId));
+                } catch (IllegalArgumentException e) {
+                    log.debug("Ignoring invalid mentioned user id {}", userId);
+                }
+            }
+        }
+        return mentioned;
+    }
+
+    private static String senderName(UserDTO sender) {
+        if (sender == null) {
+            return "Unknown User";
+        }
+        return sender.getDisplay_name() != null ? sender.getDisplay_name() : sender.getUsername();
+    }
+
+    private static String preview(MessageResponseDto message) {
+        if (message.getContent() != null && !message.getContent().isBlank()) {
+            return message.getContent();
+        }
+        return "[" + (message.getMessageType() != null ? message.getMessageType() : "FILE") + "]";
+    }
+}
@@ -0,0 +1,144 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ghi 1 lô notification của nhiều recipient. Mỗi recipient là 1 partition khác nhau nên không gom cả lô vào
+ * 1 BATCH (sẽ dồn tải lên coordinator); notification được nhóm theo partition (recipient, bucket tháng):
+ * nhóm 1 row là 1 INSERT, nhóm nhiều row là 1 UNLOGGED BATCH trong cùng partition (tối đa max-partition-batch row).
+ * Mỗi row ghi kèm TTL theo type (NotificationRetention); mỗi (recipient, bucket) ghi thêm 1 row user_notification_buckets.
+ * Các statement chạy bất đồng bộ song song qua prepared statement, giới hạn bởi Semaphore, và chờ cả lô hoàn tất.
+ */
+@Slf4j
+@Component
+public class NotificationBatchWriter {
+
+    private static final String INSERT_NOTIFICATION =
+            "INSERT INTO user_notifications (user_id, bucket, notification_id, title, body, type, metadata, is_read, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) USING TTL ?";
+    private static final String INSERT_BUCKET =
+            "INSERT INTO user_notification_buckets (user_id, bucket) VALUES (?, ?) USING TTL ?";
+    // Bucket sống lâu hơn row cuối cùng trong nó (row tạo cuối tháng với thời gian giữ dài nhất)
+    private static final long BUCKET_TTL_MARGIN_SECONDS = 31L * 24 * 3600;
+
+    private final CqlSession session;
+    private final NotificationRetention retention;
+    private final Semaphore inFlight;
+    private final long timeoutMillis;
+    private final int maxPartitionBatch;
+    private volatile PreparedStatement insertStatement;
+    private volatile PreparedStatement bucketStatement;
+
+    public NotificationBatchWriter(CqlSession session,
+                                   NotificationRetention retention,
+                                   @Value("${chat.notification.batch.max-in-flight:64}") int maxInFlight,
+                                   @Value("${chat.notification.batch.timeout-ms:5000}") long timeoutMillis,
+                                   @Value("${chat.notification.batch.max-partition-batch:50}") int maxPartitionBatch) {
+        this.session = session;
+        this.retention = retention;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.timeoutMillis = timeoutMillis;
+        this.maxPartitionBatch = Math.max(1, maxPartitionBatch);
+    }
+
+    public void insertAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        List<Statement<?>> statements = statementsByPartition(notifications);
+        List<CompletableFuture<?>> futures = new ArrayList<>(statements.size());
+        try {
+            for (Statement<?> statement : statements) {
+                if (!inFlight.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new IllegalStateException("Timed out waiting for a notification write slot");
+                }
+                futures.add(session.executeAsync(statement)
+                        .toCompletableFuture()
+                        .whenComplete((ignored, error) -> inFlight.release()));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing notifications", e);
+        } catch (Exception e) {
+            log.error("Failed to write {} notifications: {}", notifications.size(), e.getMessage());
+            throw new IllegalStateException("Failed to write notifications", e);
+        }
+    }
+
+    private List<Statement<?>> statementsByPartition(List<Notification> notifications) {
+        PreparedStatement insert = prepared();
+        Map<PartitionKey, List<BoundStatement>> byPartition = new LinkedHashMap<>();
+        for (Notification notification : notifications) {
+            int ttl = retention.remainingTtlSeconds(notification);
+            if (ttl <= 0) {
+                continue;
+            }
+            notification.setBucket(NotificationStore.bucketOf(notification.getNotificationId()));
+            PartitionKey partition = new PartitionKey(notification.getUserId(), notification.getBucket());
+            byPartition.computeIfAbsent(partition, key -> new ArrayList<>()).add(insert.bind(
+                    notification.getUserId(),
+                    notification.getBucket(),
+                    notification.getNotificationId(),
+                    notification.getTitle(),
+                    notification.getBody(),
+                    notification.getType(),
+                    notification.getMetadata(),
+                    notification.getIsRead(),
+                    notification.getCreatedAt(),
+                    ttl));
+        }
+
+        List<Statement<?>> statements = new ArrayList<>();
+        int bucketTtl = (int) (retention.maxRetention().toSeconds() + BUCKET_TTL_MARGIN_SECONDS);
+        for (PartitionKey partition : byPartition.keySet()) {
+            statements.add(bucketStatement().bind(partition.userId(), partition.bucket(), bucketTtl));
+        }
+        for (List<BoundStatement> inserts : byPartition.values()) {
+            for (int from = 0; from < inserts.size(); from += maxPartitionBatch) {
+                List<BoundStatement> chunk = inserts.subList(from, Math.min(from + maxPartitionBatch, inserts.size()));
+                statements.add(chunk.size() == 1
+                        ? chunk.get(0)
+                        : BatchStatement.newInstance(DefaultBatchType.UNLOGGED).addAll(chunk));
+            }
+        }
+        return statements;
+    }
+
+    private PreparedStatement prepared() {
+        if (insertStatement == null) {
+            insertStatement = session.prepare(INSERT_NOTIFICATION);
+        }
+        return insertStatement;
+    }
+
+    private PreparedStatement bucketStatement() {
+        if (bucketStatement == null) {
+            bucketStatement = session.prepare(INSERT_BUCKET);
+        }
+        return bucketStatement;
+    }
+
+    private record PartitionKey(UUID userId, String bucket) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Chép notification từ bảng cũ notifications sang user_notifications (bucket tháng + TTL theo type).
+ * Row đã quá thời gian giữ được bỏ qua. Id không phải TIMEUUID được đổi sang TIMEUUID theo created_at
+ * (giữ 64 bit thấp của id cũ nên không trùng) vì bucket được suy ra từ id.
+ * Ghi bằng INSERT nên chạy lại nhiều lần vẫn an toàn. Bật bằng chat.notification.bucket-backfill-on-startup=true;
+ * counter được sửa dần bởi job đối soát, search index được cập nhật theo từng lô.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.notification.bucket-backfill-on-startup", havingValue = "true")
+public class NotificationBucketBackfillJob implements CommandLineRunner {
+
+    private static final String SELECT_LEGACY =
+            "SELECT user_id, notification_id, title, body, type, metadata, is_read, created_at FROM notifications";
+
+    private final CassandraOperations cassandraOperations;
+    private final NotificationBatchWriter batchWriter;
+    private final NotificationSearchService searchService;
+    private final NotificationRetention retention;
+
+    @Value("${chat.notification.bucket-backfill-batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(String... args) {
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.error("Notification bucket backfill failed", e);
+        }
+    }
+
+    public void backfill() {
+        log.info("Starting notification bucket backfill...");
+        List<Notification> batch = new ArrayList<>(batchSize);
+        long[] counts = new long[2]; // scanned, copied
+
+        // Driver tự phân trang khi duyệt kết quả
+        cassandraOperations.getCqlOperations().query(SELECT_LEGACY, row -> {
+            counts[0]++;
+            Instant createdAt = row.getInstant("created_at");
+            UUID notificationId = row.getUuid("notification_id");
+            if (createdAt == null || notificationId == null) {
+                return;
+            }
+            Notification notification = Notification.builder()
+                    .userId(row.getUuid("user_id"))
+                    .notificationId(notificationId.version() == 1 ? notificationId : toTimeUuid(notificationId, createdAt))
+                    .title(row.getString("title"))
+                    .body(row.getString("body"))
+                    .type(row.getString("type"))
+                    .metadata(row.getString("metadata"))
+                    .isRead(row.getBoolean("is_read"))
+                    .createdAt(createdAt)
+                    .build();
+            if (retention.remainingTtlSeconds(notification) <= 0) {
+                return;
+            }
+            batch.add(notification);
+            if (batch.size() >= batchSize) {
+                counts[1] += flush(batch);
+            }
+        });
+        counts[1] += flush(batch);
+
+        log.info("Notification bucket backfill completed: scanned {} rows, copied {}", counts[0], counts[1]);
+    }
+
+    private int flush(List<Notification> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Notification> notifications = List.copyOf(batch);
+        batch.clear();
+        batchWriter.insertAll(notifications);
+        searchService.onCreated(notifications);
+        return notifications.size();
+    }
+
+    private static UUID toTimeUuid(UUID legacyId, Instant createdAt) {
+        return new UUID(Uuids.startOf(createdAt.toEpochMilli()).getMostSignificantBits(), legacyId.getLeastSignificantBits());
+    }
+}
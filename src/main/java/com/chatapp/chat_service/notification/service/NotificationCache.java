@@ -0,0 +1,116 @@
+package com.chatapp.chat_service.notification.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cache notification theo user với key có generation:
+ * - notif_gen:{userId}                               generation hiện tại của user
+ * - notif_cache:{userId}:{gen}:{cache}:{variant}     entry (trang, theo type, danh sách chưa đọc...)
+ * Invalidate = INCR generation: entry cũ không còn được đọc và tự hết hạn theo TTL, không cần KEYS/SCAN.
+ * Metrics: chat.notification.cache.requests{cache, result=hit|miss} và chat.notification.cache.invalidations.
+ */
+@Slf4j
+@Component
+public class NotificationCache {
+
+    private static final String GENERATION_KEY_PREFIX = "notif_gen:";
+    private static final String ENTRY_KEY_PREFIX = "notif_cache:";
+    // Phải dài hơn TTL lớn nhất của entry để generation không quay về giá trị mà entry cũ còn sống
+    private static final Duration GENERATION_TTL = Duration.ofDays(7);
+
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Counter invalidations;
+
+    public NotificationCache(RedisTemplate<String, String> stringRedisTemplate,
+                             RedisTemplate<String, Object> redisTemplate,
+                             MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.invalidations = Counter.builder("chat.notification.cache.invalidations").register(meterRegistry);
+    }
+
+    /**
+     * Kết quả lookup; put() phải dùng lại slot này để ghi vào đúng generation đã đọc trước khi load DB
+     * (nếu có invalidate trong lúc load thì entry được ghi vào generation cũ và không bao giờ được đọc)
+     * @param value null nếu miss
+     */
+    public record Slot(String key, Object value) {
+    }
+
+    public Slot lookup(String cache, UUID userId, String variant) {
+        try {
+            String generation = stringRedisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + userId);
+            String key = ENTRY_KEY_PREFIX + userId + ":" + (generation != null ? generation : "0") + ":" + cache
+                    + (variant != null ? ":" + variant : "");
+            Object value = redisTemplate.opsForValue().get(key);
+            requests(cache, value != null ? "hit" : "miss").increment();
+            return new Slot(key, value);
+        } catch (Exception e) {
+            log.warn("Failed to read notification cache {} of user {}: {}", cache, userId, e.getMessage());
+            requests(cache, "miss").increment();
+            return new Slot(null, null);
+        }
+    }
+
+    public Slot lookup(String cache, UUID userId) {
+        return lookup(cache, userId, null);
+    }
+
+    public void put(Slot slot, Object value, Duration ttl) {
+        if (slot.key() == null || value == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(slot.key(), value, ttl);
+        } catch (Exception e) {
+            log.warn("Failed to write notification cache {}: {}", slot.key(), e.getMessage());
+        }
+    }
+
+    public void invalidate(UUID userId) {
+        invalidateAll(List.of(userId));
+    }
+
+    /**
+     * INCR generation của nhiều user trong 1 pipeline
+     */
+    public void invalidateAll(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Collection<UUID> distinct = new LinkedHashSet<>(userIds);
+        try {
+            stringRedisTemplate.executePipelined((RedisConnection connection) -> {
+                for (UUID userId : distinct) {
+                    byte[] key = (GENERATION_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8);
+                    connection.stringCommands().incr(key);
+                    connection.keyCommands().expire(key, GENERATION_TTL.toSeconds());
+                }
+                return null;
+            });
+            invalidations.increment(distinct.size());
+        } catch (Exception e) {
+            log.warn("Failed to invalidate notification caches of {} users: {}", distinct.size(), e.getMessage());
+        }
+    }
+
+    private Counter requests(String cache, String result) {
+        return meterRegistry.counter("chat.notification.cache.requests", "cache", cache, "result", result);
+    }
+}
@@ -0,0 +1,408 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Gộp notification tin nhắn theo (recipient, conversation, type) trong 1 cửa sổ trượt:
+ * - notif_agg:{userId}:{conversationId}:{type}   hash aggregate đang mở (count, người gửi, message mới nhất, notification id)
+ * - notif_agg:due                                 zset aggregate theo thời điểm đóng cửa sổ
+ * - notif_agg:user:{userId}                       set aggregate đang mở của user
+ * Mỗi message chỉ cập nhật aggregate tại chỗ và gửi 1 frame /queue/notifications/aggregate (cùng notificationId);
+ * row notification chỉ được ghi khi cửa sổ đóng (idle-window-ms không có message mới hoặc quá max-window-ms)
+ * hoặc khi user đọc (danh sách notification, hoặc đọc conversation - khi đó ghi ở trạng thái đã đọc).
+ * Ghi Cassandra lỗi thì aggregate đã lấy ra được đưa lại vào Redis dưới key notif_agg:{userId}:{conversationId}:{type}:{nid}
+ * và thử lại sau retry-delay-ms (cùng notificationId nên ghi lại không tạo bản sao).
+ */
+@Slf4j
+@Component
+public class NotificationCollapser {
+
+    private static final String KEY_PREFIX = "notif_agg:";
+    private static final String DUE_KEY = "notif_agg:due";
+    private static final String USER_KEY_PREFIX = "notif_agg:user:";
+    private static final int MAX_LISTED_SENDERS = 3;
+
+    // KEYS[1] = aggregate, KEYS[2] = due zset, KEYS[3] = set của user
+    // ARGV = now (ms), idle (ms), max (ms), notificationId mới, messageId, tên người gửi, body, TTL (s), userId, conversationId, type
+    // Trả về {count, notificationId, first (ms), danh sách người gửi (\n), more}
+    private static final byte[] ADD = (
+            "local first = redis.call('HGET', KEYS[1], 'first') " +
+            "if not first then " +
+            "  first = ARGV[1] " +
+            "  redis.call('HSET', KEYS[1], 'first', first, 'nid', ARGV[4], 'senders', '', 'more', '0', " +
+            "    'uid', ARGV[9], 'cid', ARGV[10], 'type', ARGV[11]) " +
+            "  redis.call('SADD', KEYS[3], KEYS[1]) " +
+            "  redis.call('EXPIRE', KEYS[3], ARGV[8]) " +
+            "end " +
+            "local count = redis.call('HINCRBY', KEYS[1], 'count', 1) " +
+            "local senders = redis.call('HGET', KEYS[1], 'senders') " +
+            "if ARGV[6] ~= '' and not string.find('\\n' .. senders .. '\\n', '\\n' .. ARGV[6] .. '\\n', 1, true) then " +
+            "  local n = 0 " +
+            "  for _ in string.gmatch(senders, '[^\\n]+') do n = n + 1 end " +
+            "  if n < " + MAX_LISTED_SENDERS + " then " +
+            "    if senders == '' then senders = ARGV[6] else senders = senders .. '\\n' .. ARGV[6] end " +
+            "    redis.call('HSET', KEYS[1], 'senders', senders) " +
+            "  else redis.call('HSET', KEYS[1], 'more', '1') end " +
+            "end " +
+            "redis.call('HSET', KEYS[1], 'mid', ARGV[5], 'sender', ARGV[6], 'body', ARGV[7]) " +
+            "local close = math.min(tonumber(ARGV[1]) + tonumber(ARGV[2]), tonumber(first) + tonumber(ARGV[3])) " +
+            "redis.call('ZADD', KEYS[2], close, KEYS[1]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[8]) " +
+            "return {tostring(count), redis.call('HGET', KEYS[1], 'nid'), first, senders, redis.call('HGET', KEYS[1], 'more')}"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    // KEYS[1] = due zset, KEYS[2] = aggregate, KEYS[3] = set của user
+    // ZREM làm khóa: mỗi aggregate chỉ được 1 node ghi; trả về HGETALL hoặc rỗng nếu đã được xử lý
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> DRAIN = new DefaultRedisScript<>(
+            "redis.call('SREM', KEYS[3], KEYS[2]) " +
+            "if redis.call('ZREM', KEYS[1], KEYS[2]) == 0 then return {} end " +
+            "local values = redis.call('HGETALL', KEYS[2]) " +
+            "redis.call('DEL', KEYS[2]) " +
+            "return values",
+            List.class);
+
+    // Đưa aggregate đã lấy ra trở lại khi ghi lỗi
+    // KEYS[1] = key retry, KEYS[2] = due zset, KEYS[3] = set của user; ARGV = thời điểm thử lại (ms), TTL (s), field/value...
+    private static final DefaultRedisScript<Long> RESTORE = new DefaultRedisScript<>(
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[1], KEYS[1]) " +
+            "redis.call('SADD', KEYS[3], KEYS[1]) " +
+            "redis.call('EXPIRE', KEYS[3], ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    private record Drained(Map<String, String> fields, Notification notification) {
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final NotificationBatchWriter batchWriter;
+    private final NotificationCounterService counterService;
+    private final NotificationCache notificationCache;
+    private final NotificationSearchService searchService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PushNotificationService pushNotificationService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long idleWindowMillis;
+    private final long maxWindowMillis;
+    private final int flushBatchSize;
+    private final long retryDelayMillis;
+    private final Counter collapsedMessages;
+    private final Counter persistedAggregates;
+    private final Counter restoredAggregates;
+
+    public NotificationCollapser(RedisTemplate<String, String> redisTemplate,
+                                 NotificationBatchWriter batchWriter,
+                                 NotificationCounterService counterService,
+                                 NotificationCache notificationCache,
+                                 NotificationSearchService searchService,
+                                 SimpMessagingTemplate messagingTemplate,
+                                 PushNotificationService pushNotificationService,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${chat.notification.collapse.enabled:true}") boolean enabled,
+                                 @Value("${chat.notification.collapse.idle-window-ms:15000}") long idleWindowMillis,
+                                 @Value("${chat.notification.collapse.max-window-ms:60000}") long maxWindowMillis,
+                                 @Value("${chat.notification.collapse.flush-batch-size:500}") int flushBatchSize,
+                                 @Value("${chat.notification.collapse.retry-delay-ms:10000}") long retryDelayMillis) {
+        this.redisTemplate = redisTemplate;
+        this.batchWriter = batchWriter;
+        this.counterService = counterService;
+        this.notificationCache = notificationCache;
+        this.searchService = searchService;
+        this.messagingTemplate = messagingTemplate;
+        this.pushNotificationService = pushNotificationService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.idleWindowMillis = idleWindowMillis;
+        this.maxWindowMillis = Math.max(idleWindowMillis, maxWindowMillis);
+        this.flushBatchSize = flushBatchSize;
+        this.retryDelayMillis = retryDelayMillis;
+        this.collapsedMessages = Counter.builder("chat.notification.collapse.messages").register(meterRegistry);
+        this.persistedAggregates = Counter.builder("chat.notification.collapse.persisted").register(meterRegistry);
+        this.restoredAggregates = Counter.builder("chat.notification.collapse.restored").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cộng 1 message vào aggregate của từng recipient (1 pipeline) và gửi trạng thái aggregate mới cho họ
+     * @return false nếu Redis lỗi (caller tự ghi notification như bình thường)
+     */
+    public boolean add(Collection<UUID> recipientIds, UUID conversationId, UUID messageId, String senderName,
+                       String body, String type) {
+        if (recipientIds.isEmpty()) {
+            return true;
+        }
+        List<UUID> recipients = new ArrayList<>(recipientIds);
+        long now = System.currentTimeMillis();
+        String ttl = String.valueOf(maxWindowMillis / 1000 + 3600);
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (UUID recipientId : recipients) {
+                    String key = aggregateKey(recipientId, conversationId, type);
+                    connection.scriptingCommands().eval(ADD, ReturnType.MULTI, 3,
+                            bytes(key), bytes(DUE_KEY), bytes(USER_KEY_PREFIX + recipientId),
+                            bytes(String.valueOf(now)), bytes(String.valueOf(idleWindowMillis)),
+                            bytes(String.valueOf(maxWindowMillis)), bytes(Uuids.timeBased().toString()),
+                            bytes(messageId.toString()), bytes(senderName != null ? senderName : ""),
+                            bytes(body != null ? body : ""), bytes(ttl), bytes(recipientId.toString()),
+                            bytes(conversationId.toString()), bytes(type));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to collapse notifications of conversation {}: {}", conversationId, e.getMessage());
+            return false;
+        }
+        collapsedMessages.increment(recipients.size());
+
+        for (int i = 0; i < recipients.size(); i++) {
+            if (!(results.get(i) instanceof List<?> state) || state.size() != 5) {
+                continue;
+            }
+            long count = Long.parseLong(text(state.get(0)));
+            List<String> senders = senders(text(state.get(3)));
+            boolean more = "1".equals(text(state.get(4)));
+            Map<String, Object> frame = new HashMap<>();
+            frame.put("notificationId", text(state.get(1)));
+            frame.put("conversationId", conversationId);
+            frame.put("type", type);
+            frame.put("title", title(count, senderName, senders, more));
+            frame.put("body", body);
+            frame.put("count", count);
+            frame.put("lastMessageId", messageId);
+            frame.put("createdAt", Instant.ofEpochMilli(Long.parseLong(text(state.get(2)))));
+            try {
+                messagingTemplate.convertAndSendToUser(recipients.get(i).toString(),
+                        "/queue/notifications/aggregate", frame);
+            } catch (Exception e) {
+                log.warn("Failed to deliver aggregate notification to user {}: {}", recipients.get(i), e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ghi ngay các aggregate đang mở của user (trước khi đọc/sửa notification của user)
+     */
+    public void flushUser(UUID userId) {
+        flushUser(userId, null, false);
+    }
+
+    /**
+     * User đã đọc conversation: aggregate của conversation được ghi ở trạng thái đã đọc
+     */
+    public void flushConversationRead(UUID userId, UUID conversationId) {
+        flushUser(userId, conversationId, true);
+    }
+
+    /**
+     * Ghi các aggregate đã đóng cửa sổ. ZREM trong DRAIN giúp mỗi aggregate chỉ do 1 node ghi.
+     */
+    @Scheduled(fixedDelayString = "${chat.notification.collapse.flush-interval-ms:1000}")
+    public void flushDueAggregates() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> dueKeys;
+        try {
+            dueKeys = redisTemplate.opsForZSet().rangeByScore(DUE_KEY, 0, System.currentTimeMillis(), 0, flushBatchSize);
+        } catch (Exception e) {
+            log.warn("Failed to read due notification aggregates: {}", e.getMessage());
+            return;
+        }
+        if (dueKeys == null || dueKeys.isEmpty()) {
+            return;
+        }
+
+        List<Drained> drained = new ArrayList<>(dueKeys.size());
+        for (String key : dueKeys) {
+            Drained aggregate = drain(key, null, false);
+            if (aggregate != null) {
+                drained.add(aggregate);
+            }
+        }
+        persist(drained);
+    }
+
+    private void flushUser(UUID userId, UUID conversationId, boolean read) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Set<String> keys = redisTemplate.opsForSet().members(USER_KEY_PREFIX + userId);
+            if (keys == null || keys.isEmpty()) {
+                return;
+            }
+            List<Drained> drained = new ArrayList<>();
+            for (String key : keys) {
+                if (conversationId != null && !key.startsWith(KEY_PREFIX + userId + ":" + conversationId + ":")) {
+                    continue;
+                }
+                Drained aggregate = drain(key, userId, read);
+                if (aggregate != null) {
+                    drained.add(aggregate);
+                }
+            }
+            persist(drained);
+        } catch (Exception e) {
+            log.warn("Failed to flush notification aggregates of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private Drained drain(String key, UUID userId, boolean read) {
+        try {
+            String userKey = USER_KEY_PREFIX + (userId != null ? userId : key.split(":")[1]);
+            List<?> values = redisTemplate.execute(DRAIN, List.of(DUE_KEY, key, userKey));
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i + 1 < values.size(); i += 2) {
+                fields.put(text(values.get(i)), text(values.get(i + 1)));
+            }
+            // Aggregate thử lại giữ trạng thái đã đọc của lần lấy ra trước
+            return new Drained(fields, toNotification(fields, read || "1".equals(fields.get("read"))));
+        } catch (Exception e) {
+            log.warn("Failed to drain notification aggregate {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void persist(List<Drained> drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+        List<Notification> notifications = drained.stream().map(Drained::notification).toList();
+        try {
+            batchWriter.insertAll(notifications);
+        } catch (Exception e) {
+            log.warn("Failed to persist {} collapsed notifications, restoring aggregates: {}",
+                    notifications.size(), e.getMessage());
+            restore(drained);
+            return;
+        }
+        counterService.onCreated(notifications);
+        searchService.onCreated(notifications);
+        notificationCache.invalidateAll(notifications.stream().map(Notification::getUserId).toList());
+        pushNotificationService.sendUnreadCounts(new LinkedHashSet<>(notifications.stream().map(Notification::getUserId).toList()));
+        persistedAggregates.increment(notifications.size());
+        log.debug("Persisted {} collapsed notifications", notifications.size());
+    }
+
+    /**
+     * Aggregate lấy ra nhưng chưa ghi được: đưa lại vào Redis với key riêng (tránh gộp với aggregate mới đã mở)
+     */
+    private void restore(List<Drained> drained) {
+        String retryAt = String.valueOf(System.currentTimeMillis() + retryDelayMillis);
+        String ttl = String.valueOf(maxWindowMillis / 1000 + 3600);
+        for (Drained aggregate : drained) {
+            Map<String, String> fields = new HashMap<>(aggregate.fields());
+            if (Boolean.TRUE.equals(aggregate.notification().getIsRead())) {
+                fields.put("read", "1");
+            }
+            String key = aggregateKey(UUID.fromString(fields.get("uid")), UUID.fromString(fields.get("cid")),
+                    fields.get("type")) + ":" + fields.get("nid");
+            List<String> args = new ArrayList<>(2 + fields.size() * 2);
+            args.add(retryAt);
+            args.add(ttl);
+            fields.forEach((field, value) -> {
+                args.add(field);
+                args.add(value);
+            });
+            try {
+                redisTemplate.execute(RESTORE, List.of(key, DUE_KEY, USER_KEY_PREFIX + fields.get("uid")), args.toArray());
+                restoredAggregates.increment();
+            } catch (Exception e) {
+                log.error("Lost collapsed notification {} of user {}: {}", fields.get("nid"), fields.get("uid"), e.getMessage());
+            }
+        }
+    }
+
+    private Notification toNotification(Map<String, String> fields, boolean read) {
+        long count = Long.parseLong(fields.getOrDefault("count", "1"));
+        String senderName = fields.get("sender");
+        List<String> senders = senders(fields.get("senders"));
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("conversationId", fields.get("cid"));
+        metadata.put("messageId", fields.get("mid"));
+        metadata.put("senderName", senderName);
+        metadata.put("messageCount", count);
+        metadata.put("senders", senders);
+
+        return Notification.builder()
+                .userId(UUID.fromString(fields.get("uid")))
+                .notificationId(UUID.fromString(fields.get("nid")))
+                .title(title(count, senderName, senders, "1".equals(fields.get("more"))))
+                .body(fields.get("body"))
+                .type(fields.get("type"))
+                .metadata(serialize(metadata))
+                .isRead(read)
+                .createdAt(Instant.ofEpochMilli(Long.parseLong(fields.get("first"))))
+                .build();
+    }
+
+    private static String title(long count, String senderName, List<String> senders, boolean more) {
+        if (count <= 1 || senders.isEmpty()) {
+            return "Tin nhắn mới từ " + senderName;
+        }
+        return count + " tin nhắn mới từ " + String.join(", ", senders) + (more ? " và những người khác" : "");
+    }
+
+    private String serialize(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing metadata", e);
+            return "{}";
+        }
+    }
+
+    private static String aggregateKey(UUID userId, UUID conversationId, String type) {
+        return KEY_PREFIX + userId + ":" + conversationId + ":" + type;
+    }
+
+    private static List<String> senders(String value) {
+        if (value == null || value.isEmpty()) {
+            return List.of();
+        }
+        return List.of(value.split("\n"));
+    }
+
+    private static String text(Object value) {
+        if (value instanceof byte[] raw) {
+            return new String(raw, StandardCharsets.UTF_8);
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
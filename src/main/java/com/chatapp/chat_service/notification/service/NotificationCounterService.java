@@ -0,0 +1,294 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Counter notification theo user, cập nhật cùng lúc với create/read/delete thay cho COUNT(*) ... ALLOW FILTERING:
+ * - notif_counts:{userId}  hash {total, unread, t:{type} -> tổng theo type, u:{type} -> chưa đọc theo type,
+ *                          d:{yyyyMMdd} -> số notification tạo trong ngày (UTC), ~ -> đã dựng từ Cassandra}
+ * - notif_counts:active    set user có counter thay đổi, job đối soát quét lại từ bảng notifications để sửa lệch
+ * Delta chỉ được áp dụng khi hash đã dựng (~); hash chưa có sẽ được dựng lại ở lần đọc đầu tiên (đã gồm thay đổi vừa ghi).
+ */
+@Slf4j
+@Service
+public class NotificationCounterService {
+
+    private static final String KEY_PREFIX = "notif_counts:";
+    private static final String ACTIVE_KEY = "notif_counts:active";
+    private static final String TOTAL = "total";
+    private static final String UNREAD = "unread";
+    private static final String TYPE_PREFIX = "t:";
+    private static final String UNREAD_TYPE_PREFIX = "u:";
+    private static final String DAY_PREFIX = "d:";
+    private static final String BUILT_FIELD = "~";
+    private static final int WEEK_DAYS = 7;
+    private static final Duration COUNTER_TTL = Duration.ofDays(30);
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    // KEYS[1] = counter hash, KEYS[2] = active set; ARGV[1] = userId, ARGV[2] = ttl, sau đó là cặp (field, delta)
+    private static final byte[] APPLY = (
+            "if redis.call('HEXISTS', KEYS[1], '~') == 0 then return 0 end " +
+            "for i = 3, #ARGV, 2 do " +
+            "  if redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) < 0 then redis.call('HSET', KEYS[1], ARGV[i], 0) end " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "redis.call('SADD', KEYS[2], ARGV[1]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    // KEYS[1] = counter hash
+    private static final DefaultRedisScript<Long> MARK_ALL_READ = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], '~') == 0 then return 0 end " +
+            "local fields = redis.call('HKEYS', KEYS[1]) " +
+            "for _, field in ipairs(fields) do " +
+            "  if string.sub(field, 1, 2) == 'u:' then redis.call('HSET', KEYS[1], field, 0) end " +
+            "end " +
+            "redis.call('HSET', KEYS[1], 'unread', 0) " +
+            "return 1",
+            Long.class);
+
+    // KEYS[1] = counter hash; ARGV[1] = ttl, sau đó là cặp (field, value)
+    private static final DefaultRedisScript<Long> REPLACE = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('HSET', KEYS[1], '~', '1') " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final NotificationStore notificationStore;
+    private final int reconcileBatchSize;
+
+    public NotificationCounterService(RedisTemplate<String, String> redisTemplate,
+                                      NotificationStore notificationStore,
+                                      @Value("${chat.notification.counters.reconcile-batch-size:200}") int reconcileBatchSize) {
+        this.redisTemplate = redisTemplate;
+        this.notificationStore = notificationStore;
+        this.reconcileBatchSize = reconcileBatchSize;
+    }
+
+    /**
+     * Giá trị counter của user
+     * @param typeCounts tổng theo type (chỉ type > 0)
+     * @param unreadTypeCounts chưa đọc theo type (chỉ type > 0)
+     * @param weeklyCount số notification tạo trong 7 ngày gần nhất (tính theo ngày UTC, gồm hôm nay)
+     */
+    public record Counts(long total, long unread, Map<String, Long> typeCounts,
+                         Map<String, Long> unreadTypeCounts, long weeklyCount) {
+    }
+
+    /**
+     * Gọi sau khi đã ghi các notification mới (chưa đọc) xuống Cassandra; 1 pipeline cho cả lô
+     */
+    public void onCreated(Collection<Notification> notifications) {
+        Map<UUID, Map<String, Long>> deltas = new HashMap<>();
+        for (Notification notification : notifications) {
+            Map<String, Long> delta = deltas.computeIfAbsent(notification.getUserId(), userId -> new HashMap<>());
+            add(delta, notification, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Gọi sau khi đánh dấu đã đọc; chỉ tính các notification trước đó còn chưa đọc
+     */
+    public void onRead(UUID userId, Collection<Notification> previouslyUnread) {
+        Map<String, Long> delta = new HashMap<>();
+        for (Notification notification : previouslyUnread) {
+            delta.merge(UNREAD, -1L, Long::sum);
+            delta.merge(UNREAD_TYPE_PREFIX + typeOf(notification), -1L, Long::sum);
+        }
+        apply(Map.of(userId, delta));
+    }
+
+    /**
+     * Gọi sau khi xóa; cần trạng thái của notification trước khi xóa
+     */
+    public void onDeleted(UUID userId, Collection<Notification> deleted) {
+        Map<String, Long> delta = new HashMap<>();
+        deleted.forEach(notification -> add(delta, notification, -1));
+        Set<String> week = weekDays();
+        delta.keySet().removeIf(field -> field.startsWith(DAY_PREFIX) && !week.contains(field));
+        apply(Map.of(userId, delta));
+    }
+
+    public void onAllRead(UUID userId) {
+        try {
+            redisTemplate.execute(MARK_ALL_READ, List.of(KEY_PREFIX + userId));
+        } catch (Exception e) {
+            log.warn("Failed to reset unread notification counters of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public void onAllDeleted(UUID userId) {
+        try {
+            redisTemplate.execute(REPLACE, List.of(KEY_PREFIX + userId), String.valueOf(COUNTER_TTL.toSeconds()));
+        } catch (Exception e) {
+            log.warn("Failed to reset notification counters of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc counter (1 HGETALL); hash chưa có thì dựng lại từ Cassandra trước
+     */
+    public Counts getCounts(UUID userId) {
+        Map<String, String> entries = redisTemplate.<String, String>opsForHash().entries(KEY_PREFIX + userId);
+        if (!entries.containsKey(BUILT_FIELD)) {
+            entries = reconcile(userId);
+        }
+
+        Set<String> week = weekDays();
+        long total = 0;
+        long unread = 0;
+        long weeklyCount = 0;
+        Map<String, Long> typeCounts = new HashMap<>();
+        Map<String, Long> unreadTypeCounts = new HashMap<>();
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            String field = entry.getKey();
+            if (field.equals(BUILT_FIELD)) {
+                continue;
+            }
+            long value = Math.max(0, Long.parseLong(entry.getValue()));
+            if (field.equals(TOTAL)) {
+                total = value;
+            } else if (field.equals(UNREAD)) {
+                unread = value;
+            } else if (field.startsWith(TYPE_PREFIX) && value > 0) {
+                typeCounts.put(field.substring(TYPE_PREFIX.length()), value);
+            } else if (field.startsWith(UNREAD_TYPE_PREFIX) && value > 0) {
+                unreadTypeCounts.put(field.substring(UNREAD_TYPE_PREFIX.length()), value);
+            } else if (field.startsWith(DAY_PREFIX) && week.contains(field)) {
+                weeklyCount += value;
+            }
+        }
+        return new Counts(total, unread, typeCounts, unreadTypeCounts, weeklyCount);
+    }
+
+    /**
+     * Đối soát định kỳ các user có counter thay đổi. SPOP giúp mỗi user chỉ do 1 node xử lý;
+     * user được đưa lại vào set ở thay đổi kế tiếp.
+     */
+    @Scheduled(fixedDelayString = "${chat.notification.counters.reconcile-interval-ms:300000}")
+    public void reconcileActiveUsers() {
+        List<String> userIds;
+        try {
+            userIds = redisTemplate.opsForSet().pop(ACTIVE_KEY, reconcileBatchSize);
+        } catch (Exception e) {
+            log.warn("Failed to read users for notification counter reconciliation: {}", e.getMessage());
+            return;
+        }
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+
+        int reconciled = 0;
+        for (String userId : userIds) {
+            try {
+                reconcile(UUID.fromString(userId));
+                reconciled++;
+            } catch (Exception e) {
+                log.warn("Failed to reconcile notification counters of user {}: {}", userId, e.getMessage());
+            }
+        }
+        log.debug("Reconciled notification counters of {} of {} users", reconciled, userIds.size());
+    }
+
+    /**
+     * Dựng lại toàn bộ counter của user từ 1 lượt đọc các bucket notification còn hiển thị (NotificationStore).
+     * Delta ghi đồng thời trong lúc quét có thể bị đè, lần đối soát sau sẽ sửa.
+     */
+    public Map<String, String> reconcile(UUID userId) {
+        Map<String, Long> counts = new HashMap<>();
+        counts.put(TOTAL, 0L);
+        counts.put(UNREAD, 0L);
+        Set<String> week = weekDays();
+        notificationStore.forEach(userId, notification -> add(counts, notification, 1));
+        counts.keySet().removeIf(field -> field.startsWith(DAY_PREFIX) && !week.contains(field));
+
+        Map<String, String> entries = new HashMap<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(COUNTER_TTL.toSeconds()));
+        counts.forEach((field, value) -> {
+            args.add(field);
+            args.add(String.valueOf(value));
+            entries.put(field, String.valueOf(value));
+        });
+        redisTemplate.execute(REPLACE, List.of(KEY_PREFIX + userId), args.toArray());
+        entries.put(BUILT_FIELD, "1");
+        return entries;
+    }
+
+    private void apply(Map<UUID, Map<String, Long>> userDeltas) {
+        Map<UUID, Map<String, Long>> deltas = new HashMap<>(userDeltas);
+        deltas.values().removeIf(Map::isEmpty);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        byte[] ttl = bytes(String.valueOf(COUNTER_TTL.toSeconds()));
+        try {
+            redisTemplate.executePipelined((RedisConnection connection) -> {
+                deltas.forEach((userId, delta) -> {
+                    List<byte[]> keysAndArgs = new ArrayList<>();
+                    keysAndArgs.add(bytes(KEY_PREFIX + userId));
+                    keysAndArgs.add(bytes(ACTIVE_KEY));
+                    keysAndArgs.add(bytes(userId.toString()));
+                    keysAndArgs.add(ttl);
+                    delta.forEach((field, value) -> {
+                        keysAndArgs.add(bytes(field));
+                        keysAndArgs.add(bytes(String.valueOf(value)));
+                    });
+                    connection.scriptingCommands().eval(APPLY, ReturnType.INTEGER, 2, keysAndArgs.toArray(byte[][]::new));
+                });
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to update notification counters of {} users: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    private static void add(Map<String, Long> counts, Notification notification, long sign) {
+        String type = typeOf(notification);
+        counts.merge(TOTAL, sign, Long::sum);
+        counts.merge(TYPE_PREFIX + type, sign, Long::sum);
+        if (!Boolean.TRUE.equals(notification.getIsRead())) {
+            counts.merge(UNREAD, sign, Long::sum);
+            counts.merge(UNREAD_TYPE_PREFIX + type, sign, Long::sum);
+        }
+        if (notification.getCreatedAt() != null) {
+            counts.merge(DAY_PREFIX + DAY_FORMAT.format(notification.getCreatedAt()), sign, Long::sum);
+        }
+    }
+
+    private static String typeOf(Notification notification) {
+        return notification.getType() != null ? notification.getType() : Notification.NotificationType.SYSTEM;
+    }
+
+    private static Set<String> weekDays() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Set<String> days = new HashSet<>();
+        for (int i = 0; i < WEEK_DAYS; i++) {
+            days.add(DAY_PREFIX + DAY_FORMAT.format(today.minusDays(i).atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        return days;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
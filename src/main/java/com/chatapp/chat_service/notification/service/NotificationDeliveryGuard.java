@@ -0,0 +1,98 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chống xử lý lặp side effect (counter, search index, realtime/push) của cùng 1 notification_id:
+ * intent bị xử lý lại (Kafka giao lại, thử lại sau lô ghi dở, ghi inline khi gửi Kafka báo lỗi nhưng record vẫn tới)
+ * ghi đè đúng row cũ nhưng chỉ lần đầu được tính.
+ * - notif_done:{notificationId} = 1, SET NX sau khi ghi Cassandra; sống ttl-hours (dài hơn cửa sổ retry của pipeline)
+ * Redis lỗi thì coi như chưa xử lý (thà gửi trùng còn hơn mất notification).
+ */
+@Slf4j
+@Component
+public class NotificationDeliveryGuard {
+
+    private static final String KEY_PREFIX = "notif_done:";
+    private static final byte[] DONE = "1".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration ttl;
+    private final Counter replays;
+
+    public NotificationDeliveryGuard(RedisTemplate<String, String> redisTemplate,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${chat.notification.pipeline.dedup-ttl-hours:48}") long ttlHours) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.replays = Counter.builder("chat.notification.pipeline.replays").register(meterRegistry);
+    }
+
+    /**
+     * Bỏ các notification đã xử lý xong trước đó (không cần ghi lại)
+     */
+    public List<Notification> unprocessed(List<Notification> notifications) {
+        try {
+            List<String> done = redisTemplate.opsForValue().multiGet(notifications.stream()
+                    .map(notification -> KEY_PREFIX + notification.getNotificationId())
+                    .toList());
+            if (done == null) {
+                return notifications;
+            }
+            List<Notification> pending = new ArrayList<>(notifications.size());
+            for (int i = 0; i < notifications.size(); i++) {
+                if (done.get(i) == null) {
+                    pending.add(notifications.get(i));
+                }
+            }
+            replays.increment(notifications.size() - pending.size());
+            return pending;
+        } catch (Exception e) {
+            log.warn("Failed to check processed notifications: {}", e.getMessage());
+            return notifications;
+        }
+    }
+
+    /**
+     * Gọi sau khi đã ghi Cassandra
+     * @return các notification lần này giành được quyền chạy side effect
+     */
+    public List<Notification> claim(List<Notification> notifications) {
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisConnection connection) -> {
+                for (Notification notification : notifications) {
+                    connection.stringCommands().set(
+                            (KEY_PREFIX + notification.getNotificationId()).getBytes(StandardCharsets.UTF_8), DONE,
+                            Expiration.from(ttl), RedisStringCommands.SetOption.SET_IF_ABSENT);
+                }
+                return null;
+            });
+            List<Notification> claimed = new ArrayList<>(notifications.size());
+            for (int i = 0; i < notifications.size(); i++) {
+                if (!Boolean.FALSE.equals(results.get(i))) {
+                    claimed.add(notifications.get(i));
+                }
+            }
+            replays.increment(notifications.size() - claimed.size());
+            return claimed;
+        } catch (Exception e) {
+            log.warn("Failed to claim {} notifications: {}", notifications.size(), e.getMessage());
+            return notifications;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.common.cache.LocalLruCache;
+import com.chatapp.chat_service.notification.dto.ConversationNotificationSettingDto;
+import com.chatapp.chat_service.notification.dto.NotificationPreferencesDto;
+import com.chatapp.chat_service.notification.entity.NotificationPreference;
+import com.chatapp.chat_service.notification.repository.NotificationPreferenceRepository;
+import com.chatapp.chat_service.redis.publisher.RedisCacheEvictPublisher;
+import com.chatapp.chat_service.redis.subscriber.RedisCacheEvictSubscriber;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cài đặt notification của user (mute conversation tới thời điểm, tắt theo type, chỉ nhận mention),
+ * kiểm tra trước mọi lần ghi/gửi trong fan-out của NotificationService.
+ * Cài đặt được giữ trong near cache (NotificationPreferences) trên từng node, bị xóa qua cacheEvictTopic
+ * khi user đổi cài đặt ở bất kỳ node nào; user chưa có cài đặt được cache là DEFAULT.
+ * Không đọc được cài đặt thì cho qua (không chặn notification).
+ */
+@Slf4j
+@Service
+public class NotificationPreferenceService {
+
+    private static final String CACHE_NAME = "notification_prefs";
+    private static final int LOAD_BATCH_SIZE = 100;
+    // TTL Cassandra tối đa 20 năm; mute lâu hơn được ghi không có TTL
+    private static final long MAX_TTL_SECONDS = Duration.ofDays(365L * 20).toSeconds();
+
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final RedisCacheEvictPublisher evictPublisher;
+    private final LocalLruCache<UUID, NotificationPreferences> nearCache;
+    private final Counter suppressed;
+
+    public NotificationPreferenceService(NotificationPreferenceRepository preferenceRepository,
+                                         RedisCacheEvictPublisher evictPublisher,
+                                         RedisCacheEvictSubscriber evictSubscriber,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${chat.notification.preferences.near-cache.max-size:50000}") int nearCacheMaxSize,
+                                         @Value("${chat.notification.preferences.near-cache.ttl-seconds:300}") long nearCacheTtlSeconds) {
+        this.preferenceRepository = preferenceRepository;
+        this.evictPublisher = evictPublisher;
+        this.nearCache = new LocalLruCache<>(nearCacheMaxSize, Duration.ofSeconds(nearCacheTtlSeconds));
+        this.suppressed = Counter.builder("chat.notification.preferences.suppressed").register(meterRegistry);
+        evictSubscriber.register(CACHE_NAME, (key, version) -> nearCache.invalidate(UUID.fromString(key)));
+    }
+
+    public NotificationPreferences get(UUID userId) {
+        return getAll(List.of(userId)).getOrDefault(userId, NotificationPreferences.DEFAULT);
+    }
+
+    /**
+     * Cài đặt của nhiều user, phần thiếu trong cache được đọc theo lô (IN trên partition key)
+     */
+    public Map<UUID, NotificationPreferences> getAll(Collection<UUID> userIds) {
+        Map<UUID, NotificationPreferences> result = new HashMap<>();
+        List<UUID> misses = new ArrayList<>();
+        for (UUID userId : new LinkedHashSet<>(userIds)) {
+            Optional<NotificationPreferences> cached = nearCache.get(userId);
+            if (cached.isPresent()) {
+                result.put(userId, cached.get());
+            } else {
+                misses.add(userId);
+            }
+        }
+
+        for (int from = 0; from < misses.size(); from += LOAD_BATCH_SIZE) {
+            List<UUID> batch = misses.subList(from, Math.min(from + LOAD_BATCH_SIZE, misses.size()));
+            try {
+                Map<UUID, List<NotificationPreference>> rows = preferenceRepository.findByUserIds(batch).stream()
+                        .collect(Collectors.groupingBy(NotificationPreference::getUserId));
+                for (UUID userId : batch) {
+                    NotificationPreferences preferences = NotificationPreferences.from(rows.getOrDefault(userId, List.of()));
+                    nearCache.put(userId, preferences);
+                    result.put(userId, preferences);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to load notification preferences of {} users, allowing notifications: {}",
+                        batch.size(), e.getMessage());
+                batch.forEach(userId -> result.put(userId, NotificationPreferences.DEFAULT));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return các recipient còn nhận notification type này của conversation (giữ thứ tự)
+     */
+    public List<UUID> filterRecipients(Collection<UUID> recipientIds, String type, UUID conversationId) {
+        if (recipientIds.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, NotificationPreferences> preferences = getAll(recipientIds);
+        long now = System.currentTimeMillis();
+        List<UUID> allowed = new ArrayList<>(recipientIds.size());
+        for (UUID recipientId : recipientIds) {
+            if (allows(preferences.get(recipientId), type, conversationId, now)) {
+                allowed.add(recipientId);
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Kiểm tra 1 notification theo cài đặt đã nạp (getAll), đếm số notification bị chặn
+     */
+    public boolean allows(NotificationPreferences preferences, String type, UUID conversationId, long nowMillis) {
+        if (preferences == null || preferences.allows(type, conversationId, nowMillis)) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    public NotificationPreferencesDto getPreferences(UUID userId) {
+        List<NotificationPreference> rows = preferenceRepository.findByUserId(userId);
+        NotificationPreferencesDto dto = NotificationPreferencesDto.builder()
+                .disabledTypes(List.of())
+                .mentionsOnly(false)
+                .conversations(new ArrayList<>())
+                .build();
+        Instant now = Instant.now();
+        for (NotificationPreference row : rows) {
+            if (NotificationPreference.USER_WIDE.equals(row.getConversationId())) {
+                dto.setDisabledTypes(NotificationPreferences.types(row.getDisabledTypes() != null ? row.getDisabledTypes() : 0));
+                dto.setMentionsOnly(Boolean.TRUE.equals(row.getMentionsOnly()));
+            } else {
+                boolean muted = row.getMutedUntil() != null && row.getMutedUntil().isAfter(now);
+                if (!muted && !Boolean.TRUE.equals(row.getMentionsOnly())) {
+                    continue;
+                }
+                dto.getConversations().add(ConversationNotificationSettingDto.builder()
+                        .conversationId(row.getConversationId())
+                        .mutedUntil(muted ? row.getMutedUntil() : null)
+                        .mentionsOnly(Boolean.TRUE.equals(row.getMentionsOnly()))
+                        .build());
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * Cập nhật cài đặt chung (SYSTEM luôn được nhận)
+     */
+    public void updatePreferences(UUID userId, Collection<String> disabledTypes, boolean mentionsOnly) {
+        preferenceRepository.updateUserWide(userId, NotificationPreference.USER_WIDE,
+                NotificationPreferences.typeMask(disabledTypes != null ? disabledTypes : List.of()), mentionsOnly, Instant.now());
+        invalidate(userId);
+    }
+
+    /**
+     * @param mutedUntil null hoặc thời điểm đã qua = bỏ tắt tiếng
+     */
+    public void updateConversationSetting(UUID userId, UUID conversationId, Instant mutedUntil, boolean mentionsOnly) {
+        Instant now = Instant.now();
+        if (mutedUntil != null && mutedUntil.isAfter(now)) {
+            long ttl = Duration.between(now, mutedUntil).toSeconds() + 1;
+            preferenceRepository.updateMutedUntil(ttl > MAX_TTL_SECONDS ? 0 : (int) ttl, userId, conversationId, mutedUntil);
+        } else {
+            preferenceRepository.updateMutedUntil(0, userId, conversationId, null);
+        }
+        preferenceRepository.updateMentionsOnly(userId, conversationId, mentionsOnly, now);
+        invalidate(userId);
+    }
+
+    public void clearConversationSetting(UUID userId, UUID conversationId) {
+        preferenceRepository.deleteByKey(userId, conversationId);
+        invalidate(userId);
+    }
+
+    private void invalidate(UUID userId) {
+        nearCache.invalidate(userId);
+        try {
+            evictPublisher.publish(CACHE_NAME, userId.toString(), System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Failed to publish notification preference invalidation for {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import com.chatapp.chat_service.notification.entity.NotificationPreference;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Cài đặt notification của 1 user dạng gọn, bất biến, để kiểm tra nhanh trong fan-out:
+ * - type bị tắt: bitmask int (typeBit)
+ * - cài đặt theo conversation: mảng UUID đã sắp xếp (long[] msb/lsb), mute-until theo cùng chỉ số,
+ *   mentions-only là BitSet theo cùng chỉ số
+ * SYSTEM không tắt được. Mute và mentions-only chỉ áp cho type thuộc conversation (tin nhắn, mention, reaction, poll, pin).
+ */
+public final class NotificationPreferences {
+
+    private static final List<String> TYPES = List.of(
+            Notification.NotificationType.MESSAGE,
+            Notification.NotificationType.MENTION,
+            Notification.NotificationType.REACTION,
+            Notification.NotificationType.FRIEND_REQUEST,
+            Notification.NotificationType.CONVERSATION_INVITE,
+            Notification.NotificationType.SYSTEM,
+            Notification.NotificationType.POLL,
+            Notification.NotificationType.PIN_MESSAGE);
+
+    private static final int SYSTEM_BIT = typeBit(Notification.NotificationType.SYSTEM);
+    private static final int MENTION_BIT = typeBit(Notification.NotificationType.MENTION);
+    private static final int CONVERSATION_TYPES = typeMask(List.of(
+            Notification.NotificationType.MESSAGE,
+            Notification.NotificationType.MENTION,
+            Notification.NotificationType.REACTION,
+            Notification.NotificationType.POLL,
+            Notification.NotificationType.PIN_MESSAGE));
+
+    public static final NotificationPreferences DEFAULT =
+            new NotificationPreferences(0, false, new long[0], new long[0], new BitSet());
+
+    private final int disabledTypes;
+    private final boolean mentionsOnly;
+    // [msb0, lsb0, msb1, lsb1, ...] theo thứ tự UUID.compareTo
+    private final long[] conversations;
+    private final long[] mutedUntil; // epoch millis, 0 = không tắt tiếng
+    private final BitSet mentionsOnlyConversations;
+
+    private NotificationPreferences(int disabledTypes, boolean mentionsOnly, long[] conversations,
+                                    long[] mutedUntil, BitSet mentionsOnlyConversations) {
+        this.disabledTypes = disabledTypes & ~SYSTEM_BIT;
+        this.mentionsOnly = mentionsOnly;
+        this.conversations = conversations;
+        this.mutedUntil = mutedUntil;
+        this.mentionsOnlyConversations = mentionsOnlyConversations;
+    }
+
+    public static NotificationPreferences from(Collection<NotificationPreference> rows) {
+        int disabledTypes = 0;
+        boolean mentionsOnly = false;
+        List<NotificationPreference> perConversation = new ArrayList<>();
+        for (NotificationPreference row : rows) {
+            if (NotificationPreference.USER_WIDE.equals(row.getConversationId())) {
+                disabledTypes = row.getDisabledTypes() != null ? row.getDisabledTypes() : 0;
+                mentionsOnly = Boolean.TRUE.equals(row.getMentionsOnly());
+            } else if (row.getConversationId() != null) {
+                perConversation.add(row);
+            }
+        }
+        if (disabledTypes == 0 && !mentionsOnly && perConversation.isEmpty()) {
+            return DEFAULT;
+        }
+
+        perConversation.sort(Comparator.comparing(NotificationPreference::getConversationId));
+        long[] conversations = new long[perConversation.size() * 2];
+        long[] mutedUntil = new long[perConversation.size()];
+        BitSet mentionsOnlyConversations = new BitSet(perConversation.size());
+        for (int i = 0; i < perConversation.size(); i++) {
+            NotificationPreference row = perConversation.get(i);
+            conversations[2 * i] = row.getConversationId().getMostSignificantBits();
+            conversations[2 * i + 1] = row.getConversationId().getLeastSignificantBits();
+            mutedUntil[i] = row.getMutedUntil() != null ? row.getMutedUntil().toEpochMilli() : 0L;
+            mentionsOnlyConversations.set(i, Boolean.TRUE.equals(row.getMentionsOnly()));
+        }
+        return new NotificationPreferences(disabledTypes, mentionsOnly, conversations, mutedUntil, mentionsOnlyConversations);
+    }
+
+    /**
+     * @return 0 nếu type không nằm trong danh sách đã biết (không bị lọc)
+     */
+    public static int typeBit(String type) {
+        int index = TYPES.indexOf(type);
+        return index < 0 ? 0 : 1 << index;
+    }
+
+    public static int typeMask(Collection<String> types) {
+        int mask = 0;
+        for (String type : types) {
+            mask |= typeBit(type);
+        }
+        return mask & ~typeBit(Notification.NotificationType.SYSTEM);
+    }
+
+    public static List<String> types(int mask) {
+        List<String> types = new ArrayList<>();
+        for (int i = 0; i < TYPES.size(); i++) {
+            if ((mask & (1 << i)) != 0) {
+                types.add(TYPES.get(i));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @param conversationId conversation của notification, null nếu không thuộc conversation nào
+     */
+    public boolean allows(String type, UUID conversationId, long nowMillis) {
+        int bit = typeBit(type);
+        if ((disabledTypes & bit) != 0) {
+            return false;
+        }
+        if ((bit & CONVERSATION_TYPES) == 0) {
+            return true;
+        }
+        boolean mention = bit == MENTION_BIT;
+        int index = conversationId != null ? indexOf(conversationId) : -1;
+        if (index >= 0) {
+            if (mutedUntil[index] > nowMillis) {
+                return false;
+            }
+            if (mentionsOnlyConversations.get(index)) {
+                return mention;
+            }
+        }
+        return mention || !mentionsOnly;
+    }
+
+    public boolean allows(String type, UUID conversationId) {
+        return allows(type, conversationId, Instant.now().toEpochMilli());
+    }
+
+    private int indexOf(UUID conversationId) {
+        int low = 0;
+        int high = conversations.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = new UUID(conversations[2 * mid], conversations[2 * mid + 1]).compareTo(conversationId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Thời gian giữ notification theo type (TTL khi ghi vào user_notifications):
+ * tin nhắn/reaction ngắn (message-days), hệ thống/lời mời dài (system-days), còn lại default-days
+ */
+@Component
+public class NotificationRetention {
+
+    private final Duration defaultRetention;
+    private final Map<String, Duration> retentionByType;
+    private final Duration maxRetention;
+
+    public NotificationRetention(@Value("${chat.notification.retention.default-days:90}") long defaultDays,
+                                 @Value("${chat.notification.retention.message-days:30}") long messageDays,
+                                 @Value("${chat.notification.retention.system-days:180}") long systemDays) {
+        this.defaultRetention = Duration.ofDays(defaultDays);
+        this.retentionByType = Map.of(
+                Notification.NotificationType.MESSAGE, Duration.ofDays(messageDays),
+                Notification.NotificationType.REACTION, Duration.ofDays(messageDays),
+                Notification.NotificationType.SYSTEM, Duration.ofDays(systemDays),
+                Notification.NotificationType.FRIEND_REQUEST, Duration.ofDays(systemDays),
+                Notification.NotificationType.CONVERSATION_INVITE, Duration.ofDays(systemDays));
+        this.maxRetention = Collections.max(retentionByType.values()).compareTo(defaultRetention) > 0
+                ? Collections.max(retentionByType.values())
+                : defaultRetention;
+    }
+
+    public Duration retentionOf(String type) {
+        return retentionByType.getOrDefault(type, defaultRetention);
+    }
+
+    /**
+     * Thời gian giữ dài nhất; bucket cũ hơn mốc này chắc chắn không còn row
+     */
+    public Duration maxRetention() {
+        return maxRetention;
+    }
+
+    /**
+     * TTL còn lại (giây) tính từ created_at; <= 0 nghĩa là row đã hoặc sắp hết hạn
+     */
+    public int remainingTtlSeconds(Notification notification) {
+        Instant createdAt = notification.getCreatedAt() != null ? notification.getCreatedAt() : Instant.now();
+        Instant expiresAt = createdAt.plus(retentionOf(notification.getType()));
+        return (int) Math.min(Integer.MAX_VALUE, Duration.between(Instant.now(), expiresAt).toSeconds());
+    }
+}
@@ -0,0 +1,36 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Search index theo user cho notification, cập nhật khi ghi/xóa notification.
+ * Redis (mặc định) hoặc Elasticsearch khi elasticsearch.enabled=true.
+ */
+public interface NotificationSearchIndex {
+
+    /**
+     * @param terms token của truy vấn (NotificationTokenizer.tokens), khớp theo tiền tố
+     * @param type  null = mọi type
+     * @param from  null = không giới hạn
+     * @param to    null = không giới hạn
+     */
+    record Query(UUID userId, List<String> terms, String type, Instant from, Instant to, int limit) {
+    }
+
+    void index(Collection<Notification> notifications);
+
+    void remove(UUID userId, Collection<Notification> notifications);
+
+    void removeAll(UUID userId);
+
+    /**
+     * @return id notification ứng viên, mới nhất trước; có thể chứa id đã bị xóa hoặc chưa khớp hết
+     *         (token dài hơn MAX_PREFIX) nên caller phải kiểm tra lại trên row
+     */
+    List<UUID> search(Query query);
+}
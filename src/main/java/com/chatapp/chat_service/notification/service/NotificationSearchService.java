@@ -0,0 +1,105 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Tìm kiếm notification qua NotificationSearchIndex thay vì LIKE + ALLOW FILTERING trên partition:
+ * index trả về top-k id ứng viên, chỉ các row đó được đọc (theo khóa) và kiểm tra lại.
+ * Khi index lỗi thì lọc trong process trên fallback-scan-limit notification mới nhất của user.
+ * Lỗi cập nhật index không làm hỏng việc ghi notification (metric chat.notification.search.index.failures).
+ */
+@Slf4j
+@Service
+public class NotificationSearchService {
+
+    private static final int MAX_LIMIT = 200;
+
+    private final NotificationSearchIndex searchIndex;
+    private final NotificationStore notificationStore;
+    private final int fallbackScanLimit;
+    private final Counter indexFailures;
+    private final Counter fallbacks;
+
+    public NotificationSearchService(NotificationSearchIndex searchIndex,
+                                     NotificationStore notificationStore,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${chat.notification.search.fallback-scan-limit:500}") int fallbackScanLimit) {
+        this.searchIndex = searchIndex;
+        this.notificationStore = notificationStore;
+        this.fallbackScanLimit = fallbackScanLimit;
+        this.indexFailures = Counter.builder("chat.notification.search.index.failures").register(meterRegistry);
+        this.fallbacks = Counter.builder("chat.notification.search.fallbacks").register(meterRegistry);
+    }
+
+    public void onCreated(Collection<Notification> notifications) {
+        try {
+            searchIndex.index(notifications);
+        } catch (Exception e) {
+            indexFailures.increment();
+            log.warn("Failed to index {} notifications: {}", notifications.size(), e.getMessage());
+        }
+    }
+
+    public void onDeleted(UUID userId, Collection<Notification> notifications) {
+        try {
+            searchIndex.remove(userId, notifications);
+        } catch (Exception e) {
+            indexFailures.increment();
+            log.warn("Failed to remove notifications of user {} from search index: {}", userId, e.getMessage());
+        }
+    }
+
+    public void onAllDeleted(UUID userId) {
+        try {
+            searchIndex.removeAll(userId);
+        } catch (Exception e) {
+            indexFailures.increment();
+            log.warn("Failed to clear search index of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Top-k notification khớp theo tiền tố mọi từ của searchTerm trên title/body, mới nhất trước
+     * @param type null = mọi type; from/to null = không giới hạn
+     */
+    public List<Notification> search(UUID userId, String searchTerm, String type, Instant from, Instant to, int limit) {
+        List<String> terms = new ArrayList<>(NotificationTokenizer.tokens(searchTerm));
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        NotificationSearchIndex.Query query = new NotificationSearchIndex.Query(userId, terms, type, from, to,
+                Math.min(size * 2, MAX_LIMIT));
+
+        List<Notification> candidates;
+        try {
+            List<UUID> ids = searchIndex.search(query);
+            candidates = ids.isEmpty() ? List.of() : notificationStore.findAll(userId, ids);
+        } catch (Exception e) {
+            fallbacks.increment();
+            log.warn("Notification search index unavailable for user {}, scanning recent notifications: {}",
+                    userId, e.getMessage());
+            candidates = notificationStore.read(userId, null, fallbackScanLimit, notification -> true).items();
+        }
+
+        return candidates.stream()
+                .filter(notification -> matches(notification, query))
+                .sorted(Comparator.comparing(Notification::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(size)
+                .toList();
+    }
+
+    private static boolean matches(Notification notification, NotificationSearchIndex.Query query) {
+        Instant createdAt = notification.getCreatedAt();
+        return (query.type() == null || query.type().equals(notification.getType()))
+                && (query.from() == null || (createdAt != null && !createdAt.isBefore(query.from())))
+                && (query.to() == null || (createdAt != null && !createdAt.isAfter(query.to())))
+                && NotificationTokenizer.matches(notification, query.terms());
+    }
+}
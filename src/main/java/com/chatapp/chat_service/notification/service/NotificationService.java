@@ -1,26 +1,27 @@
 package com.chatapp.chat_service.notification.service;
 
+import com.chatapp.chat_service.conversation.service.UnreadCounterService;
 import com.chatapp.chat_service.kafka.KafkaEventProducer;
 import com.chatapp.chat_service.notification.dto.ConversationNotificationDto;
 import com.chatapp.chat_service.notification.dto.NotificationDto;
+import com.chatapp.chat_service.notification.dto.NotificationRequest;
 import com.chatapp.chat_service.notification.dto.NotificationStatsDto;
 import com.chatapp.chat_service.notification.entity.Notification;
-import com.chatapp.chat_service.notification.repository.NotificationRepository;
+import com.chatapp.chat_service.notification.event.NotificationIntent;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -28,59 +29,136 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_OFFSET_PAGES = 50;
+    private static final int MAX_LIST_SIZE = 200;
+
+    private final NotificationStore notificationStore;
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper objectMapper;
+    private final NotificationBatchWriter batchWriter;
+    private final NotificationCache notificationCache;
+    private final NotificationCounterService counterService;
+    private final NotificationCollapser collapser;
+    private final NotificationSearchService searchService;
+    private final KafkaEventProducer kafkaEventProducer;
+    private final NotificationPreferenceService preferenceService;
+    private final PushNotificationService pushNotificationService;
+    private final UnreadCounterService unreadCounterService;
+    private final NotificationDeliveryGuard deliveryGuard;
+
+    @Value("${chat.notification.pipeline.enabled:true}")
+    private boolean pipelineEnabled;
+
+    @Value("${chat.notification.pipeline.intent-max-recipients:500}")
+    private int intentMaxRecipients;
 
     /**
-     * Tạo notification mới
+     * Tạo notification mới (tạo trực tiếp, không lọc theo cài đặt notification)
      */
     public NotificationDto createNotification(UUID userId, String title, String body, String type, Map<String, Object> metadata) {
-        UUID notificationId = UUID.randomUUID();
-        
-        Notification notification = Notification.builder()
+        return persistRequests(List.of(NotificationRequest.builder()
                 .userId(userId)
-                .notificationId(notificationId)
                 .title(title)
                 .body(body)
                 .type(type)
-                .metadata(serializeMetadata(metadata))
-                .isRead(false)
-                .createdAt(Instant.now())
-                .build();
-
-        notificationRepository.save(notification);
-
-        // Clear cache
-        clearUserNotificationCache(userId);
-
-        NotificationDto dto = mapToDto(notification);
-
-        // Send real-time notification
-        sendRealtimeNotification(userId, dto);
-
-        log.info("Created notification {} for user {}", notificationId, userId);
-        return dto;
+                .metadata(metadata)
+                .build())).get(0);
     }
 
     /**
-     * Tạo notification cho tin nhắn mới
+     * Tạo hàng loạt notification (thông báo hệ thống, sự kiện group...):
+     * INSERT bất đồng bộ gom theo recipient, tăng cache generation và counter 1 lần cho mỗi recipient,
+     * realtime gộp thành 1 frame cho mỗi recipient.
+     * Request bị chặn bởi cài đặt notification của recipient được bỏ trước khi ghi
+     * @return notification đã tạo, cùng thứ tự với requests còn lại
      */
-    public void createMessageNotification(UUID recipientId, UUID conversationId, UUID messageId, 
-                                        String senderName, String messageContent) {
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("conversationId", conversationId.toString());
-        metadata.put("messageId", messageId.toString());
-        metadata.put("senderName", senderName);
-
-        String title = "Tin nhắn mới từ " + senderName;
-        String body = messageContent.length() > 100 ? messageContent.substring(0, 100) + "..." : messageContent;
+    public List<NotificationDto> createNotifications(List<NotificationRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, NotificationPreferences> preferences =
+                preferenceService.getAll(requests.stream().map(NotificationRequest::getUserId).toList());
+        long nowMillis = System.currentTimeMillis();
+        return persistRequests(requests.stream()
+                .filter(request -> preferenceService.allows(preferences.get(request.getUserId()), request.getType(),
+                        conversationIdOf(request.getMetadata()), nowMillis))
+                .toList());
+    }
+
+    private List<NotificationDto> persistRequests(List<NotificationRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        Instant now = Instant.now();
+        List<Notification> notifications = requests.stream()
+                .map(request -> Notification.builder()
+                        .userId(request.getUserId())
+                        .notificationId(request.getNotificationId() != null ? request.getNotificationId() : Uuids.timeBased())
+                        .title(request.getTitle())
+                        .body(request.getBody())
+                        .type(request.getType())
+                        .metadata(serializeMetadata(request.getMetadata()))
+                        .isRead(false)
+                        .createdAt(request.getCreatedAt() != null ? request.getCreatedAt() : now)
+                        .build())
+                .toList();
+
+        List<NotificationDto> created = persistAndDeliver(notifications);
+        log.info("Created {} notifications for {} users", created.size(),
+                notifications.stream().map(Notification::getUserId).distinct().count());
+        return created;
+    }
 
-        createNotification(recipientId, title, body, Notification.NotificationType.MESSAGE, metadata);
+    /**
+     * Đưa notification vào pipeline notification-topic thay vì ghi ngay trên luồng request/consumer:
+     * chỉ gửi intent (mỗi intent tối đa intent-max-recipients recipient), NotificationIntentConsumer ghi và gửi theo lô.
+     * Gửi Kafka lỗi thì ghi đồng bộ; id suy ra từ intent và NotificationDeliveryGuard chặn side effect lặp theo id,
+     * nên nếu intent vẫn tới consumer cũng không tạo bản sao, không tăng counter hay gửi realtime lần nữa.
+     * Recipient đã tắt notification này bị bỏ trước khi tạo intent.
+     */
+    public void enqueueNotifications(Collection<UUID> recipientIds, String title, String body, String type,
+                                     Map<String, Object> metadata) {
+        List<UUID> recipients = preferenceService.filterRecipients(
+                recipientIds.stream().distinct().toList(), type, conversationIdOf(metadata));
+        for (int from = 0; from < recipients.size(); from += intentMaxRecipients) {
+            NotificationIntent intent = NotificationIntent.builder()
+                    .intentId(UUID.randomUUID())
+                    .recipientIds(List.copyOf(recipients.subList(from, Math.min(from + intentMaxRecipients, recipients.size()))))
+                    .title(title)
+                    .body(body)
+                    .type(type)
+                    .metadata(metadata)
+                    .createdAt(Instant.now())
+                    .build();
+            if (!pipelineEnabled) {
+                createNotifications(intent.toRequests());
+                continue;
+            }
+            try {
+                kafkaEventProducer.sendNotificationIntent(intent).whenCompleteAsync((result, ex) -> {
+                    if (ex != null) {
+                        log.warn("Failed to publish notification intent {}, creating inline: {}",
+                                intent.getIntentId(), ex.getMessage());
+                        try {
+                            createNotifications(intent.toRequests());
+                        } catch (Exception e) {
+                            log.error("Failed to create notifications of intent {}: {}", intent.getIntentId(), e.getMessage());
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Failed to publish notification intent {}, creating inline: {}", intent.getIntentId(), e.getMessage());
+                createNotifications(intent.toRequests());
+            }
+        }
+    }
 
-        // Update conversation notification
-        updateConversationNotification(recipientId, conversationId, messageId, messageContent, senderName);
+    /**
+     * User đã đọc conversation: notification tin nhắn đang gộp của conversation được ghi ở trạng thái đã đọc
+     */
+    public void onConversationRead(UUID userId, UUID conversationId) {
+        collapser.flushConversationRead(userId, conversationId);
     }
 
     /**
@@ -98,7 +176,7 @@ public class NotificationService {
         String title = "Reaction mới từ " + reactorName;
         String body = reactorName + " đã react " + emoji + " với tin nhắn của bạn";
 
-        createNotification(recipientId, title, body, Notification.NotificationType.REACTION, metadata);
+        enqueueNotifications(List.of(recipientId), title, body, Notification.NotificationType.REACTION, metadata);
     }
 
     /**
@@ -106,16 +184,81 @@ public class NotificationService {
      */
     public void createMentionNotification(UUID recipientId, UUID mentionerId, String mentionerName,
                                         UUID conversationId, UUID messageId, String messageContent) {
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("conversationId", conversationId.toString());
-        metadata.put("messageId", messageId.toString());
-        metadata.put("mentionerId", mentionerId.toString());
-        metadata.put("mentionerName", mentionerName);
+        Map<String, Object> metadata = mentionMetadata(conversationId, messageId, mentionerId, mentionerName);
 
         String title = "Bạn được mention bởi " + mentionerName;
-        String body = messageContent.length() > 100 ? messageContent.substring(0, 100) + "..." : messageContent;
+        String body = truncate(messageContent, 100);
+
+        enqueueNotifications(List.of(recipientId), title, body, Notification.NotificationType.MENTION, metadata);
+    }
+
+    /**
+     * Notification tin nhắn/mention cho 1 chunk member của conversation (cùng đường ghi với createNotifications)
+     * @param mentionedIds recipient nằm trong tập này nhận MENTION thay vì MESSAGE
+     */
+    public void createMessageNotifications(Collection<UUID> recipientIds, Set<UUID> mentionedIds,
+                                           UUID conversationId, UUID messageId, UUID senderId,
+                                           String senderName, String messageContent) {
+        if (recipientIds.isEmpty()) {
+            return;
+        }
+        String body = truncate(messageContent, 100);
+        String messageMetadata = serializeMetadata(messageMetadata(conversationId, messageId, senderName));
+        String mentionMetadata = serializeMetadata(mentionMetadata(conversationId, messageId, senderId, senderName));
+        Instant now = Instant.now();
+        Map<UUID, NotificationPreferences> preferences = preferenceService.getAll(recipientIds);
+        long nowMillis = now.toEpochMilli();
+
+        // Tin nhắn thường được gộp theo cửa sổ (NotificationCollapser); mention vẫn ghi và gửi ngay
+        List<UUID> collapsedIds = new ArrayList<>();
+        List<Notification> notifications = new ArrayList<>(recipientIds.size());
+        for (UUID recipientId : recipientIds) {
+            boolean mentioned = mentionedIds.contains(recipientId);
+            String type = mentioned ? Notification.NotificationType.MENTION : Notification.NotificationType.MESSAGE;
+            if (!preferenceService.allows(preferences.get(recipientId), type, conversationId, nowMillis)) {
+                continue;
+            }
+            if (!mentioned && collapser.isEnabled()) {
+                collapsedIds.add(recipientId);
+                continue;
+            }
+            notifications.add(Notification.builder()
+                    .userId(recipientId)
+                    .notificationId(Uuids.timeBased())
+                    .title(mentioned ? "Bạn được mention bởi " + senderName : "Tin nhắn mới từ " + senderName)
+                    .body(body)
+                    .type(type)
+                    .metadata(mentioned ? mentionMetadata : messageMetadata)
+                    .isRead(false)
+                    .createdAt(now)
+                    .build());
+        }
+
+        if (!collapser.add(collapsedIds, conversationId, messageId, senderName, body,
+                Notification.NotificationType.MESSAGE)) {
+            collapsedIds.forEach(recipientId -> notifications.add(Notification.builder()
+                    .userId(recipientId)
+                    .notificationId(Uuids.timeBased())
+                    .title("Tin nhắn mới từ " + senderName)
+                    .body(body)
+                    .type(Notification.NotificationType.MESSAGE)
+                    .metadata(messageMetadata)
+                    .isRead(false)
+                    .createdAt(now)
+                    .build()));
+        }
+        if (notifications.isEmpty()) {
+            return;
+        }
 
-        createNotification(recipientId, title, body, Notification.NotificationType.MENTION, metadata);
+        persistAndDeliver(notifications);
+        for (Notification notification : notifications) {
+            if (Notification.NotificationType.MESSAGE.equals(notification.getType())) {
+                updateConversationNotification(notification.getUserId(), conversationId, messageId, body, senderName,
+                        conversationUnread(notification.getUserId(), conversationId));
+            }
+        }
+        log.debug("Created {} message notifications for conversation {}", notifications.size(), conversationId);
     }
 
     /**
@@ -129,7 +272,7 @@ public class NotificationService {
         String title = "Lời mời kết bạn";
         String body = requesterName + " đã gửi lời mời kết bạn cho bạn";
 
-        createNotification(recipientId, title, body, Notification.NotificationType.FRIEND_REQUEST, metadata);
+        enqueueNotifications(List.of(recipientId), title, body, Notification.NotificationType.FRIEND_REQUEST, metadata);
     }
 
     /**
@@ -146,7 +289,7 @@ public class NotificationService {
         String title = "Mời tham gia cuộc trò chuyện";
         String body = inviterName + " đã mời bạn tham gia \"" + conversationName + "\"";
 
-        createNotification(recipientId, title, body, Notification.NotificationType.CONVERSATION_INVITE, metadata);
+        enqueueNotifications(List.of(recipientId), title, body, Notification.NotificationType.CONVERSATION_INVITE, metadata);
     }
 
     /**
@@ -184,7 +327,7 @@ public class NotificationService {
                 break;
         }
 
-        createNotification(recipientId, title, body, notificationType, metadata);
+        enqueueNotifications(List.of(recipientId), title, body, notificationType, metadata);
     }
 
     /**
@@ -192,6 +335,14 @@ public class NotificationService {
      */
     public void createPollNotification(UUID recipientId, UUID creatorId, String creatorName,
                                      UUID conversationId, UUID pollId, String pollQuestion) {
+        createPollNotifications(List.of(recipientId), creatorId, creatorName, conversationId, pollId, pollQuestion);
+    }
+
+    /**
+     * Notification poll mới cho nhiều member trong 1 lô
+     */
+    public void createPollNotifications(Collection<UUID> recipientIds, UUID creatorId, String creatorName,
+                                        UUID conversationId, UUID pollId, String pollQuestion) {
         Map<String, Object> metadata = new HashMap<>();
         metadata.put("conversationId", conversationId.toString());
         metadata.put("pollId", pollId.toString());
@@ -201,7 +352,7 @@ public class NotificationService {
         String title = "Poll mới từ " + creatorName;
         String body = "\"" + pollQuestion + "\"";
 
-        createNotification(recipientId, title, body, Notification.NotificationType.POLL, metadata);
+        enqueueNotifications(recipientIds, title, body, Notification.NotificationType.POLL, metadata);
     }
 
     /**
@@ -219,14 +370,21 @@ public class NotificationService {
         String body = pinnerName + " đã ghim một tin nhắn: " + 
                      (messageContent.length() > 50 ? messageContent.substring(0, 50) + "..." : messageContent);
 
-        createNotification(recipientId, title, body, Notification.NotificationType.PIN_MESSAGE, metadata);
+        enqueueNotifications(List.of(recipientId), title, body, Notification.NotificationType.PIN_MESSAGE, metadata);
     }
 
     /**
      * Tạo notification cho system announcement
      */
     public void createSystemNotification(UUID recipientId, String title, String body, Map<String, Object> metadata) {
-        createNotification(recipientId, title, body, Notification.NotificationType.SYSTEM, metadata);
+        createSystemNotifications(List.of(recipientId), title, body, metadata);
+    }
+
+    /**
+     * Thông báo hệ thống cho nhiều user trong 1 lô
+     */
+    public void createSystemNotifications(Collection<UUID> recipientIds, String title, String body, Map<String, Object> metadata) {
+        enqueueNotifications(recipientIds, title, body, Notification.NotificationType.SYSTEM, metadata);
     }
 
     // Removed duplicate method - using enhanced version below
@@ -235,11 +393,12 @@ public class NotificationService {
      * Lấy notifications theo type với phân trang
      */
     public NotificationPage getNotificationsByType(UUID userId, String type, int page, int size) {
-        String cacheKey = "user_notifications_type:" + userId + ":" + type + ":" + page + ":" + size;
+        collapser.flushUser(userId);
+        NotificationCache.Slot slot = notificationCache.lookup("type", userId, type + ":" + page + ":" + size);
         
         // Try cache first
         @SuppressWarnings("unchecked")
-        List<NotificationDto> cachedNotifications = (List<NotificationDto>) redisTemplate.opsForValue().get(cacheKey);
+        List<NotificationDto> cachedNotifications = (List<NotificationDto>) slot.value();
         
         if (cachedNotifications != null) {
             boolean hasNext = cachedNotifications.size() == size; // Simplified check
@@ -247,17 +406,16 @@ public class NotificationService {
         }
 
         // Query database
-        Pageable pageable = PageRequest.of(page, size);
-        Slice<Notification> notifications = notificationRepository.findByUserIdAndType(userId, type, pageable);
+        NotificationStore.Page notifications = readOffsetPage(userId, page, size, n -> type.equals(n.getType()));
         
-        List<NotificationDto> notificationDtos = notifications.getContent().stream()
+        List<NotificationDto> notificationDtos = notifications.items().stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
 
         // Cache result
-        redisTemplate.opsForValue().set(cacheKey, notificationDtos, Duration.ofMinutes(10));
+        notificationCache.put(slot, notificationDtos, Duration.ofMinutes(10));
 
-        return new NotificationPage(notificationDtos, notifications.hasNext(), notifications.hasContent());
+        return new NotificationPage(notificationDtos, notifications.nextCursor() != null, !notificationDtos.isEmpty());
     }
 
     /**
@@ -271,11 +429,12 @@ public class NotificationService {
      * Lấy notifications với phân trang
      */
     public NotificationPage getNotifications(UUID userId, int page, int size) {
-        String cacheKey = "user_notifications:" + userId + ":" + page + ":" + size;
+        collapser.flushUser(userId);
+        NotificationCache.Slot slot = notificationCache.lookup("page", userId, page + ":" + size);
         
         // Try cache first
         @SuppressWarnings("unchecked")
-        List<NotificationDto> cachedNotifications = (List<NotificationDto>) redisTemplate.opsForValue().get(cacheKey);
+        List<NotificationDto> cachedNotifications = (List<NotificationDto>) slot.value();
         
         if (cachedNotifications != null) {
             boolean hasNext = cachedNotifications.size() == size;
@@ -283,45 +442,49 @@ public class NotificationService {
         }
 
         // Query database
-        Pageable pageable = PageRequest.of(page, size);
-        Slice<Notification> notifications = notificationRepository.findByUserId(userId, pageable);
+        NotificationStore.Page notifications = readOffsetPage(userId, page, size, n -> true);
         
-        List<NotificationDto> notificationDtos = notifications.getContent().stream()
+        List<NotificationDto> notificationDtos = notifications.items().stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
 
         // Cache result
-        redisTemplate.opsForValue().set(cacheKey, notificationDtos, Duration.ofMinutes(10));
+        notificationCache.put(slot, notificationDtos, Duration.ofMinutes(10));
 
-        return new NotificationPage(notificationDtos, notifications.hasNext(), notifications.hasContent());
+        return new NotificationPage(notificationDtos, notifications.nextCursor() != null, !notificationDtos.isEmpty());
     }
 
     /**
-     * Lấy unread count với cache
+     * Phân trang theo cursor: before = notificationId cuối của trang trước, đi qua các bucket tháng mới nhất trước
      */
-    public Long getUnreadCount(UUID userId) {
-        String cacheKey = "unread_count:" + userId;
-        
-        // Try cache first
-        Long cachedCount = (Long) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedCount != null) {
-            return cachedCount;
-        }
+    public NotificationPage getNotificationsBefore(UUID userId, UUID before, int size) {
+        collapser.flushUser(userId);
+        NotificationStore.Page notifications = notificationStore.read(userId, before, pageSize(size), n -> true);
+        List<NotificationDto> notificationDtos = notifications.items().stream()
+                .map(this::mapToDto)
+                .collect(Collectors.toList());
+        return new NotificationPage(notificationDtos, notifications.nextCursor() != null, !notificationDtos.isEmpty());
+    }
 
-        // Query database
-        long count = notificationRepository.countUnreadByUserId(userId);
-        
-        // Cache result
-        redisTemplate.opsForValue().set(cacheKey, count, Duration.ofMinutes(5));
-        
-        return count;
+    /**
+     * Lấy unread count từ counter (NotificationCounterService)
+     */
+    public Long getUnreadCount(UUID userId) {
+        collapser.flushUser(userId);
+        return counterService.getCounts(userId).unread();
     }
 
     /**
      * Đánh dấu notification đã đọc
      */
     public void markAsRead(UUID userId, UUID notificationId) {
-        notificationRepository.markAsRead(userId, notificationId);
+        collapser.flushUser(userId);
+        notificationStore.find(userId, notificationId)
+                .filter(n -> !Boolean.TRUE.equals(n.getIsRead()))
+                .ifPresent(n -> {
+                    notificationStore.markAsRead(List.of(n));
+                    counterService.onRead(userId, List.of(n));
+                });
         clearUserNotificationCache(userId);
         
         // Send real-time update
@@ -329,6 +492,7 @@ public class NotificationService {
         update.put("notificationId", notificationId);
         update.put("isRead", true);
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notification-read", update);
+        pushNotificationService.sendUnreadCounts(List.of(userId));
 
         log.info("Marked notification {} as read for user {}", notificationId, userId);
     }
@@ -337,7 +501,9 @@ public class NotificationService {
      * Đánh dấu tất cả notifications đã đọc
      */
     public void markAllAsRead(UUID userId) {
-        notificationRepository.markAllAsRead(userId);
+        collapser.flushUser(userId);
+        notificationStore.markAllAsRead(userId);
+        counterService.onAllRead(userId);
         clearUserNotificationCache(userId);
         
         // Send real-time update
@@ -345,6 +511,7 @@ public class NotificationService {
         update.put("action", "MARK_ALL_READ");
         update.put("timestamp", Instant.now());
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notification-read", update);
+        pushNotificationService.sendUnreadCounts(List.of(userId));
 
         log.info("Marked all notifications as read for user {}", userId);
     }
@@ -353,7 +520,12 @@ public class NotificationService {
      * Xóa notification
      */
     public void deleteNotification(UUID userId, UUID notificationId) {
-        notificationRepository.deleteByUserIdAndNotificationId(userId, notificationId);
+        collapser.flushUser(userId);
+        notificationStore.find(userId, notificationId).ifPresent(n -> {
+            notificationStore.delete(n);
+            counterService.onDeleted(userId, List.of(n));
+            searchService.onDeleted(userId, List.of(n));
+        });
         clearUserNotificationCache(userId);
         
         // Send real-time update
@@ -361,6 +533,7 @@ public class NotificationService {
         update.put("notificationId", notificationId);
         update.put("action", "DELETE");
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notification-delete", update);
+        pushNotificationService.sendUnreadCounts(List.of(userId));
 
         log.info("Deleted notification {} for user {}", notificationId, userId);
     }
@@ -369,7 +542,10 @@ public class NotificationService {
      * Xóa tất cả notifications của user
      */
     public void deleteAllNotifications(UUID userId) {
-        notificationRepository.deleteByUserId(userId);
+        collapser.flushUser(userId);
+        notificationStore.deleteAll(userId);
+        counterService.onAllDeleted(userId);
+        searchService.onAllDeleted(userId);
         clearUserNotificationCache(userId);
         
         // Send real-time update
@@ -377,53 +553,28 @@ public class NotificationService {
         update.put("action", "DELETE_ALL");
         update.put("timestamp", Instant.now());
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notification-delete", update);
+        pushNotificationService.sendUnreadCounts(List.of(userId));
 
         log.info("Deleted all notifications for user {}", userId);
     }
 
     /**
-     * Lấy notification statistics
+     * Lấy notification statistics từ counter, không còn COUNT(*) theo từng type
      */
     public NotificationStatsDto getNotificationStats(UUID userId) {
-        String cacheKey = "notification_stats:" + userId;
-        
-        // Try cache first
-        NotificationStatsDto cachedStats = (NotificationStatsDto) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedStats != null) {
-            return cachedStats;
-        }
-
-        // Query database
-        long totalCount = notificationRepository.countByUserId(userId);
-        long unreadCount = notificationRepository.countUnreadByUserId(userId);
-        long readCount = totalCount - unreadCount;
-        
-        // Get notifications from last 7 days
-        Instant weekAgo = Instant.now().minus(7, ChronoUnit.DAYS);
-        long weeklyCount = notificationRepository.countByUserIdAndCreatedAtAfter(userId, weekAgo);
-        
-        // Get notifications by type
-        Map<String, Long> typeStats = new HashMap<>();
-        for (String type : List.of("MESSAGE", "REACTION", "MENTION", "FRIEND_REQUEST", "CONVERSATION_INVITE", "POLL", "PIN_MESSAGE", "SYSTEM")) {
-            long count = notificationRepository.countByUserIdAndType(userId, type);
-            if (count > 0) {
-                typeStats.put(type, count);
-            }
-        }
+        collapser.flushUser(userId);
+        NotificationCounterService.Counts counts = counterService.getCounts(userId);
 
         NotificationStatsDto stats = NotificationStatsDto.builder()
                 .userId(userId)
-                .totalCount(totalCount)
-                .unreadCount(unreadCount)
-                .readCount(readCount)
-                .weeklyCount(weeklyCount)
-                .typeStats(typeStats)
+                .totalCount(counts.total())
+                .unreadCount(counts.unread())
+                .readCount(Math.max(0, counts.total() - counts.unread()))
+                .weeklyCount(counts.weeklyCount())
+                .typeStats(counts.typeCounts())
                 .lastUpdated(Instant.now())
                 .build();
 
-        // Cache result
-        redisTemplate.opsForValue().set(cacheKey, stats, Duration.ofHours(1));
-        
         return stats;
     }
 
@@ -434,8 +585,13 @@ public class NotificationService {
         if (notificationIds == null || notificationIds.isEmpty()) {
             return;
         }
+        collapser.flushUser(userId);
 
-        notificationRepository.bulkMarkAsRead(userId, notificationIds);
+        List<Notification> unread = notificationStore.findAll(userId, notificationIds).stream()
+                .filter(n -> !Boolean.TRUE.equals(n.getIsRead()))
+                .toList();
+        notificationStore.markAsRead(unread);
+        counterService.onRead(userId, unread);
         clearUserNotificationCache(userId);
         
         // Send real-time update
@@ -444,6 +600,7 @@ public class NotificationService {
         update.put("action", "BULK_MARK_READ");
         update.put("timestamp", Instant.now());
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notification-read", update);
+        pushNotificationService.sendUnreadCounts(List.of(userId));
 
         log.info("Bulk marked {} notifications as read for user {}", notificationIds.size(), userId);
     }
@@ -452,7 +609,8 @@ public class NotificationService {
      * Get notifications by date range
      */
     public List<NotificationDto> getNotificationsByDateRange(UUID userId, Instant startDate, Instant endDate) {
-        List<Notification> notifications = notificationRepository.findByUserIdAndCreatedAtBetween(userId, startDate, endDate);
+        collapser.flushUser(userId);
+        List<Notification> notifications = notificationStore.readRange(userId, startDate, endDate, MAX_LIST_SIZE);
         return notifications.stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
@@ -462,8 +620,16 @@ public class NotificationService {
      * Search notifications by content
      */
     public List<NotificationDto> searchNotifications(UUID userId, String searchTerm, int limit) {
-        List<Notification> notifications = notificationRepository.searchByUserIdAndContent(userId, searchTerm, limit);
-        return notifications.stream()
+        return searchNotifications(userId, searchTerm, null, null, null, limit);
+    }
+
+    /**
+     * Tìm kiếm theo tiền tố trên title/body, lọc theo type và khoảng thời gian (NotificationSearchService)
+     */
+    public List<NotificationDto> searchNotifications(UUID userId, String searchTerm, String type,
+                                                     Instant from, Instant to, int limit) {
+        collapser.flushUser(userId);
+        return searchService.search(userId, searchTerm, type, from, to, limit).stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
     }
@@ -479,33 +645,37 @@ public class NotificationService {
      * Get latest notification for user
      */
     public Optional<NotificationDto> getLatestNotification(UUID userId) {
-        Optional<Notification> latest = notificationRepository.findLatestByUserId(userId);
-        return latest.map(this::mapToDto);
+        collapser.flushUser(userId);
+        return notificationStore.read(userId, null, 1, n -> true).items().stream()
+                .findFirst()
+                .map(this::mapToDto);
     }
 
     /**
      * Lấy tất cả notifications chưa đọc
      */
     public List<NotificationDto> getUnreadNotifications(UUID userId) {
-        String cacheKey = "unread_notifications:" + userId;
+        collapser.flushUser(userId);
+        NotificationCache.Slot slot = notificationCache.lookup("unread_list", userId);
         
         // Try cache first
         @SuppressWarnings("unchecked")
-        List<NotificationDto> cachedNotifications = (List<NotificationDto>) redisTemplate.opsForValue().get(cacheKey);
+        List<NotificationDto> cachedNotifications = (List<NotificationDto>) slot.value();
         
         if (cachedNotifications != null) {
             return cachedNotifications;
         }
 
         // Query database
-        List<Notification> notifications = notificationRepository.findUnreadByUserId(userId);
+        List<Notification> notifications = notificationStore.read(userId, null, MAX_LIST_SIZE,
+                n -> !Boolean.TRUE.equals(n.getIsRead())).items();
         
         List<NotificationDto> notificationDtos = notifications.stream()
                 .map(this::mapToDto)
                 .collect(Collectors.toList());
 
         // Cache result
-        redisTemplate.opsForValue().set(cacheKey, notificationDtos, Duration.ofMinutes(5));
+        notificationCache.put(slot, notificationDtos, Duration.ofMinutes(5));
 
         return notificationDtos;
     }
@@ -531,18 +701,35 @@ public class NotificationService {
 
     // ==================== PRIVATE HELPER METHODS ====================
 
+    /**
+     * Trang theo số thứ tự trên store phân trang theo cursor: đọc (page + 1) * size row rồi bỏ phần đầu
+     */
+    private NotificationStore.Page readOffsetPage(UUID userId, int page, int size, Predicate<Notification> filter) {
+        int pageSize = pageSize(size);
+        int skip = Math.max(0, Math.min(page, MAX_OFFSET_PAGES)) * pageSize;
+        NotificationStore.Page read = notificationStore.read(userId, null, skip + pageSize, filter);
+        List<Notification> items = read.items().size() > skip
+                ? read.items().subList(skip, read.items().size())
+                : List.of();
+        return new NotificationStore.Page(items, read.nextCursor());
+    }
+
+    private static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
     /**
      * Cập nhật conversation notification cho realtime
      */
     private void updateConversationNotification(UUID userId, UUID conversationId, UUID messageId, 
-                                              String messageContent, String senderName) {
+                                              String messageContent, String senderName, Long unreadCount) {
         ConversationNotificationDto conversationNotification = ConversationNotificationDto.builder()
                 .conversationId(conversationId)
                 .lastMessageId(messageId)
                 .lastMessageContent(messageContent)
                 .lastMessageSender(senderName)
                 .lastMessageTime(Instant.now())
-                .unreadCount(1L) // Simplified for now
+                .unreadCount(unreadCount)
                 .notificationType("NEW_MESSAGE")
                 .build();
 
@@ -550,6 +737,57 @@ public class NotificationService {
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/conversation-updates", conversationNotification);
     }
 
+    /**
+     * Ghi lô notification, cập nhật counter, tăng cache generation của các recipient, gửi realtime (STOMP)
+     * và push notification + số chưa đọc qua OutboundDeliveryService
+     */
+    private List<NotificationDto> persistAndDeliver(List<Notification> notifications) {
+        List<NotificationDto> all = notifications.stream().map(this::mapToDto).toList();
+        // Side effect chỉ chạy 1 lần cho mỗi notification_id dù intent bị xử lý lại
+        List<Notification> pending = deliveryGuard.unprocessed(notifications);
+        if (pending.isEmpty()) {
+            return all;
+        }
+        batchWriter.insertAll(pending);
+        List<Notification> claimed = deliveryGuard.claim(pending);
+        notificationCache.invalidateAll(pending.stream().map(Notification::getUserId).toList());
+        if (claimed.isEmpty()) {
+            return all;
+        }
+        counterService.onCreated(claimed);
+        searchService.onCreated(claimed);
+
+        List<NotificationDto> dtos = claimed.stream().map(this::mapToDto).toList();
+        dtos.stream()
+                .collect(Collectors.groupingBy(NotificationDto::getUserId, LinkedHashMap::new, Collectors.toList()))
+                .forEach(this::sendRealtimeNotifications);
+        try {
+            pushNotificationService.sendPushNotifications(dtos);
+        } catch (Exception e) {
+            log.warn("Failed to push {} notifications: {}", dtos.size(), e.getMessage());
+        }
+        pushNotificationService.sendUnreadCounts(new LinkedHashSet<>(dtos.stream().map(NotificationDto::getUserId).toList()));
+        return all;
+    }
+
+    /**
+     * 1 notification: gửi như cũ tới /queue/notifications; nhiều notification: 1 frame tới /queue/notifications/batch
+     */
+    private void sendRealtimeNotifications(UUID userId, List<NotificationDto> notifications) {
+        try {
+            if (notifications.size() == 1) {
+                sendRealtimeNotification(userId, notifications.get(0));
+                return;
+            }
+            Map<String, Object> frame = new HashMap<>();
+            frame.put("notifications", notifications);
+            frame.put("count", notifications.size());
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notifications/batch", frame);
+        } catch (Exception e) {
+            log.warn("Failed to deliver {} notifications to user {}: {}", notifications.size(), userId, e.getMessage());
+        }
+    }
+
     /**
      * Gửi notification real-time
      */
@@ -557,6 +795,19 @@ public class NotificationService {
         messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/notifications", notification);
     }
 
+    /**
+     * Unread của user trong conversation (counter theo conversation); null nếu đọc counter lỗi
+     */
+    private Long conversationUnread(UUID userId, UUID conversationId) {
+        try {
+            return unreadCounterService.getCounts(userId, List.of(conversationId))
+                    .getOrDefault(conversationId, 0).longValue();
+        } catch (Exception e) {
+            log.warn("Failed to read unread count of conversation {} for user {}: {}", conversationId, userId, e.getMessage());
+            return null;
+        }
+    }
+
     private NotificationDto mapToDto(Notification notification) {
         return NotificationDto.builder()
                 .notificationId(notification.getNotificationId())
@@ -594,10 +845,49 @@ public class NotificationService {
         }
     }
 
-    private void clearUserNotificationCache(UUID userId) {
-        Set<String> keys = redisTemplate.keys("*notifications*:" + userId + "*");
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
+    private Map<String, Object> messageMetadata(UUID conversationId, UUID messageId, String senderName) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("conversationId", conversationId.toString());
+        metadata.put("messageId", messageId.toString());
+        metadata.put("senderName", senderName);
+        return metadata;
+    }
+
+    private Map<String, Object> mentionMetadata(UUID conversationId, UUID messageId, UUID mentionerId, String mentionerName) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("conversationId", conversationId.toString());
+        metadata.put("messageId", messageId.toString());
+        metadata.put("mentionerId", mentionerId.toString());
+        metadata.put("mentionerName", mentionerName);
+        return metadata;
+    }
+
+    /**
+     * conversationId trong metadata (String hoặc UUID), null nếu notification không thuộc conversation
+     */
+    private static UUID conversationIdOf(Map<String, Object> metadata) {
+        Object value = metadata != null ? metadata.get("conversationId") : null;
+        if (value instanceof UUID uuid) {
+            return uuid;
         }
+        if (value instanceof String string) {
+            try {
+                return UUID.fromString(string);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String truncate(String content, int maxLength) {
+        if (content == null) {
+            return "";
+        }
+        return content.length() > maxLength ? content.substring(0, maxLength) + "..." : content;
+    }
+
+    private void clearUserNotificationCache(UUID userId) {
+        notificationCache.invalidate(userId);
     }
 }
\ No newline at end of file
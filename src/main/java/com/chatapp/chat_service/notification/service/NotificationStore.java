@@ -0,0 +1,202 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import com.chatapp.chat_service.notification.entity.NotificationBucket;
+import com.chatapp.chat_service.notification.entity.NotificationState;
+import com.chatapp.chat_service.notification.repository.NotificationBucketRepository;
+import com.chatapp.chat_service.notification.repository.NotificationRepository;
+import com.chatapp.chat_service.notification.repository.NotificationStateRepository;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Đọc/sửa notification trên bảng user_notifications (partition theo user + bucket tháng):
+ * - đọc đi qua các bucket mới nhất trước (user_notification_buckets), trong giới hạn thời gian giữ lâu nhất
+ * - "xóa tất cả" / "đọc tất cả" chỉ dời watermark trong user_notification_state, không ghi tombstone theo dải;
+ *   row cũ hơn watermark bị ẩn khi đọc và tự hết hạn theo TTL
+ * - row chỉ còn cell is_read (row gốc đã hết hạn) bị bỏ qua
+ */
+@Component
+@RequiredArgsConstructor
+public class NotificationStore {
+
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM").withZone(ZoneOffset.UTC);
+    private static final int MAX_BUCKETS = 24;
+    private static final int MIN_FETCH = 20;
+    private static final int MAX_FETCH = 500;
+    // Giới hạn số row đọc cho 1 trang có bộ lọc (type, chưa đọc) để không quét hết các bucket
+    private static final int MAX_SCANNED_PER_PAGE = 5000;
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationBucketRepository bucketRepository;
+    private final NotificationStateRepository stateRepository;
+    private final NotificationRetention retention;
+
+    /**
+     * @param nextCursor notification_id dùng làm before cho trang sau, null nếu hết
+     */
+    public record Page(List<Notification> items, UUID nextCursor) {
+    }
+
+    public static String bucketOf(UUID notificationId) {
+        return BUCKET_FORMAT.format(Instant.ofEpochMilli(Uuids.unixTimestamp(notificationId)));
+    }
+
+    /**
+     * 1 trang notification mới nhất trước
+     * @param before notification_id cuối của trang trước (null = trang đầu)
+     * @param filter điều kiện lọc thêm (type, chưa đọc...)
+     */
+    public Page read(UUID userId, UUID before, int limit, Predicate<Notification> filter) {
+        return read(userId, before, null, limit, filter);
+    }
+
+    /**
+     * Notification trong khoảng thời gian, mới nhất trước
+     */
+    public List<Notification> readRange(UUID userId, Instant from, Instant to, int limit) {
+        return read(userId, Uuids.endOf(to.toEpochMilli() + 1), from, limit, notification -> true).items();
+    }
+
+    /**
+     * @param after dừng khi gặp notification tạo trước mốc này (null = không giới hạn)
+     */
+    private Page read(UUID userId, UUID before, Instant after, int limit, Predicate<Notification> filter) {
+        NotificationState state = loadState(userId);
+        String newest = before != null ? bucketOf(before) : BUCKET_FORMAT.format(Instant.now());
+        int fetch = Math.min(Math.max(limit + 1, MIN_FETCH), MAX_FETCH);
+
+        List<Notification> items = new ArrayList<>();
+        UUID lastScanned = null;
+        int scanned = 0;
+        for (NotificationBucket bucket : buckets(userId, newest, after, state)) {
+            UUID cursor = before != null && bucket.getBucket().equals(newest) ? before : null;
+            while (true) {
+                if (scanned >= MAX_SCANNED_PER_PAGE) {
+                    return new Page(items, lastScanned);
+                }
+                List<Notification> rows = cursor == null
+                        ? notificationRepository.findLatestInBucket(userId, bucket.getBucket(), fetch)
+                        : notificationRepository.findInBucketBefore(userId, bucket.getBucket(), cursor, fetch);
+                scanned += rows.size();
+                for (Notification row : rows) {
+                    cursor = row.getNotificationId();
+                    lastScanned = cursor;
+                    if (after != null && Uuids.unixTimestamp(cursor) < after.toEpochMilli()) {
+                        return new Page(items, null);
+                    }
+                    if (visible(row, state) && filter.test(row)) {
+                        items.add(row);
+                        if (items.size() == limit) {
+                            return new Page(items, row.getNotificationId());
+                        }
+                    }
+                }
+                if (rows.size() < fetch) {
+                    break;
+                }
+            }
+        }
+        return new Page(items, null);
+    }
+
+    public Optional<Notification> find(UUID userId, UUID notificationId) {
+        return findAll(userId, List.of(notificationId)).stream().findFirst();
+    }
+
+    /**
+     * Lấy theo id, mỗi bucket 1 query IN
+     */
+    public List<Notification> findAll(UUID userId, Collection<UUID> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return List.of();
+        }
+        NotificationState state = loadState(userId);
+        Map<String, List<UUID>> byBucket = notificationIds.stream()
+                .filter(id -> id.version() == 1)
+                .distinct()
+                .collect(Collectors.groupingBy(NotificationStore::bucketOf));
+        List<Notification> notifications = new ArrayList<>();
+        byBucket.forEach((bucket, ids) -> notificationRepository.findInBucketByIds(userId, bucket, ids).stream()
+                .filter(row -> visible(row, state))
+                .forEach(notifications::add));
+        return notifications;
+    }
+
+    /**
+     * Duyệt toàn bộ notification còn hiển thị của user (dùng cho đối soát counter)
+     */
+    public void forEach(UUID userId, Consumer<Notification> consumer) {
+        UUID cursor = null;
+        do {
+            Page page = read(userId, cursor, MAX_FETCH, notification -> true);
+            page.items().forEach(consumer);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+    }
+
+    public void markAsRead(Collection<Notification> notifications) {
+        for (Notification notification : notifications) {
+            int ttl = retention.remainingTtlSeconds(notification);
+            if (ttl > 0) {
+                notificationRepository.markAsRead(ttl, notification.getUserId(), bucketOf(notification.getNotificationId()),
+                        notification.getNotificationId());
+            }
+        }
+    }
+
+    public void delete(Notification notification) {
+        notificationRepository.deleteByKey(notification.getUserId(), bucketOf(notification.getNotificationId()),
+                notification.getNotificationId());
+    }
+
+    public void markAllAsRead(UUID userId) {
+        stateRepository.updateReadBefore(userId, Uuids.timeBased());
+    }
+
+    public void deleteAll(UUID userId) {
+        stateRepository.updateClearedBefore(userId, Uuids.timeBased());
+    }
+
+    private List<NotificationBucket> buckets(UUID userId, String newest, Instant after, NotificationState state) {
+        String oldest = BUCKET_FORMAT.format(Instant.now().minus(retention.maxRetention()));
+        if (after != null && BUCKET_FORMAT.format(after).compareTo(oldest) > 0) {
+            oldest = BUCKET_FORMAT.format(after);
+        }
+        if (state.getClearedBefore() != null && bucketOf(state.getClearedBefore()).compareTo(oldest) > 0) {
+            oldest = bucketOf(state.getClearedBefore());
+        }
+        return bucketRepository.findBucketsBetween(userId, newest, oldest, MAX_BUCKETS);
+    }
+
+    private NotificationState loadState(UUID userId) {
+        return stateRepository.findById(userId).orElseGet(() -> NotificationState.builder().userId(userId).build());
+    }
+
+    /**
+     * Ẩn row trước watermark xóa và row mồ côi; áp watermark đọc vào is_read
+     */
+    private static boolean visible(Notification row, NotificationState state) {
+        if (row.getCreatedAt() == null || row.getType() == null) {
+            return false;
+        }
+        long timestamp = Uuids.unixTimestamp(row.getNotificationId());
+        if (state.getClearedBefore() != null && timestamp <= Uuids.unixTimestamp(state.getClearedBefore())) {
+            return false;
+        }
+        if (state.getReadBefore() != null && timestamp <= Uuids.unixTimestamp(state.getReadBefore())) {
+            row.setIsRead(true);
+        }
+        return true;
+    }
+}
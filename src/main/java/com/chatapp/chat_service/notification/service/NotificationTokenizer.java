@@ -0,0 +1,92 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Tách token cho search index của notification (dùng chung cho index Redis, Elasticsearch và fallback):
+ * chữ thường, bỏ dấu tiếng Việt ("nhắn" -> "nhan", "đ" -> "d"), tách theo ký tự không phải chữ/số.
+ * Prefix dài MIN_PREFIX..MAX_PREFIX ký tự của mỗi token được index để tìm theo tiền tố,
+ * chỉ cho MAX_INDEXED_TOKENS token đầu (title trước body) và tối đa MAX_INDEXED_PREFIXES prefix mỗi notification.
+ */
+public final class NotificationTokenizer {
+
+    public static final int MIN_PREFIX = 2;
+    public static final int MAX_PREFIX = 10;
+    public static final int MAX_INDEXED_TOKENS = 24;
+    public static final int MAX_INDEXED_PREFIXES = 96;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NotificationTokenizer() {
+    }
+
+    public static Set<String> tokens(String... texts) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            for (String token : SEPARATORS.split(normalize(text))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    public static Set<String> tokens(Notification notification) {
+        return tokens(notification.getTitle(), notification.getBody());
+    }
+
+    /**
+     * Các prefix cần index cho 1 notification
+     */
+    public static Set<String> prefixes(Notification notification) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        int indexedTokens = 0;
+        for (String token : tokens(notification)) {
+            if (indexedTokens++ >= MAX_INDEXED_TOKENS) {
+                break;
+            }
+            for (int length = MIN_PREFIX; length <= Math.min(MAX_PREFIX, token.length()); length++) {
+                prefixes.add(token.substring(0, length));
+                if (prefixes.size() >= MAX_INDEXED_PREFIXES) {
+                    return prefixes;
+                }
+            }
+        }
+        return prefixes;
+    }
+
+    /**
+     * Prefix dùng để tra index cho 1 token của câu truy vấn; null nếu token quá ngắn (chỉ kiểm tra khi lọc kết quả)
+     */
+    public static String indexTerm(String queryToken) {
+        if (queryToken.length() < MIN_PREFIX) {
+            return null;
+        }
+        return queryToken.length() > MAX_PREFIX ? queryToken.substring(0, MAX_PREFIX) : queryToken;
+    }
+
+    /**
+     * Mọi token của truy vấn phải là tiền tố của ít nhất 1 token trong title/body
+     */
+    public static boolean matches(Notification notification, Collection<String> queryTokens) {
+        if (queryTokens.isEmpty()) {
+            return true;
+        }
+        Set<String> tokens = tokens(notification);
+        return queryTokens.stream().allMatch(term -> tokens.stream().anyMatch(token -> token.startsWith(term)));
+    }
+
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,23 +1,64 @@
 package com.chatapp.chat_service.notification.service;
 
 
+import com.chatapp.chat_service.notification.delivery.OutboundDeliveryService;
+import com.chatapp.chat_service.notification.delivery.OutboundMessage;
 import com.chatapp.chat_service.notification.dto.NotificationDto;
-import com.chatapp.chat_service.websocket.handler.presence.WebSocketPresenceHandler;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Push tới mọi thiết bị của user qua OutboundDeliveryService (queue theo thiết bị, không gửi trên thread gọi).
+ * User không có thiết bị nào đang kết nối được bỏ qua trước khi dựng message.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PushNotificationService {
-    private final WebSocketPresenceHandler webSocketPresenceHandler;
+    private static final String TYPE_NOTIFICATION = "NOTIFICATION";
+    private static final String TYPE_UNREAD_COUNT = "UNREAD_COUNT";
+
+    private final OutboundDeliveryService deliveryService;
+    private final NotificationCounterService counterService;
 
     public void sendPushNotification(NotificationDto notification) {
-        // Implementation to send push notification
-        // Could be Firebase Cloud Messaging, Apple Push Notification Service, etc.
-        // Currently using WebSocket as example
-        webSocketPresenceHandler.sendNotificationToUser(
-                notification.getUserId().toString(),
-                notification
-        );
+        deliveryService.deliver(notification.getUserId(), OutboundMessage.of(TYPE_NOTIFICATION, notification));
+    }
+
+    public void sendPushNotifications(Collection<NotificationDto> notifications) {
+        for (NotificationDto notification : notifications) {
+            if (deliveryService.isReachable(notification.getUserId())) {
+                sendPushNotification(notification);
+            }
+        }
+    }
+
+    /**
+     * Số chưa đọc: bản mới thay bản cũ còn chờ trong queue
+     */
+    public void sendUnreadCount(UUID userId, long unreadCount) {
+        deliveryService.deliver(userId, OutboundMessage.coalescing(TYPE_UNREAD_COUNT, TYPE_UNREAD_COUNT,
+                Map.of("unreadCount", unreadCount)));
+    }
+
+    /**
+     * Gửi số chưa đọc hiện tại (từ NotificationCounterService) sau khi counter của các user thay đổi
+     */
+    public void sendUnreadCounts(Collection<UUID> userIds) {
+        for (UUID userId : userIds) {
+            if (!deliveryService.isReachable(userId)) {
+                continue;
+            }
+            try {
+                sendUnreadCount(userId, counterService.getCounts(userId).unread());
+            } catch (Exception e) {
+                log.warn("Failed to push unread count to user {}: {}", userId, e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
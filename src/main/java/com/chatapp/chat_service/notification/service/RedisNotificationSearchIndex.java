@@ -0,0 +1,177 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Inverted index notification trên Redis, mỗi user 1 nhóm key (score = created_at millis, member = notificationId):
+ * - notif_idx:{userId}:t:{prefix}   notification có token bắt đầu bằng prefix
+ * - notif_idx:{userId}:type:{type}  notification theo type
+ * - notif_idx:{userId}:all          mọi notification (truy vấn chỉ có bộ lọc)
+ * - notif_idx:{userId}:keys         set các key ở trên, dùng khi xóa toàn bộ
+ * Tìm kiếm = ZINTERSTORE các key của token/type rồi lấy top-k theo khoảng thời gian, không đọc partition Cassandra.
+ * Mỗi lần ghi cắt các member đã quá hạn lưu (NotificationRetention: key type theo hạn của type, key khác theo hạn dài nhất)
+ * nên key của user hoạt động liên tục không lớn mãi; key hết hạn sau maxRetention kể từ lần ghi cuối.
+ */
+@Component
+@ConditionalOnProperty(name = "elasticsearch.enabled", havingValue = "false", matchIfMissing = true)
+public class RedisNotificationSearchIndex implements NotificationSearchIndex {
+
+    private static final String KEY_PREFIX = "notif_idx:";
+
+    // KEYS[1] = key tạm, KEYS[2..] = các key cần giao; ARGV = max score, min score, limit
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> SEARCH = new DefaultRedisScript<>(
+            "if #KEYS == 2 then " +
+            "  return redis.call('ZREVRANGEBYSCORE', KEYS[2], ARGV[1], ARGV[2], 'LIMIT', 0, ARGV[3]) " +
+            "end " +
+            "local args = {'ZINTERSTORE', KEYS[1], #KEYS - 1} " +
+            "for i = 2, #KEYS do args[#args + 1] = KEYS[i] end " +
+            "args[#args + 1] = 'AGGREGATE' " +
+            "args[#args + 1] = 'MAX' " +
+            "redis.call(unpack(args)) " +
+            "local ids = redis.call('ZREVRANGEBYSCORE', KEYS[1], ARGV[1], ARGV[2], 'LIMIT', 0, ARGV[3]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return ids",
+            List.class);
+
+    // KEYS[1] = registry, KEYS[2] = all, KEYS[3] = type (nếu có), KEYS[4..] = prefix
+    // ARGV = member, score, mốc cắt chung (ms), mốc cắt của key type (ms, '' nếu không có key type), TTL (s)
+    private static final byte[] INDEX = (
+            "for i = 2, #KEYS do " +
+            "  local cutoff = ARGV[3] " +
+            "  if i == 3 and ARGV[4] ~= '' then cutoff = ARGV[4] end " +
+            "  redis.call('ZADD', KEYS[i], ARGV[2], ARGV[1]) " +
+            "  redis.call('ZREMRANGEBYSCORE', KEYS[i], '-inf', '(' .. cutoff) " +
+            "  redis.call('EXPIRE', KEYS[i], ARGV[5]) " +
+            "  redis.call('SADD', KEYS[1], KEYS[i]) " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[5]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final NotificationRetention retention;
+
+    public RedisNotificationSearchIndex(RedisTemplate<String, String> redisTemplate,
+                                        NotificationRetention retention) {
+        this.redisTemplate = redisTemplate;
+        this.retention = retention;
+    }
+
+    @Override
+    public void index(Collection<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Duration maxRetention = retention.maxRetention();
+        byte[] cutoff = bytes(String.valueOf(now - maxRetention.toMillis()));
+        byte[] ttl = bytes(String.valueOf(maxRetention.toSeconds()));
+        // 1 EVAL cho mỗi notification thay vì 3 lệnh cho mỗi key
+        redisTemplate.executePipelined((RedisConnection connection) -> {
+            for (Notification notification : notifications) {
+                List<String> keys = keys(notification);
+                byte[][] keysAndArgs = new byte[keys.size() + 6][];
+                keysAndArgs[0] = bytes(registryKey(notification.getUserId()));
+                for (int i = 0; i < keys.size(); i++) {
+                    keysAndArgs[i + 1] = bytes(keys.get(i));
+                }
+                int arg = keys.size() + 1;
+                keysAndArgs[arg] = bytes(notification.getNotificationId().toString());
+                keysAndArgs[arg + 1] = bytes(String.valueOf((long) score(notification)));
+                keysAndArgs[arg + 2] = cutoff;
+                keysAndArgs[arg + 3] = bytes(notification.getType() != null
+                        ? String.valueOf(now - retention.retentionOf(notification.getType()).toMillis())
+                        : "");
+                keysAndArgs[arg + 4] = ttl;
+                connection.scriptingCommands().eval(INDEX, ReturnType.INTEGER, keys.size() + 1, keysAndArgs);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(UUID userId, Collection<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisConnection connection) -> {
+            for (Notification notification : notifications) {
+                byte[] member = bytes(notification.getNotificationId().toString());
+                keys(notification).forEach(key -> connection.zSetCommands().zRem(bytes(key), member));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void removeAll(UUID userId) {
+        Set<String> keys = redisTemplate.opsForSet().members(registryKey(userId));
+        List<String> toDelete = new ArrayList<>(keys != null ? keys : Set.of());
+        toDelete.add(registryKey(userId));
+        redisTemplate.delete(toDelete);
+    }
+
+    @Override
+    public List<UUID> search(Query query) {
+        String prefix = KEY_PREFIX + query.userId() + ":";
+        Set<String> keys = new LinkedHashSet<>();
+        for (String term : query.terms()) {
+            String indexTerm = NotificationTokenizer.indexTerm(term);
+            if (indexTerm != null) {
+                keys.add(prefix + "t:" + indexTerm);
+            }
+        }
+        if (query.type() != null) {
+            keys.add(prefix + "type:" + query.type());
+        }
+        if (keys.isEmpty()) {
+            keys.add(prefix + "all");
+        }
+
+        List<String> scriptKeys = new ArrayList<>(keys.size() + 1);
+        scriptKeys.add(prefix + "tmp:" + UUID.randomUUID());
+        scriptKeys.addAll(keys);
+        List<?> ids = redisTemplate.execute(SEARCH, scriptKeys,
+                query.to() != null ? String.valueOf(query.to().toEpochMilli()) : "+inf",
+                query.from() != null ? String.valueOf(query.from().toEpochMilli()) : "-inf",
+                String.valueOf(query.limit()));
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream().map(id -> UUID.fromString(id.toString())).toList();
+    }
+
+    private static List<String> keys(Notification notification) {
+        String prefix = KEY_PREFIX + notification.getUserId() + ":";
+        List<String> keys = new ArrayList<>();
+        keys.add(prefix + "all");
+        if (notification.getType() != null) {
+            keys.add(prefix + "type:" + notification.getType());
+        }
+        NotificationTokenizer.prefixes(notification).forEach(term -> keys.add(prefix + "t:" + term));
+        return keys;
+    }
+
+    private static double score(Notification notification) {
+        return notification.getCreatedAt() != null ? notification.getCreatedAt().toEpochMilli() : 0;
+    }
+
+    private static String registryKey(UUID userId) {
+        return KEY_PREFIX + userId + ":keys";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,13 +1,16 @@
 package com.chatapp.chat_service.poll.service;
 
+import com.chatapp.chat_service.auth.repository.UserRepository;
+import com.chatapp.chat_service.conversation.service.ConversationMemberSetCache;
+import com.chatapp.chat_service.notification.service.NotificationService;
 import com.chatapp.chat_service.poll.dto.PollDto;
 import com.chatapp.chat_service.poll.entity.Poll;
 import com.chatapp.chat_service.poll.entity.PollVote;
 import com.chatapp.chat_service.poll.repository.PollVoteRepository;
+import com.chatapp.chat_service.websocket.publisher.ConversationEventPublisher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -22,7 +25,10 @@ public class MessagePollService {
 
     private final PollVoteRepository pollVoteRepository;
     private final RedisTemplate<String, Object> redisTemplate;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ConversationEventPublisher conversationEventPublisher;
+    private final NotificationService notificationService;
+    private final ConversationMemberSetCache memberSetCache;
+    private final UserRepository userRepository;
 
     /**
      * Tạo poll mới
@@ -48,10 +54,33 @@ public class MessagePollService {
         String cacheKey = "poll:" + poll.getPollId();
         redisTemplate.opsForValue().set(cacheKey, poll, Duration.ofHours(24));
 
+        notifyMembers(poll);
+
         log.info("Created poll {} in conversation {}", poll.getPollId(), conversationId);
         return poll;
     }
 
+    /**
+     * Notification poll mới cho các member còn lại, ghi và gửi trong 1 lô
+     */
+    private void notifyMembers(Poll poll) {
+        try {
+            List<UUID> recipientIds = memberSetCache.get(poll.getConversationId()).memberIds().stream()
+                    .filter(memberId -> !memberId.equals(poll.getCreatedBy()))
+                    .toList();
+            if (recipientIds.isEmpty()) {
+                return;
+            }
+            String creatorName = userRepository.findById(poll.getCreatedBy())
+                    .map(user -> user.getDisplay_name() != null ? user.getDisplay_name() : user.getUsername())
+                    .orElse("Someone");
+            notificationService.createPollNotifications(recipientIds, poll.getCreatedBy(), creatorName,
+                    poll.getConversationId(), poll.getPollId(), poll.getQuestion());
+        } catch (Exception e) {
+            log.warn("Failed to send poll notifications for poll {}: {}", poll.getPollId(), e.getMessage());
+        }
+    }
+
     /**
      * Vote trong poll
      */
@@ -102,7 +131,7 @@ public class MessagePollService {
 
         // Send real-time update
         PollDto pollResults = getPollResults(pollId, userId);
-        messagingTemplate.convertAndSend("/topic/conversation/" + poll.getConversationId() + "/polls", pollResults);
+        conversationEventPublisher.publish(poll.getConversationId(), ConversationEventPublisher.POLL, pollResults);
 
         log.info("User {} voted in poll {} with options {}", userId, pollId, selectedOptions);
     }
@@ -203,7 +232,7 @@ public class MessagePollService {
 
         // Send real-time update
         PollDto pollResults = getPollResults(pollId, userId);
-        messagingTemplate.convertAndSend("/topic/conversation/" + poll.getConversationId() + "/polls", pollResults);
+        conversationEventPublisher.publish(poll.getConversationId(), ConversationEventPublisher.POLL, pollResults);
 
         log.info("Poll {} closed by user {}", pollId, userId);
     }
@@ -223,7 +252,7 @@ public class MessagePollService {
         
         if (poll != null) {
             PollDto pollResults = getPollResults(pollId, userId);
-            messagingTemplate.convertAndSend("/topic/conversation/" + poll.getConversationId() + "/polls", pollResults);
+            conversationEventPublisher.publish(poll.getConversationId(), ConversationEventPublisher.POLL, pollResults);
         }
 
         log.info("Removed vote for user {} in poll {}", userId, pollId);
@@ -72,6 +72,10 @@ public class StartupCacheCleanup implements ApplicationRunner {
                 "online_users:*",
                 "typing_users:*",
                 "conversation_members:*",
+                "member_set:*",
+                "conv_cache:*",
+                "dm_pair:*",
+                "notif_cache:*",
                 "cache::*"
         };
 
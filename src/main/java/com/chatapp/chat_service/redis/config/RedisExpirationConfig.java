@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
@@ -17,7 +18,9 @@ public class RedisExpirationConfig {
     private final RedisKeyExpirationListener redisKeyExpirationListener;
 
     @Bean
-    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       MessageListenerAdapter messageListenerAdapter,
+                                                                       ChannelTopic cacheEvictTopic) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
         
@@ -27,6 +30,9 @@ public class RedisExpirationConfig {
             new MessageListenerAdapter(redisKeyExpirationListener),
             new PatternTopic("__keyevent@*__:expired")
         );
+
+        // Invalidate cache cục bộ (L1) giữa các node
+        container.addMessageListener(messageListenerAdapter, cacheEvictTopic);
         
         System.out.println("Redis key expiration listener configured successfully");
         return container;
@@ -5,22 +5,25 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.stereotype.Service;
 
+/**
+ * Gửi thông báo invalidate cache cục bộ (L1) tới mọi node qua cacheEvictTopic.
+ * Message: {cacheName}|{key}|{version}
+ */
 @Service
 public class RedisCacheEvictPublisher {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, String> redisTemplate;
     private final ChannelTopic cacheEvictTopic;
 
     public RedisCacheEvictPublisher(
-            RedisTemplate<String, Object> redisTemplate,
+            RedisTemplate<String, String> redisTemplate,
             ChannelTopic cacheEvictTopic
     ) {
         this.redisTemplate = redisTemplate;
         this.cacheEvictTopic = cacheEvictTopic;
     }
 
-    public void publish(String cacheKey) {
-        redisTemplate.convertAndSend(cacheEvictTopic.getTopic(), cacheKey);
-        System.out.println("[Redis] Published cache evict: " + cacheKey);
+    public void publish(String cacheName, String key, long version) {
+        redisTemplate.convertAndSend(cacheEvictTopic.getTopic(), cacheName + "|" + key + "|" + version);
     }
-}
\ No newline at end of file
+}
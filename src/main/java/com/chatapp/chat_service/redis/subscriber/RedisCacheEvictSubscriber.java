@@ -1,24 +1,49 @@
 package com.chatapp.chat_service.redis.subscriber;
 
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Nhận thông báo từ cacheEvictTopic và chuyển cho cache cục bộ đã đăng ký theo tên.
+ * Chỉ xóa L1 trên node này; L2 (Redis) đã được node gửi xử lý.
+ */
+@Slf4j
 @Service
 public class RedisCacheEvictSubscriber implements MessageListener {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final Map<String, BiConsumer<String, Long>> handlers = new ConcurrentHashMap<>();
 
-    public RedisCacheEvictSubscriber(RedisTemplate<String, Object> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    /**
+     * @param handler nhận (key, version mới)
+     */
+    public void register(String cacheName, BiConsumer<String, Long> handler) {
+        handlers.put(cacheName, handler);
     }
 
     @Override
     public void onMessage(Message message, byte[] pattern) {
-        String cacheKey = new String(message.getBody());
-        redisTemplate.delete(cacheKey);
-        System.out.println("[Redis] Evicted cache: " + cacheKey);
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length != 3) {
+            log.warn("Ignoring malformed cache evict message: {}", body);
+            return;
+        }
+        BiConsumer<String, Long> handler = handlers.get(parts[0]);
+        if (handler == null) {
+            return;
+        }
+        try {
+            handler.accept(parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed cache evict message: {}", body);
+        }
     }
-}
\ No newline at end of file
+}
@@ -42,6 +42,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/ws/**").permitAll()
+                        .requestMatchers("/push").permitAll() // JWT kiểm tra trong PushHandshakeInterceptor
                         .requestMatchers("/", "/health", "/api", "/*.md").permitAll() // API Documentation
                         .requestMatchers("/static/**").permitAll() // Static resources
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
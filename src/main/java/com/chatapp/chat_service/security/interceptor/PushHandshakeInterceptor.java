@@ -0,0 +1,55 @@
+package com.chatapp.chat_service.security.interceptor;
+
+import com.chatapp.chat_service.security.jwt.JwtService;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Xác thực handshake của kênh push thô (/push): token lấy từ header Authorization: Bearer
+ * hoặc query param access_token (client không đặt được header khi mở WebSocket).
+ * Thành công thì gắn attribute userId cho WebSocketPresenceHandler.
+ */
+@Component
+@RequiredArgsConstructor
+public class PushHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String TOKEN_PARAM = "access_token";
+
+    private final JwtService jwtService;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String token = extractToken(request);
+        if (token == null || !jwtService.validateToken(token)) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        attributes.put("userId", jwtService.getUserIdFromToken(token));
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static String extractToken(ServerHttpRequest request) {
+        List<String> authHeaders = request.getHeaders().get("Authorization");
+        if (authHeaders != null && !authHeaders.isEmpty() && authHeaders.get(0).startsWith(BEARER_PREFIX)) {
+            return authHeaders.get(0).substring(BEARER_PREFIX.length());
+        }
+        return UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst(TOKEN_PARAM);
+    }
+}
@@ -0,0 +1,34 @@
+package com.chatapp.chat_service.websocket.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import com.chatapp.chat_service.security.interceptor.PushHandshakeInterceptor;
+import com.chatapp.chat_service.websocket.handler.presence.WebSocketPresenceHandler;
+
+/**
+ * Kênh push thô /push (không STOMP): mỗi kết nối là 1 thiết bị của WebSocketDeliveryTransport,
+ * nhận frame JSON {type, payload, createdAt} từ OutboundDeliveryService.
+ */
+@Configuration
+@EnableWebSocket
+public class PushWebSocketConfig implements WebSocketConfigurer {
+
+    private final WebSocketPresenceHandler presenceHandler;
+    private final PushHandshakeInterceptor handshakeInterceptor;
+
+    public PushWebSocketConfig(WebSocketPresenceHandler presenceHandler,
+                               PushHandshakeInterceptor handshakeInterceptor) {
+        this.presenceHandler = presenceHandler;
+        this.handshakeInterceptor = handshakeInterceptor;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(presenceHandler, "/push")
+                .setAllowedOriginPatterns("http://localhost:*")
+                .addInterceptors(handshakeInterceptor);
+    }
+}
@@ -15,15 +15,23 @@ import org.springframework.web.socket.server.standard.ServletServerContainerFact
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
 import com.chatapp.chat_service.security.interceptor.WebSocketAuthInterceptor;
+import com.chatapp.chat_service.websocket.handler.connection.ConversationReplayInterceptor;
+import com.chatapp.chat_service.websocket.handler.connection.ConversationSubscriptionInterceptor;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthInterceptor authInterceptor;
+    private final ConversationSubscriptionInterceptor subscriptionInterceptor;
+    private final ConversationReplayInterceptor replayInterceptor;
 
-    public WebSocketConfig(WebSocketAuthInterceptor authInterceptor) {
+    public WebSocketConfig(WebSocketAuthInterceptor authInterceptor,
+                           ConversationSubscriptionInterceptor subscriptionInterceptor,
+                           ConversationReplayInterceptor replayInterceptor) {
         this.authInterceptor = authInterceptor;
+        this.subscriptionInterceptor = subscriptionInterceptor;
+        this.replayInterceptor = replayInterceptor;
     }
 
     @Override
@@ -50,7 +58,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(authInterceptor)
+        registration.interceptors(authInterceptor, subscriptionInterceptor, replayInterceptor)
                 .taskExecutor()
                 .corePoolSize(10)
                 .maxPoolSize(20);
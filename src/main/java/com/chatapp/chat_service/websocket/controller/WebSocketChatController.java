@@ -120,7 +120,7 @@ public class WebSocketChatController {
 
             // 3. GỬI VÀO KAFKA
             MessageEvent kafkaEvent = MessageEvent.forKafkaProcessing(messageRequest);
-            kafkaEventProducer.sendMessageEvent(kafkaEvent);
+            kafkaEventProducer.sendMessageEvent(messageRequest.getConversationId(), kafkaEvent);
 
             System.out.println("File message echoed immediately and sent to Kafka: " + echoResponse.getMessageId());
 
@@ -202,7 +202,7 @@ public class WebSocketChatController {
             // 3. GỬI VÀO KAFKA - Để xử lý lưu trữ và broadcast
             MessageEvent kafkaEvent = MessageEvent.forKafkaProcessing(messageRequest);
 
-            kafkaEventProducer.sendMessageEvent(kafkaEvent);
+            kafkaEventProducer.sendMessageEvent(messageRequest.getConversationId(), kafkaEvent);
             System.out.println("Successfully sent to Kafka");
 
             System.out.println("Message echoed immediately and sent to Kafka for processing: " + echoResponse.getMessageId());
@@ -0,0 +1,166 @@
+package com.chatapp.chat_service.websocket.handler.connection;
+
+import com.chatapp.chat_service.websocket.service.ConversationEventLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gửi lại phần sự kiện bị lỡ khi client kết nối lại, thay vì client tải lại toàn bộ lịch sử:
+ * - CONNECT có thể mang header resume-cursors: "{conversationId}:{eventId},..." (cursor của cả session)
+ * - SUBSCRIBE /topic/conversation/{id} có thể mang header resume-from: {eventId} (ưu tiên hơn cursor của session)
+ * Sau khi broker đã ghi nhận subscription, session nhận 1 frame ở /user/queue/conversation-replay:
+ * {conversationId, events: [{eventId, kind, payload}], latestEventId, tooFarBehind}.
+ * tooFarBehind = true nghĩa là phần lỡ không còn trong log, client phải tải lại conversation.
+ * Event có thể trùng với frame realtime tới cùng lúc, client bỏ trùng theo event-id.
+ */
+@Slf4j
+@Component
+public class ConversationReplayInterceptor implements ExecutorChannelInterceptor {
+
+    public static final String RESUME_FROM_HEADER = "resume-from";
+    public static final String RESUME_CURSORS_HEADER = "resume-cursors";
+
+    private static final Pattern CONVERSATION_TOPIC = Pattern.compile("^/topic/conversation/([0-9a-fA-F-]{36})$");
+    private static final int MAX_SESSION_CURSORS = 200;
+
+    private final ConversationEventLog eventLog;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Map<UUID, String>> sessionCursors = new ConcurrentHashMap<>();
+
+    // SimpMessagingTemplate được tạo sau cấu hình broker (interceptor này đăng ký trong cấu hình đó)
+    public ConversationReplayInterceptor(ConversationEventLog eventLog,
+                                         @Lazy SimpMessagingTemplate messagingTemplate,
+                                         ObjectMapper objectMapper) {
+        this.eventLog = eventLog;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null) {
+            return message;
+        }
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            Map<UUID, String> cursors = parseCursors(accessor.getFirstNativeHeader(RESUME_CURSORS_HEADER));
+            if (!cursors.isEmpty()) {
+                sessionCursors.put(sessionId, cursors);
+            }
+        } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            sessionCursors.remove(sessionId);
+        }
+        return message;
+    }
+
+    /**
+     * Chạy sau khi broker xử lý SUBSCRIBE nên event mới từ đây đã tới được session
+     */
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler)) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (!StompCommand.SUBSCRIBE.equals(accessor.getCommand()) || accessor.getDestination() == null) {
+            return;
+        }
+        Matcher matcher = CONVERSATION_TOPIC.matcher(accessor.getDestination());
+        Principal user = accessor.getUser();
+        String sessionId = accessor.getSessionId();
+        if (!matcher.matches() || user == null || sessionId == null) {
+            return;
+        }
+
+        UUID conversationId = UUID.fromString(matcher.group(1));
+        String cursor = accessor.getFirstNativeHeader(RESUME_FROM_HEADER);
+        if (cursor == null) {
+            Map<UUID, String> cursors = sessionCursors.get(sessionId);
+            cursor = cursors != null ? cursors.remove(conversationId) : null;
+        }
+        if (cursor == null || cursor.isBlank()) {
+            return;
+        }
+        try {
+            replay(user, sessionId, conversationId, cursor);
+        } catch (Exception e) {
+            log.warn("Failed to replay conversation {} for session {}: {}", conversationId, sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Kết nối đóng đột ngột (không có frame DISCONNECT)
+     */
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        sessionCursors.remove(event.getSessionId());
+    }
+
+    private void replay(Principal user, String sessionId, UUID conversationId, String cursor) throws Exception {
+        ConversationEventLog.Replay replay = eventLog.replay(conversationId, cursor);
+        List<Map<String, Object>> events = new ArrayList<>(replay.events().size());
+        for (ConversationEventLog.Entry entry : replay.events()) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("eventId", entry.eventId());
+            event.put("kind", entry.kind());
+            event.put("payload", objectMapper.readTree(entry.payload()));
+            events.add(event);
+        }
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("conversationId", conversationId);
+        frame.put("events", events);
+        frame.put("latestEventId", replay.latestEventId());
+        frame.put("tooFarBehind", replay.tooFarBehind());
+
+        // Chỉ gửi tới session đang subscribe, không tới các thiết bị khác của user
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(user.getName(), "/queue/conversation-replay", frame,
+                headers.getMessageHeaders());
+        log.debug("Replayed {} events of conversation {} to session {} (tooFarBehind={})",
+                events.size(), conversationId, sessionId, replay.tooFarBehind());
+    }
+
+    private static Map<UUID, String> parseCursors(String header) {
+        if (header == null || header.isBlank()) {
+            return Map.of();
+        }
+        Map<UUID, String> cursors = new ConcurrentHashMap<>();
+        for (String part : header.split(",")) {
+            int separator = part.indexOf(':');
+            if (separator <= 0 || cursors.size() >= MAX_SESSION_CURSORS) {
+                continue;
+            }
+            try {
+                cursors.put(UUID.fromString(part.substring(0, separator).trim()), part.substring(separator + 1).trim());
+            } catch (IllegalArgumentException e) {
+                // bỏ cursor sai định dạng
+            }
+        }
+        return cursors;
+    }
+}
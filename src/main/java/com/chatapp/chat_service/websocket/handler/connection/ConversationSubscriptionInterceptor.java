@@ -0,0 +1,75 @@
+package com.chatapp.chat_service.websocket.handler.connection;
+
+import com.chatapp.chat_service.security.interceptor.WebSocketAuthInterceptor;
+import com.chatapp.chat_service.websocket.service.ConversationViewerService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ghi nhận SUBSCRIBE/UNSUBSCRIBE vào /topic/conversation/{id} để biết ai đang mở conversation.
+ * Đăng ký sau WebSocketAuthInterceptor nên user đã được gắn vào message.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversationSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final Pattern CONVERSATION_TOPIC = Pattern.compile("^/topic/conversation/([0-9a-fA-F-]{36})$");
+
+    private final ConversationViewerService viewerService;
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String sessionId = accessor.getSessionId();
+        if (sessionId == null) {
+            return;
+        }
+
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            UUID userId = userId(accessor.getUser());
+            Matcher matcher = accessor.getDestination() != null ? CONVERSATION_TOPIC.matcher(accessor.getDestination()) : null;
+            if (userId != null && matcher != null && matcher.matches()) {
+                viewerService.onSubscribe(sessionId, accessor.getSubscriptionId(), userId, UUID.fromString(matcher.group(1)));
+            }
+        } else if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand())) {
+            viewerService.onUnsubscribe(sessionId, accessor.getSubscriptionId());
+        } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            viewerService.onDisconnect(sessionId);
+        }
+    }
+
+    /**
+     * Kết nối đóng đột ngột (không có frame DISCONNECT)
+     */
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        viewerService.onDisconnect(event.getSessionId());
+    }
+
+    private static UUID userId(Principal user) {
+        if (user instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof WebSocketAuthInterceptor.UserPrincipal principal) {
+            return principal.getUserId();
+        }
+        return null;
+    }
+}
@@ -5,17 +5,28 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Giữ các WebSocket session thô theo user, mỗi thiết bị 1 session (key = session id).
+ * Session được bọc bởi ConcurrentWebSocketSessionDecorator: gửi an toàn từ nhiều thread,
+ * buffer gửi có giới hạn và session bị đóng khi gửi quá lâu.
+ */
 @Component
 public class WebSocketPresenceHandler extends TextWebSocketHandler {
 //    private final MessageService messageService;
-    private final Map<UUID, WebSocketSession> activeSessions = new ConcurrentHashMap<>();
+    private static final int SEND_TIME_LIMIT_MS = 10 * 1000;
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    private final Map<UUID, Map<String, WebSocketSession>> activeSessions = new ConcurrentHashMap<>();
 
 //    public WebSocketPresenceHandler(MessageService messageService) {
 //        this.messageService = messageService;
@@ -25,7 +36,8 @@ public class WebSocketPresenceHandler extends TextWebSocketHandler {
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         UUID userId = (UUID) session.getAttributes().get("userId");
         if (userId != null) {
-            activeSessions.put(userId, session);
+            activeSessions.computeIfAbsent(userId, id -> new ConcurrentHashMap<>())
+                    .put(session.getId(), new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_SIZE_LIMIT));
 //            messageService.setUserOnlineStatus(userId, true);
         }
     }
@@ -34,19 +46,39 @@ public class WebSocketPresenceHandler extends TextWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         UUID userId = (UUID) session.getAttributes().get("userId");
         if (userId != null) {
-            activeSessions.remove(userId);
+            activeSessions.computeIfPresent(userId, (id, sessions) -> {
+                sessions.remove(session.getId());
+                return sessions.isEmpty() ? null : sessions;
+            });
 //            messageService.setUserOnlineStatus(userId, false);
         }
     }
 
-    public void sendNotificationToUser(String userId, Object notification) {
-        WebSocketSession session = activeSessions.get(UUID.fromString(userId));
+    /**
+     * Id các session đang mở của user
+     */
+    public Collection<String> getSessionIds(UUID userId) {
+        Map<String, WebSocketSession> sessions = activeSessions.get(userId);
+        return sessions != null ? List.copyOf(sessions.keySet()) : List.of();
+    }
+
+    public void sendToSession(UUID userId, String sessionId, String payload) throws IOException {
+        WebSocketSession session = session(userId, sessionId);
+        if (session == null || !session.isOpen()) {
+            throw new IOException("WebSocket session " + sessionId + " is closed");
+        }
+        session.sendMessage(new TextMessage(payload));
+    }
+
+    public void closeSession(UUID userId, String sessionId, CloseStatus status) throws IOException {
+        WebSocketSession session = session(userId, sessionId);
         if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(notification.toString()));
-            } catch (IOException e) {
-                // Handle exception
-            }
+            session.close(status);
         }
     }
-}
\ No newline at end of file
+
+    private WebSocketSession session(UUID userId, String sessionId) {
+        Map<String, WebSocketSession> sessions = activeSessions.get(userId);
+        return sessions != null ? sessions.get(sessionId) : null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.chatapp.chat_service.websocket.publisher;
+
+import com.chatapp.chat_service.websocket.service.ConversationEventLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Broadcast sự kiện của conversation tới /topic/conversation/{id}[/suffix] và ghi vào ConversationEventLog.
+ * Frame mang header event-id để client giữ cursor và gửi lại khi kết nối lại (resume-from).
+ * Ghi log lỗi thì vẫn broadcast, chỉ thiếu event-id.
+ */
+@Slf4j
+@Component
+public class ConversationEventPublisher {
+
+    public static final String EVENT_ID_HEADER = "event-id";
+
+    public static final String MESSAGE = "MESSAGE";
+    public static final String REACTION = "REACTION";
+    public static final String READ = "READ";
+    public static final String PIN = "PIN";
+    public static final String POLL = "POLL";
+
+    private static final Map<String, String> SUFFIXES = Map.of(
+            MESSAGE, "",
+            REACTION, "/reactions",
+            READ, "/read",
+            PIN, "/pins",
+            POLL, "/polls");
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConversationEventLog eventLog;
+    private final ObjectMapper objectMapper;
+
+    public ConversationEventPublisher(SimpMessagingTemplate messagingTemplate,
+                                      ConversationEventLog eventLog,
+                                      ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.eventLog = eventLog;
+        this.objectMapper = objectMapper;
+    }
+
+    public void publish(UUID conversationId, String kind, Object payload) {
+        String destination = destination(conversationId, kind);
+        String eventId = null;
+        try {
+            eventId = eventLog.append(conversationId, kind, objectMapper.writeValueAsString(payload));
+        } catch (Exception e) {
+            log.warn("Failed to append {} event of conversation {} to event log: {}", kind, conversationId, e.getMessage());
+        }
+        if (eventId != null) {
+            messagingTemplate.convertAndSend(destination, payload, Map.of(EVENT_ID_HEADER, eventId));
+        } else {
+            messagingTemplate.convertAndSend(destination, payload);
+        }
+    }
+
+    public static String destination(UUID conversationId, String kind) {
+        return "/topic/conversation/" + conversationId + SUFFIXES.getOrDefault(kind, "");
+    }
+}
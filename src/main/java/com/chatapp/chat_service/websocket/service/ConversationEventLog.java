@@ -0,0 +1,123 @@
+package com.chatapp.chat_service.websocket.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Log sự kiện gần đây của mỗi conversation trên Redis Stream conv_events:{conversationId}
+ * (message, reaction, read, pin, poll), dùng để client kết nối lại chỉ nhận phần bị lỡ:
+ * - giữ tối đa max-length entry và entry trong max-age-ms gần nhất; stream hết hạn khi conversation im lặng quá max-age-ms
+ * - event id = id của entry trong stream, tăng dần theo thời gian
+ * - cursor cũ hơn phần còn giữ hoặc khoảng lỡ dài hơn max-replay: trả tooFarBehind, client tự tải lại
+ */
+@Service
+public class ConversationEventLog {
+
+    private static final String KEY_PREFIX = "conv_events:";
+
+    // KEYS[1] = stream; ARGV = maxlen, kind, payload, minid, ttl ms
+    private static final DefaultRedisScript<String> APPEND = new DefaultRedisScript<>(
+            "local id = redis.call('XADD', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', 'k', ARGV[2], 'p', ARGV[3]) " +
+            "redis.call('XTRIM', KEYS[1], 'MINID', '~', ARGV[4]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[5]) " +
+            "return id",
+            String.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final int maxLength;
+    private final long maxAgeMs;
+    private final int maxReplay;
+
+    public record Entry(String eventId, String kind, String payload) {
+    }
+
+    /**
+     * @param latestEventId cursor mới cho client (event cuối đã trả, hoặc cursor cũ nếu không có gì mới)
+     */
+    public record Replay(List<Entry> events, String latestEventId, boolean tooFarBehind) {
+
+        static Replay behind() {
+            return new Replay(List.of(), null, true);
+        }
+    }
+
+    public ConversationEventLog(RedisTemplate<String, String> redisTemplate,
+                                @Value("${chat.conversation.event-log.max-length:1000}") int maxLength,
+                                @Value("${chat.conversation.event-log.max-age-ms:3600000}") long maxAgeMs,
+                                @Value("${chat.conversation.event-log.max-replay:200}") int maxReplay) {
+        this.redisTemplate = redisTemplate;
+        this.maxLength = maxLength;
+        this.maxAgeMs = maxAgeMs;
+        this.maxReplay = maxReplay;
+    }
+
+    /**
+     * @return event id của entry vừa ghi
+     */
+    public String append(UUID conversationId, String kind, String payload) {
+        return redisTemplate.execute(APPEND, List.of(key(conversationId)),
+                String.valueOf(maxLength), kind, payload,
+                String.valueOf(System.currentTimeMillis() - maxAgeMs), String.valueOf(maxAgeMs));
+    }
+
+    /**
+     * Các event sau cursor afterEventId, cũ nhất trước
+     */
+    public Replay replay(UUID conversationId, String afterEventId) {
+        RecordId cursor;
+        try {
+            cursor = RecordId.of(afterEventId);
+        } catch (IllegalArgumentException e) {
+            return Replay.behind();
+        }
+        if (cursor.shouldBeAutoGenerated() || cursor.getTimestamp() < System.currentTimeMillis() - maxAgeMs) {
+            return Replay.behind();
+        }
+
+        String key = key(conversationId);
+        List<MapRecord<String, Object, Object>> first = redisTemplate.opsForStream()
+                .range(key, Range.unbounded(), Limit.limit().count(1));
+        if (first == null || first.isEmpty()) {
+            // Stream đã hết hạn do không có event nào trong max-age-ms: không lỡ gì
+            return new Replay(List.of(), afterEventId, false);
+        }
+        if (compare(first.get(0).getId(), cursor) > 0) {
+            // Entry ngay sau cursor có thể đã bị cắt
+            return Replay.behind();
+        }
+
+        RecordId next = RecordId.of(cursor.getTimestamp(), cursor.getSequence() + 1);
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                .range(key, Range.rightUnbounded(Range.Bound.inclusive(next.getValue())), Limit.limit().count(maxReplay + 1));
+        if (records == null || records.isEmpty()) {
+            return new Replay(List.of(), afterEventId, false);
+        }
+        if (records.size() > maxReplay) {
+            return Replay.behind();
+        }
+        List<Entry> events = records.stream()
+                .map(record -> new Entry(record.getId().getValue(),
+                        String.valueOf(record.getValue().get("k")),
+                        String.valueOf(record.getValue().get("p"))))
+                .toList();
+        return new Replay(events, events.get(events.size() - 1).eventId(), false);
+    }
+
+    private static int compare(RecordId a, RecordId b) {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    private static String key(UUID conversationId) {
+        return KEY_PREFIX + conversationId;
+    }
+}
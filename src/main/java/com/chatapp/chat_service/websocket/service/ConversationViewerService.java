@@ -0,0 +1,97 @@
+package com.chatapp.chat_service.websocket.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Theo dõi user đang mở conversation (đang subscribe /topic/conversation/{id}).
+ * - Trên node: sessionId -> (subscriptionId -> conversationId) để xử lý UNSUBSCRIBE/DISCONNECT
+ * - Trên Redis: ZSET conv_viewers:{conversationId} gồm "{userId}:{sessionId}" -> thời điểm subscribe, dùng chung mọi node.
+ *   Entry cũ hơn max-age (node chết không kịp dọn) bị bỏ khi đọc.
+ */
+@Slf4j
+@Service
+public class ConversationViewerService {
+
+    private static final String VIEWERS_KEY_PREFIX = "conv_viewers:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration maxAge;
+    private final Map<String, Map<String, UUID>> sessionSubscriptions = new ConcurrentHashMap<>();
+    private final Map<String, UUID> sessionUsers = new ConcurrentHashMap<>();
+
+    public ConversationViewerService(RedisTemplate<String, String> redisTemplate,
+                                     @Value("${chat.websocket.viewer.max-age-minutes:720}") long maxAgeMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+    }
+
+    public void onSubscribe(String sessionId, String subscriptionId, UUID userId, UUID conversationId) {
+        sessionUsers.put(sessionId, userId);
+        sessionSubscriptions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, conversationId);
+        try {
+            String key = VIEWERS_KEY_PREFIX + conversationId;
+            redisTemplate.opsForZSet().add(key, member(userId, sessionId), System.currentTimeMillis());
+            redisTemplate.expire(key, maxAge);
+        } catch (Exception e) {
+            log.warn("Failed to register viewer {} of conversation {}: {}", userId, conversationId, e.getMessage());
+        }
+    }
+
+    public void onUnsubscribe(String sessionId, String subscriptionId) {
+        Map<String, UUID> subscriptions = sessionSubscriptions.get(sessionId);
+        UUID conversationId = subscriptions != null ? subscriptions.remove(subscriptionId) : null;
+        if (conversationId != null && !subscriptions.containsValue(conversationId)) {
+            removeViewer(sessionId, conversationId);
+        }
+    }
+
+    public void onDisconnect(String sessionId) {
+        Map<String, UUID> subscriptions = sessionSubscriptions.remove(sessionId);
+        if (subscriptions != null) {
+            new HashSet<>(subscriptions.values()).forEach(conversationId -> removeViewer(sessionId, conversationId));
+        }
+        sessionUsers.remove(sessionId);
+    }
+
+    /**
+     * User đang mở conversation trên ít nhất 1 thiết bị
+     */
+    public Set<UUID> getViewers(UUID conversationId) {
+        String key = VIEWERS_KEY_PREFIX + conversationId;
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(key, 0, System.currentTimeMillis() - maxAge.toMillis());
+            Set<String> members = redisTemplate.opsForZSet().range(key, 0, -1);
+            Set<UUID> viewers = new HashSet<>();
+            if (members != null) {
+                members.forEach(member -> viewers.add(UUID.fromString(member.substring(0, member.indexOf(':')))));
+            }
+            return viewers;
+        } catch (Exception e) {
+            log.warn("Failed to read viewers of conversation {}: {}", conversationId, e.getMessage());
+            return Collections.emptySet();
+        }
+    }
+
+    private void removeViewer(String sessionId, UUID conversationId) {
+        UUID userId = sessionUsers.get(sessionId);
+        if (userId == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(VIEWERS_KEY_PREFIX + conversationId, member(userId, sessionId));
+        } catch (Exception e) {
+            log.warn("Failed to remove viewer {} of conversation {}: {}", userId, conversationId, e.getMessage());
+        }
+    }
+
+    private static String member(UUID userId, String sessionId) {
+        return userId + ":" + sessionId;
+    }
+}
@@ -0,0 +1,39 @@
+-- Migration script: Create per-user inbox tables
+-- Purpose: List a user's conversations ordered by last activity without loading and sorting everything
+-- Author: System
+-- Date: 2026-10-19
+
+-- One row per (user, conversation), positioned at the conversation's last activity.
+-- Partitions are bounded by a monthly bucket (yyyy-MM, UTC) derived from last_activity_id.
+CREATE TABLE IF NOT EXISTS user_inbox (
+    user_id UUID,
+    bucket TEXT,
+    last_activity_id TIMEUUID,
+    conversation_id UUID,
+    conversation_type TEXT,
+    conversation_name TEXT,
+    peer_user_id UUID,
+    last_message_id TIMEUUID,
+    last_sender_id UUID,
+    last_message_preview TEXT,
+    unread_count INT,
+    PRIMARY KEY ((user_id, bucket), last_activity_id, conversation_id)
+) WITH CLUSTERING ORDER BY (last_activity_id DESC, conversation_id ASC);
+
+-- Non-empty inbox buckets per user, newest first
+CREATE TABLE IF NOT EXISTS user_inbox_buckets (
+    user_id UUID,
+    bucket TEXT,
+    PRIMARY KEY (user_id, bucket)
+) WITH CLUSTERING ORDER BY (bucket DESC);
+
+-- Current inbox position and unread count of every member, one partition per conversation
+-- so fan-out reads all members' state with a single query
+CREATE TABLE IF NOT EXISTS user_inbox_state (
+    conversation_id UUID,
+    user_id UUID,
+    bucket TEXT,
+    last_activity_id TIMEUUID,
+    unread_count INT,
+    PRIMARY KEY (conversation_id, user_id)
+);
@@ -0,0 +1,14 @@
+-- Migration script: Create DM pair lookup table
+-- Purpose: Find the direct-message conversation of two users with a single-partition read
+-- Author: System
+-- Date: 2026-10-19
+
+-- One row per user pair, user_low < user_high (UUID order), pointing to the active DM conversation.
+-- Written in the same logged batch as the DM conversation, removed when the DM is soft deleted.
+CREATE TABLE IF NOT EXISTS dm_by_pair (
+    user_low UUID,
+    user_high UUID,
+    conversation_id UUID,
+    created_at TIMESTAMP,
+    PRIMARY KEY ((user_low, user_high))
+);
@@ -0,0 +1,15 @@
+-- Migration script: Create unread counters table
+-- Purpose: Durable copy of per-(user, conversation) unread counters kept in Redis (unread:{user_id})
+-- Author: System
+-- Date: 2026-10-19
+
+-- One partition per user so a cold Redis hash is rebuilt with a single query.
+-- last_read_message_id is the user's read watermark in the conversation.
+CREATE TABLE IF NOT EXISTS unread_counters (
+    user_id UUID,
+    conversation_id UUID,
+    unread_count INT,
+    last_read_message_id TIMEUUID,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (user_id, conversation_id)
+);
@@ -0,0 +1,24 @@
+-- Migration script: Add fan-out-on-read delivery mode for very large conversations
+-- Purpose: Large conversations stop writing per-member inbox rows/notifications on every message;
+--          members compute unread and previews on read from a conversation-level sequence number
+-- Author: System
+-- Date: 2026-10-19
+
+-- NULL/'write' = fan-out-on-write (default), 'read' = fan-out-on-read.
+-- Switched automatically when the member count crosses the configured thresholds.
+ALTER TABLE conversations ADD delivery_mode TEXT;
+
+-- Conversation sequence at the time the user last read a fan-out-on-read conversation
+-- (unread = unread_count + conversation seq - read_seq). NULL for fan-out-on-write conversations.
+ALTER TABLE unread_counters ADD read_seq BIGINT;
+
+-- Durable copy of the per-conversation sequence kept in Redis (conv_seq:{conversation_id}),
+-- together with the latest message used as preview for fan-out-on-read conversations.
+CREATE TABLE IF NOT EXISTS conversation_sequences (
+    conversation_id UUID PRIMARY KEY,
+    seq BIGINT,
+    last_message_id TIMEUUID,
+    last_sender_id UUID,
+    last_message_preview TEXT,
+    updated_at TIMESTAMP
+);
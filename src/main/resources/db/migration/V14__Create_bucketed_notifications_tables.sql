@@ -0,0 +1,43 @@
+-- Migration script: Time-windowed notification storage
+-- Purpose: Bound notification partitions by month, expire rows by TTL instead of deletes,
+--          and keep "delete all" / "mark all read" from writing tombstone ranges
+-- Author: System
+-- Date: 2026-10-19
+
+-- Notifications partitioned by (user, monthly bucket yyyy-MM UTC derived from notification_id).
+-- Every row is written with a per-type TTL (USING TTL); default_time_to_live only guards rows written without one.
+-- TWCS groups SSTables by write time so expired windows are dropped whole without compacting live data.
+CREATE TABLE IF NOT EXISTS user_notifications (
+    user_id UUID,
+    bucket TEXT,
+    notification_id TIMEUUID,
+    title TEXT,
+    body TEXT,
+    type TEXT,
+    metadata TEXT,
+    is_read BOOLEAN,
+    created_at TIMESTAMP,
+    PRIMARY KEY ((user_id, bucket), notification_id)
+) WITH CLUSTERING ORDER BY (notification_id DESC)
+    AND compaction = {'class': 'TimeWindowCompactionStrategy', 'compaction_window_unit': 'DAYS', 'compaction_window_size': 7}
+    AND default_time_to_live = 7776000
+    AND gc_grace_seconds = 259200;
+
+-- Non-empty notification buckets per user, newest first (rows expire with the longest retention + 1 month)
+CREATE TABLE IF NOT EXISTS user_notification_buckets (
+    user_id UUID,
+    bucket TEXT,
+    PRIMARY KEY (user_id, bucket)
+) WITH CLUSTERING ORDER BY (bucket DESC);
+
+-- Per-user watermarks replacing range writes:
+-- cleared_before: notifications up to this TIMEUUID are hidden ("delete all"), they expire by TTL
+-- read_before:    notifications up to this TIMEUUID are read ("mark all read")
+CREATE TABLE IF NOT EXISTS user_notification_state (
+    user_id UUID PRIMARY KEY,
+    cleared_before TIMEUUID,
+    read_before TIMEUUID
+);
+
+-- The legacy "notifications" table is no longer written. Existing rows are copied with
+-- chat.notification.bucket-backfill-on-startup=true (NotificationBucketBackfillJob) and the table can be dropped afterwards.
@@ -0,0 +1,18 @@
+-- Migration script: Notification preferences
+-- Purpose: Per-user notification settings checked before notification fan-out writes/pushes
+-- Author: System
+-- Date: 2026-10-19
+
+-- One partition per user so all settings load with a single query.
+-- conversation_id = 00000000-0000-0000-0000-000000000000 holds the user-wide row
+-- (disabled_types bitmask, mentions_only); other rows are per-conversation mute / mentions-only.
+-- The muted_until cell of a timed mute carries a TTL ending at muted_until, so expired mutes disappear on their own.
+CREATE TABLE IF NOT EXISTS user_notification_preferences (
+    user_id UUID,
+    conversation_id UUID,
+    disabled_types INT,
+    mentions_only BOOLEAN,
+    muted_until TIMESTAMP,
+    updated_at TIMESTAMP,
+    PRIMARY KEY (user_id, conversation_id)
+);
@@ -0,0 +1,9 @@
+-- Migration script: Add Cloudinary file metadata to message_attachments
+-- Purpose: Persist fileAttachments sent with MessageRequest so history pages can serve them
+-- Author: System
+-- Date: 2026-10-19
+
+ALTER TABLE message_attachments ADD resource_type TEXT;
+ALTER TABLE message_attachments ADD public_id TEXT;
+ALTER TABLE message_attachments ADD thumbnail_url TEXT;
+ALTER TABLE message_attachments ADD medium_url TEXT;
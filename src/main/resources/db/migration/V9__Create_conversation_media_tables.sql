@@ -0,0 +1,32 @@
+-- Migration script: Create conversation media gallery index
+-- Purpose: Denormalized index of file/image/video attachments per conversation, paged newest first
+-- Author: System
+-- Date: 2026-10-19
+
+-- Each attachment is written twice: under resource_type 'all' and under its own type (image, video, raw).
+-- Partitions are bounded by a monthly bucket (yyyy-MM, UTC) derived from media_id.
+CREATE TABLE IF NOT EXISTS conversation_media (
+    conversation_id UUID,
+    resource_type TEXT,
+    bucket TEXT,
+    media_id TIMEUUID,
+    message_id TIMEUUID,
+    sender_id UUID,
+    media_type TEXT,
+    url TEXT,
+    thumbnail_url TEXT,
+    medium_url TEXT,
+    file_name TEXT,
+    content_type TEXT,
+    file_size BIGINT,
+    public_id TEXT,
+    PRIMARY KEY ((conversation_id, resource_type, bucket), media_id)
+) WITH CLUSTERING ORDER BY (media_id DESC);
+
+-- Non-empty buckets per (conversation, resource_type) so the reader walks only buckets that have media
+CREATE TABLE IF NOT EXISTS conversation_media_buckets (
+    conversation_id UUID,
+    resource_type TEXT,
+    bucket TEXT,
+    PRIMARY KEY ((conversation_id, resource_type), bucket)
+) WITH CLUSTERING ORDER BY (bucket DESC);
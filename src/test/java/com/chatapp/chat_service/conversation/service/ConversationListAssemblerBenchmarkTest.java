@@ -0,0 +1,142 @@
+package com.chatapp.chat_service.conversation.service;
+
+import com.chatapp.chat_service.auth.entity.User;
+import com.chatapp.chat_service.auth.repository.UserRepository;
+import com.chatapp.chat_service.conversation.dto.ConversationResponseDto;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.presence.dto.UserPresenceResponse;
+import com.chatapp.chat_service.presence.service.PresenceService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmark dựng danh sách 50/300/1000 conversation (3/4 DM, 1/4 group): mỗi lượt gọi Redis/Cassandra giả lập 2 ms.
+ * Kiểm tra số round trip không phụ thuộc số conversation (1 getAll, profile theo lô 100, 1 presence)
+ * và nhanh hơn tra cứu theo từng conversation. Chạy với -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+class ConversationListAssemblerBenchmarkTest {
+
+    private static final int GROUP_SIZE = 200;
+    private static final long ROUND_TRIP_MS = 2;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private final UUID currentUserId = UUID.randomUUID();
+    private final List<Conversation> conversations = new ArrayList<>();
+    private final Map<UUID, MemberSetSnapshot> memberSets = new HashMap<>();
+    private final Map<UUID, UUID> peers = new HashMap<>();
+
+    private ExecutorService executor;
+    private ConversationMemberSetCache memberSetCache;
+    private UserRepository userRepository;
+    private PresenceService presenceService;
+    private ConversationListAssembler assembler;
+
+    @BeforeEach
+    void setUp() {
+        memberSetCache = mock(ConversationMemberSetCache.class);
+        when(memberSetCache.getAll(anyCollection())).thenAnswer(invocation -> {
+            Thread.sleep(ROUND_TRIP_MS);
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().collect(Collectors.toMap(id -> id, memberSets::get));
+        });
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findUsersByIds(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(ROUND_TRIP_MS);
+            List<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> User.builder().user_id(id).username("u-" + id).build()).toList();
+        });
+        presenceService = mock(PresenceService.class);
+        when(presenceService.getBatchPresence(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(ROUND_TRIP_MS);
+            List<UUID> ids = invocation.getArgument(0);
+            return ids.stream().collect(Collectors.toMap(id -> id,
+                    id -> UserPresenceResponse.builder().userId(id).isOnline(true).build()));
+        });
+
+        executor = Executors.newFixedThreadPool(8); // chat.conversation.assembly.pool-size mặc định
+        assembler = new ConversationListAssembler(memberSetCache, userRepository, presenceService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @ParameterizedTest(name = "{0} conversations")
+    @ValueSource(ints = {50, 300, 1000})
+    void assembleConversationList(int size) {
+        int dms = size * 3 / 4;
+        createConversations(dms, size - dms);
+
+        for (int i = 0; i < WARMUP; i++) {
+            assembler.assemble(conversations, currentUserId);
+        }
+        clearInvocations(memberSetCache, userRepository, presenceService);
+
+        long totalNanos = 0;
+        List<ConversationResponseDto> result = List.of();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            result = assembler.assemble(conversations, currentUserId);
+            totalNanos += System.nanoTime() - start;
+        }
+
+        int profileBatches = (dms + 99) / 100;
+        verify(memberSetCache, times(ITERATIONS)).getAll(anyCollection());
+        verify(userRepository, times(profileBatches * ITERATIONS)).findUsersByIds(anyList());
+        verify(presenceService, times(ITERATIONS)).getBatchPresence(anyList());
+
+        assertThat(result).hasSize(size);
+        for (ConversationResponseDto dto : result) {
+            if ("dm".equals(dto.getType())) {
+                assertThat(dto.getOtherParticipant().getUserId()).isEqualTo(peers.get(dto.getConversationId()));
+                assertThat(dto.getOtherParticipant().isOnline()).isTrue();
+            } else {
+                assertThat(dto.getMemberCount()).isEqualTo(GROUP_SIZE);
+            }
+        }
+
+        double avgMs = totalNanos / 1e6 / ITERATIONS;
+        long perConversationMs = (dms * 3L + (size - dms)) * ROUND_TRIP_MS;
+        log.info("assemble {} conversations: avg {} ms (per-conversation lookups: >= {} ms)",
+                size, String.format("%.1f", avgMs), perConversationMs);
+        assertThat(avgMs).isLessThan(perConversationMs);
+    }
+
+    private void createConversations(int dms, int groups) {
+        for (int i = 0; i < dms; i++) {
+            UUID conversationId = UUID.randomUUID();
+            UUID peerId = UUID.randomUUID();
+            conversations.add(Conversation.builder().conversationId(conversationId).type("dm").build());
+            memberSets.put(conversationId, MemberSetSnapshot.of(1, List.of(currentUserId, peerId)));
+            peers.put(conversationId, peerId);
+        }
+        for (int i = 0; i < groups; i++) {
+            UUID conversationId = UUID.randomUUID();
+            List<UUID> members = new ArrayList<>(List.of(currentUserId));
+            for (int j = 1; j < GROUP_SIZE; j++) {
+                members.add(UUID.randomUUID());
+            }
+            conversations.add(Conversation.builder().conversationId(conversationId).type("group").name("g" + i).build());
+            memberSets.put(conversationId, MemberSetSnapshot.of(1, members));
+        }
+        Collections.shuffle(conversations, new Random(42));
+    }
+}
@@ -0,0 +1,74 @@
+package com.chatapp.chat_service.conversation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSetSnapshotTest {
+
+    @Test
+    void ofSortsAndDeduplicatesMembers() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        MemberSetSnapshot snapshot = MemberSetSnapshot.of(3, Arrays.asList(b, a, b, null));
+
+        assertThat(snapshot.getVersion()).isEqualTo(3);
+        assertThat(snapshot.count()).isEqualTo(2);
+        assertThat(snapshot.memberIds()).containsExactly(a.compareTo(b) < 0 ? new UUID[]{a, b} : new UUID[]{b, a});
+    }
+
+    @Test
+    void containsFindsEveryMemberAndRejectsOthers() {
+        List<UUID> members = randomIds(1000);
+        MemberSetSnapshot snapshot = MemberSetSnapshot.of(1, members);
+
+        assertThat(members).allMatch(snapshot::contains);
+        assertThat(snapshot.contains(UUID.randomUUID())).isFalse();
+        assertThat(snapshot.contains(null)).isFalse();
+    }
+
+    @Test
+    void emptySnapshotContainsNothing() {
+        MemberSetSnapshot snapshot = MemberSetSnapshot.of(0, List.of());
+
+        assertThat(snapshot.count()).isZero();
+        assertThat(snapshot.memberIds()).isEmpty();
+        assertThat(snapshot.contains(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        MemberSetSnapshot snapshot = MemberSetSnapshot.of(7, randomIds(50));
+
+        byte[] bytes = snapshot.toBytes();
+        MemberSetSnapshot restored = MemberSetSnapshot.fromBytes(7, bytes);
+
+        assertThat(bytes).hasSize(50 * 16);
+        assertThat(restored.getVersion()).isEqualTo(7);
+        assertThat(restored.memberIds()).isEqualTo(snapshot.memberIds());
+    }
+
+    @Test
+    void applyAddsAndRemovesMembersWithNewVersion() {
+        UUID kept = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        UUID added = UUID.randomUUID();
+        MemberSetSnapshot snapshot = MemberSetSnapshot.of(1, List.of(kept, removed));
+
+        MemberSetSnapshot updated = snapshot.apply(2, List.of(added), List.of(removed));
+
+        assertThat(updated.getVersion()).isEqualTo(2);
+        assertThat(updated.memberIds()).containsExactlyInAnyOrder(kept, added);
+        assertThat(snapshot.memberIds()).containsExactlyInAnyOrder(kept, removed);
+    }
+
+    private static List<UUID> randomIds(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+package com.chatapp.chat_service.notification.event;
+
+import com.chatapp.chat_service.notification.dto.NotificationRequest;
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationIntentTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2026-03-01T10:15:30.123Z");
+
+    @Test
+    void notificationIdIsStableForSameIntentAndRecipient() {
+        UUID intentId = UUID.randomUUID();
+        UUID recipientId = UUID.randomUUID();
+
+        assertThat(intent(intentId).notificationIdFor(recipientId))
+                .isEqualTo(intent(intentId).notificationIdFor(recipientId));
+    }
+
+    @Test
+    void notificationIdDiffersPerRecipientAndIntent() {
+        UUID intentId = UUID.randomUUID();
+        UUID recipientId = UUID.randomUUID();
+
+        assertThat(intent(intentId).notificationIdFor(recipientId))
+                .isNotEqualTo(intent(intentId).notificationIdFor(UUID.randomUUID()))
+                .isNotEqualTo(intent(UUID.randomUUID()).notificationIdFor(recipientId));
+    }
+
+    @Test
+    void notificationIdIsTimeUuidAtCreatedAt() {
+        UUID notificationId = intent(UUID.randomUUID()).notificationIdFor(UUID.randomUUID());
+
+        assertThat(notificationId.version()).isEqualTo(1);
+        assertThat(notificationId.variant()).isEqualTo(2);
+        assertThat(Uuids.unixTimestamp(notificationId)).isEqualTo(CREATED_AT.toEpochMilli());
+    }
+
+    @Test
+    void toRequestsUsesDerivedIds() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        NotificationIntent intent = intent(UUID.randomUUID());
+        intent.setRecipientIds(List.of(first, second));
+
+        List<NotificationRequest> requests = intent.toRequests();
+
+        assertThat(requests).extracting(NotificationRequest::getUserId).containsExactly(first, second);
+        assertThat(requests).extracting(NotificationRequest::getNotificationId)
+                .containsExactly(intent.notificationIdFor(first), intent.notificationIdFor(second));
+    }
+
+    private static NotificationIntent intent(UUID intentId) {
+        return NotificationIntent.builder()
+                .intentId(intentId)
+                .recipientIds(List.of())
+                .title("title")
+                .type("SYSTEM")
+                .createdAt(CREATED_AT)
+                .build();
+    }
+}
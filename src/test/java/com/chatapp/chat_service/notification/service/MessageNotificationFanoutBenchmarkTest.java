@@ -0,0 +1,135 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.auth.dto.UserDTO;
+import com.chatapp.chat_service.conversation.entity.Conversation;
+import com.chatapp.chat_service.conversation.service.ConversationBulkLoader;
+import com.chatapp.chat_service.conversation.service.ConversationMemberSetCache;
+import com.chatapp.chat_service.conversation.service.MemberSetSnapshot;
+import com.chatapp.chat_service.message.dto.MessageResponseDto;
+import com.chatapp.chat_service.websocket.service.ConversationViewerService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmark fan-out notification cho conversation 5.000 member: chunk 500, pool 4 thread,
+ * mỗi lần ghi 1 chunk giả lập 5 ms (preferences + batch insert + counter).
+ * Kiểm tra mỗi recipient được ghi đúng 1 lần, bỏ người gửi và người đang xem, và các chunk chạy song song
+ * (nhanh hơn ghi tuần tự). Chạy với -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+class MessageNotificationFanoutBenchmarkTest {
+
+    private static final int MEMBERS = 5_000;
+    private static final int VIEWERS = 100;
+    private static final int CHUNK_SIZE = 500;
+    private static final long CHUNK_WRITE_MS = 5;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private final UUID conversationId = UUID.randomUUID();
+    private final List<UUID> memberIds = new ArrayList<>();
+    private final Set<UUID> viewers = new HashSet<>();
+    private UUID senderId;
+
+    private ThreadPoolExecutor executor;
+    private NotificationService notificationService;
+    private MessageNotificationFanout fanout;
+    private final ConcurrentMap<UUID, Integer> written = new ConcurrentHashMap<>();
+    private volatile CountDownLatch done;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < MEMBERS; i++) {
+            memberIds.add(UUID.randomUUID());
+        }
+        senderId = memberIds.get(0);
+        viewers.addAll(memberIds.subList(1, 1 + VIEWERS));
+
+        ConversationMemberSetCache memberSetCache = mock(ConversationMemberSetCache.class);
+        when(memberSetCache.get(conversationId)).thenReturn(MemberSetSnapshot.of(1, memberIds));
+        ConversationBulkLoader bulkLoader = mock(ConversationBulkLoader.class);
+        when(bulkLoader.load(conversationId)).thenReturn(Optional.of(Conversation.builder()
+                .conversationId(conversationId).type("group").build()));
+        ConversationViewerService viewerService = mock(ConversationViewerService.class);
+        when(viewerService.getViewers(conversationId)).thenReturn(viewers);
+
+        notificationService = mock(NotificationService.class);
+        doAnswer(invocation -> {
+            Collection<UUID> chunk = invocation.getArgument(0);
+            Thread.sleep(CHUNK_WRITE_MS);
+            chunk.forEach(id -> written.merge(id, 1, Integer::sum));
+            done.countDown();
+            return null;
+        }).when(notificationService).createMessageNotifications(anyCollection(), anySet(), any(), any(), any(),
+                anyString(), anyString());
+
+        // Giống notificationFanoutExecutor mặc định: 4 thread, queue 500, đầy thì chạy trên thread gọi
+        executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(500),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        fanout = new MessageNotificationFanout(memberSetCache, bulkLoader, viewerService, notificationService,
+                executor, CHUNK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fanOutToFiveThousandMembers() throws Exception {
+        int recipients = MEMBERS - 1 - VIEWERS;
+        int chunks = (recipients + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        for (int i = 0; i < WARMUP; i++) {
+            runOnce(chunks);
+        }
+        written.clear();
+        clearInvocations(notificationService);
+
+        long totalNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            totalNanos += runOnce(chunks);
+        }
+
+        verify(notificationService, times(chunks * ITERATIONS)).createMessageNotifications(anyCollection(), anySet(),
+                any(), any(), any(), anyString(), anyString());
+        assertThat(written).hasSize(recipients);
+        assertThat(written.values()).allMatch(count -> count == ITERATIONS);
+        assertThat(written).doesNotContainKey(senderId);
+        assertThat(written.keySet()).doesNotContainAnyElementsOf(viewers);
+
+        double avgMs = totalNanos / 1e6 / ITERATIONS;
+        log.info("fan-out {} recipients in {} chunks: avg {} ms (serial chunk writes: {} ms)",
+                recipients, chunks, String.format("%.1f", avgMs), chunks * CHUNK_WRITE_MS);
+        assertThat(avgMs).isLessThan(chunks * CHUNK_WRITE_MS);
+    }
+
+    private long runOnce(int chunks) throws InterruptedException {
+        done = new CountDownLatch(chunks);
+        long start = System.nanoTime();
+        fanout.onMessageSaved(message());
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        return System.nanoTime() - start;
+    }
+
+    private MessageResponseDto message() {
+        return MessageResponseDto.builder()
+                .messageId(UUID.randomUUID())
+                .conversationId(conversationId)
+                .sender(UserDTO.builder().user_id(senderId).username("sender").build())
+                .content("hello")
+                .mentionedUsers(List.of())
+                .build();
+    }
+}
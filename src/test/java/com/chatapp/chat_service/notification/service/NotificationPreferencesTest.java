@@ -0,0 +1,96 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification.NotificationType;
+import com.chatapp.chat_service.notification.entity.NotificationPreference;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationPreferencesTest {
+
+    private static final long NOW = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    void noRowsGivesDefaultThatAllowsEverything() {
+        NotificationPreferences preferences = NotificationPreferences.from(List.of());
+
+        assertThat(preferences).isSameAs(NotificationPreferences.DEFAULT);
+        assertThat(preferences.allows(NotificationType.MESSAGE, UUID.randomUUID(), NOW)).isTrue();
+        assertThat(preferences.allows(NotificationType.FRIEND_REQUEST, null, NOW)).isTrue();
+    }
+
+    @Test
+    void typeMaskRoundTripsAndNeverContainsSystem() {
+        int mask = NotificationPreferences.typeMask(List.of(NotificationType.REACTION, NotificationType.SYSTEM, "UNKNOWN"));
+
+        assertThat(NotificationPreferences.types(mask)).containsExactly(NotificationType.REACTION);
+        assertThat(NotificationPreferences.typeBit("UNKNOWN")).isZero();
+    }
+
+    @Test
+    void disabledTypesAreFilteredButSystemIsAlwaysAllowed() {
+        int mask = NotificationPreferences.typeBit(NotificationType.REACTION)
+                | NotificationPreferences.typeBit(NotificationType.SYSTEM);
+        NotificationPreferences preferences = NotificationPreferences.from(List.of(userWide(mask, false)));
+
+        assertThat(preferences.allows(NotificationType.REACTION, UUID.randomUUID(), NOW)).isFalse();
+        assertThat(preferences.allows(NotificationType.MESSAGE, UUID.randomUUID(), NOW)).isTrue();
+        assertThat(preferences.allows(NotificationType.SYSTEM, null, NOW)).isTrue();
+    }
+
+    @Test
+    void userWideMentionsOnlyKeepsMentionsAndNonConversationTypes() {
+        NotificationPreferences preferences = NotificationPreferences.from(List.of(userWide(0, true)));
+        UUID conversationId = UUID.randomUUID();
+
+        assertThat(preferences.allows(NotificationType.MESSAGE, conversationId, NOW)).isFalse();
+        assertThat(preferences.allows(NotificationType.MENTION, conversationId, NOW)).isTrue();
+        assertThat(preferences.allows(NotificationType.FRIEND_REQUEST, null, NOW)).isTrue();
+    }
+
+    @Test
+    void mutedConversationIsFilteredUntilMuteExpires() {
+        UUID muted = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        NotificationPreferences preferences = NotificationPreferences.from(List.of(
+                conversation(muted, Instant.ofEpochMilli(NOW + 60_000), false)));
+
+        assertThat(preferences.allows(NotificationType.MESSAGE, muted, NOW)).isFalse();
+        assertThat(preferences.allows(NotificationType.MENTION, muted, NOW)).isFalse();
+        assertThat(preferences.allows(NotificationType.MESSAGE, muted, NOW + 60_001)).isTrue();
+        assertThat(preferences.allows(NotificationType.MESSAGE, other, NOW)).isTrue();
+    }
+
+    @Test
+    void conversationMentionsOnlyAppliesToThatConversationOnly() {
+        UUID quiet = UUID.randomUUID();
+        NotificationPreferences preferences = NotificationPreferences.from(List.of(
+                conversation(quiet, null, true),
+                conversation(UUID.randomUUID(), null, false),
+                conversation(UUID.randomUUID(), null, false)));
+
+        assertThat(preferences.allows(NotificationType.MESSAGE, quiet, NOW)).isFalse();
+        assertThat(preferences.allows(NotificationType.MENTION, quiet, NOW)).isTrue();
+        assertThat(preferences.allows(NotificationType.MESSAGE, UUID.randomUUID(), NOW)).isTrue();
+    }
+
+    private static NotificationPreference userWide(int disabledTypes, boolean mentionsOnly) {
+        return NotificationPreference.builder()
+                .conversationId(NotificationPreference.USER_WIDE)
+                .disabledTypes(disabledTypes)
+                .mentionsOnly(mentionsOnly)
+                .build();
+    }
+
+    private static NotificationPreference conversation(UUID conversationId, Instant mutedUntil, boolean mentionsOnly) {
+        return NotificationPreference.builder()
+                .conversationId(conversationId)
+                .mutedUntil(mutedUntil)
+                .mentionsOnly(mentionsOnly)
+                .build();
+    }
+}
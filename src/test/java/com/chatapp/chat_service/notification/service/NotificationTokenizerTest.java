@@ -0,0 +1,70 @@
+package com.chatapp.chat_service.notification.service;
+
+import com.chatapp.chat_service.notification.entity.Notification;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationTokenizerTest {
+
+    @Test
+    void tokensAreLowercasedWithoutVietnameseMarks() {
+        assertThat(NotificationTokenizer.tokens("Đức đã nhắn tin", "Xin CHÀO, bạn!"))
+                .containsExactly("duc", "da", "nhan", "tin", "xin", "chao", "ban");
+    }
+
+    @Test
+    void blankAndNullTextsGiveNoTokens() {
+        assertThat(NotificationTokenizer.tokens(null, "  ", "--")).isEmpty();
+    }
+
+    @Test
+    void prefixesCoverMinToMaxLength() {
+        Set<String> prefixes = NotificationTokenizer.prefixes(notification("a nhan", "internationalization"));
+
+        assertThat(prefixes).containsExactly("nh", "nha", "nhan",
+                "in", "int", "inte", "inter", "intern", "interna", "internat", "internati", "internatio");
+    }
+
+    @Test
+    void onlyLeadingTokensAreIndexed() {
+        String body = IntStream.range(0, 200).mapToObj(i -> "token" + i).collect(Collectors.joining(" "));
+        Set<String> prefixes = NotificationTokenizer.prefixes(notification("", body));
+
+        assertThat(prefixes).contains("token" + (NotificationTokenizer.MAX_INDEXED_TOKENS - 1))
+                .doesNotContain("token" + NotificationTokenizer.MAX_INDEXED_TOKENS);
+    }
+
+    @Test
+    void prefixesAreCappedPerNotification() {
+        String body = IntStream.range(0, 50).mapToObj(i -> i + "abcdefghij").collect(Collectors.joining(" "));
+
+        assertThat(NotificationTokenizer.prefixes(notification("", body)))
+                .hasSize(NotificationTokenizer.MAX_INDEXED_PREFIXES);
+    }
+
+    @Test
+    void indexTermTruncatesLongTokensAndSkipsShortOnes() {
+        assertThat(NotificationTokenizer.indexTerm("a")).isNull();
+        assertThat(NotificationTokenizer.indexTerm("nhan")).isEqualTo("nhan");
+        assertThat(NotificationTokenizer.indexTerm("internationalization")).isEqualTo("internatio");
+    }
+
+    @Test
+    void matchesRequiresEveryQueryTokenAsPrefix() {
+        Notification notification = notification("Tin nhắn mới", "từ Đức");
+
+        assertThat(NotificationTokenizer.matches(notification, List.of())).isTrue();
+        assertThat(NotificationTokenizer.matches(notification, List.of("nha", "du"))).isTrue();
+        assertThat(NotificationTokenizer.matches(notification, List.of("nha", "xyz"))).isFalse();
+    }
+
+    private static Notification notification(String title, String body) {
+        return Notification.builder().title(title).body(body).build();
+    }
+}